@@ -4,6 +4,7 @@
  */
 package com.ljfxyj2008.scalabletimebarDemo;
 
+import android.content.Intent;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.util.Log;
@@ -48,6 +49,7 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
 
         zoomInButton.setOnClickListener(this);
         zoomOutButton.setOnClickListener(this);
+        findViewById(R.id.stress_test_btn).setOnClickListener(this);
 
         long timebarRightEndPointTime = currentRealDateTime + 3 * ONE_HOUR_IN_MS;
         long timebarLeftEndPointTime = timebarRightEndPointTime - recordDays * ONE_DAY_IN_MS;
@@ -100,6 +102,10 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
                 mScalableTimebarView.scaleByPressingButton(false);
                 break;
 
+            case R.id.stress_test_btn:
+                startActivity(new Intent(this, StressActivity.class));
+                break;
+
             default:
                 break;
         }
@@ -0,0 +1,460 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scalabletimebarDemo;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.Handler;
+import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import com.ljfxyj2008.scaletimebar.ScalableTimebarView;
+import com.ljfxyj2008.scaletimebar.core.PackedSegmentStore;
+import com.ljfxyj2008.scaletimebar.core.TimebarFrameMetrics;
+import com.ljfxyj2008.scaletimebar.core.TimebarRenderStats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stress screen: up to 16 timebars showing up to a million synthetic segments, driven by a scripted sequence of
+ * pans, a fling and zooms, with frame time, jank and GC counters shown on top.
+ * <p>
+ * Every run plays the same script on the same seeded data, so numbers can be compared across devices and
+ * library versions. A summary is logged at the end of every run.
+ */
+public class StressActivity extends AppCompatActivity implements View.OnClickListener {
+    private static final String TAG = "StressActivity";
+
+    private static final int[] SEGMENT_COUNTS = {1000, 10000, 100000, 1000000};
+    private static final int[] TIMEBAR_COUNTS = {1, 2, 4, 8, 16};
+    private static final int RECORD_DAYS = 7;
+
+    private static final long ONE_HOUR_IN_MS = 60 * 60 * 1000;
+    private static final long ONE_DAY_IN_MS = 24 * ONE_HOUR_IN_MS;
+
+    /**
+     * Script phases, each lasting PHASE_STEP_COUNT steps except the fling which lasts until it stops
+     */
+    private static final int PHASE_PAN_RIGHT = 0;
+    private static final int PHASE_PAN_LEFT = 1;
+    private static final int PHASE_FLING = 2;
+    private static final int PHASE_ZOOM_IN = 3;
+    private static final int PHASE_ZOOM_OUT = 4;
+    private static final int PHASE_COUNT = 5;
+    private static final String[] PHASE_NAMES = {"pan right", "pan left", "fling", "zoom in", "zoom out"};
+    private static final int PHASE_STEP_COUNT = 120;
+
+    /**
+     * One script step per 60Hz frame
+     */
+    private static final long SCRIPT_STEP_INTERVAL_IN_MS = 16;
+
+    /**
+     * Pan speed in screens per step (one screen per second), fling start speed and its decay per step
+     */
+    private static final float PAN_SCREENS_PER_STEP = 1f / 60;
+    private static final float FLING_START_SCREENS_PER_STEP = 4f / 60;
+    private static final float FLING_DECAY_PER_STEP = 0.96f;
+    private static final float FLING_STOP_SCREENS_PER_STEP = 0.01f / 60;
+    private static final float ZOOM_FACTOR_PER_STEP = 1.03f;
+
+    /**
+     * A frame interval longer than one and a half 60Hz frames means at least one vsync was missed
+     */
+    private static final long JANK_THRESHOLD_IN_NANOSECOND = 25000000L;
+
+    private static final long OVERLAY_UPDATE_INTERVAL_IN_MS = 500;
+
+    private Button datasetButton, segmentCountButton, timebarCountButton, runButton;
+    private TextView overlayTextView;
+    private LinearLayout timebarContainer;
+    private final List<ScalableTimebarView> timebars = new ArrayList<>();
+    private final Handler handler = new Handler();
+
+    private int dataset = SyntheticSegmentGenerator.DATASET_UNIFORM;
+    private int segmentCountIndex = 0;
+    private int timebarCountIndex = 0;
+    private PackedSegmentStore segmentStore = PackedSegmentStore.EMPTY;
+    private boolean generating;
+
+    private long mostLeftTime;
+    private long mostRightTime;
+
+    private boolean running;
+    private int phase;
+    private int phaseStep;
+    private float flingScreensPerStep;
+
+    /**
+     * Counters of the current run, reset when it starts
+     */
+    private long drawDurationTotal;
+    private long drawDurationMax;
+    private long drawCount;
+    private long frameCount;
+    private long frameIntervalTotal;
+    private long frameIntervalMax;
+    private long jankCount;
+    private long gcCountAtStart;
+
+    private FrameIntervalMonitor frameIntervalMonitor;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_stress);
+
+        datasetButton = (Button) findViewById(R.id.stress_dataset_btn);
+        segmentCountButton = (Button) findViewById(R.id.stress_segment_count_btn);
+        timebarCountButton = (Button) findViewById(R.id.stress_timebar_count_btn);
+        runButton = (Button) findViewById(R.id.stress_run_btn);
+        overlayTextView = (TextView) findViewById(R.id.stress_overlay_tv);
+        timebarContainer = (LinearLayout) findViewById(R.id.stress_timebar_container);
+
+        datasetButton.setOnClickListener(this);
+        segmentCountButton.setOnClickListener(this);
+        timebarCountButton.setOnClickListener(this);
+        runButton.setOnClickListener(this);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            frameIntervalMonitor = new FrameIntervalMonitor();
+        }
+
+        mostRightTime = System.currentTimeMillis();
+        mostLeftTime = mostRightTime - RECORD_DAYS * ONE_DAY_IN_MS;
+
+        updateButtons();
+        createTimebars();
+        generateSegments();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        stopRun();
+    }
+
+    @Override
+    public void onClick(View v) {
+        switch (v.getId()) {
+            case R.id.stress_dataset_btn:
+                dataset = (dataset + 1) % SyntheticSegmentGenerator.DATASET_COUNT;
+                generateSegments();
+                break;
+
+            case R.id.stress_segment_count_btn:
+                segmentCountIndex = (segmentCountIndex + 1) % SEGMENT_COUNTS.length;
+                generateSegments();
+                break;
+
+            case R.id.stress_timebar_count_btn:
+                timebarCountIndex = (timebarCountIndex + 1) % TIMEBAR_COUNTS.length;
+                stopRun();
+                createTimebars();
+                break;
+
+            case R.id.stress_run_btn:
+                if (running) {
+                    stopRun();
+                } else {
+                    startRun();
+                }
+                break;
+
+            default:
+                break;
+        }
+        updateButtons();
+    }
+
+    private void updateButtons() {
+        datasetButton.setText("Data: " + SyntheticSegmentGenerator.getDatasetName(dataset));
+        segmentCountButton.setText("Segments: " + SEGMENT_COUNTS[segmentCountIndex]);
+        timebarCountButton.setText("Timebars: " + TIMEBAR_COUNTS[timebarCountIndex]);
+        runButton.setText(running ? "Stop" : "Run script");
+        runButton.setEnabled(!generating);
+    }
+
+    private void createTimebars() {
+        timebarContainer.removeAllViews();
+        timebars.clear();
+        int margin = (int) (4 * getResources().getDisplayMetrics().density);
+        for (int i = 0; i < TIMEBAR_COUNTS[timebarCountIndex]; i++) {
+            FrameLayout wrapper = new FrameLayout(this);
+            LinearLayout.LayoutParams wrapperParams = new LinearLayout.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+            wrapperParams.bottomMargin = margin;
+            timebarContainer.addView(wrapper, wrapperParams);
+
+            ScalableTimebarView timebar = new ScalableTimebarView(this);
+            timebar.setBackgroundColor(0xcd000000);
+            wrapper.addView(timebar, new FrameLayout.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.BOTTOM));
+            //Layout params must be set before, initializing applies the standard width to them
+            timebar.initTimebarLengthAndPosition(mostLeftTime, mostRightTime, mostRightTime - ONE_DAY_IN_MS / 2);
+            timebar.setSegmentStore(segmentStore);
+            timebar.setOnFrameMetricsListener(frameMetricsListener);
+            timebars.add(timebar);
+        }
+    }
+
+    /**
+     * Generate the selected dataset on a background thread, a million segments take a moment
+     */
+    private void generateSegments() {
+        if (generating) {
+            return;
+        }
+        stopRun();
+        generating = true;
+        overlayTextView.setText("Generating...");
+        final int generatedDataset = dataset;
+        final int segmentCount = SEGMENT_COUNTS[segmentCountIndex];
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long startTime = System.nanoTime();
+                final PackedSegmentStore store = SyntheticSegmentGenerator.generate(generatedDataset, segmentCount, mostLeftTime, mostRightTime);
+                final long durationInMillisecond = (System.nanoTime() - startTime) / 1000000;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        generating = false;
+                        segmentStore = store;
+                        for (ScalableTimebarView timebar : timebars) {
+                            timebar.setSegmentStore(store);
+                        }
+                        overlayTextView.setText(store.size() + " segments generated in " + durationInMillisecond + " ms");
+                        updateButtons();
+                        if (generatedDataset != dataset || segmentCount != SEGMENT_COUNTS[segmentCountIndex]) {
+                            //Selection changed while generating
+                            generateSegments();
+                        }
+                    }
+                });
+            }
+        }, "StressDataGenerator").start();
+    }
+
+    private void startRun() {
+        running = true;
+        phase = PHASE_PAN_RIGHT;
+        phaseStep = 0;
+        drawDurationTotal = 0;
+        drawDurationMax = 0;
+        drawCount = 0;
+        frameCount = 0;
+        frameIntervalTotal = 0;
+        frameIntervalMax = 0;
+        jankCount = 0;
+        gcCountAtStart = getGcCount();
+        for (ScalableTimebarView timebar : timebars) {
+            timebar.getFrameMetrics().reset();
+        }
+        if (frameIntervalMonitor != null) {
+            frameIntervalMonitor.start();
+        }
+        handler.post(scriptStep);
+        handler.postDelayed(overlayUpdate, OVERLAY_UPDATE_INTERVAL_IN_MS);
+    }
+
+    private void stopRun() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        handler.removeCallbacks(scriptStep);
+        handler.removeCallbacks(overlayUpdate);
+        if (frameIntervalMonitor != null) {
+            frameIntervalMonitor.stop();
+        }
+        String summary = buildOverlayText();
+        overlayTextView.setText(summary);
+        Log.i(TAG, "Run finished: " + SyntheticSegmentGenerator.getDatasetName(dataset) + ", " + segmentStore.size()
+                + " segments, " + timebars.size() + " timebars\n" + summary);
+        updateButtons();
+    }
+
+    private final Runnable scriptStep = new Runnable() {
+        @Override
+        public void run() {
+            if (!running) {
+                return;
+            }
+            if (!performScriptStep()) {
+                stopRun();
+                return;
+            }
+            handler.postDelayed(this, SCRIPT_STEP_INTERVAL_IN_MS);
+        }
+    };
+
+    /**
+     * Apply one step of the script to every timebar
+     *
+     * @return false once the script is over
+     */
+    private boolean performScriptStep() {
+        if (phase == PHASE_FLING && phaseStep == 0) {
+            flingScreensPerStep = FLING_START_SCREENS_PER_STEP;
+        }
+        boolean phaseOver;
+        switch (phase) {
+            case PHASE_PAN_RIGHT:
+                panAll(PAN_SCREENS_PER_STEP);
+                phaseOver = phaseStep >= PHASE_STEP_COUNT;
+                break;
+            case PHASE_PAN_LEFT:
+                panAll(-PAN_SCREENS_PER_STEP);
+                phaseOver = phaseStep >= PHASE_STEP_COUNT;
+                break;
+            case PHASE_FLING:
+                panAll(-flingScreensPerStep);
+                flingScreensPerStep *= FLING_DECAY_PER_STEP;
+                phaseOver = flingScreensPerStep < FLING_STOP_SCREENS_PER_STEP;
+                break;
+            case PHASE_ZOOM_IN:
+                scaleAll(ZOOM_FACTOR_PER_STEP);
+                phaseOver = phaseStep >= PHASE_STEP_COUNT;
+                break;
+            default:
+                scaleAll(1 / ZOOM_FACTOR_PER_STEP);
+                phaseOver = phaseStep >= PHASE_STEP_COUNT;
+                break;
+        }
+        phaseStep++;
+        if (phaseOver) {
+            phase++;
+            phaseStep = 0;
+        }
+        return phase < PHASE_COUNT;
+    }
+
+    private void panAll(float screens) {
+        for (ScalableTimebarView timebar : timebars) {
+            long screenDuration = timebar.getScreenRightTimeInMillisecond() - timebar.getScreenLeftTimeInMillisecond();
+            long time = timebar.getCurrentTimeInMillisecond() + (long) (screens * screenDuration);
+            timebar.setCurrentTimeInMillisecond(Math.max(mostLeftTime, Math.min(mostRightTime, time)));
+        }
+    }
+
+    private void scaleAll(float factor) {
+        for (ScalableTimebarView timebar : timebars) {
+            timebar.scaleTimebarByFactor(factor, false);
+        }
+    }
+
+    private final Runnable overlayUpdate = new Runnable() {
+        @Override
+        public void run() {
+            if (!running) {
+                return;
+            }
+            overlayTextView.setText(buildOverlayText());
+            handler.postDelayed(this, OVERLAY_UPDATE_INTERVAL_IN_MS);
+        }
+    };
+
+    private String buildOverlayText() {
+        StringBuilder text = new StringBuilder();
+        text.append(running ? "Running: " + PHASE_NAMES[Math.min(phase, PHASE_COUNT - 1)] : "Finished").append('\n');
+        text.append("draw avg ").append(formatMillisecond(drawCount > 0 ? drawDurationTotal / drawCount : 0))
+                .append(" max ").append(formatMillisecond(drawDurationMax))
+                .append(" (").append(drawCount).append(" draws)\n");
+        if (frameIntervalMonitor != null && frameCount > 0) {
+            text.append("frame avg ").append(formatMillisecond(frameIntervalTotal / frameCount))
+                    .append(" max ").append(formatMillisecond(frameIntervalMax)).append('\n');
+            text.append("jank ").append(jankCount).append('/').append(frameCount)
+                    .append(" (").append(jankCount * 100 / frameCount).append("%)\n");
+        } else {
+            text.append("frame intervals need Android 4.1\n");
+        }
+        long gcCount = getGcCount();
+        Runtime runtime = Runtime.getRuntime();
+        text.append("GC ").append(gcCount >= 0 ? String.valueOf(gcCount - gcCountAtStart) : "n/a")
+                .append(", heap ").append((runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024)).append(" MB");
+        return text.toString();
+    }
+
+    private static String formatMillisecond(long durationInNanosecond) {
+        return String.format("%.2fms", durationInNanosecond / 1000000f);
+    }
+
+    /**
+     * Number of garbage collections since the process started, -1 if the runtime does not tell
+     */
+    private static long getGcCount() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            String gcCount = Debug.getRuntimeStat("art.gc.gc-count");
+            if (gcCount != null) {
+                try {
+                    return Long.parseLong(gcCount);
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sums the onDraw() durations of all timebars of a run
+     */
+    private final ScalableTimebarView.OnFrameMetricsListener frameMetricsListener = new ScalableTimebarView.OnFrameMetricsListener() {
+        @Override
+        public void onFrameMetrics(TimebarRenderStats frame, TimebarFrameMetrics aggregated) {
+            if (!running) {
+                return;
+            }
+            long duration = frame.getFrameDurationInNanosecond();
+            drawDurationTotal += duration;
+            drawDurationMax = Math.max(drawDurationMax, duration);
+            drawCount++;
+        }
+    };
+
+    /**
+     * Measures intervals between frames with Choreographer, a long interval is a missed vsync (jank)
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private class FrameIntervalMonitor implements Choreographer.FrameCallback {
+        private long lastFrameTimeNanos;
+
+        void start() {
+            lastFrameTimeNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        void stop() {
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (lastFrameTimeNanos != 0) {
+                long interval = frameTimeNanos - lastFrameTimeNanos;
+                frameCount++;
+                frameIntervalTotal += interval;
+                frameIntervalMax = Math.max(frameIntervalMax, interval);
+                if (interval > JANK_THRESHOLD_IN_NANOSECOND) {
+                    jankCount++;
+                }
+            }
+            lastFrameTimeNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scalabletimebarDemo;
+
+import com.ljfxyj2008.scaletimebar.core.PackedSegmentStore;
+
+import java.util.Random;
+
+/**
+ * Synthetic record segments for the stress screen, generated straight into packed arrays so that even
+ * a million segments take a few dozen MB and no segment object.
+ */
+public class SyntheticSegmentGenerator {
+    /**
+     * Short segments spread evenly over the whole range, like a camera recording on a timer
+     */
+    public static final int DATASET_UNIFORM = 0;
+
+    /**
+     * Bursts of short segments separated by long quiet periods, like motion triggered recording
+     */
+    public static final int DATASET_MOTION_BURSTS = 1;
+
+    /**
+     * Few segments lasting one to three days each, like continuous recording with the odd restart.
+     * The segment count is ignored.
+     */
+    public static final int DATASET_CONTINUOUS = 2;
+
+    public static final int DATASET_COUNT = 3;
+
+    private static final String[] DATASET_NAMES = {"uniform", "motion bursts", "continuous"};
+
+    private static final long ONE_SECOND_IN_MS = 1000;
+    private static final long ONE_MINUTE_IN_MS = 60 * ONE_SECOND_IN_MS;
+    private static final long ONE_DAY_IN_MS = 24 * 60 * ONE_MINUTE_IN_MS;
+
+    private static final int MIN_BURST_SEGMENT_COUNT = 20;
+    private static final int MAX_BURST_SEGMENT_COUNT = 80;
+
+    private SyntheticSegmentGenerator() {
+    }
+
+    public static String getDatasetName(int dataset) {
+        return DATASET_NAMES[dataset];
+    }
+
+    /**
+     * Generate a dataset between two times. Always seeded the same, so runs on different devices draw the same data.
+     *
+     * @param dataset      one of the DATASET_ constants
+     * @param segmentCount number of segments, up to a million or so
+     */
+    public static PackedSegmentStore generate(int dataset, int segmentCount, long fromTimeInMillisecond, long toTimeInMillisecond) {
+        Random random = new Random(dataset * 31 + segmentCount);
+        switch (dataset) {
+            case DATASET_UNIFORM:
+                return generateUniform(random, segmentCount, fromTimeInMillisecond, toTimeInMillisecond);
+            case DATASET_MOTION_BURSTS:
+                return generateMotionBursts(random, segmentCount, fromTimeInMillisecond, toTimeInMillisecond);
+            case DATASET_CONTINUOUS:
+                return generateContinuous(random, fromTimeInMillisecond, toTimeInMillisecond);
+            default:
+                throw new IllegalArgumentException("Unknown dataset " + dataset);
+        }
+    }
+
+    private static PackedSegmentStore generateUniform(Random random, int segmentCount, long from, long to) {
+        long[] startTimes = new long[segmentCount];
+        long[] endTimes = new long[segmentCount];
+        double slot = (double) (to - from) / segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            //Each segment covers a random part of the first half of its slot, so they stay sorted and apart
+            long slotStart = from + (long) (i * slot);
+            startTimes[i] = slotStart + (long) (random.nextDouble() * slot / 4);
+            endTimes[i] = startTimes[i] + Math.max(1, (long) (random.nextDouble() * slot / 4));
+        }
+        return PackedSegmentStore.fromSortedArrays(startTimes, endTimes, segmentCount);
+    }
+
+    private static PackedSegmentStore generateMotionBursts(Random random, int segmentCount, long from, long to) {
+        long[] startTimes = new long[segmentCount];
+        long[] endTimes = new long[segmentCount];
+        int size = 0;
+        while (size < segmentCount) {
+            int burstSize = Math.min(segmentCount - size,
+                    MIN_BURST_SEGMENT_COUNT + random.nextInt(MAX_BURST_SEGMENT_COUNT - MIN_BURST_SEGMENT_COUNT + 1));
+            long time = from + (long) (random.nextDouble() * (to - from));
+            for (int i = 0; i < burstSize; i++) {
+                startTimes[size] = time;
+                endTimes[size] = time + (2 + random.nextInt(9)) * ONE_SECOND_IN_MS;
+                time = endTimes[size] + (1 + random.nextInt(5)) * ONE_SECOND_IN_MS;
+                size++;
+            }
+        }
+        //Bursts are placed at random, they may overlap each other
+        return PackedSegmentStore.fromUnsortedArrays(startTimes, endTimes, size);
+    }
+
+    private static PackedSegmentStore generateContinuous(Random random, long from, long to) {
+        int capacity = (int) ((to - from) / ONE_DAY_IN_MS) + 1;
+        long[] startTimes = new long[capacity];
+        long[] endTimes = new long[capacity];
+        int size = 0;
+        long time = from;
+        while (time < to && size < capacity) {
+            startTimes[size] = time;
+            endTimes[size] = Math.min(to, time + ONE_DAY_IN_MS + (long) (random.nextDouble() * 2 * ONE_DAY_IN_MS));
+            time = endTimes[size] + (1 + random.nextInt(10)) * ONE_MINUTE_IN_MS;
+            size++;
+        }
+        return PackedSegmentStore.fromSortedArrays(startTimes, endTimes, size);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.benchmark;
+
+import com.ljfxyj2008.scaletimebar.TimebarTickCriterion;
+import com.ljfxyj2008.scaletimebar.core.TimebarDimensions;
+import com.ljfxyj2008.scaletimebar.core.TimebarViewport;
+
+/**
+ * Viewport and dimensions of a 1920px wide phone screen (xxhdpi), as ScalableTimebarView would set them up.
+ */
+public class BenchmarkViewports {
+    public static final int SCREEN_WIDTH = 1920;
+    public static final int VIEW_HEIGHT = 168;
+
+    private BenchmarkViewports() {
+    }
+
+    /**
+     * Viewport over the given time range, zoomed to the standard length of the criterion
+     */
+    public static TimebarViewport create(long mostLeftTime, long mostRightTime, long currentTime, TimebarTickCriterion criterion) {
+        TimebarViewport viewport = new TimebarViewport();
+        viewport.setMostLeftTimeInMillisecond(mostLeftTime);
+        viewport.setMostRightTimeInMillisecond(mostRightTime);
+        viewport.setCurrentTimeInMillisecond(currentTime);
+        viewport.setScreenWidth(SCREEN_WIDTH);
+        viewport.setViewHeight(VIEW_HEIGHT);
+        viewport.setTimebarLength(criterion.getViewLength());
+        return viewport;
+    }
+
+    /**
+     * Default dimensions of ScalableTimebarView at density 3
+     */
+    public static TimebarDimensions createDimensions() {
+        TimebarDimensions dimensions = new TimebarDimensions();
+        dimensions.setBigTickHalfWidth(6);
+        dimensions.setBigTickHeight(27);
+        dimensions.setSmallTickHalfWidth(3);
+        dimensions.setSmallTickHeight(18);
+        dimensions.setKeyTickTextSize(30);
+        dimensions.setTickTextToTickMargin(6);
+        dimensions.setRecordbarToTickTextMargin(15);
+        dimensions.setRecordbarHeight(63);
+        return dimensions;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.benchmark;
+
+import com.ljfxyj2008.scaletimebar.core.TimebarDrawSink;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Draw sink consuming every command into a Blackhole, so that the JIT cannot drop the layout math.
+ */
+public class BlackholeDrawSink implements TimebarDrawSink {
+    /**
+     * Rough width of one character of key tick text in pixel
+     */
+    private static final float CHARACTER_WIDTH = 6f;
+
+    private Blackhole blackhole;
+
+    public void setBlackhole(Blackhole blackhole) {
+        this.blackhole = blackhole;
+    }
+
+    @Override
+    public void drawRect(int paint, float left, float top, float right, float bottom) {
+        blackhole.consume(left);
+        blackhole.consume(right);
+    }
+
+    @Override
+    public float measureText(String text) {
+        return text.length() * CHARACTER_WIDTH;
+    }
+
+    @Override
+    public void drawText(String text, float x, float y) {
+        blackhole.consume(text);
+        blackhole.consume(x);
+    }
+
+    @Override
+    public void onKeyTick(long timeInMillisecond, float x) {
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.benchmark;
+
+import com.ljfxyj2008.scaletimebar.core.TickLabelFormatter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.SimpleDateFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of formatting one key tick time text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LabelFormattingBenchmark {
+    private static final String PATTERN = "HH:mm";
+
+    /**
+     * Key ticks of one screen, fit into the label cache
+     */
+    private static final int ON_SCREEN_TICK_COUNT = 16;
+
+    /**
+     * Far more key ticks than the label cache keeps
+     */
+    private static final int DISTINCT_TICK_COUNT = 4096;
+
+    private final long[] tickTimes = new long[DISTINCT_TICK_COUNT];
+    private int nextTick;
+    private TickLabelFormatter formatter;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < DISTINCT_TICK_COUNT; i++) {
+            tickTimes[i] = SyntheticSegments.FIRST_START_TIME_IN_MILLISECOND + i * 60 * 1000L;
+        }
+        formatter = new TickLabelFormatter();
+    }
+
+    /**
+     * Same ticks formatted frame after frame, served from the label cache
+     */
+    @Benchmark
+    public String formatOnScreenTicks() {
+        nextTick = (nextTick + 1) & (ON_SCREEN_TICK_COUNT - 1);
+        return formatter.format(PATTERN, tickTimes[nextTick]);
+    }
+
+    /**
+     * Ticks never seen before, every call misses the label cache
+     */
+    @Benchmark
+    public String formatNewTicks() {
+        nextTick = (nextTick + 1) & (DISTINCT_TICK_COUNT - 1);
+        return formatter.format(PATTERN, tickTimes[nextTick]);
+    }
+
+    /**
+     * A new SimpleDateFormat for every text, as onDraw() used to do
+     */
+    @Benchmark
+    public String formatWithNewSimpleDateFormat() {
+        nextTick = (nextTick + 1) & (DISTINCT_TICK_COUNT - 1);
+        return new SimpleDateFormat(PATTERN).format(tickTimes[nextTick]);
+    }
+}
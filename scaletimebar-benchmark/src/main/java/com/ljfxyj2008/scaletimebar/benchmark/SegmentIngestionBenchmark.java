@@ -0,0 +1,75 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.benchmark;
+
+import com.ljfxyj2008.scaletimebar.RecordDataExistTimeSegment;
+import com.ljfxyj2008.scaletimebar.core.PackedSegmentStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of getting record data into the view: constructing RecordDataExistTimeSegments,
+ * and indexing them as setRecordDataExistTimeClipsList() does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class SegmentIngestionBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int segmentCount;
+
+    @Param({SyntheticSegments.SHAPE_SHORT, SyntheticSegments.SHAPE_MULTI_DAY, SyntheticSegments.SHAPE_MIXED})
+    public String shape;
+
+    private SyntheticSegments segments;
+    private List<RecordDataExistTimeSegment> segmentList;
+
+    @Setup
+    public void setUp() {
+        segments = new SyntheticSegments(segmentCount, shape);
+        segmentList = segments.toSegmentList();
+    }
+
+    /**
+     * RecordDataExistTimeSegment constructor, which also computes the 00:00 of every covered date
+     */
+    @Benchmark
+    public List<RecordDataExistTimeSegment> constructSegments() {
+        return segments.toSegmentList();
+    }
+
+    /**
+     * Index built by setRecordDataExistTimeClipsList()
+     */
+    @Benchmark
+    public PackedSegmentStore packSegmentList() {
+        return PackedSegmentStore.fromSegments(segmentList);
+    }
+
+    /**
+     * Index built from arrays that are already sorted, without segment objects
+     */
+    @Benchmark
+    public PackedSegmentStore packSortedArrays() {
+        return PackedSegmentStore.fromSortedArrays(segments.getStartTimes(), segments.getEndTimes(), segments.size());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.benchmark;
+
+import com.ljfxyj2008.scaletimebar.RecordDataExistTimeSegment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic record data for benchmarks.
+ * <p>
+ * Shapes:
+ * <pre>
+ * short     30 seconds to 10 minutes of record, then up to 20 minutes without (motion triggered recording)
+ * multiDay  1 to 3 days of record, then 1 to 6 hours without (continuous recording with outages)
+ * mixed     like short, but every 100th segment lasts 3 days and overlaps the following ones
+ * </pre>
+ */
+public class SyntheticSegments {
+    public static final String SHAPE_SHORT = "short";
+    public static final String SHAPE_MULTI_DAY = "multiDay";
+    public static final String SHAPE_MIXED = "mixed";
+
+    /**
+     * 2016-10-28 00:00:00 UTC, where the first segment starts
+     */
+    public static final long FIRST_START_TIME_IN_MILLISECOND = 1477612800000L;
+
+    private static final long ONE_MINUTE_IN_MS = 60 * 1000L;
+    private static final long ONE_HOUR_IN_MS = 60 * ONE_MINUTE_IN_MS;
+    private static final long ONE_DAY_IN_MS = 24 * ONE_HOUR_IN_MS;
+
+    private final long[] startTimes;
+    private final long[] endTimes;
+
+    public SyntheticSegments(int segmentCount, String shape) {
+        startTimes = new long[segmentCount];
+        endTimes = new long[segmentCount];
+
+        Random random = new Random(segmentCount * 31L + shape.hashCode());
+        long time = FIRST_START_TIME_IN_MILLISECOND;
+        for (int i = 0; i < segmentCount; i++) {
+            long duration;
+            long gap;
+            if (SHAPE_MULTI_DAY.equals(shape)) {
+                duration = ONE_DAY_IN_MS + (long) (random.nextDouble() * 2 * ONE_DAY_IN_MS);
+                gap = ONE_HOUR_IN_MS + (long) (random.nextDouble() * 5 * ONE_HOUR_IN_MS);
+            } else {
+                duration = 30 * 1000L + (long) (random.nextDouble() * 10 * ONE_MINUTE_IN_MS);
+                gap = (long) (random.nextDouble() * 20 * ONE_MINUTE_IN_MS);
+            }
+
+            startTimes[i] = time;
+            if (SHAPE_MIXED.equals(shape) && i % 100 == 0) {
+                //overlaps the following segments, the next start is not pushed back
+                endTimes[i] = time + 3 * ONE_DAY_IN_MS;
+            } else {
+                endTimes[i] = time + duration;
+                time = time + duration;
+            }
+            time = time + gap;
+        }
+    }
+
+    public long[] getStartTimes() {
+        return startTimes;
+    }
+
+    public long[] getEndTimes() {
+        return endTimes;
+    }
+
+    public int size() {
+        return startTimes.length;
+    }
+
+    public long getFirstStartTime() {
+        return startTimes[0];
+    }
+
+    public long getLastEndTime() {
+        long lastEndTime = Long.MIN_VALUE;
+        for (long endTime : endTimes) {
+            lastEndTime = Math.max(lastEndTime, endTime);
+        }
+        return lastEndTime;
+    }
+
+    public List<RecordDataExistTimeSegment> toSegmentList() {
+        List<RecordDataExistTimeSegment> segments = new ArrayList<>(startTimes.length);
+        for (int i = 0; i < startTimes.length; i++) {
+            segments.add(new RecordDataExistTimeSegment(startTimes[i], endTimes[i]));
+        }
+        return segments;
+    }
+}
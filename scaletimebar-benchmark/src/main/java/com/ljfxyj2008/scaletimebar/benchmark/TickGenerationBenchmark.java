@@ -0,0 +1,77 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.benchmark;
+
+import com.ljfxyj2008.scaletimebar.TimebarTickCriterion;
+import com.ljfxyj2008.scaletimebar.core.PackedSegmentStore;
+import com.ljfxyj2008.scaletimebar.core.TimebarRenderer;
+import com.ljfxyj2008.scaletimebar.core.TimebarTickLadder;
+import com.ljfxyj2008.scaletimebar.core.TimebarViewport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of generating the ticks and time texts of one frame, for each of the 5 preset scale criterions.
+ * The cursor moves a little on every invocation, like it does while the timebar is dragged.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TickGenerationBenchmark {
+    private static final long TIMEBAR_DURATION_IN_MILLISECOND = 7 * 24 * 60 * 60 * 1000L;
+
+    @Param({"0", "1", "2", "3", "4"})
+    public int criterionIndex;
+
+    private TimebarRenderer renderer;
+    private TimebarTickCriterion criterion;
+    private TimebarViewport viewport;
+    private final BlackholeDrawSink sink = new BlackholeDrawSink();
+    private long mostLeftTime;
+    private long dragStepInMillisecond;
+
+    @Setup
+    public void setUp() {
+        mostLeftTime = SyntheticSegments.FIRST_START_TIME_IN_MILLISECOND;
+        long mostRightTime = mostLeftTime + TIMEBAR_DURATION_IN_MILLISECOND;
+
+        TimebarTickLadder ladder = TimebarTickLadder.createDefault();
+        ladder.updateViewLengths(BenchmarkViewports.SCREEN_WIDTH, TIMEBAR_DURATION_IN_MILLISECOND / 1000);
+        criterion = ladder.get(criterionIndex);
+        viewport = BenchmarkViewports.create(mostLeftTime, mostRightTime, mostLeftTime + TIMEBAR_DURATION_IN_MILLISECOND / 2, criterion);
+        renderer = new TimebarRenderer(BenchmarkViewports.createDimensions());
+
+        //about 8 pixels per frame
+        dragStepInMillisecond = (long) (8 * 1000 / viewport.getPixelsPerSecond());
+    }
+
+    @Benchmark
+    public void generateTicks(Blackhole blackhole) {
+        long currentTime = viewport.getCurrentTimeInMillisecond() + dragStepInMillisecond;
+        if (currentTime > viewport.getMostRightTimeInMillisecond()) {
+            currentTime = mostLeftTime;
+        }
+        viewport.setCurrentTimeInMillisecond(currentTime);
+
+        sink.setBlackhole(blackhole);
+        renderer.render(viewport, criterion, PackedSegmentStore.EMPTY, sink);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.benchmark;
+
+import com.ljfxyj2008.scaletimebar.core.PackedSegmentStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of finding the segments of one screen in the index, as done for every frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VisibleRangeBenchmark {
+    /**
+     * Screen duration of the default scale criterion (2)
+     */
+    private static final long SCREEN_DURATION_IN_MILLISECOND = 6 * 60 * 60 * 1000L;
+
+    private static final int QUERY_COUNT = 1024;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int segmentCount;
+
+    @Param({SyntheticSegments.SHAPE_SHORT, SyntheticSegments.SHAPE_MULTI_DAY, SyntheticSegments.SHAPE_MIXED})
+    public String shape;
+
+    private PackedSegmentStore store;
+    private final long[] queryTimes = new long[QUERY_COUNT];
+    private int nextQuery;
+
+    @Setup
+    public void setUp() {
+        SyntheticSegments segments = new SyntheticSegments(segmentCount, shape);
+        store = PackedSegmentStore.fromSortedArrays(segments.getStartTimes(), segments.getEndTimes(), segments.size());
+
+        Random random = new Random(42);
+        long span = segments.getLastEndTime() - segments.getFirstStartTime();
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queryTimes[i] = segments.getFirstStartTime() + (long) (random.nextDouble() * span);
+        }
+    }
+
+    private long nextQueryTime() {
+        nextQuery = (nextQuery + 1) & (QUERY_COUNT - 1);
+        return queryTimes[nextQuery];
+    }
+
+    /**
+     * Binary search of the first segment to draw
+     */
+    @Benchmark
+    public int findFirstVisibleSegment() {
+        return store.findFirstIndexEndingAfter(nextQueryTime());
+    }
+
+    /**
+     * Binary search plus walking all segments of one screen
+     */
+    @Benchmark
+    public long iterateVisibleSegments() {
+        long screenLeftTime = nextQueryTime();
+        long screenRightTime = screenLeftTime + SCREEN_DURATION_IN_MILLISECOND;
+
+        long visibleDuration = 0;
+        int size = store.size();
+        for (int i = store.findFirstIndexEndingAfter(screenLeftTime); i < size; i++) {
+            long startTime = store.getStartTimeInMillisecond(i);
+            if (startTime > screenRightTime) {
+                break;
+            }
+            visibleDuration += store.getEndTimeInMillisecond(i) - startTime;
+        }
+        return visibleDuration;
+    }
+}
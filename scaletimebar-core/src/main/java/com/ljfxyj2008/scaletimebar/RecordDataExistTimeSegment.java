@@ -4,6 +4,8 @@
  */
 package com.ljfxyj2008.scaletimebar;
 
+import com.ljfxyj2008.scaletimebar.core.TimebarRenderer;
+
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -88,7 +90,7 @@ public class RecordDataExistTimeSegment {
             long loopZeroDateInMilliseconds = startTimeZeroDate.getTime();
             while (loopZeroDateInMilliseconds <= endTimeZeroDate.getTime()) {
                 coverDateZeroOClockList.add(loopZeroDateInMilliseconds);
-                loopZeroDateInMilliseconds = loopZeroDateInMilliseconds + ScalableTimebarView.SECONDS_PER_DAY * 1000;
+                loopZeroDateInMilliseconds = loopZeroDateInMilliseconds + TimebarRenderer.SECONDS_PER_DAY * 1000;
             }
         } catch (ParseException e) {
             e.printStackTrace();
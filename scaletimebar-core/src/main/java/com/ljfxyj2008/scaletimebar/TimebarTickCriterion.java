@@ -18,6 +18,26 @@ package com.ljfxyj2008.scaletimebar;
 
 
 public class TimebarTickCriterion {
+    /**
+     * Ticks every minTickInSecond, key ticks every keyTickInSecond, both aligned to the local time zone
+     */
+    public static final int CALENDAR_UNIT_NONE = 0;
+
+    /**
+     * Small ticks at every local midnight, key ticks on Mondays
+     */
+    public static final int CALENDAR_UNIT_WEEK = 1;
+
+    /**
+     * Small ticks at every local midnight, key ticks on the first day of every month
+     */
+    public static final int CALENDAR_UNIT_MONTH = 2;
+
+    /**
+     * Small ticks on the first day of every month, key ticks on January 1st
+     */
+    public static final int CALENDAR_UNIT_YEAR = 3;
+
     /**
      * Whole timebar length (Not including two extra empty part on left and right ends)
      */
@@ -43,6 +63,12 @@ public class TimebarTickCriterion {
      */
     private String dataPattern;
 
+    /**
+     * How ticks are aligned, one of the CALENDAR_UNIT_ constants. Calendar criterions keep average durations
+     * in keyTickInSecond and minTickInSecond, used to estimate tick counts and margins.
+     */
+    private int calendarUnit = CALENDAR_UNIT_NONE;
+
     public int getViewLength() {
         return viewLength;
     }
@@ -82,4 +108,12 @@ public class TimebarTickCriterion {
     public void setDataPattern(String dataPattern) {
         this.dataPattern = dataPattern;
     }
+
+    public int getCalendarUnit() {
+        return calendarUnit;
+    }
+
+    public void setCalendarUnit(int calendarUnit) {
+        this.calendarUnit = calendarUnit;
+    }
 }
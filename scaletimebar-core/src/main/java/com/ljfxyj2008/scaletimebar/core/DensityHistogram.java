@@ -0,0 +1,202 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+import java.util.TimeZone;
+
+/**
+ * Immutable multi-level histogram of activity (events, motion...) over time, backing the heatmap lane.
+ * <p>
+ * Counts are kept per minute, and rolled up once at build time into hours and days aligned to the local time zone
+ * like the ticks of the timebar. Each level is a dense int array, so the buckets of any time range are read in
+ * O(buckets) whatever the number of events, and the view picks the level fitting its zoom with selectLevel().
+ */
+public class DensityHistogram {
+    public static final int LEVEL_MINUTE = 0;
+    public static final int LEVEL_HOUR = 1;
+    public static final int LEVEL_DAY = 2;
+    public static final int LEVEL_COUNT = 3;
+
+    private static final long[] BUCKET_DURATIONS_IN_MILLISECOND = {60 * 1000L, 60 * 60 * 1000L, 24 * 60 * 60 * 1000L};
+
+    /**
+     * Buckets narrower than this are too thin to draw, selectLevel() picks a coarser level instead
+     */
+    public static final float MIN_BUCKET_WIDTH_IN_PIXEL = 2f;
+
+    /**
+     * Receives the non-empty buckets of a time range, ordered by time
+     */
+    public interface BucketVisitor {
+        /**
+         * @param bucketStartTimeInMillisecond start of the bucket
+         * @param bucketDurationInMillisecond  duration of the bucket
+         * @param count                        activity in the bucket, above 0
+         * @param maxCount                     highest count of any bucket of the level, to normalize the shade
+         */
+        void onBucket(long bucketStartTimeInMillisecond, long bucketDurationInMillisecond, int count, int maxCount);
+    }
+
+    private final long zoneOffsetInMillisecond;
+
+    /**
+     * Index of the first bucket of each level, counted from the epoch in local time
+     */
+    private final long[] firstBucketIndexes = new long[LEVEL_COUNT];
+    private final int[][] counts = new int[LEVEL_COUNT][];
+    private final int[] maxCounts = new int[LEVEL_COUNT];
+
+    private DensityHistogram(long zoneOffsetInMillisecond, long firstMinuteIndex, int[] minuteCounts) {
+        this.zoneOffsetInMillisecond = zoneOffsetInMillisecond;
+        firstBucketIndexes[LEVEL_MINUTE] = firstMinuteIndex;
+        counts[LEVEL_MINUTE] = minuteCounts;
+        rollUp(LEVEL_MINUTE, LEVEL_HOUR);
+        rollUp(LEVEL_HOUR, LEVEL_DAY);
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            int max = 0;
+            for (int count : counts[level]) {
+                max = Math.max(max, count);
+            }
+            maxCounts[level] = max;
+        }
+    }
+
+    /**
+     * Sum buckets of a level into the buckets of the next coarser one
+     */
+    private void rollUp(int fineLevel, int coarseLevel) {
+        long ratio = BUCKET_DURATIONS_IN_MILLISECOND[coarseLevel] / BUCKET_DURATIONS_IN_MILLISECOND[fineLevel];
+        int[] fineCounts = counts[fineLevel];
+        long firstFine = firstBucketIndexes[fineLevel];
+        long firstCoarse = floorDiv(firstFine, ratio);
+        long lastCoarse = floorDiv(firstFine + fineCounts.length - 1, ratio);
+        int[] coarseCounts = new int[(int) (lastCoarse - firstCoarse + 1)];
+        for (int i = 0; i < fineCounts.length; i++) {
+            coarseCounts[(int) (floorDiv(firstFine + i, ratio) - firstCoarse)] += fineCounts[i];
+        }
+        firstBucketIndexes[coarseLevel] = firstCoarse;
+        counts[coarseLevel] = coarseCounts;
+    }
+
+    /**
+     * Histogram of the number of events per bucket, aligned to the default time zone
+     */
+    public static DensityHistogram fromEventMarkerStore(EventMarkerStore store) {
+        if (store.size() == 0) {
+            return new Builder(0, 0).build();
+        }
+        Builder builder = new Builder(store.getTimeInMillisecond(0), store.getTimeInMillisecond(store.size() - 1));
+        for (int i = 0; i < store.size(); i++) {
+            builder.add(store.getTimeInMillisecond(i), 1);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Collects weighted activity into minute buckets of a fixed time range, e.g. motion scores reported by a camera
+     */
+    public static class Builder {
+        private final long zoneOffsetInMillisecond;
+        private final long firstMinuteIndex;
+        private final int[] minuteCounts;
+
+        /**
+         * Builder aligned to the default time zone
+         */
+        public Builder(long fromTimeInMillisecond, long toTimeInMillisecond) {
+            this(fromTimeInMillisecond, toTimeInMillisecond, TimeZone.getDefault().getRawOffset());
+        }
+
+        /**
+         * @param fromTimeInMillisecond   first time which may be added
+         * @param toTimeInMillisecond     last time which may be added
+         * @param zoneOffsetInMillisecond offset of the time zone whose hours and days the levels are aligned to
+         */
+        public Builder(long fromTimeInMillisecond, long toTimeInMillisecond, long zoneOffsetInMillisecond) {
+            this.zoneOffsetInMillisecond = zoneOffsetInMillisecond;
+            long minute = BUCKET_DURATIONS_IN_MILLISECOND[LEVEL_MINUTE];
+            firstMinuteIndex = floorDiv(fromTimeInMillisecond + zoneOffsetInMillisecond, minute);
+            long lastMinuteIndex = floorDiv(toTimeInMillisecond + zoneOffsetInMillisecond, minute);
+            minuteCounts = new int[(int) (lastMinuteIndex - firstMinuteIndex + 1)];
+        }
+
+        /**
+         * Add activity at a time, ignored if outside of the range of this builder
+         */
+        public Builder add(long timeInMillisecond, int weight) {
+            long index = floorDiv(timeInMillisecond + zoneOffsetInMillisecond, BUCKET_DURATIONS_IN_MILLISECOND[LEVEL_MINUTE])
+                    - firstMinuteIndex;
+            if (index >= 0 && index < minuteCounts.length) {
+                minuteCounts[(int) index] += weight;
+            }
+            return this;
+        }
+
+        public DensityHistogram build() {
+            return new DensityHistogram(zoneOffsetInMillisecond, firstMinuteIndex, minuteCounts.clone());
+        }
+    }
+
+    /**
+     * Finest level whose buckets are at least MIN_BUCKET_WIDTH_IN_PIXEL wide at a zoom
+     */
+    public static int selectLevel(float pixelsPerSecond) {
+        for (int level = 0; level < LEVEL_COUNT - 1; level++) {
+            if (BUCKET_DURATIONS_IN_MILLISECOND[level] / 1000f * pixelsPerSecond >= MIN_BUCKET_WIDTH_IN_PIXEL) {
+                return level;
+            }
+        }
+        return LEVEL_COUNT - 1;
+    }
+
+    public static long getBucketDurationInMillisecond(int level) {
+        return BUCKET_DURATIONS_IN_MILLISECOND[level];
+    }
+
+    /**
+     * Visit the non-empty buckets of a level overlapping a time range
+     *
+     * @return number of buckets read, empty ones included
+     */
+    public int forEachBucket(int level, long fromTimeInMillisecond, long toTimeInMillisecond, BucketVisitor visitor) {
+        long duration = BUCKET_DURATIONS_IN_MILLISECOND[level];
+        int[] levelCounts = counts[level];
+        long firstBucket = firstBucketIndexes[level];
+        long from = Math.max(firstBucket, floorDiv(fromTimeInMillisecond + zoneOffsetInMillisecond, duration));
+        long to = Math.min(firstBucket + levelCounts.length - 1, floorDiv(toTimeInMillisecond + zoneOffsetInMillisecond, duration));
+        int maxCount = maxCounts[level];
+        for (long bucket = from; bucket <= to; bucket++) {
+            int count = levelCounts[(int) (bucket - firstBucket)];
+            if (count > 0) {
+                visitor.onBucket(bucket * duration - zoneOffsetInMillisecond, duration, count, maxCount);
+            }
+        }
+        return (int) Math.max(0, to - from + 1);
+    }
+
+    /**
+     * Activity in the bucket of a level containing a time, 0 outside of the histogram
+     */
+    public int getCount(int level, long timeInMillisecond) {
+        long index = floorDiv(timeInMillisecond + zoneOffsetInMillisecond, BUCKET_DURATIONS_IN_MILLISECOND[level])
+                - firstBucketIndexes[level];
+        return index >= 0 && index < counts[level].length ? counts[level][(int) index] : 0;
+    }
+
+    public int getMaxCount(int level) {
+        return maxCounts[level];
+    }
+
+    /**
+     * Division rounding toward negative infinity, so buckets before 1970 are aligned like the others
+     */
+    private static long floorDiv(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        if ((dividend % divisor != 0) && ((dividend < 0) != (divisor < 0))) {
+            quotient--;
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+import com.ljfxyj2008.scaletimebar.TimebarTickCriterion;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Clusters point events of an EventMarkerStore into badges for the event marker lane.
+ * <p>
+ * Time is cut into buckets of BUCKET_WIDTH_IN_PIXEL at the standard zoom of each criterion, aligned to absolute
+ * time so buckets do not change while panning. Events in one bucket make one cluster with a count.
+ * Buckets are computed a page at a time, only for pages around the visible range (found by binary search in the
+ * store), and pages are cached per criterion, so a frame costs the visible clusters instead of the visible events.
+ * <p>
+ * Not thread safe, use it from the thread drawing the timebar.
+ */
+public class EventMarkerClusterIndex {
+    /**
+     * Receives the clusters of a time range, ordered by time
+     */
+    public interface ClusterVisitor {
+        /**
+         * @param bucketStartTimeInMillisecond start of the bucket of the cluster
+         * @param bucketDurationInMillisecond  duration of the bucket
+         * @param count                        number of events in the bucket, at least 1
+         */
+        void onCluster(long bucketStartTimeInMillisecond, long bucketDurationInMillisecond, int count);
+    }
+
+    /**
+     * Width of one bucket at the standard zoom of a criterion, about the width of a badge
+     */
+    public static final int BUCKET_WIDTH_IN_PIXEL = 16;
+
+    /**
+     * Buckets of one cached page, a couple of screens at the standard zoom
+     */
+    static final int PAGE_BUCKET_COUNT = 128;
+
+    /**
+     * Pages kept per criterion
+     */
+    private static final int MAX_CACHED_PAGES_PER_CRITERION = 16;
+
+    private EventMarkerStore store = EventMarkerStore.EMPTY;
+
+    private final Map<Integer, CriterionPages> pagesByCriterion = new HashMap<>();
+
+    private long pageComputeCount;
+    private long pageCacheHitCount;
+
+    /**
+     * Non-empty buckets of one page
+     */
+    static class ClusterPage {
+        final long[] bucketIndexes;
+        final int[] counts;
+        final int size;
+
+        ClusterPage(long[] bucketIndexes, int[] counts, int size) {
+            this.bucketIndexes = bucketIndexes;
+            this.counts = counts;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Cached pages of one criterion, least recently used evicted first
+     */
+    private static class CriterionPages {
+        final long bucketDurationInMillisecond;
+        final LinkedHashMap<Long, ClusterPage> pages = new LinkedHashMap<Long, ClusterPage>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ClusterPage> eldest) {
+                return size() > MAX_CACHED_PAGES_PER_CRITERION;
+            }
+        };
+
+        CriterionPages(long bucketDurationInMillisecond) {
+            this.bucketDurationInMillisecond = bucketDurationInMillisecond;
+        }
+    }
+
+    public EventMarkerStore getStore() {
+        return store;
+    }
+
+    /**
+     * Replace the events, dropping all cached clusters
+     */
+    public void setStore(EventMarkerStore store) {
+        this.store = store == null ? EventMarkerStore.EMPTY : store;
+        pagesByCriterion.clear();
+    }
+
+    /**
+     * Duration of one bucket for a criterion
+     *
+     * @param criterion   scale criterion
+     * @param screenWidth screen width in pixel
+     */
+    public static long getBucketDurationInMillisecond(TimebarTickCriterion criterion, int screenWidth) {
+        return Math.max(1, criterion.getTotalSecondsInOneScreen() * 1000L * BUCKET_WIDTH_IN_PIXEL / screenWidth);
+    }
+
+    /**
+     * Visit the clusters of buckets overlapping a time range
+     *
+     * @param criterionIndex key of the criterion, clusters are cached under it
+     * @param criterion      scale criterion deciding the bucket duration
+     * @param screenWidth    screen width in pixel
+     * @param fromTime       start of the range, e.g. the left edge of what is drawn
+     * @param toTime         end of the range
+     * @param visitor        receiver of the clusters
+     * @return number of clusters visited
+     */
+    public int forEachCluster(int criterionIndex, TimebarTickCriterion criterion, int screenWidth,
+                              long fromTime, long toTime, ClusterVisitor visitor) {
+        if (store.size() == 0 || toTime < fromTime) {
+            return 0;
+        }
+        long bucketDuration = getBucketDurationInMillisecond(criterion, screenWidth);
+        CriterionPages criterionPages = pagesByCriterion.get(criterionIndex);
+        if (criterionPages == null || criterionPages.bucketDurationInMillisecond != bucketDuration) {
+            criterionPages = new CriterionPages(bucketDuration);
+            pagesByCriterion.put(criterionIndex, criterionPages);
+        }
+
+        long fromBucket = floorDiv(fromTime, bucketDuration);
+        long toBucket = floorDiv(toTime, bucketDuration);
+        int clusterCount = 0;
+        for (long pageIndex = floorDiv(fromBucket, PAGE_BUCKET_COUNT);
+             pageIndex <= floorDiv(toBucket, PAGE_BUCKET_COUNT); pageIndex++) {
+            ClusterPage page = getPage(criterionPages, pageIndex);
+            for (int i = 0; i < page.size; i++) {
+                long bucketIndex = page.bucketIndexes[i];
+                if (bucketIndex >= fromBucket && bucketIndex <= toBucket) {
+                    visitor.onCluster(bucketIndex * bucketDuration, bucketDuration, page.counts[i]);
+                    clusterCount++;
+                }
+            }
+        }
+        return clusterCount;
+    }
+
+    private ClusterPage getPage(CriterionPages criterionPages, long pageIndex) {
+        ClusterPage page = criterionPages.pages.get(pageIndex);
+        if (page != null) {
+            pageCacheHitCount++;
+            return page;
+        }
+        page = computePage(criterionPages.bucketDurationInMillisecond, pageIndex);
+        criterionPages.pages.put(pageIndex, page);
+        pageComputeCount++;
+        return page;
+    }
+
+    /**
+     * Group the events of one page by bucket, walking only the events inside the page
+     */
+    ClusterPage computePage(long bucketDuration, long pageIndex) {
+        long firstBucket = pageIndex * PAGE_BUCKET_COUNT;
+        long pageStartTime = firstBucket * bucketDuration;
+        long pageEndTime = pageStartTime + PAGE_BUCKET_COUNT * bucketDuration;
+        int from = store.findFirstIndexAtOrAfter(pageStartTime);
+        int to = store.findFirstIndexAtOrAfter(pageEndTime);
+
+        int capacity = Math.min(PAGE_BUCKET_COUNT, to - from);
+        long[] bucketIndexes = new long[capacity];
+        int[] counts = new int[capacity];
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            long bucketIndex = floorDiv(store.getTimeInMillisecond(i), bucketDuration);
+            if (size > 0 && bucketIndexes[size - 1] == bucketIndex) {
+                counts[size - 1]++;
+            } else {
+                bucketIndexes[size] = bucketIndex;
+                counts[size] = 1;
+                size++;
+            }
+        }
+        return new ClusterPage(bucketIndexes, counts, size);
+    }
+
+    /**
+     * Division rounding toward negative infinity, so buckets before 1970 are aligned like the others
+     */
+    private static long floorDiv(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        if ((dividend % divisor != 0) && ((dividend < 0) != (divisor < 0))) {
+            quotient--;
+        }
+        return quotient;
+    }
+
+    /**
+     * Pages grouped from the store since creation
+     */
+    public long getPageComputeCount() {
+        return pageComputeCount;
+    }
+
+    /**
+     * Pages served from the per-criterion cache since creation
+     */
+    public long getPageCacheHitCount() {
+        return pageCacheHitCount;
+    }
+}
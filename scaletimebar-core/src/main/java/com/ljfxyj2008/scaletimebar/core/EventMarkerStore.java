@@ -0,0 +1,79 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+import java.util.Arrays;
+
+/**
+ * Immutable times of point events (alarms, door openings, analytics hits) in one sorted primitive array,
+ * 8 bytes per event and no object per event.
+ */
+public class EventMarkerStore {
+    public static final EventMarkerStore EMPTY = new EventMarkerStore(new long[0], 0);
+
+    private final long[] times;
+    private final int size;
+
+    private EventMarkerStore(long[] times, int size) {
+        this.times = times;
+        this.size = size;
+    }
+
+    /**
+     * Wrap an array already sorted ascending, without copying it. The array must not be modified afterwards.
+     *
+     * @param times event times, ascending
+     * @param size  number of events used from the array
+     */
+    public static EventMarkerStore fromSortedArray(long[] times, int size) {
+        if (size == 0) {
+            return EMPTY;
+        }
+        return new EventMarkerStore(times, size);
+    }
+
+    /**
+     * Sort an array in place, then wrap it without copying. The array must not be modified afterwards.
+     *
+     * @param times event times in any order
+     * @param size  number of events used from the array
+     */
+    public static EventMarkerStore fromUnsortedArray(long[] times, int size) {
+        Arrays.sort(times, 0, size);
+        return fromSortedArray(times, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTimeInMillisecond(int index) {
+        return times[index];
+    }
+
+    /**
+     * @return index of the first event at or after the time, size() if there is none
+     */
+    public int findFirstIndexAtOrAfter(long timeInMillisecond) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (times[middle] < timeInMillisecond) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Number of events in [fromTime, toTime)
+     */
+    public int countBetween(long fromTimeInMillisecond, long toTimeInMillisecond) {
+        return findFirstIndexAtOrAfter(toTimeInMillisecond) - findFirstIndexAtOrAfter(fromTimeInMillisecond);
+    }
+}
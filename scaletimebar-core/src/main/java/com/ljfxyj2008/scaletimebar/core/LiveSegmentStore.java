@@ -0,0 +1,284 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Segments appended by one writer thread (e.g. a recorder service) while other threads draw them, without locks.
+ * <p>
+ * Segments must be started in start time order. Only the last segment can still grow: the writer starts it,
+ * extends its end while recording and closes it. Every other segment is final, so readers only need a consistent
+ * pair of segment count and end of the last segment, read under a sequence number the writer makes odd while
+ * changing them. Segments are kept in fixed-size chunks of primitive arrays, appending never copies segments.
+ * <p>
+ * Readers call readSnapshot() (e.g. once per onDraw()) and draw the returned Snapshot, an ordinary SegmentStore
+ * frozen at that point. After every change the writer notifies the Listener, but only once until the next
+ * readSnapshot(), so a view invalidates itself at most once per drawn frame however fast segments grow.
+ */
+public class LiveSegmentStore {
+    /**
+     * Called on the writer thread when segments changed since the last readSnapshot()
+     */
+    public interface Listener {
+        void onSegmentsChanged();
+    }
+
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int INITIAL_CHUNK_CAPACITY = 16;
+
+    /**
+     * Chunk directories. Replaced by a larger copy when full, chunks themselves are never moved.
+     * maxEndTimes[i] is the latest end time among segments 0..i, only written once segment i is final.
+     */
+    private static final class Chunks {
+        final long[][] startTimes;
+        final long[][] endTimes;
+        final long[][] maxEndTimes;
+
+        Chunks(int capacity) {
+            startTimes = new long[capacity][];
+            endTimes = new long[capacity][];
+            maxEndTimes = new long[capacity][];
+        }
+    }
+
+    private volatile Chunks chunks = new Chunks(INITIAL_CHUNK_CAPACITY);
+
+    /**
+     * Odd while the writer changes publishedSize and tailEndTime
+     */
+    private volatile int sequence;
+    private volatile int publishedSize;
+
+    /**
+     * End of the last segment, the only one which can still change
+     */
+    private volatile long tailEndTime;
+
+    private final AtomicBoolean changeSignalPending = new AtomicBoolean();
+    private volatile Listener listener;
+
+    //State of the writer thread only
+    private int size;
+    private long lastStartTime;
+    private long lastEndTime;
+    private long maxEndTimeBeforeLast = Long.MIN_VALUE;
+    private boolean lastSegmentOpen;
+
+    /**
+     * Start a new segment, recorded until extendSegment() or closeSegment(). Closes the previous segment
+     * if it is still open. Writer thread only.
+     *
+     * @throws IllegalArgumentException if it starts before the previous segment
+     */
+    public void startSegment(long startTimeInMillisecond) {
+        if (size > 0 && startTimeInMillisecond < lastStartTime) {
+            throw new IllegalArgumentException("Segments must be started in start time order");
+        }
+        int index = size;
+        Chunks chunks = ensureChunk(index);
+        if (index > 0) {
+            //The previous segment becomes final, readers of the new size read its end from the arrays
+            long maxEndTime = Math.max(maxEndTimeBeforeLast, lastEndTime);
+            chunks.endTimes[(index - 1) >>> CHUNK_SHIFT][(index - 1) & CHUNK_MASK] = lastEndTime;
+            chunks.maxEndTimes[(index - 1) >>> CHUNK_SHIFT][(index - 1) & CHUNK_MASK] = maxEndTime;
+            maxEndTimeBeforeLast = maxEndTime;
+        }
+        chunks.startTimes[index >>> CHUNK_SHIFT][index & CHUNK_MASK] = startTimeInMillisecond;
+        size = index + 1;
+        lastStartTime = startTimeInMillisecond;
+        lastEndTime = startTimeInMillisecond;
+        lastSegmentOpen = true;
+
+        sequence++;
+        tailEndTime = startTimeInMillisecond;
+        publishedSize = size;
+        sequence++;
+        signalChange();
+    }
+
+    /**
+     * Move the end of the open segment, e.g. once per second while recording. Writer thread only.
+     *
+     * @throws IllegalStateException    if no segment is open
+     * @throws IllegalArgumentException if the end is before the start of the segment
+     */
+    public void extendSegment(long endTimeInMillisecond) {
+        if (!lastSegmentOpen) {
+            throw new IllegalStateException("No open segment to extend");
+        }
+        if (endTimeInMillisecond < lastStartTime) {
+            throw new IllegalArgumentException("Segment cannot end before it starts");
+        }
+        lastEndTime = endTimeInMillisecond;
+
+        sequence++;
+        tailEndTime = endTimeInMillisecond;
+        sequence++;
+        signalChange();
+    }
+
+    /**
+     * Set the final end of the open segment. Writer thread only.
+     */
+    public void closeSegment(long endTimeInMillisecond) {
+        extendSegment(endTimeInMillisecond);
+        lastSegmentOpen = false;
+    }
+
+    /**
+     * Append a segment which is already complete. Writer thread only.
+     */
+    public void appendSegment(long startTimeInMillisecond, long endTimeInMillisecond) {
+        startSegment(startTimeInMillisecond);
+        closeSegment(endTimeInMillisecond);
+    }
+
+    /**
+     * Whether the last segment can still be extended. Writer thread only.
+     */
+    public boolean isSegmentOpen() {
+        return lastSegmentOpen;
+    }
+
+    /**
+     * Chunks with room for a segment at index, publishing a larger directory or a new chunk as needed
+     */
+    private Chunks ensureChunk(int index) {
+        Chunks chunks = this.chunks;
+        int chunkIndex = index >>> CHUNK_SHIFT;
+        if (chunkIndex == chunks.startTimes.length) {
+            Chunks grown = new Chunks(chunks.startTimes.length * 2);
+            System.arraycopy(chunks.startTimes, 0, grown.startTimes, 0, chunkIndex);
+            System.arraycopy(chunks.endTimes, 0, grown.endTimes, 0, chunkIndex);
+            System.arraycopy(chunks.maxEndTimes, 0, grown.maxEndTimes, 0, chunkIndex);
+            this.chunks = grown;
+            chunks = grown;
+        }
+        if (chunks.startTimes[chunkIndex] == null) {
+            //Published to readers by the size written after it
+            chunks.startTimes[chunkIndex] = new long[CHUNK_SIZE];
+            chunks.endTimes[chunkIndex] = new long[CHUNK_SIZE];
+            chunks.maxEndTimes[chunkIndex] = new long[CHUNK_SIZE];
+        }
+        return chunks;
+    }
+
+    private void signalChange() {
+        Listener listener = this.listener;
+        if (listener != null && changeSignalPending.compareAndSet(false, true)) {
+            listener.onSegmentsChanged();
+        }
+    }
+
+    /**
+     * Freeze the segments written so far into a snapshot. Any thread, never blocks the writer.
+     *
+     * @param snapshot snapshot to fill, reused to avoid allocating on every frame
+     * @return the snapshot
+     */
+    public Snapshot readSnapshot(Snapshot snapshot) {
+        //Changes from now on need another frame
+        changeSignalPending.set(false);
+        int sequenceBefore;
+        int size;
+        long tailEndTime;
+        while (true) {
+            sequenceBefore = sequence;
+            if ((sequenceBefore & 1) == 0) {
+                size = publishedSize;
+                tailEndTime = this.tailEndTime;
+                if (sequence == sequenceBefore) {
+                    break;
+                }
+            }
+            //The writer is in the middle of a change, which takes a few instructions unless it was descheduled
+            Thread.yield();
+        }
+        //Read after the size, so the directory holds every chunk of the snapshot
+        snapshot.set(chunks, size, tailEndTime);
+        return snapshot;
+    }
+
+    /**
+     * Freeze the segments written so far into a new snapshot
+     */
+    public Snapshot readSnapshot() {
+        return readSnapshot(new Snapshot());
+    }
+
+    public Listener getListener() {
+        return listener;
+    }
+
+    /**
+     * Set the listener to notify of changes, e.g. to invalidate a view. Notified on the writer thread.
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+        changeSignalPending.set(false);
+    }
+
+    /**
+     * Segments of a LiveSegmentStore at one point in time. Reads the chunks of the store in place, nothing is
+     * copied but the end of the last segment.
+     */
+    public static class Snapshot implements SegmentStore {
+        private Chunks chunks = new Chunks(0);
+        private int size;
+        private long tailEndTime;
+        private long tailMaxEndTime;
+
+        void set(Chunks chunks, int size, long tailEndTime) {
+            this.chunks = chunks;
+            this.size = size;
+            this.tailEndTime = tailEndTime;
+            tailMaxEndTime = size > 1 ? Math.max(getMaxEndTime(size - 2), tailEndTime) : tailEndTime;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long getStartTimeInMillisecond(int index) {
+            return chunks.startTimes[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        }
+
+        @Override
+        public long getEndTimeInMillisecond(int index) {
+            if (index == size - 1) {
+                return tailEndTime;
+            }
+            return chunks.endTimes[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        }
+
+        private long getMaxEndTime(int index) {
+            if (index == size - 1) {
+                return tailMaxEndTime;
+            }
+            return chunks.maxEndTimes[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        }
+
+        @Override
+        public int findFirstIndexEndingAfter(long timeInMillisecond) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (getMaxEndTime(middle) < timeInMillisecond) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+import com.ljfxyj2008.scaletimebar.RecordDataExistTimeSegment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable SegmentStore keeping segments in primitive arrays sorted by start time.
+ * <p>
+ * Besides start and end times, the running maximum of end times is kept, so the first segment to draw can be
+ * found by binary search even if segments overlap each other. When no segments overlap, the recorded duration
+ * of any range is computed from prefix sums of segment durations, built on first use.
+ */
+public class PackedSegmentStore implements SegmentStore {
+    public static final PackedSegmentStore EMPTY = new PackedSegmentStore(new long[0], new long[0], 0);
+
+    private final long[] startTimes;
+    private final long[] endTimes;
+
+    /**
+     * maxEndTimes[i] is the latest end time among segments 0..i
+     */
+    private final long[] maxEndTimes;
+
+    private final int size;
+
+    /**
+     * True if every segment starts at or after the end of all previous ones
+     */
+    private final boolean disjoint;
+
+    /**
+     * durationPrefixSums[i] is the total duration of segments 0..i-1, only built for disjoint segments.
+     * Computed again if two threads race to build it, the result is the same.
+     */
+    private volatile long[] durationPrefixSums;
+
+    private PackedSegmentStore(long[] startTimes, long[] endTimes, int size) {
+        this.startTimes = startTimes;
+        this.endTimes = endTimes;
+        this.size = size;
+
+        maxEndTimes = new long[size];
+        long maxEndTime = Long.MIN_VALUE;
+        boolean disjoint = true;
+        for (int i = 0; i < size; i++) {
+            disjoint = disjoint && startTimes[i] >= maxEndTime;
+            maxEndTime = Math.max(maxEndTime, endTimes[i]);
+            maxEndTimes[i] = maxEndTime;
+        }
+        this.disjoint = disjoint;
+    }
+
+    /**
+     * Pack a list of segments. The list is sorted by start time first if it is not already.
+     */
+    public static PackedSegmentStore fromSegments(List<RecordDataExistTimeSegment> segments) {
+        if (segments == null || segments.isEmpty()) {
+            return EMPTY;
+        }
+
+        List<RecordDataExistTimeSegment> sortedSegments = segments;
+        if (!isSortedByStartTime(segments)) {
+            sortedSegments = new ArrayList<>(segments);
+            Collections.sort(sortedSegments, new Comparator<RecordDataExistTimeSegment>() {
+                @Override
+                public int compare(RecordDataExistTimeSegment lhs, RecordDataExistTimeSegment rhs) {
+                    long lhsStart = lhs.getStartTimeInMillisecond();
+                    long rhsStart = rhs.getStartTimeInMillisecond();
+                    return lhsStart < rhsStart ? -1 : (lhsStart == rhsStart ? 0 : 1);
+                }
+            });
+        }
+
+        int size = sortedSegments.size();
+        long[] startTimes = new long[size];
+        long[] endTimes = new long[size];
+        for (int i = 0; i < size; i++) {
+            RecordDataExistTimeSegment segment = sortedSegments.get(i);
+            startTimes[i] = segment.getStartTimeInMillisecond();
+            endTimes[i] = segment.getEndTimeInMillisecond();
+        }
+        return new PackedSegmentStore(startTimes, endTimes, size);
+    }
+
+    /**
+     * Wrap arrays already sorted by start time, without copying them.
+     * The arrays must not be modified afterwards.
+     *
+     * @param startTimes start time of every segment, ascending
+     * @param endTimes   end time of every segment
+     * @param size       number of segments used from the arrays
+     */
+    public static PackedSegmentStore fromSortedArrays(long[] startTimes, long[] endTimes, int size) {
+        if (size == 0) {
+            return EMPTY;
+        }
+        return new PackedSegmentStore(startTimes, endTimes, size);
+    }
+
+    /**
+     * Sort arrays by start time in place if they are not already sorted, then wrap them without copying.
+     * The arrays must not be modified afterwards.
+     *
+     * @param startTimes start time of every segment
+     * @param endTimes   end time of every segment, moved together with its start time
+     * @param size       number of segments used from the arrays
+     */
+    public static PackedSegmentStore fromUnsortedArrays(long[] startTimes, long[] endTimes, int size) {
+        sortByStartTime(startTimes, endTimes, size);
+        return fromSortedArrays(startTimes, endTimes, size);
+    }
+
+    /**
+     * Heapsort of parallel arrays by start time: no boxing, no extra memory and O(n log n) for any input order.
+     */
+    static void sortByStartTime(long[] startTimes, long[] endTimes, int size) {
+        boolean sorted = true;
+        for (int i = 1; i < size && sorted; i++) {
+            sorted = startTimes[i - 1] <= startTimes[i];
+        }
+        if (sorted) {
+            return;
+        }
+
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(startTimes, endTimes, i, size);
+        }
+        for (int last = size - 1; last > 0; last--) {
+            swap(startTimes, endTimes, 0, last);
+            siftDown(startTimes, endTimes, 0, last);
+        }
+    }
+
+    private static void siftDown(long[] startTimes, long[] endTimes, int root, int size) {
+        while (true) {
+            int child = 2 * root + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && startTimes[child + 1] > startTimes[child]) {
+                child++;
+            }
+            if (startTimes[root] >= startTimes[child]) {
+                return;
+            }
+            swap(startTimes, endTimes, root, child);
+            root = child;
+        }
+    }
+
+    private static void swap(long[] startTimes, long[] endTimes, int i, int j) {
+        long startTime = startTimes[i];
+        startTimes[i] = startTimes[j];
+        startTimes[j] = startTime;
+        long endTime = endTimes[i];
+        endTimes[i] = endTimes[j];
+        endTimes[j] = endTime;
+    }
+
+    private static boolean isSortedByStartTime(List<RecordDataExistTimeSegment> segments) {
+        long lastStartTime = Long.MIN_VALUE;
+        for (RecordDataExistTimeSegment segment : segments) {
+            if (segment.getStartTimeInMillisecond() < lastStartTime) {
+                return false;
+            }
+            lastStartTime = segment.getStartTimeInMillisecond();
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long getStartTimeInMillisecond(int index) {
+        return startTimes[index];
+    }
+
+    @Override
+    public long getEndTimeInMillisecond(int index) {
+        return endTimes[index];
+    }
+
+    @Override
+    public int findFirstIndexEndingAfter(long timeInMillisecond) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (maxEndTimes[middle] < timeInMillisecond) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Find where segments start to be after a time.
+     *
+     * @return index of the first segment starting at or after the time, size() if there is no such segment
+     */
+    public int findFirstIndexStartingAfter(long timeInMillisecond) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (startTimes[middle] < timeInMillisecond) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Whether no two segments overlap each other
+     */
+    public boolean isDisjoint() {
+        return disjoint;
+    }
+
+    /**
+     * Recorded time between two times, counting time covered by several overlapping segments once.
+     * O(log n) for disjoint segments, otherwise linear in the number of segments in the range.
+     */
+    public long getRecordedDurationInMillisecond(long fromTimeInMillisecond, long toTimeInMillisecond) {
+        if (!disjoint) {
+            return SegmentRangeCursor.computeRecordedDuration(this, fromTimeInMillisecond, toTimeInMillisecond);
+        }
+        if (fromTimeInMillisecond >= toTimeInMillisecond) {
+            return 0;
+        }
+        int first = findFirstIndexEndingAfter(fromTimeInMillisecond);
+        int end = findFirstIndexStartingAfter(toTimeInMillisecond);
+        if (first >= end) {
+            return 0;
+        }
+        long[] prefixSums = getDurationPrefixSums();
+        long duration = prefixSums[end] - prefixSums[first];
+        //Cut the parts of the first and the last segments outside the range
+        duration -= Math.max(0, fromTimeInMillisecond - startTimes[first]);
+        duration -= Math.max(0, endTimes[end - 1] - toTimeInMillisecond);
+        return duration;
+    }
+
+    private long[] getDurationPrefixSums() {
+        long[] prefixSums = durationPrefixSums;
+        if (prefixSums == null) {
+            prefixSums = new long[size + 1];
+            for (int i = 0; i < size; i++) {
+                prefixSums[i + 1] = prefixSums[i] + endTimes[i] - startTimes[i];
+            }
+            durationPrefixSums = prefixSums;
+        }
+        return prefixSums;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a task for every channel of a batch (segment indexes, exported images...) on an executor and the
+ * calling thread, and waits for all of them.
+ * <p>
+ * Workers take channels in index order from a shared counter until none is left, so a worker started late by
+ * a busy executor finds little to do, and the batch completes on the calling thread alone if the executor never
+ * runs anything. A failing channel does not stop the others, the first failure is thrown once all are done.
+ */
+public final class ParallelChannelRunner {
+    /**
+     * Work of one channel
+     *
+     * @param <E> checked exception thrown by the task, RuntimeException if none
+     */
+    public interface Task<E extends Exception> {
+        /**
+         * @param worker  index of the worker running the channel, from 0 (the calling thread) to parallelism - 1.
+         *                A worker stays on one thread, so it may own objects which are not thread safe.
+         * @param channel index of the channel, from 0 to channelCount - 1
+         */
+        void run(int worker, int channel) throws E;
+    }
+
+    private ParallelChannelRunner() {
+    }
+
+    /**
+     * Run the task for every channel and return once all are done
+     *
+     * @param executor     runs the workers other than the calling thread
+     * @param parallelism  number of workers, the calling thread included
+     * @param channelCount number of channels
+     * @throws E                    the first failure of a channel
+     * @throws InterruptedException if the calling thread was interrupted while waiting for the other workers
+     */
+    @SuppressWarnings("unchecked")
+    public static <E extends Exception> void run(Executor executor, int parallelism, final int channelCount,
+                                                 final Task<E> task) throws E, InterruptedException {
+        if (channelCount == 0) {
+            return;
+        }
+        final AtomicInteger nextChannel = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        int helperCount = Math.max(0, Math.min(parallelism, channelCount) - 1);
+        final CountDownLatch remainingHelpers = new CountDownLatch(helperCount);
+        for (int i = 1; i <= helperCount; i++) {
+            final int worker = i;
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            runChannels(worker, channelCount, nextChannel, failure, task);
+                        } finally {
+                            remainingHelpers.countDown();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                //The other workers take its channels
+                remainingHelpers.countDown();
+            }
+        }
+        try {
+            runChannels(0, channelCount, nextChannel, failure, task);
+        } finally {
+            //Helpers still running write into the results of the caller
+            remainingHelpers.await();
+        }
+
+        //Written before the countDown() of its worker, so visible after await()
+        Throwable throwable = failure.get();
+        if (throwable instanceof RuntimeException) {
+            throw (RuntimeException) throwable;
+        } else if (throwable instanceof Error) {
+            throw (Error) throwable;
+        } else if (throwable != null) {
+            throw (E) throwable;
+        }
+    }
+
+    private static <E extends Exception> void runChannels(int worker, int channelCount, AtomicInteger nextChannel,
+                                                          AtomicReference<Throwable> failure, Task<E> task) {
+        int channel;
+        while ((channel = nextChannel.getAndIncrement()) < channelCount) {
+            try {
+                task.run(worker, channel);
+            } catch (Exception | Error e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+/**
+ * Walks the segments of a SegmentStore overlapping a time range, with their boundaries clipped to the range.
+ * Reads the store in place, so nothing is copied or allocated: reset() the same cursor for every new range.
+ * <pre>
+ * cursor.reset(store, selectionStart, selectionEnd);
+ * while (cursor.moveToNext()) {
+ *     exportClip(cursor.getClippedStartTimeInMillisecond(), cursor.getClippedEndTimeInMillisecond());
+ * }
+ * </pre>
+ * Overlapping segments are reported as they are stored, one clip each. getTotalDurationInMillisecond()
+ * counts time covered by several of them once.
+ */
+public class SegmentRangeCursor {
+    private SegmentStore store = PackedSegmentStore.EMPTY;
+    private long fromTimeInMillisecond;
+    private long toTimeInMillisecond;
+
+    /**
+     * Index of the segment the cursor is on, -1 before the first moveToNext()
+     */
+    private int index = -1;
+    private int nextIndex;
+    private long clippedStartTimeInMillisecond;
+    private long clippedEndTimeInMillisecond;
+
+    /**
+     * Position the cursor before the first segment overlapping a range
+     *
+     * @param store                 segments sorted by start time
+     * @param fromTimeInMillisecond start of the range
+     * @param toTimeInMillisecond   end of the range, excluded
+     */
+    public void reset(SegmentStore store, long fromTimeInMillisecond, long toTimeInMillisecond) {
+        this.store = store == null ? PackedSegmentStore.EMPTY : store;
+        this.fromTimeInMillisecond = fromTimeInMillisecond;
+        this.toTimeInMillisecond = toTimeInMillisecond;
+        index = -1;
+        nextIndex = this.store.findFirstIndexEndingAfter(fromTimeInMillisecond);
+    }
+
+    /**
+     * Move to the next segment overlapping the range
+     *
+     * @return false if there is none left
+     */
+    public boolean moveToNext() {
+        int size = store.size();
+        while (nextIndex < size) {
+            int i = nextIndex++;
+            long startTime = store.getStartTimeInMillisecond(i);
+            if (startTime >= toTimeInMillisecond) {
+                //Sorted by start time, no later segment can overlap either
+                nextIndex = size;
+                break;
+            }
+            long endTime = store.getEndTimeInMillisecond(i);
+            if (endTime > fromTimeInMillisecond) {
+                index = i;
+                clippedStartTimeInMillisecond = Math.max(startTime, fromTimeInMillisecond);
+                clippedEndTimeInMillisecond = Math.min(endTime, toTimeInMillisecond);
+                return true;
+            }
+        }
+        index = -1;
+        return false;
+    }
+
+    /**
+     * Index in the store of the current segment
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public long getClippedStartTimeInMillisecond() {
+        return clippedStartTimeInMillisecond;
+    }
+
+    public long getClippedEndTimeInMillisecond() {
+        return clippedEndTimeInMillisecond;
+    }
+
+    public long getFromTimeInMillisecond() {
+        return fromTimeInMillisecond;
+    }
+
+    public long getToTimeInMillisecond() {
+        return toTimeInMillisecond;
+    }
+
+    /**
+     * Recorded time in the whole range, independent of the cursor position.
+     * O(log n) on a PackedSegmentStore without overlapping segments.
+     */
+    public long getTotalDurationInMillisecond() {
+        if (store instanceof PackedSegmentStore) {
+            return ((PackedSegmentStore) store).getRecordedDurationInMillisecond(fromTimeInMillisecond, toTimeInMillisecond);
+        }
+        return computeRecordedDuration(store, fromTimeInMillisecond, toTimeInMillisecond);
+    }
+
+    /**
+     * Length of the union of the segments clipped to a range, by a linear scan of the segments in the range
+     */
+    static long computeRecordedDuration(SegmentStore store, long fromTimeInMillisecond, long toTimeInMillisecond) {
+        long duration = 0;
+        //End of the time already counted, segments are sorted by start time so it only moves forward
+        long countedUntil = fromTimeInMillisecond;
+        int size = store.size();
+        for (int i = store.findFirstIndexEndingAfter(fromTimeInMillisecond); i < size; i++) {
+            long startTime = store.getStartTimeInMillisecond(i);
+            if (startTime >= toTimeInMillisecond) {
+                break;
+            }
+            long endTime = Math.min(store.getEndTimeInMillisecond(i), toTimeInMillisecond);
+            if (endTime > countedUntil) {
+                duration += endTime - Math.max(startTime, countedUntil);
+                countedUntil = endTime;
+            }
+        }
+        return duration;
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+/**
+ * Read access to record segments, sorted by start time, as used by TimebarRenderer to draw the recordbar.
+ */
+public interface SegmentStore {
+    /**
+     * Number of segments
+     */
+    int size();
+
+    long getStartTimeInMillisecond(int index);
+
+    long getEndTimeInMillisecond(int index);
+
+    /**
+     * Find where drawing should start for a screen whose left edge is at the given time.
+     *
+     * @return index of the first segment ending at or after the time, so that every segment before it ends earlier.
+     * size() if there is no such segment.
+     */
+    int findFirstIndexEndingAfter(long timeInMillisecond);
+}
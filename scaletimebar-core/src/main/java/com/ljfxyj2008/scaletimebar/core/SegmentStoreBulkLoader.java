@@ -0,0 +1,145 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Builds the segment indexes of many channels at once, one channel per task, e.g. when a review screen opens
+ * with a timebar per camera.
+ * <p>
+ * Every channel is sorted by start time, overlapping segments (and those separated by less than the coalesce gap)
+ * are merged, and the result is wrapped in an immutable PackedSegmentStore which can be handed to
+ * ScalableTimebarView.setSegmentStore() as is. Channels are submitted to the executor largest first, so that
+ * a large channel is not left running alone at the end and the load time scales with the core count.
+ * <p>
+ * load() blocks until every channel is built, call it from a background thread. The calling thread builds
+ * channels too instead of only waiting, see ParallelChannelRunner.
+ */
+public class SegmentStoreBulkLoader {
+    /**
+     * Receives every channel as soon as it is built, on the thread which built it
+     */
+    public interface Listener {
+        void onChannelLoaded(int channel, PackedSegmentStore store);
+    }
+
+    /**
+     * Pool shared by loaders created without an executor, only created on first use since ForkJoinPool
+     * is missing before Android 5.0 (API 21)
+     */
+    private static class DefaultPoolHolder {
+        static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    private final Executor executor;
+    private long coalesceGapInMillisecond;
+    private Listener listener;
+
+    /**
+     * Loader running on a ForkJoinPool shared by all such loaders, sized to the core count.
+     * Requires Java 7 or Android 5.0 (API 21), pass an executor on older versions.
+     */
+    public SegmentStoreBulkLoader() {
+        this(DefaultPoolHolder.POOL);
+    }
+
+    /**
+     * @param executor runs the channel builds, e.g. a ThreadPoolExecutor with one thread per core
+     */
+    public SegmentStoreBulkLoader(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Build the indexes of all channels in parallel. The arrays of every channel are sorted and compacted in
+     * place, then wrapped without copying: they must not be modified afterwards.
+     *
+     * @param startTimes start times of every channel, in any order
+     * @param endTimes   end times of every channel, moved together with their start time
+     * @param sizes      number of segments used from the arrays of every channel
+     * @return index of every channel, in the order of the arguments
+     * @throws InterruptedException if the calling thread was interrupted while waiting
+     */
+    public PackedSegmentStore[] load(final long[][] startTimes, final long[][] endTimes, final int[] sizes)
+            throws InterruptedException {
+        int channelCount = sizes.length;
+        final PackedSegmentStore[] stores = new PackedSegmentStore[channelCount];
+        final int[] order = orderBySizeDescending(sizes);
+        //One worker per channel as the executor decides how many run at once, taking channels largest first
+        ParallelChannelRunner.run(executor, channelCount, channelCount, new ParallelChannelRunner.Task<RuntimeException>() {
+            @Override
+            public void run(int worker, int position) {
+                int channel = order[position];
+                stores[channel] = loadChannel(channel, startTimes[channel], endTimes[channel], sizes[channel]);
+            }
+        });
+        return stores;
+    }
+
+    private PackedSegmentStore loadChannel(int channel, long[] startTimes, long[] endTimes, int size) {
+        PackedSegmentStore store = buildStore(startTimes, endTimes, size, coalesceGapInMillisecond);
+        Listener listener = this.listener;
+        if (listener != null) {
+            listener.onChannelLoaded(channel, store);
+        }
+        return store;
+    }
+
+    /**
+     * Build the index of one channel on the calling thread: sort, coalesce and wrap the arrays in place
+     *
+     * @param coalesceGapInMillisecond segments starting at most this long after the end of the previous one are merged
+     *                                 with it, 0 merges only overlapping and touching segments
+     */
+    public static PackedSegmentStore buildStore(long[] startTimes, long[] endTimes, int size, long coalesceGapInMillisecond) {
+        PackedSegmentStore.sortByStartTime(startTimes, endTimes, size);
+        int coalescedSize = 0;
+        for (int i = 0; i < size; i++) {
+            if (coalescedSize > 0 && startTimes[i] - endTimes[coalescedSize - 1] <= coalesceGapInMillisecond) {
+                endTimes[coalescedSize - 1] = Math.max(endTimes[coalescedSize - 1], endTimes[i]);
+            } else {
+                startTimes[coalescedSize] = startTimes[i];
+                endTimes[coalescedSize] = endTimes[i];
+                coalescedSize++;
+            }
+        }
+        return PackedSegmentStore.fromSortedArrays(startTimes, endTimes, coalescedSize);
+    }
+
+    /**
+     * Channel indexes from the largest to the smallest, insertion sort since there are few channels
+     */
+    private static int[] orderBySizeDescending(int[] sizes) {
+        int[] order = new int[sizes.length];
+        for (int i = 0; i < order.length; i++) {
+            int channel = i;
+            int j = i;
+            while (j > 0 && sizes[order[j - 1]] < sizes[channel]) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = channel;
+        }
+        return order;
+    }
+
+    public long getCoalesceGapInMillisecond() {
+        return coalesceGapInMillisecond;
+    }
+
+    public void setCoalesceGapInMillisecond(long coalesceGapInMillisecond) {
+        this.coalesceGapInMillisecond = coalesceGapInMillisecond;
+    }
+
+    public Listener getListener() {
+        return listener;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+}
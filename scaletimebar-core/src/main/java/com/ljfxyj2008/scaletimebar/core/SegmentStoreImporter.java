@@ -0,0 +1,531 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+/**
+ * Streams recording indexes exported as CSV or JSON straight into a PackedSegmentStore.
+ * <p>
+ * Input is parsed byte by byte from a fixed buffer, no String or segment object is created per record,
+ * so peak memory is the output arrays (at most twice the segment count while they grow) plus the buffer.
+ * Records whose end time is before their start time are skipped and counted, out-of-order records are
+ * sorted at the end. Times are integer milliseconds.
+ * <p>
+ * Importing large files takes a while, run it on a background thread and hand the result to
+ * ScalableTimebarView.setSegmentStore() on the UI thread. One instance imports one input at a time.
+ */
+public class SegmentStoreImporter {
+    /**
+     * Receives progress after every buffer read
+     */
+    public interface ProgressListener {
+        /**
+         * @param bytesRead    bytes parsed so far
+         * @param totalBytes   size of the input, or -1 if unknown
+         * @param segmentCount valid segments read so far
+         */
+        void onImportProgress(long bytesRead, long totalBytes, int segmentCount);
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Initial capacity when the input size is unknown
+     */
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Initial capacity is never larger than this, so that inputs with many columns or much whitespace do not
+     * allocate arrays sized for the input instead of the output
+     */
+    private static final int MAX_INITIAL_CAPACITY = 64 * 1024;
+
+    /**
+     * Shortest plausible record, used to size the output arrays from the input size: "1477612800000,1477612860000\n"
+     */
+    private static final int MIN_CSV_BYTES_PER_RECORD = 28;
+    private static final int MIN_JSON_BYTES_PER_RECORD = 32;
+
+    private static final int MAX_JSON_DEPTH = 64;
+
+    private static final int KEY_OTHER = 0;
+    private static final int KEY_START = 1;
+    private static final int KEY_END = 2;
+
+    /**
+     * Zero-based CSV columns holding start and end times, other columns are skipped
+     */
+    private int startColumn = 0;
+    private int endColumn = 1;
+
+    /**
+     * JSON keys of start and end times in record objects. Arrays of two numbers are read as [start, end] as well.
+     */
+    private String jsonStartKey = "start";
+    private String jsonEndKey = "end";
+
+    private ProgressListener progressListener;
+
+    private long[] startTimes;
+    private long[] endTimes;
+    private int size;
+    private boolean sorted;
+    private int invalidCount;
+
+    //CSV parsing state
+    private int lineNumber;
+    private int column;
+    private long fieldValue;
+    private boolean fieldHasDigits;
+    private boolean fieldHasText;
+    private boolean lineHasContent;
+    private boolean lineIsComment;
+    private long lineStartTime;
+    private long lineEndTime;
+    private boolean lineHasStartTime;
+    private boolean lineHasEndTime;
+
+    //JSON parsing state
+    private int depth;
+    private final boolean[] depthIsArray = new boolean[MAX_JSON_DEPTH];
+    private final int[] depthKey = new int[MAX_JSON_DEPTH];
+    private final long[] depthStartTime = new long[MAX_JSON_DEPTH];
+    private final long[] depthEndTime = new long[MAX_JSON_DEPTH];
+    private final boolean[] depthHasStartTime = new boolean[MAX_JSON_DEPTH];
+    private final boolean[] depthHasEndTime = new boolean[MAX_JSON_DEPTH];
+    private final int[] depthNumberCount = new int[MAX_JSON_DEPTH];
+    private final boolean[] depthOnlyNumbers = new boolean[MAX_JSON_DEPTH];
+    private boolean expectingKey;
+    private boolean inString;
+    private boolean stringIsKey;
+    private boolean escaped;
+    private byte[] startKeyBytes;
+    private byte[] endKeyBytes;
+    private final byte[] keyBuffer = new byte[64];
+    private int keyLength;
+    private boolean inNumber;
+    private long numberValue;
+    private boolean numberNegative;
+    private boolean numberIsDecimal;
+    private final StringBuilder decimalNumber = new StringBuilder();
+
+    /**
+     * Import CSV with one record per line. A header line, blank lines and lines starting with '#' are skipped,
+     * fields may be separated by ',', ';' or tab, and quoted.
+     *
+     * @param in         input, not closed
+     * @param totalBytes size of the input for progress and array sizing, or -1 if unknown
+     * @throws IOException on read errors or a line without both times
+     */
+    public PackedSegmentStore importCsv(InputStream in, long totalBytes) throws IOException {
+        startImport(totalBytes, MIN_CSV_BYTES_PER_RECORD);
+        lineNumber = 1;
+        resetCsvLine();
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long bytesRead = 0;
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            for (int i = 0; i < count; i++) {
+                parseCsvByte(buffer[i]);
+            }
+            bytesRead += count;
+            reportProgress(bytesRead, totalBytes);
+        }
+        if (lineHasContent || column > 0) {
+            endCsvLine();
+        }
+        return finishImport();
+    }
+
+    /**
+     * Import CSV from the current position to the end of a file channel, see importCsv(InputStream, long)
+     */
+    public PackedSegmentStore importCsv(FileChannel channel) throws IOException {
+        return importCsv(Channels.newInputStream(channel), channel.size() - channel.position());
+    }
+
+    /**
+     * Import JSON records: objects carrying jsonStartKey and jsonEndKey, or arrays of two numbers, anywhere in the
+     * document, e.g. [{"start": 1477612800000, "end": 1477612860000}, ...] or {"records": [[1477612800000, 1477612860000]]}.
+     *
+     * @param in         input, not closed
+     * @param totalBytes size of the input for progress and array sizing, or -1 if unknown
+     * @throws IOException on read errors or unbalanced brackets
+     */
+    public PackedSegmentStore importJson(InputStream in, long totalBytes) throws IOException {
+        startImport(totalBytes, MIN_JSON_BYTES_PER_RECORD);
+        depth = 0;
+        expectingKey = false;
+        inString = false;
+        escaped = false;
+        inNumber = false;
+        startKeyBytes = jsonStartKey.getBytes("UTF-8");
+        endKeyBytes = jsonEndKey.getBytes("UTF-8");
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long bytesRead = 0;
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            for (int i = 0; i < count; i++) {
+                parseJsonByte(buffer[i]);
+            }
+            bytesRead += count;
+            reportProgress(bytesRead, totalBytes);
+        }
+        if (inNumber) {
+            endJsonNumber();
+        }
+        if (depth != 0 || inString) {
+            throw new IOException("Unexpected end of JSON input");
+        }
+        return finishImport();
+    }
+
+    /**
+     * Import JSON from the current position to the end of a file channel, see importJson(InputStream, long)
+     */
+    public PackedSegmentStore importJson(FileChannel channel) throws IOException {
+        return importJson(Channels.newInputStream(channel), channel.size() - channel.position());
+    }
+
+    private void startImport(long totalBytes, int minBytesPerRecord) {
+        long estimatedCount = totalBytes > 0 ? totalBytes / minBytesPerRecord + 1 : DEFAULT_CAPACITY;
+        int capacity = (int) Math.min(MAX_INITIAL_CAPACITY, estimatedCount);
+        startTimes = new long[capacity];
+        endTimes = new long[capacity];
+        size = 0;
+        sorted = true;
+        invalidCount = 0;
+    }
+
+    private PackedSegmentStore finishImport() {
+        PackedSegmentStore store = sorted
+                ? PackedSegmentStore.fromSortedArrays(startTimes, endTimes, size)
+                : PackedSegmentStore.fromUnsortedArrays(startTimes, endTimes, size);
+        startTimes = null;
+        endTimes = null;
+        return store;
+    }
+
+    private void reportProgress(long bytesRead, long totalBytes) {
+        if (progressListener != null) {
+            progressListener.onImportProgress(bytesRead, totalBytes, size);
+        }
+    }
+
+    private void addSegment(long startTime, long endTime) {
+        if (endTime < startTime) {
+            invalidCount++;
+            return;
+        }
+        if (size == startTimes.length) {
+            int newCapacity = Math.max(DEFAULT_CAPACITY, size * 2);
+            long[] newStartTimes = new long[newCapacity];
+            long[] newEndTimes = new long[newCapacity];
+            System.arraycopy(startTimes, 0, newStartTimes, 0, size);
+            System.arraycopy(endTimes, 0, newEndTimes, 0, size);
+            startTimes = newStartTimes;
+            endTimes = newEndTimes;
+        }
+        if (size > 0 && startTime < startTimes[size - 1]) {
+            sorted = false;
+        }
+        startTimes[size] = startTime;
+        endTimes[size] = endTime;
+        size++;
+    }
+
+    private void parseCsvByte(byte b) throws IOException {
+        if (b == '\n') {
+            endCsvLine();
+            return;
+        }
+        if (lineIsComment || b == '\r' || b == ' ' || b == '"') {
+            return;
+        }
+        if (b == ',' || b == ';' || b == '\t') {
+            endCsvField();
+            return;
+        }
+        if (b == '#' && column == 0 && !lineHasContent) {
+            lineIsComment = true;
+            return;
+        }
+        lineHasContent = true;
+        if (b >= '0' && b <= '9' && !fieldHasText && fieldValue <= (Long.MAX_VALUE - 9) / 10) {
+            fieldValue = fieldValue * 10 + (b - '0');
+            fieldHasDigits = true;
+        } else {
+            fieldHasText = true;
+        }
+    }
+
+    private void endCsvField() {
+        if (fieldHasDigits && !fieldHasText) {
+            if (column == startColumn) {
+                lineStartTime = fieldValue;
+                lineHasStartTime = true;
+            }
+            if (column == endColumn) {
+                lineEndTime = fieldValue;
+                lineHasEndTime = true;
+            }
+        }
+        column++;
+        fieldValue = 0;
+        fieldHasDigits = false;
+        fieldHasText = false;
+    }
+
+    private void endCsvLine() throws IOException {
+        endCsvField();
+        if (lineHasStartTime && lineHasEndTime) {
+            addSegment(lineStartTime, lineEndTime);
+        } else if (lineHasContent && !(lineNumber == 1 && size == 0)) {
+            throw new IOException("Line " + lineNumber + " has no valid start and end time");
+        }
+        lineNumber++;
+        resetCsvLine();
+    }
+
+    private void resetCsvLine() {
+        column = 0;
+        fieldValue = 0;
+        fieldHasDigits = false;
+        fieldHasText = false;
+        lineHasContent = false;
+        lineIsComment = false;
+        lineHasStartTime = false;
+        lineHasEndTime = false;
+    }
+
+    private void parseJsonByte(byte b) throws IOException {
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+                appendKeyByte(b);
+            } else if (b == '\\') {
+                escaped = true;
+            } else if (b == '"') {
+                endJsonString();
+            } else {
+                appendKeyByte(b);
+            }
+            return;
+        }
+        if (inNumber) {
+            if ((b >= '0' && b <= '9') || b == '.' || b == 'e' || b == 'E' || b == '+' || b == '-') {
+                appendNumberByte(b);
+                return;
+            }
+            endJsonNumber();
+        }
+
+        switch (b) {
+            case '{':
+                pushJson(false);
+                expectingKey = true;
+                break;
+            case '[':
+                pushJson(true);
+                break;
+            case '}':
+                if (depth == 0 || depthIsArray[depth - 1]) {
+                    throw new IOException("Unbalanced '}' in JSON input");
+                }
+                if (depthHasStartTime[depth - 1] && depthHasEndTime[depth - 1]) {
+                    addSegment(depthStartTime[depth - 1], depthEndTime[depth - 1]);
+                }
+                depth--;
+                expectingKey = false;
+                break;
+            case ']':
+                if (depth == 0 || !depthIsArray[depth - 1]) {
+                    throw new IOException("Unbalanced ']' in JSON input");
+                }
+                if (depthOnlyNumbers[depth - 1] && depthNumberCount[depth - 1] == 2) {
+                    addSegment(depthStartTime[depth - 1], depthEndTime[depth - 1]);
+                }
+                depth--;
+                expectingKey = false;
+                break;
+            case '"':
+                inString = true;
+                stringIsKey = expectingKey && depth > 0 && !depthIsArray[depth - 1];
+                keyLength = 0;
+                if (!stringIsKey) {
+                    onJsonNonNumberValue();
+                }
+                break;
+            case ':':
+                expectingKey = false;
+                break;
+            case ',':
+                expectingKey = depth > 0 && !depthIsArray[depth - 1];
+                break;
+            case ' ':
+            case '\t':
+            case '\r':
+            case '\n':
+                break;
+            default:
+                if ((b >= '0' && b <= '9') || b == '-') {
+                    inNumber = true;
+                    numberValue = 0;
+                    numberNegative = false;
+                    numberIsDecimal = false;
+                    decimalNumber.setLength(0);
+                    appendNumberByte(b);
+                } else {
+                    //true, false, null
+                    onJsonNonNumberValue();
+                }
+                break;
+        }
+    }
+
+    private void pushJson(boolean isArray) throws IOException {
+        if (depth == MAX_JSON_DEPTH) {
+            throw new IOException("JSON input nested deeper than " + MAX_JSON_DEPTH);
+        }
+        if (depth > 0) {
+            onJsonNonNumberValue();
+        }
+        depthIsArray[depth] = isArray;
+        depthKey[depth] = KEY_OTHER;
+        depthHasStartTime[depth] = false;
+        depthHasEndTime[depth] = false;
+        depthNumberCount[depth] = 0;
+        depthOnlyNumbers[depth] = true;
+        depth++;
+    }
+
+    private void appendKeyByte(byte b) {
+        if (stringIsKey && keyLength < keyBuffer.length) {
+            keyBuffer[keyLength++] = b;
+        }
+    }
+
+    private void endJsonString() {
+        inString = false;
+        if (stringIsKey) {
+            int key = KEY_OTHER;
+            if (keyEquals(startKeyBytes)) {
+                key = KEY_START;
+            } else if (keyEquals(endKeyBytes)) {
+                key = KEY_END;
+            }
+            depthKey[depth - 1] = key;
+        }
+    }
+
+    private boolean keyEquals(byte[] expected) {
+        if (keyLength != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < keyLength; i++) {
+            if (keyBuffer[i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void appendNumberByte(byte b) {
+        if (b >= '0' && b <= '9' && !numberIsDecimal) {
+            numberValue = numberValue * 10 + (b - '0');
+        } else if (b == '-' && decimalNumber.length() == 0) {
+            numberNegative = true;
+        } else {
+            numberIsDecimal = true;
+        }
+        decimalNumber.append((char) b);
+    }
+
+    private void endJsonNumber() {
+        inNumber = false;
+        long value;
+        if (numberIsDecimal) {
+            value = (long) Double.parseDouble(decimalNumber.toString());
+        } else {
+            value = numberNegative ? -numberValue : numberValue;
+        }
+        if (depth == 0) {
+            return;
+        }
+        int top = depth - 1;
+        if (depthIsArray[top]) {
+            int index = depthNumberCount[top]++;
+            if (index == 0) {
+                depthStartTime[top] = value;
+            } else if (index == 1) {
+                depthEndTime[top] = value;
+            }
+        } else if (depthKey[top] == KEY_START) {
+            depthStartTime[top] = value;
+            depthHasStartTime[top] = true;
+        } else if (depthKey[top] == KEY_END) {
+            depthEndTime[top] = value;
+            depthHasEndTime[top] = true;
+        }
+    }
+
+    /**
+     * A string, object, array or literal value: arrays holding it are not [start, end] pairs
+     */
+    private void onJsonNonNumberValue() {
+        if (depth > 0 && depthIsArray[depth - 1]) {
+            depthOnlyNumbers[depth - 1] = false;
+        }
+    }
+
+    /**
+     * Records skipped by the last import because they end before they start
+     */
+    public int getInvalidCount() {
+        return invalidCount;
+    }
+
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public int getStartColumn() {
+        return startColumn;
+    }
+
+    public void setStartColumn(int startColumn) {
+        this.startColumn = startColumn;
+    }
+
+    public int getEndColumn() {
+        return endColumn;
+    }
+
+    public void setEndColumn(int endColumn) {
+        this.endColumn = endColumn;
+    }
+
+    public String getJsonStartKey() {
+        return jsonStartKey;
+    }
+
+    public void setJsonStartKey(String jsonStartKey) {
+        this.jsonStartKey = jsonStartKey;
+    }
+
+    public String getJsonEndKey() {
+        return jsonEndKey;
+    }
+
+    public void setJsonEndKey(String jsonEndKey) {
+        this.jsonEndKey = jsonEndKey;
+    }
+}
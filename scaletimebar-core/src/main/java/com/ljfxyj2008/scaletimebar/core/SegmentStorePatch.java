@@ -0,0 +1,295 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+/**
+ * Changes between two versions of a segment list: segments removed, inserted and modified,
+ * plus the time ranges whose drawing changes because of them.
+ * <p>
+ * A patch is either built by hand from the changes a server reports, or computed with diff() from the old and the
+ * refreshed list. applyTo() merges it into the existing store in one linear pass, without sorting or boxing again,
+ * and getAffectedRange*() tell which part of the timebar must be redrawn.
+ * <p>
+ * A modified segment is a removal plus an insertion, but only the part of time that changed is affected,
+ * e.g. just the new tail of a recording that is still growing.
+ */
+public class SegmentStorePatch {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] removedStartTimes = new long[INITIAL_CAPACITY];
+    private long[] removedEndTimes = new long[INITIAL_CAPACITY];
+    private int removedCount;
+
+    private long[] insertedStartTimes = new long[INITIAL_CAPACITY];
+    private long[] insertedEndTimes = new long[INITIAL_CAPACITY];
+    private int insertedCount;
+
+    private long[] affectedStartTimes = new long[INITIAL_CAPACITY];
+    private long[] affectedEndTimes = new long[INITIAL_CAPACITY];
+    private int affectedCount;
+
+    /**
+     * Whether the arrays above are sorted by start time, and affected ranges merged
+     */
+    private boolean normalized = true;
+
+    /**
+     * Remove the segment with exactly these start and end times
+     */
+    public void remove(long startTimeInMillisecond, long endTimeInMillisecond) {
+        if (removedCount == removedStartTimes.length) {
+            removedStartTimes = grow(removedStartTimes, removedCount * 2);
+            removedEndTimes = grow(removedEndTimes, removedCount * 2);
+        }
+        removedStartTimes[removedCount] = startTimeInMillisecond;
+        removedEndTimes[removedCount] = endTimeInMillisecond;
+        removedCount++;
+        addAffectedRange(startTimeInMillisecond, endTimeInMillisecond);
+    }
+
+    public void insert(long startTimeInMillisecond, long endTimeInMillisecond) {
+        if (insertedCount == insertedStartTimes.length) {
+            insertedStartTimes = grow(insertedStartTimes, insertedCount * 2);
+            insertedEndTimes = grow(insertedEndTimes, insertedCount * 2);
+        }
+        insertedStartTimes[insertedCount] = startTimeInMillisecond;
+        insertedEndTimes[insertedCount] = endTimeInMillisecond;
+        insertedCount++;
+        addAffectedRange(startTimeInMillisecond, endTimeInMillisecond);
+    }
+
+    /**
+     * Replace a segment with another one. Only the times covered by exactly one of them are affected.
+     */
+    public void modify(long oldStartTimeInMillisecond, long oldEndTimeInMillisecond,
+                       long newStartTimeInMillisecond, long newEndTimeInMillisecond) {
+        int affectedCountBefore = affectedCount;
+        remove(oldStartTimeInMillisecond, oldEndTimeInMillisecond);
+        insert(newStartTimeInMillisecond, newEndTimeInMillisecond);
+
+        boolean overlapping = oldStartTimeInMillisecond <= newEndTimeInMillisecond
+                && newStartTimeInMillisecond <= oldEndTimeInMillisecond;
+        if (overlapping) {
+            //Replace the two whole-segment ranges with the changed edges
+            affectedCount = affectedCountBefore;
+            if (oldStartTimeInMillisecond != newStartTimeInMillisecond) {
+                addAffectedRange(Math.min(oldStartTimeInMillisecond, newStartTimeInMillisecond),
+                        Math.max(oldStartTimeInMillisecond, newStartTimeInMillisecond));
+            }
+            if (oldEndTimeInMillisecond != newEndTimeInMillisecond) {
+                addAffectedRange(Math.min(oldEndTimeInMillisecond, newEndTimeInMillisecond),
+                        Math.max(oldEndTimeInMillisecond, newEndTimeInMillisecond));
+            }
+        }
+    }
+
+    /**
+     * Copy into a larger array. Arrays.copyOf() is not available on API 8, the library's minSdk.
+     */
+    private static long[] grow(long[] array, int newLength) {
+        long[] grown = new long[newLength];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private void addAffectedRange(long startTimeInMillisecond, long endTimeInMillisecond) {
+        if (affectedCount == affectedStartTimes.length) {
+            affectedStartTimes = grow(affectedStartTimes, affectedCount * 2);
+            affectedEndTimes = grow(affectedEndTimes, affectedCount * 2);
+        }
+        affectedStartTimes[affectedCount] = startTimeInMillisecond;
+        affectedEndTimes[affectedCount] = endTimeInMillisecond;
+        affectedCount++;
+        normalized = false;
+    }
+
+    /**
+     * Compute the changes turning one store into another in a single pass over both.
+     * Segments with the same start time but a different end time are reported as modified.
+     *
+     * @param oldStore store currently shown, sorted by start time
+     * @param newStore refreshed store, sorted by start time
+     */
+    public static SegmentStorePatch diff(SegmentStore oldStore, SegmentStore newStore) {
+        SegmentStorePatch patch = new SegmentStorePatch();
+        int oldSize = oldStore.size();
+        int newSize = newStore.size();
+        int oldIndex = 0;
+        int newIndex = 0;
+        while (oldIndex < oldSize && newIndex < newSize) {
+            long oldStart = oldStore.getStartTimeInMillisecond(oldIndex);
+            long newStart = newStore.getStartTimeInMillisecond(newIndex);
+            if (oldStart < newStart) {
+                patch.remove(oldStart, oldStore.getEndTimeInMillisecond(oldIndex));
+                oldIndex++;
+            } else if (newStart < oldStart) {
+                patch.insert(newStart, newStore.getEndTimeInMillisecond(newIndex));
+                newIndex++;
+            } else {
+                int oldGroupEnd = oldIndex + 1;
+                while (oldGroupEnd < oldSize && oldStore.getStartTimeInMillisecond(oldGroupEnd) == oldStart) {
+                    oldGroupEnd++;
+                }
+                int newGroupEnd = newIndex + 1;
+                while (newGroupEnd < newSize && newStore.getStartTimeInMillisecond(newGroupEnd) == newStart) {
+                    newGroupEnd++;
+                }
+                if (oldGroupEnd - oldIndex == 1 && newGroupEnd - newIndex == 1) {
+                    //The usual case, one segment starting here in both stores
+                    long oldEnd = oldStore.getEndTimeInMillisecond(oldIndex);
+                    long newEnd = newStore.getEndTimeInMillisecond(newIndex);
+                    if (oldEnd != newEnd) {
+                        patch.modify(oldStart, oldEnd, newStart, newEnd);
+                    }
+                } else {
+                    diffSameStartGroup(patch, oldStore, oldIndex, oldGroupEnd, newStore, newIndex, newGroupEnd);
+                }
+                oldIndex = oldGroupEnd;
+                newIndex = newGroupEnd;
+            }
+        }
+        for (; oldIndex < oldSize; oldIndex++) {
+            patch.remove(oldStore.getStartTimeInMillisecond(oldIndex), oldStore.getEndTimeInMillisecond(oldIndex));
+        }
+        for (; newIndex < newSize; newIndex++) {
+            patch.insert(newStore.getStartTimeInMillisecond(newIndex), newStore.getEndTimeInMillisecond(newIndex));
+        }
+        return patch;
+    }
+
+    /**
+     * Match segments sharing one start time by their end times, which are in no particular order
+     */
+    private static void diffSameStartGroup(SegmentStorePatch patch,
+                                           SegmentStore oldStore, int oldFrom, int oldTo,
+                                           SegmentStore newStore, int newFrom, int newTo) {
+        boolean[] newMatched = new boolean[newTo - newFrom];
+        for (int oldIndex = oldFrom; oldIndex < oldTo; oldIndex++) {
+            long oldEnd = oldStore.getEndTimeInMillisecond(oldIndex);
+            boolean matched = false;
+            for (int newIndex = newFrom; newIndex < newTo && !matched; newIndex++) {
+                if (!newMatched[newIndex - newFrom] && newStore.getEndTimeInMillisecond(newIndex) == oldEnd) {
+                    newMatched[newIndex - newFrom] = true;
+                    matched = true;
+                }
+            }
+            if (!matched) {
+                patch.remove(oldStore.getStartTimeInMillisecond(oldIndex), oldEnd);
+            }
+        }
+        for (int newIndex = newFrom; newIndex < newTo; newIndex++) {
+            if (!newMatched[newIndex - newFrom]) {
+                patch.insert(newStore.getStartTimeInMillisecond(newIndex), newStore.getEndTimeInMillisecond(newIndex));
+            }
+        }
+    }
+
+    /**
+     * Merge this patch into a store. The store is not modified, a new one is returned.
+     * Removals that match no segment of the store are ignored.
+     *
+     * @param store segments sorted by start time
+     */
+    public PackedSegmentStore applyTo(SegmentStore store) {
+        normalize();
+        int storeSize = store.size();
+        int capacity = storeSize + insertedCount;
+        long[] startTimes = new long[capacity];
+        long[] endTimes = new long[capacity];
+        int size = 0;
+
+        boolean[] removedMatched = removedCount == 0 ? null : new boolean[removedCount];
+        int removedIndex = 0;
+        int insertedIndex = 0;
+        for (int i = 0; i < storeSize; i++) {
+            long start = store.getStartTimeInMillisecond(i);
+            long end = store.getEndTimeInMillisecond(i);
+
+            while (removedIndex < removedCount && removedStartTimes[removedIndex] < start) {
+                removedIndex++;
+            }
+            boolean removed = false;
+            for (int k = removedIndex; k < removedCount && removedStartTimes[k] == start && !removed; k++) {
+                if (!removedMatched[k] && removedEndTimes[k] == end) {
+                    removedMatched[k] = true;
+                    removed = true;
+                }
+            }
+            if (removed) {
+                continue;
+            }
+
+            while (insertedIndex < insertedCount && insertedStartTimes[insertedIndex] <= start) {
+                startTimes[size] = insertedStartTimes[insertedIndex];
+                endTimes[size] = insertedEndTimes[insertedIndex];
+                size++;
+                insertedIndex++;
+            }
+            startTimes[size] = start;
+            endTimes[size] = end;
+            size++;
+        }
+        for (; insertedIndex < insertedCount; insertedIndex++) {
+            startTimes[size] = insertedStartTimes[insertedIndex];
+            endTimes[size] = insertedEndTimes[insertedIndex];
+            size++;
+        }
+        return PackedSegmentStore.fromSortedArrays(startTimes, endTimes, size);
+    }
+
+    /**
+     * Sort removals and insertions by start time, and sort and merge overlapping affected ranges
+     */
+    private void normalize() {
+        if (normalized) {
+            return;
+        }
+        PackedSegmentStore.sortByStartTime(removedStartTimes, removedEndTimes, removedCount);
+        PackedSegmentStore.sortByStartTime(insertedStartTimes, insertedEndTimes, insertedCount);
+        PackedSegmentStore.sortByStartTime(affectedStartTimes, affectedEndTimes, affectedCount);
+        int mergedCount = 0;
+        for (int i = 0; i < affectedCount; i++) {
+            if (mergedCount > 0 && affectedStartTimes[i] <= affectedEndTimes[mergedCount - 1]) {
+                affectedEndTimes[mergedCount - 1] = Math.max(affectedEndTimes[mergedCount - 1], affectedEndTimes[i]);
+            } else {
+                affectedStartTimes[mergedCount] = affectedStartTimes[i];
+                affectedEndTimes[mergedCount] = affectedEndTimes[i];
+                mergedCount++;
+            }
+        }
+        affectedCount = mergedCount;
+        normalized = true;
+    }
+
+    public boolean isEmpty() {
+        return removedCount == 0 && insertedCount == 0;
+    }
+
+    public int getRemovedCount() {
+        return removedCount;
+    }
+
+    public int getInsertedCount() {
+        return insertedCount;
+    }
+
+    /**
+     * Number of disjoint time ranges whose drawing changes, sorted by start time
+     */
+    public int getAffectedRangeCount() {
+        normalize();
+        return affectedCount;
+    }
+
+    public long getAffectedRangeStartTimeInMillisecond(int index) {
+        normalize();
+        return affectedStartTimes[index];
+    }
+
+    public long getAffectedRangeEndTimeInMillisecond(int index) {
+        normalize();
+        return affectedEndTimes[index];
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Converts key tick times to display strings.
+ * <p>
+ * One SimpleDateFormat is built per pattern, and recently formatted labels are cached per pattern,
+ * because the same key ticks are formatted again on every frame while the timebar is dragged.
+ * <p>
+ * Not thread safe, use one instance per rendering thread.
+ */
+public class TickLabelFormatter {
+    /**
+     * How many labels to keep, a few screens of key ticks
+     */
+    private static final int LABEL_CACHE_CAPACITY = 128;
+
+    /**
+     * Formats and label caches of every pattern seen, so timebars at different criterions can share one formatter
+     */
+    private final HashMap<String, PatternLabels> patternLabels = new HashMap<>();
+
+    private String currentPattern;
+    private PatternLabels currentLabels;
+
+    private long cacheHitCount;
+    private long cacheMissCount;
+
+    /**
+     * SimpleDateFormat of one pattern and its recently formatted labels
+     */
+    private static class PatternLabels {
+        final SimpleDateFormat format;
+
+        final LinkedHashMap<Long, String> labelCache = new LinkedHashMap<Long, String>(LABEL_CACHE_CAPACITY, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > LABEL_CACHE_CAPACITY;
+            }
+        };
+
+        PatternLabels(String pattern) {
+            format = new SimpleDateFormat(pattern);
+        }
+    }
+
+    /**
+     * Convert time in millisecond to display string.
+     *
+     * @param pattern           SimpleDateFormat pattern, see TimebarTickCriterion.getDataPattern()
+     * @param timeInMillisecond time in millisecond need to convert
+     * @return display string
+     */
+    public String format(String pattern, long timeInMillisecond) {
+        if (!pattern.equals(currentPattern)) {
+            currentPattern = pattern;
+            currentLabels = patternLabels.get(pattern);
+            if (currentLabels == null) {
+                currentLabels = new PatternLabels(pattern);
+                patternLabels.put(pattern, currentLabels);
+            }
+        }
+
+        String label = currentLabels.labelCache.get(timeInMillisecond);
+        if (label != null) {
+            cacheHitCount++;
+            return label;
+        }
+
+        cacheMissCount++;
+        label = currentLabels.format.format(timeInMillisecond);
+        currentLabels.labelCache.put(timeInMillisecond, label);
+        return label;
+    }
+
+    public long getCacheHitCount() {
+        return cacheHitCount;
+    }
+
+    public long getCacheMissCount() {
+        return cacheMissCount;
+    }
+}
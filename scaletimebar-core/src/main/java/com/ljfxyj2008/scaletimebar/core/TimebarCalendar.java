@@ -0,0 +1,80 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+/**
+ * Gregorian calendar arithmetic on day numbers (days since 1970-01-01), used to place week, month and year ticks
+ * without Calendar objects. Months are numbered as year * 12 + zero-based month.
+ */
+final class TimebarCalendar {
+    /**
+     * 1970-01-01 was a Thursday, Monday is 4 days later
+     */
+    private static final int FIRST_MONDAY_DAY = 4;
+
+    private TimebarCalendar() {
+    }
+
+    static long floorDiv(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        if ((dividend % divisor != 0) && ((dividend < 0) != (divisor < 0))) {
+            quotient--;
+        }
+        return quotient;
+    }
+
+    static long floorMod(long dividend, long divisor) {
+        return dividend - floorDiv(dividend, divisor) * divisor;
+    }
+
+    static boolean isMonday(long day) {
+        return floorMod(day - FIRST_MONDAY_DAY, 7) == 0;
+    }
+
+    /**
+     * Day number of the first day of a month
+     */
+    static long firstDayOfMonth(long month) {
+        long year = floorDiv(month, 12);
+        int monthOfYear = (int) floorMod(month, 12) + 1;
+        return daysFromCivil(year, monthOfYear, 1);
+    }
+
+    /**
+     * Month containing a day
+     */
+    static long monthOfDay(long day) {
+        //Days since 0000-03-01, years starting in March put the leap day at their end
+        long shifted = day + 719468;
+        long era = floorDiv(shifted, 146097);
+        long dayOfEra = shifted - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        long year = yearOfEra + era * 400;
+        int monthOfYear = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        if (monthOfYear <= 2) {
+            year++;
+        }
+        return year * 12 + monthOfYear - 1;
+    }
+
+    /**
+     * Day number of a date
+     *
+     * @param monthOfYear 1 to 12
+     * @param dayOfMonth  1 to 31
+     */
+    static long daysFromCivil(long year, int monthOfYear, int dayOfMonth) {
+        if (monthOfYear <= 2) {
+            year--;
+        }
+        long era = floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (monthOfYear > 2 ? monthOfYear - 3 : monthOfYear + 9) + 2) / 5 + dayOfMonth - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+/**
+ * Sizes of timebar elements in pixel, already converted from dp/sp by the platform layer.
+ */
+public class TimebarDimensions {
+    /**
+     * Half the width of large tick
+     */
+    private int bigTickHalfWidth;
+
+    /**
+     * Height of large tick
+     */
+    private int bigTickHeight;
+
+    /**
+     * Half the width of small tick
+     */
+    private int smallTickHalfWidth;
+
+    /**
+     * Height of small tick
+     */
+    private int smallTickHeight;
+
+    /**
+     * Time text size corresponding to large ticks(key ticks)
+     */
+    private int keyTickTextSize;
+
+    /**
+     * Margin between large tick and time text corresponding to it
+     */
+    private int tickTextToTickMargin;
+
+    /**
+     * Margin between recordbar and tick text
+     */
+    private int recordbarToTickTextMargin;
+
+    /**
+     * Height of recordbar
+     */
+    private int recordbarHeight;
+
+    public int getBigTickHalfWidth() {
+        return bigTickHalfWidth;
+    }
+
+    public void setBigTickHalfWidth(int bigTickHalfWidth) {
+        this.bigTickHalfWidth = bigTickHalfWidth;
+    }
+
+    public int getBigTickHeight() {
+        return bigTickHeight;
+    }
+
+    public void setBigTickHeight(int bigTickHeight) {
+        this.bigTickHeight = bigTickHeight;
+    }
+
+    public int getSmallTickHalfWidth() {
+        return smallTickHalfWidth;
+    }
+
+    public void setSmallTickHalfWidth(int smallTickHalfWidth) {
+        this.smallTickHalfWidth = smallTickHalfWidth;
+    }
+
+    public int getSmallTickHeight() {
+        return smallTickHeight;
+    }
+
+    public void setSmallTickHeight(int smallTickHeight) {
+        this.smallTickHeight = smallTickHeight;
+    }
+
+    public int getKeyTickTextSize() {
+        return keyTickTextSize;
+    }
+
+    public void setKeyTickTextSize(int keyTickTextSize) {
+        this.keyTickTextSize = keyTickTextSize;
+    }
+
+    public int getTickTextToTickMargin() {
+        return tickTextToTickMargin;
+    }
+
+    public void setTickTextToTickMargin(int tickTextToTickMargin) {
+        this.tickTextToTickMargin = tickTextToTickMargin;
+    }
+
+    public int getRecordbarToTickTextMargin() {
+        return recordbarToTickTextMargin;
+    }
+
+    public void setRecordbarToTickTextMargin(int recordbarToTickTextMargin) {
+        this.recordbarToTickTextMargin = recordbarToTickTextMargin;
+    }
+
+    public int getRecordbarHeight() {
+        return recordbarHeight;
+    }
+
+    public void setRecordbarHeight(int recordbarHeight) {
+        this.recordbarHeight = recordbarHeight;
+    }
+
+    /**
+     * Top of recordbar, measured from the top of a drawing area of the given height
+     */
+    public float getRecordbarTop(int viewHeight) {
+        return getRecordbarBottom(viewHeight) - recordbarHeight;
+    }
+
+    /**
+     * Bottom of recordbar, measured from the top of a drawing area of the given height
+     */
+    public float getRecordbarBottom(int viewHeight) {
+        return viewHeight - bigTickHeight - tickTextToTickMargin - keyTickTextSize - recordbarToTickTextMargin;
+    }
+
+    /**
+     * Baseline of key tick time text
+     */
+    public float getKeyTickTextY(int viewHeight) {
+        return viewHeight - bigTickHeight - tickTextToTickMargin;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+/**
+ * Receiver of the draw commands emitted by TimebarRenderer.
+ * <p>
+ * On Android it is backed by a Canvas, in tests and benchmarks it can simply record or count the commands.
+ * The paint of every command is given as one of the PAINT_* constants, so that implementations can resolve
+ * colors and styles once instead of changing paint state for every tick.
+ */
+public interface TimebarDrawSink {
+    /**
+     * Large tick (key tick)
+     */
+    int PAINT_KEY_TICK = 0;
+
+    /**
+     * Small tick
+     */
+    int PAINT_MIN_TICK = 1;
+
+    /**
+     * Grey background of recordbar
+     */
+    int PAINT_RECORDBAR_BACKGROUND = 2;
+
+    /**
+     * Colored segment on recordbar indicating record data existence
+     */
+    int PAINT_RECORD_SEGMENT = 3;
+
+    void drawRect(int paint, float left, float top, float right, float bottom);
+
+    /**
+     * Width of a key tick time text in pixel, used to center it under the tick
+     */
+    float measureText(String text);
+
+    /**
+     * Draw time text of a key tick
+     */
+    void drawText(String text, float x, float y);
+
+    /**
+     * Called for every key tick drawn, so that extra lanes (e.g. thumbnails) can be aligned to key ticks
+     *
+     * @param timeInMillisecond time of the key tick
+     * @param x                 x coordinate of the key tick
+     */
+    void onKeyTick(long timeInMillisecond, float x);
+}
@@ -0,0 +1,99 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+/**
+ * Aggregates TimebarRenderStats of many frames into histograms and totals, to be exported to telemetry
+ * periodically and then reset. Not thread safe, record and read on the drawing thread.
+ */
+public class TimebarFrameMetrics {
+    private final TimebarMetricsHistogram frameDurationHistogram = new TimebarMetricsHistogram();
+    private final TimebarMetricsHistogram tickCountHistogram = new TimebarMetricsHistogram();
+    private final TimebarMetricsHistogram segmentVisitedHistogram = new TimebarMetricsHistogram();
+    private final TimebarMetricsHistogram segmentDrawnHistogram = new TimebarMetricsHistogram();
+    private final TimebarMetricsHistogram labelFormattedHistogram = new TimebarMetricsHistogram();
+
+    private long frameCount;
+    private long labelCacheHitCount;
+    private long labelCacheMissCount;
+    private long thumbnailCacheHitCount;
+    private long thumbnailCacheMissCount;
+    private long scaleLayoutPassCount;
+
+    public void record(TimebarRenderStats stats) {
+        frameCount++;
+        frameDurationHistogram.record(stats.getFrameDurationInNanosecond());
+        tickCountHistogram.record(stats.getTickCount());
+        segmentVisitedHistogram.record(stats.getSegmentVisitedCount());
+        segmentDrawnHistogram.record(stats.getSegmentDrawnCount());
+        labelFormattedHistogram.record(stats.getLabelFormattedCount());
+        labelCacheHitCount += stats.getLabelCacheHitCount();
+        labelCacheMissCount += stats.getLabelCacheMissCount();
+        thumbnailCacheHitCount += stats.getThumbnailCacheHitCount();
+        thumbnailCacheMissCount += stats.getThumbnailCacheMissCount();
+        scaleLayoutPassCount += stats.getScaleLayoutPassCount();
+    }
+
+    public void reset() {
+        frameDurationHistogram.reset();
+        tickCountHistogram.reset();
+        segmentVisitedHistogram.reset();
+        segmentDrawnHistogram.reset();
+        labelFormattedHistogram.reset();
+        frameCount = 0;
+        labelCacheHitCount = 0;
+        labelCacheMissCount = 0;
+        thumbnailCacheHitCount = 0;
+        thumbnailCacheMissCount = 0;
+        scaleLayoutPassCount = 0;
+    }
+
+    /**
+     * Distribution of frame draw time in nanosecond
+     */
+    public TimebarMetricsHistogram getFrameDurationHistogram() {
+        return frameDurationHistogram;
+    }
+
+    public TimebarMetricsHistogram getTickCountHistogram() {
+        return tickCountHistogram;
+    }
+
+    public TimebarMetricsHistogram getSegmentVisitedHistogram() {
+        return segmentVisitedHistogram;
+    }
+
+    public TimebarMetricsHistogram getSegmentDrawnHistogram() {
+        return segmentDrawnHistogram;
+    }
+
+    public TimebarMetricsHistogram getLabelFormattedHistogram() {
+        return labelFormattedHistogram;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getLabelCacheHitCount() {
+        return labelCacheHitCount;
+    }
+
+    public long getLabelCacheMissCount() {
+        return labelCacheMissCount;
+    }
+
+    public long getThumbnailCacheHitCount() {
+        return thumbnailCacheHitCount;
+    }
+
+    public long getThumbnailCacheMissCount() {
+        return thumbnailCacheMissCount;
+    }
+
+    public long getScaleLayoutPassCount() {
+        return scaleLayoutPassCount;
+    }
+}
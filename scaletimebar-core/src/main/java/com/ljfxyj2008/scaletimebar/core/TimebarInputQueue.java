@@ -0,0 +1,154 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free single-producer single-consumer queue of input events, handing touch input from the UI thread
+ * to a render thread without locks or allocation.
+ * <p>
+ * Events are stored field by field in a ring of primitive arrays. The producer publishes an event by advancing
+ * the write index after writing its fields, the consumer frees its slot by advancing the read index after
+ * reading them. An event offered while the queue is full is dropped and counted, size the queue so that this
+ * only happens when the consumer is stalled.
+ * <p>
+ * Exactly one thread may call offer() and exactly one (other) thread may call poll() and the getters.
+ */
+public class TimebarInputQueue {
+    private final int mask;
+    private final int[] types;
+    private final float[] xs;
+    private final float[] ys;
+    private final long[] firstValues;
+    private final long[] secondValues;
+
+    /**
+     * Index of the next event to write, only advanced by the producer
+     */
+    private final AtomicInteger writeIndex = new AtomicInteger();
+
+    /**
+     * Index of the next event to read, only advanced by the consumer
+     */
+    private final AtomicInteger readIndex = new AtomicInteger();
+
+    private final AtomicInteger droppedCount = new AtomicInteger();
+
+    /**
+     * Fields of the event returned by the last successful poll(), only used by the consumer
+     */
+    private int type;
+    private float x;
+    private float y;
+    private long firstValue;
+    private long secondValue;
+
+    /**
+     * @param capacity maximum number of queued events, rounded up to a power of two
+     */
+    public TimebarInputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = size - 1;
+        types = new int[size];
+        xs = new float[size];
+        ys = new float[size];
+        firstValues = new long[size];
+        secondValues = new long[size];
+    }
+
+    /**
+     * Queue an event, from the producer thread only
+     *
+     * @param type        event type defined by the user of the queue
+     * @param x           first float payload, e.g. a touch coordinate
+     * @param y           second float payload, e.g. a scale factor
+     * @param firstValue  first long payload, e.g. a time
+     * @param secondValue second long payload
+     * @return false if the queue is full and the event was dropped
+     */
+    public boolean offer(int type, float x, float y, long firstValue, long secondValue) {
+        return offer(type, x, y, firstValue, secondValue, 0);
+    }
+
+    /**
+     * Queue an event unless it would leave fewer than reservedSlots free slots, from the producer thread only.
+     * Offering ordinary events with a reserve and important ones (e.g. the end of a gesture) without keeps
+     * room for the important ones however far the consumer falls behind.
+     *
+     * @param reservedSlots free slots this event must leave for events offered with a smaller reserve
+     * @return false if the queue is too full and the event was dropped
+     */
+    public boolean offer(int type, float x, float y, long firstValue, long secondValue, int reservedSlots) {
+        int write = writeIndex.get();
+        if (write - readIndex.get() + reservedSlots > mask) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        int slot = write & mask;
+        types[slot] = type;
+        xs[slot] = x;
+        ys[slot] = y;
+        firstValues[slot] = firstValue;
+        secondValues[slot] = secondValue;
+        writeIndex.lazySet(write + 1);
+        return true;
+    }
+
+    /**
+     * Take the oldest event, from the consumer thread only. Its fields are then read with getType() and the like.
+     *
+     * @return false if the queue is empty
+     */
+    public boolean poll() {
+        int read = readIndex.get();
+        if (read == writeIndex.get()) {
+            return false;
+        }
+        int slot = read & mask;
+        type = types[slot];
+        x = xs[slot];
+        y = ys[slot];
+        firstValue = firstValues[slot];
+        secondValue = secondValues[slot];
+        readIndex.lazySet(read + 1);
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return readIndex.get() == writeIndex.get();
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public long getFirstValue() {
+        return firstValue;
+    }
+
+    public long getSecondValue() {
+        return secondValue;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Number of events dropped because the queue was full
+     */
+    public int getDroppedCount() {
+        return droppedCount.get();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+/**
+ * Fixed-size histogram of non-negative long values with about 25% relative precision.
+ * <p>
+ * Every power of two range is split into 4 buckets, so recording a value is a few bit operations and an
+ * array increment, and memory stays constant no matter how many values are recorded.
+ * Not thread safe.
+ */
+public class TimebarMetricsHistogram {
+    /**
+     * Buckets per power of two
+     */
+    private static final int SUB_BUCKET_COUNT = 4;
+
+    /**
+     * Values 0..3 get one bucket each, then 4 buckets for each power of two from 2^2 to 2^62
+     */
+    public static final int BUCKET_COUNT = SUB_BUCKET_COUNT * 62;
+
+    private final long[] bucketCounts = new long[BUCKET_COUNT];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        bucketCounts[getBucketIndex(value)]++;
+        count++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            bucketCounts[i] = 0;
+        }
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+    }
+
+    /**
+     * Bucket a value falls into
+     */
+    public static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - 2)) & (SUB_BUCKET_COUNT - 1);
+        return SUB_BUCKET_COUNT * (exponent - 1) + subBucket;
+    }
+
+    /**
+     * Smallest value falling into a bucket
+     */
+    public static long getBucketLowerBound(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKET_COUNT) {
+            return bucketIndex;
+        }
+        int exponent = bucketIndex / SUB_BUCKET_COUNT + 1;
+        int subBucket = bucketIndex % SUB_BUCKET_COUNT;
+        return (long) (SUB_BUCKET_COUNT + subBucket) << (exponent - 2);
+    }
+
+    /**
+     * Approximate value at the given percentile, the lower bound of the bucket containing it
+     *
+     * @param percentile 0 to 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long targetCount = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seenCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seenCount += bucketCounts[i];
+            if (seenCount >= targetCount) {
+                return Math.max(min, Math.min(max, getBucketLowerBound(i)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Count of values in a bucket, for exporting the whole distribution
+     */
+    public long getBucketCount(int bucketIndex) {
+        return bucketCounts[bucketIndex];
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+}
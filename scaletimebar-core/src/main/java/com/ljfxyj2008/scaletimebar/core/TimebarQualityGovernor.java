@@ -0,0 +1,103 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+/**
+ * Keeps frames within a time budget by lowering the detail TimebarRenderer draws, one level per frame over budget:
+ * <pre>
+ * LEVEL_FULL                 everything drawn
+ * LEVEL_NO_MINOR_TICKS       small ticks skipped
+ * LEVEL_COARSE_SEGMENTS      and record segments merged across COARSE_SEGMENT_MERGE_GAP_IN_PIXEL
+ * LEVEL_NO_COLLIDING_LABELS  and key tick texts overlapping the previous one skipped
+ * </pre>
+ * Detail is never raised while frames are being measured, only restore() brings full detail back, which the view
+ * calls once input went idle. So quality does not flicker up and down during a fling.
+ */
+public class TimebarQualityGovernor {
+    public static final int LEVEL_FULL = 0;
+    public static final int LEVEL_NO_MINOR_TICKS = 1;
+    public static final int LEVEL_COARSE_SEGMENTS = 2;
+    public static final int LEVEL_NO_COLLIDING_LABELS = 3;
+
+    /**
+     * Half of a 60Hz frame, leaving the rest for layout, other views and the render thread
+     */
+    public static final long DEFAULT_FRAME_BUDGET_IN_NANOSECOND = 8000000L;
+
+    /**
+     * Merge gap of LEVEL_COARSE_SEGMENTS, a few pixels hide little on a recordbar but halve rects of dense data
+     */
+    public static final float COARSE_SEGMENT_MERGE_GAP_IN_PIXEL = 4f;
+
+    private long frameBudgetInNanosecond = DEFAULT_FRAME_BUDGET_IN_NANOSECOND;
+    private int level = LEVEL_FULL;
+
+    /**
+     * Frames over budget, and times the level was lowered, since creation
+     */
+    private long overBudgetFrameCount;
+    private long degradeCount;
+
+    /**
+     * Report the duration of a frame drawn at the current level
+     *
+     * @return true if the level was lowered, the renderer must be updated with applyTo()
+     */
+    public boolean onFrameDrawn(long frameDurationInNanosecond) {
+        if (frameDurationInNanosecond <= frameBudgetInNanosecond) {
+            return false;
+        }
+        overBudgetFrameCount++;
+        if (level >= LEVEL_NO_COLLIDING_LABELS) {
+            return false;
+        }
+        level++;
+        degradeCount++;
+        return true;
+    }
+
+    /**
+     * Go back to full detail, e.g. once input went idle
+     *
+     * @return true if the level changed, the renderer must be updated with applyTo() and the frame redrawn
+     */
+    public boolean restore() {
+        if (level == LEVEL_FULL) {
+            return false;
+        }
+        level = LEVEL_FULL;
+        return true;
+    }
+
+    /**
+     * Configure a renderer for the current level
+     */
+    public void applyTo(TimebarRenderer renderer) {
+        renderer.setDrawMinorTicks(level < LEVEL_NO_MINOR_TICKS);
+        renderer.setSegmentMergeGapInPixel(level < LEVEL_COARSE_SEGMENTS
+                ? TimebarRenderer.DEFAULT_SEGMENT_MERGE_GAP_IN_PIXEL : COARSE_SEGMENT_MERGE_GAP_IN_PIXEL);
+        renderer.setDropCollidingLabels(level >= LEVEL_NO_COLLIDING_LABELS);
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public long getFrameBudgetInNanosecond() {
+        return frameBudgetInNanosecond;
+    }
+
+    public void setFrameBudgetInNanosecond(long frameBudgetInNanosecond) {
+        this.frameBudgetInNanosecond = frameBudgetInNanosecond;
+    }
+
+    public long getOverBudgetFrameCount() {
+        return overBudgetFrameCount;
+    }
+
+    public long getDegradeCount() {
+        return degradeCount;
+    }
+}
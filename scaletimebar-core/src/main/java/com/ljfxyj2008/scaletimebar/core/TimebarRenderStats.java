@@ -0,0 +1,153 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+/**
+ * Counters of one frame. TimebarRenderer fills the tick, segment and label counters,
+ * the platform layer fills duration, thumbnail cache and layout counters.
+ */
+public class TimebarRenderStats {
+    /**
+     * Wall time spent drawing the frame
+     */
+    private long frameDurationInNanosecond;
+
+    /**
+     * Large and small ticks drawn
+     */
+    private int tickCount;
+
+    /**
+     * Segments read from the SegmentStore
+     */
+    private int segmentVisitedCount;
+
+    /**
+     * Segment rects drawn on recordbar, one rect may cover several merged segments
+     */
+    private int segmentDrawnCount;
+
+    /**
+     * Key tick time texts formatted (cached or not)
+     */
+    private int labelFormattedCount;
+
+    private int labelCacheHitCount;
+    private int labelCacheMissCount;
+    private int thumbnailCacheHitCount;
+    private int thumbnailCacheMissCount;
+
+    /**
+     * Layout passes caused by scaling since the previous frame
+     */
+    private int scaleLayoutPassCount;
+
+    /**
+     * Detail level the frame was drawn at, see TimebarQualityGovernor.LEVEL_*
+     */
+    private int qualityLevel;
+
+    public void reset() {
+        frameDurationInNanosecond = 0;
+        tickCount = 0;
+        segmentVisitedCount = 0;
+        segmentDrawnCount = 0;
+        labelFormattedCount = 0;
+        labelCacheHitCount = 0;
+        labelCacheMissCount = 0;
+        thumbnailCacheHitCount = 0;
+        thumbnailCacheMissCount = 0;
+        scaleLayoutPassCount = 0;
+        qualityLevel = 0;
+    }
+
+    public long getFrameDurationInNanosecond() {
+        return frameDurationInNanosecond;
+    }
+
+    public void setFrameDurationInNanosecond(long frameDurationInNanosecond) {
+        this.frameDurationInNanosecond = frameDurationInNanosecond;
+    }
+
+    public int getTickCount() {
+        return tickCount;
+    }
+
+    public void setTickCount(int tickCount) {
+        this.tickCount = tickCount;
+    }
+
+    public int getSegmentVisitedCount() {
+        return segmentVisitedCount;
+    }
+
+    public void setSegmentVisitedCount(int segmentVisitedCount) {
+        this.segmentVisitedCount = segmentVisitedCount;
+    }
+
+    public int getSegmentDrawnCount() {
+        return segmentDrawnCount;
+    }
+
+    public void setSegmentDrawnCount(int segmentDrawnCount) {
+        this.segmentDrawnCount = segmentDrawnCount;
+    }
+
+    public int getLabelFormattedCount() {
+        return labelFormattedCount;
+    }
+
+    public void setLabelFormattedCount(int labelFormattedCount) {
+        this.labelFormattedCount = labelFormattedCount;
+    }
+
+    public int getLabelCacheHitCount() {
+        return labelCacheHitCount;
+    }
+
+    public void setLabelCacheHitCount(int labelCacheHitCount) {
+        this.labelCacheHitCount = labelCacheHitCount;
+    }
+
+    public int getLabelCacheMissCount() {
+        return labelCacheMissCount;
+    }
+
+    public void setLabelCacheMissCount(int labelCacheMissCount) {
+        this.labelCacheMissCount = labelCacheMissCount;
+    }
+
+    public int getThumbnailCacheHitCount() {
+        return thumbnailCacheHitCount;
+    }
+
+    public void setThumbnailCacheHitCount(int thumbnailCacheHitCount) {
+        this.thumbnailCacheHitCount = thumbnailCacheHitCount;
+    }
+
+    public int getThumbnailCacheMissCount() {
+        return thumbnailCacheMissCount;
+    }
+
+    public void setThumbnailCacheMissCount(int thumbnailCacheMissCount) {
+        this.thumbnailCacheMissCount = thumbnailCacheMissCount;
+    }
+
+    public int getScaleLayoutPassCount() {
+        return scaleLayoutPassCount;
+    }
+
+    public void setScaleLayoutPassCount(int scaleLayoutPassCount) {
+        this.scaleLayoutPassCount = scaleLayoutPassCount;
+    }
+
+    public int getQualityLevel() {
+        return qualityLevel;
+    }
+
+    public void setQualityLevel(int qualityLevel) {
+        this.qualityLevel = qualityLevel;
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+import com.ljfxyj2008.scaletimebar.TimebarTickCriterion;
+
+import java.util.TimeZone;
+
+/**
+ * Layout math of the timebar: generates ticks, key tick time texts and recordbar segments for a viewport,
+ * and emits them as draw commands to a TimebarDrawSink.
+ * <p>
+ * It has no Android dependency, ScalableTimebarView is a thin adapter drawing the commands to a Canvas.
+ * <p>
+ * Not thread safe (the label formatter caches state), use one instance per rendering thread.
+ */
+public class TimebarRenderer {
+    /**
+     * Seconds in one day
+     */
+    public final static int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    /**
+     * Ticks are drawn from this many small ticks before the first visible one, so that fast dragging
+     * does not reveal undrawn area before the next frame
+     */
+    private static final int EXTRA_TICKS_BEFORE_SCREEN = 20;
+
+    /**
+     * Ticks are drawn up to this many small ticks after the last visible one
+     */
+    private static final int EXTRA_TICKS_AFTER_SCREEN = 10;
+
+    /**
+     * Record segments closer than this to the previous one are merged into one rect, so dense data costs
+     * draw calls proportional to screen width instead of segment count
+     */
+    public static final float DEFAULT_SEGMENT_MERGE_GAP_IN_PIXEL = 1f;
+
+    private final TimebarDimensions dimensions;
+    private final TickLabelFormatter labelFormatter;
+
+    /**
+     * Key tick texts closer than this to the previous text are collisions, see setDropCollidingLabels()
+     */
+    private static final float LABEL_COLLISION_MARGIN_IN_PIXEL = 4f;
+
+    private float segmentMergeGapInPixel = DEFAULT_SEGMENT_MERGE_GAP_IN_PIXEL;
+
+    /**
+     * Whether small ticks between key ticks are drawn
+     */
+    private boolean drawMinorTicks = true;
+
+    /**
+     * Whether key tick texts overlapping the previous text are skipped
+     */
+    private boolean dropCollidingLabels = false;
+
+    /**
+     * Receives counters of every frame, null when metrics are disabled
+     */
+    private TimebarRenderStats renderStats;
+
+    /**
+     * Marks the ticks and recordbar phases, may be null
+     */
+    private TimebarTracer tracer;
+
+    /**
+     * Counters of the frame being rendered, copied to renderStats at the end
+     */
+    private int frameTickCount;
+    private int frameSegmentVisitedCount;
+    private int frameSegmentDrawnCount;
+    private int frameLabelFormattedCount;
+
+    public TimebarRenderer(TimebarDimensions dimensions) {
+        this(dimensions, new TickLabelFormatter());
+    }
+
+    public TimebarRenderer(TimebarDimensions dimensions, TickLabelFormatter labelFormatter) {
+        this.dimensions = dimensions;
+        this.labelFormatter = labelFormatter;
+    }
+
+    public TimebarDimensions getDimensions() {
+        return dimensions;
+    }
+
+    public TickLabelFormatter getLabelFormatter() {
+        return labelFormatter;
+    }
+
+    /**
+     * Set the stats object to be reset and filled on every render() call, or null to stop collecting
+     */
+    public void setRenderStats(TimebarRenderStats renderStats) {
+        this.renderStats = renderStats;
+    }
+
+    public TimebarRenderStats getRenderStats() {
+        return renderStats;
+    }
+
+    public void setTracer(TimebarTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    public float getSegmentMergeGapInPixel() {
+        return segmentMergeGapInPixel;
+    }
+
+    public void setSegmentMergeGapInPixel(float segmentMergeGapInPixel) {
+        this.segmentMergeGapInPixel = segmentMergeGapInPixel;
+    }
+
+    public boolean isDrawMinorTicks() {
+        return drawMinorTicks;
+    }
+
+    /**
+     * Draw small ticks between key ticks or not. Skipping them saves most tick draw calls on cheap frames.
+     */
+    public void setDrawMinorTicks(boolean drawMinorTicks) {
+        this.drawMinorTicks = drawMinorTicks;
+    }
+
+    public boolean isDropCollidingLabels() {
+        return dropCollidingLabels;
+    }
+
+    /**
+     * Skip key tick texts which would overlap the text drawn before them, e.g. while scaling between two criterions
+     */
+    public void setDropCollidingLabels(boolean dropCollidingLabels) {
+        this.dropCollidingLabels = dropCollidingLabels;
+    }
+
+    /**
+     * Width drawn beyond each screen edge by render(), so a rendered frame can be translated
+     * this far horizontally without exposing undrawn area
+     *
+     * @param criterion       scale criterion the frame was rendered with
+     * @param pixelsPerSecond zoom the frame was rendered with
+     */
+    public float getOverdrawInPixel(TimebarTickCriterion criterion, float pixelsPerSecond) {
+        //One tick is lost to rounding the first tick, the recordbar stops EXTRA_TICKS_AFTER_SCREEN - 1 ticks after the screen
+        return (Math.min(EXTRA_TICKS_BEFORE_SCREEN, EXTRA_TICKS_AFTER_SCREEN) - 2) * criterion.getMinTickInSecond() * pixelsPerSecond;
+    }
+
+    /**
+     * Draw timebar body, large ticks, small ticks, time text corresponding to large ticks and recordbar.
+     *
+     * @param viewport     position and zoom to draw
+     * @param criterion    scale criterion deciding tick intervals and time text format
+     * @param segmentStore record segments to draw on recordbar, may be null
+     * @param sink         receiver of draw commands
+     */
+    public void render(TimebarViewport viewport, TimebarTickCriterion criterion, SegmentStore segmentStore, TimebarDrawSink sink) {
+        //Get the number of seconds between the phone's local time zone and UTC
+        int zoneOffsetInSeconds = TimeZone.getDefault().getRawOffset() / 1000;
+        long firstTickToSeeInSecondUTC = findFirstTickToSeeInSecond(viewport, criterion, zoneOffsetInSeconds);
+
+        frameTickCount = 0;
+        frameSegmentVisitedCount = 0;
+        frameSegmentDrawnCount = 0;
+        frameLabelFormattedCount = 0;
+        long labelCacheHitCountBefore = labelFormatter.getCacheHitCount();
+        long labelCacheMissCountBefore = labelFormatter.getCacheMissCount();
+
+        beginSection("Timebar#ticks");
+        drawTicks(viewport, criterion, firstTickToSeeInSecondUTC, zoneOffsetInSeconds, sink);
+        endSection();
+
+        beginSection("Timebar#recordbar");
+        drawRecordbar(viewport, criterion, firstTickToSeeInSecondUTC, segmentStore, sink);
+        endSection();
+
+        if (renderStats != null) {
+            renderStats.reset();
+            renderStats.setTickCount(frameTickCount);
+            renderStats.setSegmentVisitedCount(frameSegmentVisitedCount);
+            renderStats.setSegmentDrawnCount(frameSegmentDrawnCount);
+            renderStats.setLabelFormattedCount(frameLabelFormattedCount);
+            renderStats.setLabelCacheHitCount((int) (labelFormatter.getCacheHitCount() - labelCacheHitCountBefore));
+            renderStats.setLabelCacheMissCount((int) (labelFormatter.getCacheMissCount() - labelCacheMissCountBefore));
+        }
+    }
+
+    private void beginSection(String sectionName) {
+        if (tracer != null) {
+            tracer.beginSection(sectionName);
+        }
+    }
+
+    private void endSection() {
+        if (tracer != null) {
+            tracer.endSection();
+        }
+    }
+
+    /**
+     * Look for the first small tick to show on screen. Ticks are aligned to the local time zone.
+     */
+    private long findFirstTickToSeeInSecond(TimebarViewport viewport, TimebarTickCriterion criterion, int zoneOffsetInSeconds) {
+        int minTickInSecond = getTickStrideInSecond(criterion);
+        double halfScreenInSecond = viewport.getScreenWidth() / viewport.getPixelsPerSecond() / 2.0;
+        long forStartUTC = (long) (viewport.getCurrentTimeInMillisecond() / 1000 - halfScreenInSecond - minTickInSecond);
+        long forStartLocalTimezone = forStartUTC + zoneOffsetInSeconds;
+
+        if (criterion.getCalendarUnit() == TimebarTickCriterion.CALENDAR_UNIT_YEAR) {
+            //Small ticks are month starts
+            long month = TimebarCalendar.monthOfDay(TimebarCalendar.floorDiv(forStartLocalTimezone, SECONDS_PER_DAY));
+            long monthStartLocalTimezone = TimebarCalendar.firstDayOfMonth(month) * SECONDS_PER_DAY;
+            if (monthStartLocalTimezone < forStartLocalTimezone) {
+                monthStartLocalTimezone = TimebarCalendar.firstDayOfMonth(month + 1) * SECONDS_PER_DAY;
+            }
+            return monthStartLocalTimezone - zoneOffsetInSeconds;
+        }
+
+        long remainder = ((forStartLocalTimezone % minTickInSecond) + minTickInSecond) % minTickInSecond;
+        long firstTickLocalTimezone = remainder == 0 ? forStartLocalTimezone : forStartLocalTimezone + minTickInSecond - remainder;
+        return firstTickLocalTimezone - zoneOffsetInSeconds;
+    }
+
+    private void drawTicks(TimebarViewport viewport, TimebarTickCriterion criterion, long firstTickToSeeInSecondUTC,
+                           int zoneOffsetInSeconds, TimebarDrawSink sink) {
+        int minTickInSecond = getTickStrideInSecond(criterion);
+        int keyTickInSecond = criterion.getKeyTickInSecond();
+        int calendarUnit = criterion.getCalendarUnit();
+        int viewHeight = viewport.getViewHeight();
+        int bigTickHalfWidth = dimensions.getBigTickHalfWidth();
+        int smallTickHalfWidth = dimensions.getSmallTickHalfWidth();
+
+        int totalTickToDrawInOneScreen = (int) (viewport.getScreenWidth() / viewport.getPixelsPerSecond() / minTickInSecond) + 2;
+        float keytextY = dimensions.getKeyTickTextY(viewHeight);
+        float lastLabelRight = -Float.MAX_VALUE;
+
+        //Month of the first tick when small ticks are month starts, months have no fixed length
+        boolean monthlyTicks = calendarUnit == TimebarTickCriterion.CALENDAR_UNIT_YEAR;
+        long firstTickMonth = monthlyTicks ? TimebarCalendar.monthOfDay(
+                TimebarCalendar.floorDiv(firstTickToSeeInSecondUTC + zoneOffsetInSeconds, SECONDS_PER_DAY)) : 0;
+
+        for (int i = -EXTRA_TICKS_BEFORE_SCREEN; i <= totalTickToDrawInOneScreen + EXTRA_TICKS_AFTER_SCREEN; i++) {
+            long drawTickTimeInSecondUTC = monthlyTicks
+                    ? TimebarCalendar.firstDayOfMonth(firstTickMonth + i) * SECONDS_PER_DAY - zoneOffsetInSeconds
+                    : firstTickToSeeInSecondUTC + i * (long) minTickInSecond;
+            long drawTickTimeInSecondLocalTimezone = drawTickTimeInSecondUTC + zoneOffsetInSeconds;
+            float startX = viewport.secondToX(drawTickTimeInSecondUTC);
+
+            if (isKeyTick(calendarUnit, keyTickInSecond, drawTickTimeInSecondLocalTimezone, firstTickMonth + i)) {
+                //draw large ticks
+                sink.drawRect(TimebarDrawSink.PAINT_KEY_TICK,
+                        startX - bigTickHalfWidth / 2,
+                        viewHeight - dimensions.getBigTickHeight(),
+                        startX + bigTickHalfWidth / 2,
+                        viewHeight);
+
+                //draw time text
+                String keytext = labelFormatter.format(criterion.getDataPattern(), drawTickTimeInSecondUTC * 1000);
+                frameLabelFormattedCount++;
+                float keyTextWidth = sink.measureText(keytext);
+                float keyTextLeft = startX - keyTextWidth / 2;
+                if (!dropCollidingLabels || keyTextLeft >= lastLabelRight + LABEL_COLLISION_MARGIN_IN_PIXEL) {
+                    sink.drawText(keytext, keyTextLeft, keytextY);
+                    lastLabelRight = keyTextLeft + keyTextWidth;
+                }
+
+                sink.onKeyTick(drawTickTimeInSecondUTC * 1000, startX);
+                frameTickCount++;
+            } else if (drawMinorTicks) {
+                //draw small ticks
+                sink.drawRect(TimebarDrawSink.PAINT_MIN_TICK,
+                        startX - smallTickHalfWidth / 2,
+                        viewHeight - dimensions.getSmallTickHeight(),
+                        startX + smallTickHalfWidth / 2,
+                        viewHeight);
+                frameTickCount++;
+            }
+        }
+    }
+
+    /**
+     * Interval between small ticks: one day for week and month criterions, whatever minTickInSecond says
+     */
+    private static int getTickStrideInSecond(TimebarTickCriterion criterion) {
+        int calendarUnit = criterion.getCalendarUnit();
+        return calendarUnit == TimebarTickCriterion.CALENDAR_UNIT_WEEK || calendarUnit == TimebarTickCriterion.CALENDAR_UNIT_MONTH
+                ? SECONDS_PER_DAY : criterion.getMinTickInSecond();
+    }
+
+    /**
+     * @param tickTimeInSecondLocalTimezone time of a small tick
+     * @param tickMonth                     month of the tick, only used when small ticks are month starts
+     */
+    private static boolean isKeyTick(int calendarUnit, int keyTickInSecond, long tickTimeInSecondLocalTimezone, long tickMonth) {
+        switch (calendarUnit) {
+            case TimebarTickCriterion.CALENDAR_UNIT_WEEK:
+                return TimebarCalendar.isMonday(TimebarCalendar.floorDiv(tickTimeInSecondLocalTimezone, SECONDS_PER_DAY));
+            case TimebarTickCriterion.CALENDAR_UNIT_MONTH:
+                long day = TimebarCalendar.floorDiv(tickTimeInSecondLocalTimezone, SECONDS_PER_DAY);
+                return TimebarCalendar.firstDayOfMonth(TimebarCalendar.monthOfDay(day)) == day;
+            case TimebarTickCriterion.CALENDAR_UNIT_YEAR:
+                return TimebarCalendar.floorMod(tickMonth, 12) == 0;
+            default:
+                return tickTimeInSecondLocalTimezone % keyTickInSecond == 0;
+        }
+    }
+
+    private void drawRecordbar(TimebarViewport viewport, TimebarTickCriterion criterion, long firstTickToSeeInSecondUTC,
+                               SegmentStore segmentStore, TimebarDrawSink sink) {
+        int minTickInSecond = criterion.getMinTickInSecond();
+        float pixelsPerSecond = viewport.getPixelsPerSecond();
+        float recordbarTop = dimensions.getRecordbarTop(viewport.getViewHeight());
+        float recordbarBottom = dimensions.getRecordbarBottom(viewport.getViewHeight());
+
+        //Draw grey background, starting from the first tick drawn
+        long startDrawTimeInSeconds = firstTickToSeeInSecondUTC - EXTRA_TICKS_BEFORE_SCREEN * (long) minTickInSecond;
+        float startX = viewport.secondToX(startDrawTimeInSeconds);
+        sink.drawRect(TimebarDrawSink.PAINT_RECORDBAR_BACKGROUND,
+                startX,
+                recordbarTop,
+                startX + viewport.getScreenWidth() + minTickInSecond * 2 * EXTRA_TICKS_BEFORE_SCREEN * pixelsPerSecond,
+                recordbarBottom);
+
+        if (segmentStore == null || segmentStore.size() == 0) {
+            return;
+        }
+
+        //Draw colored record segments, from the first one which has not ended before the background starts.
+        //Runs of segments separated by less than segmentMergeGapInPixel are drawn as one rect.
+        long endDrawTimeInMillisecond = (long) (startDrawTimeInSeconds
+                + viewport.getScreenWidth() / pixelsPerSecond
+                + minTickInSecond * 30) * 1000L;
+
+        boolean hasPendingRect = false;
+        float pendingLeft = 0;
+        float pendingRight = 0;
+        int size = segmentStore.size();
+        for (int i = segmentStore.findFirstIndexEndingAfter(startDrawTimeInSeconds * 1000L); i < size; i++) {
+            long segmentStartTime = segmentStore.getStartTimeInMillisecond(i);
+            frameSegmentVisitedCount++;
+            if (segmentStartTime > endDrawTimeInMillisecond) {
+                break;
+            }
+            float left = viewport.millisecondToX(segmentStartTime);
+            float right = viewport.millisecondToX(segmentStore.getEndTimeInMillisecond(i));
+            if (hasPendingRect && left <= pendingRight + segmentMergeGapInPixel) {
+                if (right > pendingRight) {
+                    pendingRight = right;
+                }
+                continue;
+            }
+            if (hasPendingRect) {
+                drawSegmentRect(pendingLeft, recordbarTop, pendingRight, recordbarBottom, sink);
+            }
+            hasPendingRect = true;
+            pendingLeft = left;
+            pendingRight = right;
+        }
+        if (hasPendingRect) {
+            drawSegmentRect(pendingLeft, recordbarTop, pendingRight, recordbarBottom, sink);
+        }
+    }
+
+    private void drawSegmentRect(float left, float top, float right, float bottom, TimebarDrawSink sink) {
+        sink.drawRect(TimebarDrawSink.PAINT_RECORD_SEGMENT, left, top, right, bottom);
+        frameSegmentDrawnCount++;
+    }
+}
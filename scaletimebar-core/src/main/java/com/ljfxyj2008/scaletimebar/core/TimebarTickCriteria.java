@@ -0,0 +1,99 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+import com.ljfxyj2008.scaletimebar.TimebarTickCriterion;
+
+/**
+ * Preset TimebarTickCriterions.
+ */
+public class TimebarTickCriteria {
+    /**
+     * Number of preset scale criterions
+     */
+    public static final int DEFAULT_CRITERION_COUNT = 5;
+
+    private static final int SECONDS_PER_DAY = TimebarRenderer.SECONDS_PER_DAY;
+
+    /**
+     * Average month of the Gregorian calendar, 365.2425 / 12 days
+     */
+    private static final int AVERAGE_SECONDS_PER_MONTH = 2629746;
+
+    private TimebarTickCriteria() {
+    }
+
+    /**
+     * <p>
+     * According to the level of scaling, preset 5 scale criterions to show ticks on timebar, respectively, as follows:
+     * <p>
+     * [<b>Glossary</b>]<br/>
+     * LoTSW: The Length of Time can be displayed throughout the Screen Width   <br/>
+     * TILT: The Time Interval between two Large Ticks(Also called key ticks)  <br/>
+     * TIST: The Time Interval between two Small Ticks  <br/>
+     * <pre>
+     * （0）LoTSW：10 minutes      TILT：1 minutes          TIST：6 seconds
+     * （1）LoTSW：1 hours         TILT：10 minutes         TIST：1 minutes
+     * （2）LoTSW：6 hours         TILT：1 hours            TIST：5 minutes
+     * （3）LoTSW：36 hours        TILT：6 hours            TIST：30 minutes
+     * （4）LoTSW：6 days          TILT：1 days             TIST：2 hours
+     * </pre>
+     *
+     * @return the criterions from the finest to the coarsest, without view lengths (see TimebarTickLadder.updateViewLengths())
+     */
+    public static TimebarTickCriterion[] createDefaultCriteria() {
+        return new TimebarTickCriterion[]{
+                createCriterion(10 * 60, 1 * 60, 6, "HH:mm"),
+                createCriterion(60 * 60, 10 * 60, 60, "HH:mm"),
+                createCriterion(6 * 60 * 60, 60 * 60, 5 * 60, "HH:mm"),
+                createCriterion(36 * 60 * 60, 6 * 60 * 60, 30 * 60, "HH:mm"),
+                createCriterion(6 * 24 * 60 * 60, 24 * 60 * 60, 2 * 60 * 60, "MM.dd")};
+    }
+
+    /**
+     * The 5 preset criterions followed by 3 calendar criterions, to browse archives of a year and more:
+     * <pre>
+     * （5）LoTSW：6 weeks         TILT：1 week (Mondays)   TIST：1 day
+     * （6）LoTSW：6 months        TILT：1 month (1st)      TIST：1 day
+     * （7）LoTSW：3 years         TILT：1 year (Jan 1st)   TIST：1 month
+     * </pre>
+     */
+    public static TimebarTickCriterion[] createCalendarCriteria() {
+        TimebarTickCriterion[] defaultCriteria = createDefaultCriteria();
+        TimebarTickCriterion[] criteria = new TimebarTickCriterion[defaultCriteria.length + 3];
+        System.arraycopy(defaultCriteria, 0, criteria, 0, defaultCriteria.length);
+        criteria[defaultCriteria.length] = createCalendarCriterion(6 * 7 * SECONDS_PER_DAY, 7 * SECONDS_PER_DAY, SECONDS_PER_DAY,
+                "MM.dd", TimebarTickCriterion.CALENDAR_UNIT_WEEK);
+        criteria[defaultCriteria.length + 1] = createCalendarCriterion(6 * AVERAGE_SECONDS_PER_MONTH, AVERAGE_SECONDS_PER_MONTH, SECONDS_PER_DAY,
+                "yyyy.MM", TimebarTickCriterion.CALENDAR_UNIT_MONTH);
+        criteria[defaultCriteria.length + 2] = createCalendarCriterion(36 * AVERAGE_SECONDS_PER_MONTH, 12 * AVERAGE_SECONDS_PER_MONTH, AVERAGE_SECONDS_PER_MONTH,
+                "yyyy", TimebarTickCriterion.CALENDAR_UNIT_YEAR);
+        return criteria;
+    }
+
+    private static TimebarTickCriterion createCriterion(int totalSecondsInOneScreen, int keyTickInSecond, int minTickInSecond,
+                                                        String dataPattern) {
+        TimebarTickCriterion criterion = new TimebarTickCriterion();
+        criterion.setTotalSecondsInOneScreen(totalSecondsInOneScreen);
+        criterion.setKeyTickInSecond(keyTickInSecond);
+        criterion.setMinTickInSecond(minTickInSecond);
+        criterion.setDataPattern(dataPattern);
+        return criterion;
+    }
+
+    private static TimebarTickCriterion createCalendarCriterion(int totalSecondsInOneScreen, int keyTickInSecond, int minTickInSecond,
+                                                                String dataPattern, int calendarUnit) {
+        TimebarTickCriterion criterion = createCriterion(totalSecondsInOneScreen, keyTickInSecond, minTickInSecond, dataPattern);
+        criterion.setCalendarUnit(calendarUnit);
+        return criterion;
+    }
+
+    /**
+     * View length (excluding the half-screen empty parts on both ends) showing totalSecondsInOneScreen in one screen width
+     */
+    static int computeViewLength(int totalSecondsInOneScreen, int screenWidth, long wholeTimebarTotalSeconds) {
+        return (int) ((float) screenWidth * wholeTimebarTotalSeconds / (float) totalSecondsInOneScreen);
+    }
+}
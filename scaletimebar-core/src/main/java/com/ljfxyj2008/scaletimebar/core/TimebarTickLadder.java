@@ -0,0 +1,133 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+import com.ljfxyj2008.scaletimebar.TimebarTickCriterion;
+
+/**
+ * Zoom levels of a timebar: TimebarTickCriterions ordered from the finest (longest view) to the coarsest, kept in
+ * an array together with the view lengths at which scaling switches from one criterion to the next.
+ * <p>
+ * A criterion is used down to the average view length of it and the next coarser one. The switch lengths are
+ * computed once per timebar length by updateViewLengths(), so selecting the criterion of a view length while
+ * scaling is a binary search over primitive ints.
+ * <p>
+ * View lengths are stored into the criterions, so a ladder belongs to one view.
+ */
+public class TimebarTickLadder {
+    private final TimebarTickCriterion[] criteria;
+
+    /**
+     * switchViewLengths[i] is the shortest view length using criterion i, descending. The last criterion has none.
+     */
+    private final int[] switchViewLengths;
+
+    /**
+     * @param criteria zoom levels from the finest to the coarsest, i.e. with increasing totalSecondsInOneScreen
+     * @throws IllegalArgumentException if there is no criterion or they are not ordered
+     */
+    public TimebarTickLadder(TimebarTickCriterion... criteria) {
+        if (criteria.length == 0) {
+            throw new IllegalArgumentException("A ladder needs at least one criterion");
+        }
+        for (int i = 1; i < criteria.length; i++) {
+            if (criteria[i].getTotalSecondsInOneScreen() <= criteria[i - 1].getTotalSecondsInOneScreen()) {
+                throw new IllegalArgumentException("Criterion " + i + " does not show more seconds than criterion " + (i - 1));
+            }
+        }
+        this.criteria = criteria.clone();
+        switchViewLengths = new int[criteria.length - 1];
+        computeSwitchViewLengths();
+    }
+
+    /**
+     * The 5 preset criterions of TimebarTickCriteria, from 10 minutes to 6 days in one screen
+     */
+    public static TimebarTickLadder createDefault() {
+        return new TimebarTickLadder(TimebarTickCriteria.createDefaultCriteria());
+    }
+
+    /**
+     * The 5 preset criterions followed by weeks, months and years, see TimebarTickCriteria.createCalendarCriteria()
+     */
+    public static TimebarTickLadder createCalendar() {
+        return new TimebarTickLadder(TimebarTickCriteria.createCalendarCriteria());
+    }
+
+    /**
+     * Compute the view length of every criterion for a timebar length, and the switch lengths between them
+     *
+     * @param screenWidth              screen width in pixel
+     * @param wholeTimebarTotalSeconds length of the entire timebar in seconds
+     */
+    public void updateViewLengths(int screenWidth, long wholeTimebarTotalSeconds) {
+        for (TimebarTickCriterion criterion : criteria) {
+            criterion.setViewLength(TimebarTickCriteria.computeViewLength(criterion.getTotalSecondsInOneScreen(),
+                    screenWidth, wholeTimebarTotalSeconds));
+        }
+        computeSwitchViewLengths();
+    }
+
+    private void computeSwitchViewLengths() {
+        for (int i = 0; i < switchViewLengths.length; i++) {
+            switchViewLengths[i] = (int) (((long) criteria[i].getViewLength() + criteria[i + 1].getViewLength()) / 2);
+        }
+    }
+
+    public int size() {
+        return criteria.length;
+    }
+
+    public TimebarTickCriterion get(int index) {
+        return criteria[index];
+    }
+
+    /**
+     * Index of the criterion to use for a view length
+     *
+     * @param viewLength view length excluding the half-screen empty parts on both ends
+     */
+    public int selectIndex(int viewLength) {
+        //First switch length at or below viewLength, switch lengths are descending
+        int low = 0;
+        int high = switchViewLengths.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (switchViewLengths[middle] <= viewLength) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Clamp a view length between the standard lengths of the finest and the coarsest criterions
+     */
+    public int clampViewLength(int viewLength) {
+        return Math.max(criteria[criteria.length - 1].getViewLength(), Math.min(criteria[0].getViewLength(), viewLength));
+    }
+
+    /**
+     * Criterion a zoom button press moves to: the next criterion in the zoom direction, or back to the standard
+     * length of the current criterion if the view was scaled past it in the other direction.
+     *
+     * @param currentIndex      index of the current criterion
+     * @param currentViewLength current view length excluding the half-screen empty parts on both ends
+     * @param zoomIn            true to zoom in (towards index 0)
+     * @return index of the criterion to move to, -1 if already at the end of the ladder
+     */
+    public int stepIndex(int currentIndex, int currentViewLength, boolean zoomIn) {
+        int standardViewLength = criteria[currentIndex].getViewLength();
+        int index;
+        if (zoomIn) {
+            index = currentViewLength < standardViewLength ? currentIndex : currentIndex - 1;
+        } else {
+            index = currentViewLength > standardViewLength ? currentIndex : currentIndex + 1;
+        }
+        return index >= 0 && index < criteria.length ? index : -1;
+    }
+}
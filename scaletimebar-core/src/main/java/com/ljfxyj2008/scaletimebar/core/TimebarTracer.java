@@ -0,0 +1,14 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+/**
+ * Marks phases of TimebarRenderer, e.g. as android.os.Trace sections. Sections are properly nested.
+ */
+public interface TimebarTracer {
+    void beginSection(String sectionName);
+
+    void endSection();
+}
@@ -0,0 +1,179 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar.core;
+
+/**
+ * Position and zoom of a timebar, independent of any view system.
+ * <p>
+ * The timebar is laid out as one long strip: half a screen of empty space, then the whole time range from
+ * mostLeftTimeInMillisecond to mostRightTimeInMillisecond, then another half screen of empty space.
+ * X coordinates produced by this class are relative to the left end of that strip, which is how
+ * ScalableTimebarView draws (it moves itself so that currentTimeInMillisecond sits in the middle of the screen).
+ */
+public class TimebarViewport {
+    /**
+     * Time corresponding to the most left tick (earlist time) in whole timebar (maybe outside the screen display range)
+     */
+    private long mostLeftTimeInMillisecond;
+
+    /**
+     * Time corresponding to the most right tick (latest time) in whole timebar (maybe outside the screen display range)
+     */
+    private long mostRightTimeInMillisecond;
+
+    /**
+     * Current time the cursor indicating in millisecond, always shown in the middle of screen
+     */
+    private long currentTimeInMillisecond;
+
+    /**
+     * Screen width in pixel, which is also the visible width of the timebar
+     */
+    private int screenWidth;
+
+    /**
+     * Height of the drawing area in pixel. Timebar and recordbar are laid out from its bottom.
+     */
+    private int viewHeight;
+
+    /**
+     * Indicates how many pixels a tick corresponds to for 1 second at the current zoom
+     */
+    private float pixelsPerSecond;
+
+    public long getMostLeftTimeInMillisecond() {
+        return mostLeftTimeInMillisecond;
+    }
+
+    public void setMostLeftTimeInMillisecond(long mostLeftTimeInMillisecond) {
+        this.mostLeftTimeInMillisecond = mostLeftTimeInMillisecond;
+    }
+
+    public long getMostRightTimeInMillisecond() {
+        return mostRightTimeInMillisecond;
+    }
+
+    public void setMostRightTimeInMillisecond(long mostRightTimeInMillisecond) {
+        this.mostRightTimeInMillisecond = mostRightTimeInMillisecond;
+    }
+
+    public long getCurrentTimeInMillisecond() {
+        return currentTimeInMillisecond;
+    }
+
+    public void setCurrentTimeInMillisecond(long currentTimeInMillisecond) {
+        this.currentTimeInMillisecond = currentTimeInMillisecond;
+    }
+
+    public int getScreenWidth() {
+        return screenWidth;
+    }
+
+    public void setScreenWidth(int screenWidth) {
+        this.screenWidth = screenWidth;
+    }
+
+    public int getViewHeight() {
+        return viewHeight;
+    }
+
+    public void setViewHeight(int viewHeight) {
+        this.viewHeight = viewHeight;
+    }
+
+    public float getPixelsPerSecond() {
+        return pixelsPerSecond;
+    }
+
+    public void setPixelsPerSecond(float pixelsPerSecond) {
+        this.pixelsPerSecond = pixelsPerSecond;
+    }
+
+    /**
+     * The length of the entire timebar in seconds, excluding the extra half-screen empty width at both ends.
+     */
+    public long getWholeTimebarTotalSeconds() {
+        return (mostRightTimeInMillisecond - mostLeftTimeInMillisecond) / 1000;
+    }
+
+    /**
+     * Set pixelsPerSecond so that the whole time range is drawn over the given length in pixel
+     */
+    public void setTimebarLength(int timebarLength) {
+        pixelsPerSecond = (float) timebarLength / (float) getWholeTimebarTotalSeconds();
+    }
+
+    /**
+     * Time span visible on one screen in millisecond
+     */
+    public long getScreenDurationInMillisecond() {
+        return (long) (screenWidth * 1000f / pixelsPerSecond);
+    }
+
+    public long getScreenLeftTimeInMillisecond() {
+        return currentTimeInMillisecond - (long) ((float) screenWidth * 1000f / 2f / pixelsPerSecond);
+    }
+
+    public long getScreenRightTimeInMillisecond() {
+        return currentTimeInMillisecond + (long) (screenWidth * 1000f / 2f / pixelsPerSecond);
+    }
+
+    /**
+     * X coordinate of a whole second (e.g. a tick) on the timebar strip
+     */
+    public float secondToX(long timeInSecond) {
+        return pixelsPerSecond * (timeInSecond - mostLeftTimeInMillisecond / 1000) + screenWidth / 2f;
+    }
+
+    /**
+     * X coordinate of a time in millisecond (e.g. a segment end) on the timebar strip
+     */
+    public float millisecondToX(long timeInMillisecond) {
+        return pixelsPerSecond * (timeInMillisecond - mostLeftTimeInMillisecond) / 1000 + screenWidth / 2f;
+    }
+
+    /**
+     * Time in millisecond at an x coordinate on the timebar strip (e.g. a touch), the inverse of millisecondToX()
+     */
+    public long xToMillisecond(float x) {
+        return mostLeftTimeInMillisecond + (long) ((x - screenWidth / 2f) * 1000 / pixelsPerSecond);
+    }
+
+    /**
+     * X coordinate of the cursor on the timebar strip, which is the middle of screen
+     */
+    public float getCursorX() {
+        return millisecondToX(currentTimeInMillisecond);
+    }
+
+    /**
+     * Translation bringing the cursor of the timebar strip to the middle of a screen which does not move,
+     * e.g. a TextureView or an exported image
+     */
+    public float getScreenTranslationX() {
+        return screenWidth / 2f - getCursorX();
+    }
+
+    /**
+     * Show a time range exactly over one screen: the range becomes the whole timebar with the cursor in its
+     * middle. Draw with a translation of getScreenTranslationX().
+     */
+    public void fitRange(long fromTimeInMillisecond, long toTimeInMillisecond, int screenWidth, int viewHeight) {
+        mostLeftTimeInMillisecond = fromTimeInMillisecond;
+        mostRightTimeInMillisecond = toTimeInMillisecond;
+        currentTimeInMillisecond = fromTimeInMillisecond + (toTimeInMillisecond - fromTimeInMillisecond) / 2;
+        this.screenWidth = screenWidth;
+        this.viewHeight = viewHeight;
+        setTimebarLength(screenWidth);
+    }
+
+    /**
+     * Distance from the left end of the timebar strip to the left edge of screen.
+     * ScalableTimebarView lays itself out at the negative of this value.
+     */
+    public int getScrollOffset() {
+        return (int) ((currentTimeInMillisecond - mostLeftTimeInMillisecond) * pixelsPerSecond / 1000f);
+    }
+}
@@ -0,0 +1,100 @@
+package com.ljfxyj2008.scaletimebar.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DensityHistogramTest {
+    private static final long DAY_START = 1477612800000L;
+    private static final long ZONE_OFFSET = 8 * 60 * 60 * 1000L;
+    private static final long LOCAL_DAY_START = DAY_START - ZONE_OFFSET;
+    private static final long DAY_IN_MILLISECOND = TimebarRenderer.SECONDS_PER_DAY * 1000;
+
+    /**
+     * Sums the counts of visited buckets
+     */
+    private static class CountingVisitor implements DensityHistogram.BucketVisitor {
+        int bucketCount;
+        long total;
+        long lastBucketStart = Long.MIN_VALUE;
+
+        @Override
+        public void onBucket(long bucketStartTimeInMillisecond, long bucketDurationInMillisecond, int count, int maxCount) {
+            assertTrue(bucketStartTimeInMillisecond > lastBucketStart);
+            assertTrue(count > 0 && count <= maxCount);
+            lastBucketStart = bucketStartTimeInMillisecond;
+            bucketCount++;
+            total += count;
+        }
+    }
+
+    private long[] times;
+    private DensityHistogram histogram;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(42);
+        times = new long[5000];
+        DensityHistogram.Builder builder = new DensityHistogram.Builder(LOCAL_DAY_START, LOCAL_DAY_START + 3 * DAY_IN_MILLISECOND - 1, ZONE_OFFSET);
+        for (int i = 0; i < times.length; i++) {
+            times[i] = LOCAL_DAY_START + (long) (random.nextDouble() * 3 * DAY_IN_MILLISECOND);
+            builder.add(times[i], 1);
+        }
+        histogram = builder.build();
+    }
+
+    @Test
+    public void rolledUpLevelsKeepTotals() {
+        for (int level = 0; level < DensityHistogram.LEVEL_COUNT; level++) {
+            CountingVisitor visitor = new CountingVisitor();
+            histogram.forEachBucket(level, LOCAL_DAY_START, LOCAL_DAY_START + 3 * DAY_IN_MILLISECOND - 1, visitor);
+            assertEquals(times.length, visitor.total);
+        }
+
+        //Days are aligned to local midnight
+        int firstDay = histogram.getCount(DensityHistogram.LEVEL_DAY, LOCAL_DAY_START);
+        int expected = 0;
+        for (long time : times) {
+            if (time < LOCAL_DAY_START + DAY_IN_MILLISECOND) {
+                expected++;
+            }
+        }
+        assertEquals(expected, firstDay);
+    }
+
+    @Test
+    public void visitsOnlyVisibleBuckets() {
+        CountingVisitor visitor = new CountingVisitor();
+        long from = LOCAL_DAY_START + DAY_IN_MILLISECOND;
+        int readCount = histogram.forEachBucket(DensityHistogram.LEVEL_MINUTE, from, from + 10 * 60 * 1000L - 1, visitor);
+        assertEquals(10, readCount);
+        assertTrue(visitor.bucketCount <= 10);
+
+        //Outside of the histogram nothing is read
+        assertEquals(0, histogram.forEachBucket(DensityHistogram.LEVEL_HOUR,
+                LOCAL_DAY_START - 2 * DAY_IN_MILLISECOND, LOCAL_DAY_START - DAY_IN_MILLISECOND, new CountingVisitor()));
+    }
+
+    @Test
+    public void levelFollowsZoom() {
+        //10 minutes across 1080 pixels, minutes are 108 pixels wide
+        assertEquals(DensityHistogram.LEVEL_MINUTE, DensityHistogram.selectLevel(1080f / 600));
+        //36 hours across 1080 pixels, minutes are half a pixel wide
+        assertEquals(DensityHistogram.LEVEL_HOUR, DensityHistogram.selectLevel(1080f / (36 * 3600)));
+        //A year across 1080 pixels
+        assertEquals(DensityHistogram.LEVEL_DAY, DensityHistogram.selectLevel(1080f / (365 * 86400)));
+    }
+
+    @Test
+    public void eventMarkerStoreHistogram() {
+        EventMarkerStore store = EventMarkerStore.fromUnsortedArray(times.clone(), times.length);
+        DensityHistogram fromStore = DensityHistogram.fromEventMarkerStore(store);
+        CountingVisitor visitor = new CountingVisitor();
+        fromStore.forEachBucket(DensityHistogram.LEVEL_DAY, Long.MIN_VALUE / 2, Long.MAX_VALUE / 2, visitor);
+        assertEquals(times.length, visitor.total);
+        assertEquals(0, DensityHistogram.fromEventMarkerStore(EventMarkerStore.EMPTY).getMaxCount(DensityHistogram.LEVEL_DAY));
+    }
+}
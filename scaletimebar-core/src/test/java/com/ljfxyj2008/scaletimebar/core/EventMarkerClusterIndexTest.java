@@ -0,0 +1,106 @@
+package com.ljfxyj2008.scaletimebar.core;
+
+import com.ljfxyj2008.scaletimebar.TimebarTickCriterion;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EventMarkerClusterIndexTest {
+    private static final int SCREEN_WIDTH = 1080;
+    private static final long MONTH_START = 1477612800000L;
+    private static final long MONTH_IN_MILLISECOND = 30L * TimebarRenderer.SECONDS_PER_DAY * 1000;
+
+    /**
+     * Counts clusters and the events in them
+     */
+    private static class CountingVisitor implements EventMarkerClusterIndex.ClusterVisitor {
+        int clusterCount;
+        int eventCount;
+        long lastBucketStart = Long.MIN_VALUE;
+
+        @Override
+        public void onCluster(long bucketStartTimeInMillisecond, long bucketDurationInMillisecond, int count) {
+            assertTrue(bucketStartTimeInMillisecond > lastBucketStart);
+            assertTrue(count > 0);
+            lastBucketStart = bucketStartTimeInMillisecond;
+            clusterCount++;
+            eventCount += count;
+        }
+    }
+
+    private TimebarTickLadder ladder;
+    private EventMarkerStore store;
+    private EventMarkerClusterIndex index;
+
+    @Before
+    public void setUp() {
+        ladder = TimebarTickLadder.createDefault();
+        ladder.updateViewLengths(SCREEN_WIDTH, MONTH_IN_MILLISECOND / 1000);
+        int count = 300000;
+        long[] times = new long[count];
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            times[i] = MONTH_START + (long) (random.nextDouble() * MONTH_IN_MILLISECOND);
+        }
+        store = EventMarkerStore.fromUnsortedArray(times, count);
+        index = new EventMarkerClusterIndex();
+        index.setStore(store);
+    }
+
+    @Test
+    public void storeFindsBoundsByBinarySearch() {
+        EventMarkerStore small = EventMarkerStore.fromUnsortedArray(new long[]{30, 10, 20, 20}, 4);
+
+        assertEquals(0, small.findFirstIndexAtOrAfter(5));
+        assertEquals(1, small.findFirstIndexAtOrAfter(20));
+        assertEquals(3, small.findFirstIndexAtOrAfter(21));
+        assertEquals(4, small.findFirstIndexAtOrAfter(31));
+        assertEquals(3, small.countBetween(10, 30));
+    }
+
+    @Test
+    public void clustersCoverEveryEventOfTheRangeOncePerBucket() {
+        for (int criterionIndex = 0; criterionIndex < TimebarTickCriteria.DEFAULT_CRITERION_COUNT; criterionIndex++) {
+            TimebarTickCriterion criterion = ladder.get(criterionIndex);
+            long bucketDuration = EventMarkerClusterIndex.getBucketDurationInMillisecond(criterion, SCREEN_WIDTH);
+            long from = (MONTH_START + MONTH_IN_MILLISECOND / 3) / bucketDuration * bucketDuration;
+            long to = from + criterion.getTotalSecondsInOneScreen() * 1000L - 1;
+
+            CountingVisitor visitor = new CountingVisitor();
+            int clusterCount = index.forEachCluster(criterionIndex, criterion, SCREEN_WIDTH, from, to, visitor);
+
+            assertEquals(visitor.clusterCount, clusterCount);
+            assertTrue(clusterCount <= SCREEN_WIDTH / EventMarkerClusterIndex.BUCKET_WIDTH_IN_PIXEL + 1);
+            long bucketAlignedTo = (to / bucketDuration + 1) * bucketDuration;
+            assertEquals(store.countBetween(from, bucketAlignedTo), visitor.eventCount);
+        }
+    }
+
+    @Test
+    public void cachesPagesPerCriterionWhilePanning() {
+        TimebarTickCriterion criterion = ladder.get(1);
+        long screenDuration = criterion.getTotalSecondsInOneScreen() * 1000L;
+        long from = MONTH_START + MONTH_IN_MILLISECOND / 2;
+        index.forEachCluster(1, criterion, SCREEN_WIDTH, from, from + screenDuration, new CountingVisitor());
+        long computedAfterFirstFrame = index.getPageComputeCount();
+
+        //Pan back and forth by small steps
+        for (int i = 0; i < 20; i++) {
+            long shift = (i % 2 == 0 ? 1 : -1) * screenDuration / 10;
+            index.forEachCluster(1, criterion, SCREEN_WIDTH, from + shift, from + shift + screenDuration, new CountingVisitor());
+        }
+
+        assertTrue(index.getPageComputeCount() <= computedAfterFirstFrame + 2);
+        assertTrue(index.getPageCacheHitCount() >= 20);
+
+        //Another criterion has its own pages, the first one's stay cached
+        index.forEachCluster(4, ladder.get(4), SCREEN_WIDTH, from, from + screenDuration, new CountingVisitor());
+        long computed = index.getPageComputeCount();
+        index.forEachCluster(1, criterion, SCREEN_WIDTH, from, from + screenDuration, new CountingVisitor());
+        assertEquals(computed, index.getPageComputeCount());
+    }
+}
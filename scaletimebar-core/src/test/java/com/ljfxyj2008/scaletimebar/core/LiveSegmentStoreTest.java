@@ -0,0 +1,133 @@
+package com.ljfxyj2008.scaletimebar.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class LiveSegmentStoreTest {
+
+    @Test
+    public void snapshotKeepsSegmentsAtReadTime() {
+        LiveSegmentStore store = new LiveSegmentStore();
+        store.appendSegment(1000, 2000);
+        store.startSegment(3000);
+        store.extendSegment(3500);
+
+        LiveSegmentStore.Snapshot snapshot = store.readSnapshot();
+        store.extendSegment(4000);
+        store.startSegment(5000);
+
+        assertEquals(2, snapshot.size());
+        assertEquals(2000, snapshot.getEndTimeInMillisecond(0));
+        assertEquals(3500, snapshot.getEndTimeInMillisecond(1));
+        assertEquals(1, snapshot.findFirstIndexEndingAfter(3500));
+        assertEquals(2, snapshot.findFirstIndexEndingAfter(3501));
+
+        store.readSnapshot(snapshot);
+        assertEquals(3, snapshot.size());
+        assertEquals(4000, snapshot.getEndTimeInMillisecond(1));
+        assertEquals(5000, snapshot.getEndTimeInMillisecond(2));
+    }
+
+    @Test
+    public void spansManyChunks() {
+        LiveSegmentStore store = new LiveSegmentStore();
+        int count = 100000;
+        for (int i = 0; i < count; i++) {
+            store.appendSegment(i * 10L, i * 10L + 5);
+        }
+        LiveSegmentStore.Snapshot snapshot = store.readSnapshot();
+
+        assertEquals(count, snapshot.size());
+        assertEquals(54321 * 10L, snapshot.getStartTimeInMillisecond(54321));
+        assertEquals(54321 * 10L + 5, snapshot.getEndTimeInMillisecond(54321));
+        assertEquals(54321, snapshot.findFirstIndexEndingAfter(54321 * 10L + 1));
+    }
+
+    @Test
+    public void notifiesOncePerSnapshot() {
+        LiveSegmentStore store = new LiveSegmentStore();
+        final AtomicInteger notificationCount = new AtomicInteger();
+        store.setListener(new LiveSegmentStore.Listener() {
+            @Override
+            public void onSegmentsChanged() {
+                notificationCount.incrementAndGet();
+            }
+        });
+
+        store.startSegment(1000);
+        for (int i = 1; i <= 30; i++) {
+            store.extendSegment(1000 + i * 1000);
+        }
+        assertEquals(1, notificationCount.get());
+
+        store.readSnapshot();
+        store.closeSegment(40000);
+        store.appendSegment(50000, 60000);
+        assertEquals(2, notificationCount.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSegmentStartingEarlier() {
+        LiveSegmentStore store = new LiveSegmentStore();
+        store.appendSegment(5000, 6000);
+        store.startSegment(4000);
+    }
+
+    @Test
+    public void readersSeeConsistentPrefixWhileWriting() throws Exception {
+        final LiveSegmentStore store = new LiveSegmentStore();
+        final int count = 200000;
+        //Every segment starts at 10 * i and grows to 10 * i + 5 in 5 steps
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    store.startSegment(i * 10L);
+                    for (int step = 1; step <= 5; step++) {
+                        store.extendSegment(i * 10L + step);
+                    }
+                    store.closeSegment(i * 10L + 5);
+                }
+            }
+        });
+        final AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                LiveSegmentStore.Snapshot snapshot = new LiveSegmentStore.Snapshot();
+                int lastSize = 0;
+                while (lastSize < count && failure.get() == null) {
+                    store.readSnapshot(snapshot);
+                    int size = snapshot.size();
+                    if (size < lastSize) {
+                        failure.set("Size went back from " + lastSize + " to " + size);
+                    }
+                    lastSize = size;
+                    for (int i = Math.max(0, size - 3); i < size; i++) {
+                        long start = snapshot.getStartTimeInMillisecond(i);
+                        long end = snapshot.getEndTimeInMillisecond(i);
+                        //Only the last segment may still be growing
+                        long minDuration = i < size - 1 ? 5 : 0;
+                        if (start != i * 10L || end - start > 5 || end - start < minDuration) {
+                            failure.set("Segment " + i + " of " + size + " is [" + start + ", " + end + ")");
+                        }
+                    }
+                    if (size > 0 && snapshot.findFirstIndexEndingAfter((size - 1) * 10L) != size - 1) {
+                        failure.set("Search failed in snapshot of " + size);
+                    }
+                }
+            }
+        });
+        reader.start();
+        writer.start();
+        writer.join();
+        reader.join();
+
+        assertNull(failure.get());
+        assertEquals(count, store.readSnapshot().size());
+    }
+}
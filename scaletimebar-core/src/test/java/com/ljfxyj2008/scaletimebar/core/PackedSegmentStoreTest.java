@@ -0,0 +1,55 @@
+package com.ljfxyj2008.scaletimebar.core;
+
+import com.ljfxyj2008.scaletimebar.RecordDataExistTimeSegment;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PackedSegmentStoreTest {
+
+    @Test
+    public void sortsUnsortedSegmentsByStartTime() {
+        List<RecordDataExistTimeSegment> segments = new ArrayList<>();
+        segments.add(new RecordDataExistTimeSegment(5000, 6000));
+        segments.add(new RecordDataExistTimeSegment(1000, 2000));
+        segments.add(new RecordDataExistTimeSegment(3000, 4000));
+
+        PackedSegmentStore store = PackedSegmentStore.fromSegments(segments);
+
+        assertEquals(3, store.size());
+        assertEquals(1000, store.getStartTimeInMillisecond(0));
+        assertEquals(3000, store.getStartTimeInMillisecond(1));
+        assertEquals(6000, store.getEndTimeInMillisecond(2));
+    }
+
+    @Test
+    public void findsFirstSegmentEndingAfterTime() {
+        PackedSegmentStore store = PackedSegmentStore.fromSortedArrays(
+                new long[]{1000, 3000, 5000}, new long[]{2000, 4000, 6000}, 3);
+
+        assertEquals(0, store.findFirstIndexEndingAfter(0));
+        assertEquals(0, store.findFirstIndexEndingAfter(2000));
+        assertEquals(1, store.findFirstIndexEndingAfter(2001));
+        assertEquals(2, store.findFirstIndexEndingAfter(5500));
+        assertEquals(3, store.findFirstIndexEndingAfter(6001));
+    }
+
+    @Test
+    public void longSegmentCoveringLaterOnesIsNotSkipped() {
+        PackedSegmentStore store = PackedSegmentStore.fromSortedArrays(
+                new long[]{1000, 2000, 3000}, new long[]{10000, 2500, 3500}, 3);
+
+        assertEquals(0, store.findFirstIndexEndingAfter(5000));
+        assertEquals(3, store.findFirstIndexEndingAfter(10001));
+    }
+
+    @Test
+    public void emptyInputGivesEmptyStore() {
+        assertEquals(0, PackedSegmentStore.fromSegments(null).size());
+        assertEquals(0, PackedSegmentStore.fromSegments(new ArrayList<RecordDataExistTimeSegment>()).findFirstIndexEndingAfter(0));
+    }
+}
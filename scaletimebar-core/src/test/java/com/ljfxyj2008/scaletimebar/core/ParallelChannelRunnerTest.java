@@ -0,0 +1,86 @@
+package com.ljfxyj2008.scaletimebar.core;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.*;
+
+public class ParallelChannelRunnerTest {
+    private static final int CHANNEL_COUNT = 100;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void runsEveryChannelOnce() throws Exception {
+        final AtomicIntegerArray runCounts = new AtomicIntegerArray(CHANNEL_COUNT);
+        ParallelChannelRunner.run(executor, 4, CHANNEL_COUNT, new ParallelChannelRunner.Task<RuntimeException>() {
+            @Override
+            public void run(int worker, int channel) {
+                assertTrue(worker >= 0 && worker < 4);
+                runCounts.incrementAndGet(channel);
+            }
+        });
+
+        for (int channel = 0; channel < CHANNEL_COUNT; channel++) {
+            assertEquals(1, runCounts.get(channel));
+        }
+    }
+
+    @Test
+    public void callingThreadRunsChannelsTheExecutorRejects() throws Exception {
+        Executor rejecting = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        };
+        final Thread caller = Thread.currentThread();
+        final AtomicIntegerArray runCounts = new AtomicIntegerArray(CHANNEL_COUNT);
+        ParallelChannelRunner.run(rejecting, 4, CHANNEL_COUNT, new ParallelChannelRunner.Task<RuntimeException>() {
+            @Override
+            public void run(int worker, int channel) {
+                assertSame(caller, Thread.currentThread());
+                runCounts.incrementAndGet(channel);
+            }
+        });
+
+        for (int channel = 0; channel < CHANNEL_COUNT; channel++) {
+            assertEquals(1, runCounts.get(channel));
+        }
+    }
+
+    @Test
+    public void failureIsThrownOnceOtherChannelsAreDone() throws Exception {
+        final AtomicIntegerArray runCounts = new AtomicIntegerArray(CHANNEL_COUNT);
+        try {
+            ParallelChannelRunner.run(executor, 4, CHANNEL_COUNT, new ParallelChannelRunner.Task<IOException>() {
+                @Override
+                public void run(int worker, int channel) throws IOException {
+                    runCounts.incrementAndGet(channel);
+                    if (channel == 7) {
+                        throw new IOException("channel 7");
+                    }
+                }
+            });
+            fail();
+        } catch (IOException e) {
+            assertEquals("channel 7", e.getMessage());
+        }
+
+        for (int channel = 0; channel < CHANNEL_COUNT; channel++) {
+            assertEquals(1, runCounts.get(channel));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.ljfxyj2008.scaletimebar.core;
+
+import java.util.Arrays;
+
+/**
+ * TimebarDrawSink filling the pixels covered by rects with their paint, standing in for a Bitmap backed Canvas.
+ * <p>
+ * A pixel is covered when its center is inside the rect. Texts are not rasterized.
+ */
+class RasterDrawSink implements TimebarDrawSink {
+    /**
+     * Value of pixels no rect covers
+     */
+    static final int EMPTY = -1;
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+    private final float translationX;
+
+    /**
+     * @param translationX horizontal translation applied to every command, like Canvas.translate()
+     */
+    RasterDrawSink(int width, int height, float translationX) {
+        this.width = width;
+        this.height = height;
+        this.translationX = translationX;
+        pixels = new int[width * height];
+        Arrays.fill(pixels, EMPTY);
+    }
+
+    /**
+     * Paint of the last rect covering a pixel, EMPTY if none
+     */
+    int getPixel(int x, int y) {
+        return pixels[y * width + x];
+    }
+
+    @Override
+    public void drawRect(int paint, float left, float top, float right, float bottom) {
+        int fromX = Math.max(0, (int) Math.ceil(left + translationX - 0.5f));
+        int toX = Math.min(width, (int) Math.ceil(right + translationX - 0.5f));
+        int fromY = Math.max(0, (int) Math.ceil(top - 0.5f));
+        int toY = Math.min(height, (int) Math.ceil(bottom - 0.5f));
+        for (int y = fromY; y < toY; y++) {
+            for (int x = fromX; x < toX; x++) {
+                pixels[y * width + x] = paint;
+            }
+        }
+    }
+
+    @Override
+    public float measureText(String text) {
+        return RecordingDrawSink.TEXT_WIDTH;
+    }
+
+    @Override
+    public void drawText(String text, float x, float y) {
+    }
+
+    @Override
+    public void onKeyTick(long timeInMillisecond, float x) {
+    }
+}
@@ -0,0 +1,91 @@
+package com.ljfxyj2008.scaletimebar.core;
+
+/**
+ * TimebarDrawSink counting the commands of one frame, standing in for a recording Canvas.
+ * <p>
+ * A paint state change is counted whenever a command uses a different paint than the previous one
+ * (text counts as its own paint), which is what a Canvas backed by a single mutable Paint would have to do.
+ */
+class RecordingDrawSink implements TimebarDrawSink {
+    private static final int PAINT_TEXT = -1;
+    private static final int PAINT_NONE = -2;
+
+    /**
+     * Fixed width of every text, close to "HH:mm" at 10sp
+     */
+    static final float TEXT_WIDTH = 30f;
+
+    int rectDrawCount;
+    int textDrawCount;
+    int measureTextCount;
+    int keyTickCount;
+    int paintStateChangeCount;
+
+    /**
+     * Texts starting before the previous text ended
+     */
+    int overlappingTextCount;
+    final int[] rectDrawCountByPaint = new int[4];
+    float minRectLeft = Float.MAX_VALUE;
+    float maxRectRight = -Float.MAX_VALUE;
+
+    private int lastPaint = PAINT_NONE;
+    private float lastTextRight = -Float.MAX_VALUE;
+
+    void reset() {
+        rectDrawCount = 0;
+        textDrawCount = 0;
+        measureTextCount = 0;
+        keyTickCount = 0;
+        paintStateChangeCount = 0;
+        overlappingTextCount = 0;
+        for (int i = 0; i < rectDrawCountByPaint.length; i++) {
+            rectDrawCountByPaint[i] = 0;
+        }
+        minRectLeft = Float.MAX_VALUE;
+        maxRectRight = -Float.MAX_VALUE;
+        lastPaint = PAINT_NONE;
+        lastTextRight = -Float.MAX_VALUE;
+    }
+
+    int getDrawCallCount() {
+        return rectDrawCount + textDrawCount;
+    }
+
+    private void usePaint(int paint) {
+        if (paint != lastPaint) {
+            paintStateChangeCount++;
+            lastPaint = paint;
+        }
+    }
+
+    @Override
+    public void drawRect(int paint, float left, float top, float right, float bottom) {
+        usePaint(paint);
+        rectDrawCount++;
+        rectDrawCountByPaint[paint]++;
+        minRectLeft = Math.min(minRectLeft, left);
+        maxRectRight = Math.max(maxRectRight, right);
+    }
+
+    @Override
+    public float measureText(String text) {
+        measureTextCount++;
+        return TEXT_WIDTH;
+    }
+
+    @Override
+    public void drawText(String text, float x, float y) {
+        usePaint(PAINT_TEXT);
+        textDrawCount++;
+        if (x < lastTextRight) {
+            overlappingTextCount++;
+        }
+        lastTextRight = x + TEXT_WIDTH;
+    }
+
+    @Override
+    public void onKeyTick(long timeInMillisecond, float x) {
+        keyTickCount++;
+    }
+}
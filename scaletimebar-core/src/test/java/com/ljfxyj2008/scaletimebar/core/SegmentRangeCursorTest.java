@@ -0,0 +1,78 @@
+package com.ljfxyj2008.scaletimebar.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SegmentRangeCursorTest {
+
+    @Test
+    public void clipsSegmentsToRange() {
+        PackedSegmentStore store = PackedSegmentStore.fromSortedArrays(
+                new long[]{1000, 3000, 5000, 7000}, new long[]{2000, 4000, 6000, 8000}, 4);
+        SegmentRangeCursor cursor = new SegmentRangeCursor();
+        cursor.reset(store, 3500, 7000);
+
+        assertTrue(cursor.moveToNext());
+        assertEquals(1, cursor.getIndex());
+        assertEquals(3500, cursor.getClippedStartTimeInMillisecond());
+        assertEquals(4000, cursor.getClippedEndTimeInMillisecond());
+        assertTrue(cursor.moveToNext());
+        assertEquals(5000, cursor.getClippedStartTimeInMillisecond());
+        assertEquals(6000, cursor.getClippedEndTimeInMillisecond());
+        //The segment starting at the end of the range is excluded
+        assertFalse(cursor.moveToNext());
+        assertEquals(-1, cursor.getIndex());
+        assertEquals(1500, cursor.getTotalDurationInMillisecond());
+
+        cursor.reset(store, 2000, 3000);
+        assertFalse(cursor.moveToNext());
+        assertEquals(0, cursor.getTotalDurationInMillisecond());
+    }
+
+    @Test
+    public void countsOverlappingTimeOnce() {
+        //[1000, 5000) contains [2000, 3000), [4000, 6000) overlaps it
+        PackedSegmentStore store = PackedSegmentStore.fromSortedArrays(
+                new long[]{1000, 2000, 4000, 9000}, new long[]{5000, 3000, 6000, 9500}, 4);
+        assertFalse(store.isDisjoint());
+        SegmentRangeCursor cursor = new SegmentRangeCursor();
+        cursor.reset(store, 2500, 9200);
+
+        int count = 0;
+        while (cursor.moveToNext()) {
+            count++;
+        }
+        assertEquals(4, count);
+        assertEquals(3500 + 200, cursor.getTotalDurationInMillisecond());
+    }
+
+    @Test
+    public void prefixSumsMatchScan() {
+        Random random = new Random(7);
+        int size = 2000;
+        long[] startTimes = new long[size];
+        long[] endTimes = new long[size];
+        long time = 0;
+        for (int i = 0; i < size; i++) {
+            //Some segments touch the previous one
+            time += random.nextInt(3) * 1000;
+            startTimes[i] = time;
+            time += 1 + random.nextInt(5000);
+            endTimes[i] = time;
+        }
+        PackedSegmentStore store = PackedSegmentStore.fromSortedArrays(startTimes, endTimes, size);
+        assertTrue(store.isDisjoint());
+
+        for (int i = 0; i < 500; i++) {
+            long from = (long) (random.nextDouble() * time * 1.1) - time / 20;
+            long to = from + (long) (random.nextDouble() * time / 4);
+            assertEquals(SegmentRangeCursor.computeRecordedDuration(store, from, to),
+                    store.getRecordedDurationInMillisecond(from, to));
+        }
+        assertEquals(SegmentRangeCursor.computeRecordedDuration(store, Long.MIN_VALUE / 2, Long.MAX_VALUE / 2),
+                store.getRecordedDurationInMillisecond(Long.MIN_VALUE / 2, Long.MAX_VALUE / 2));
+    }
+}
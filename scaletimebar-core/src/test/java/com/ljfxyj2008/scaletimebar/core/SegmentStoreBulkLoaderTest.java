@@ -0,0 +1,109 @@
+package com.ljfxyj2008.scaletimebar.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SegmentStoreBulkLoaderTest {
+    private static final long DAY_START = 1477612800000L;
+
+    private static long[][] startTimes;
+    private static long[][] endTimes;
+    private static int[] sizes;
+
+    /**
+     * Random overlapping segments of some channels of very different sizes
+     */
+    private static void createChannels(int channelCount) {
+        Random random = new Random(7);
+        startTimes = new long[channelCount][];
+        endTimes = new long[channelCount][];
+        sizes = new int[channelCount];
+        for (int channel = 0; channel < channelCount; channel++) {
+            int size = channel % 4 == 0 ? 20000 : random.nextInt(500);
+            startTimes[channel] = new long[size];
+            endTimes[channel] = new long[size];
+            for (int i = 0; i < size; i++) {
+                startTimes[channel][i] = DAY_START + random.nextInt(86400) * 1000L;
+                endTimes[channel][i] = startTimes[channel][i] + random.nextInt(60) * 1000L;
+            }
+            sizes[channel] = size;
+        }
+    }
+
+    private static long[][] copy(long[][] arrays) {
+        long[][] copies = new long[arrays.length][];
+        for (int i = 0; i < arrays.length; i++) {
+            copies[i] = arrays[i].clone();
+        }
+        return copies;
+    }
+
+    @Test
+    public void parallelLoadMatchesSequentialBuild() throws InterruptedException {
+        createChannels(32);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            SegmentStoreBulkLoader[] loaders = {new SegmentStoreBulkLoader(executor), new SegmentStoreBulkLoader(new ForkJoinPool(4))};
+            for (SegmentStoreBulkLoader loader : loaders) {
+                final AtomicInteger loadedCount = new AtomicInteger();
+                loader.setListener(new SegmentStoreBulkLoader.Listener() {
+                    @Override
+                    public void onChannelLoaded(int channel, PackedSegmentStore store) {
+                        loadedCount.incrementAndGet();
+                    }
+                });
+                PackedSegmentStore[] stores = loader.load(copy(startTimes), copy(endTimes), sizes);
+                assertEquals(sizes.length, loadedCount.get());
+
+                for (int channel = 0; channel < sizes.length; channel++) {
+                    PackedSegmentStore expected = SegmentStoreBulkLoader.buildStore(startTimes[channel].clone(),
+                            endTimes[channel].clone(), sizes[channel], 0);
+                    assertEquals(expected.size(), stores[channel].size());
+                    for (int i = 0; i < expected.size(); i++) {
+                        assertEquals(expected.getStartTimeInMillisecond(i), stores[channel].getStartTimeInMillisecond(i));
+                        assertEquals(expected.getEndTimeInMillisecond(i), stores[channel].getEndTimeInMillisecond(i));
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void buildStoreCoalescesOverlappingSegments() {
+        long[] starts = {50, 0, 10, 100, 30};
+        long[] ends = {60, 20, 15, 110, 40};
+        PackedSegmentStore store = SegmentStoreBulkLoader.buildStore(starts, ends, starts.length, 0);
+        //[0,20] [30,40] [50,60] [100,110]
+        assertEquals(4, store.size());
+        assertEquals(20, store.getEndTimeInMillisecond(0));
+
+        store = SegmentStoreBulkLoader.buildStore(new long[]{50, 0, 10, 100, 30}, new long[]{60, 20, 15, 110, 40}, 5, 10);
+        //[0,60] [100,110]
+        assertEquals(2, store.size());
+        assertEquals(60, store.getEndTimeInMillisecond(0));
+        assertEquals(100, store.getStartTimeInMillisecond(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void workerFailureIsRethrown() throws InterruptedException {
+        SegmentStoreBulkLoader loader = new SegmentStoreBulkLoader(Executors.newSingleThreadExecutor());
+        loader.setListener(new SegmentStoreBulkLoader.Listener() {
+            @Override
+            public void onChannelLoaded(int channel, PackedSegmentStore store) {
+                if (channel == 0) {
+                    throw new IllegalArgumentException();
+                }
+            }
+        });
+        loader.load(new long[][]{{1, 2}, {1}}, new long[][]{{3, 4}, {2}}, new int[]{2, 1});
+    }
+}
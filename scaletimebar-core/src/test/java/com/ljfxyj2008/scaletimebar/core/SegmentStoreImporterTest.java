@@ -0,0 +1,120 @@
+package com.ljfxyj2008.scaletimebar.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SegmentStoreImporterTest {
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(Charset.forName("UTF-8")));
+    }
+
+    @Test
+    public void importsCsvSkippingHeaderCommentsAndInvalidRecords() throws IOException {
+        String csv = "start,end\r\n"
+                + "# exported by NVR\n"
+                + "3000,4000\n"
+                + "\n"
+                + "\"1000\";\"2000\"\n"
+                + "5000,4500\n"
+                + "6000\t7000";
+        SegmentStoreImporter importer = new SegmentStoreImporter();
+
+        PackedSegmentStore store = importer.importCsv(stream(csv), -1);
+
+        assertEquals(3, store.size());
+        assertEquals(1000, store.getStartTimeInMillisecond(0));
+        assertEquals(2000, store.getEndTimeInMillisecond(0));
+        assertEquals(3000, store.getStartTimeInMillisecond(1));
+        assertEquals(7000, store.getEndTimeInMillisecond(2));
+        assertEquals(1, importer.getInvalidCount());
+    }
+
+    @Test
+    public void importsCsvColumnsAmongOtherFields() throws IOException {
+        SegmentStoreImporter importer = new SegmentStoreImporter();
+        importer.setStartColumn(1);
+        importer.setEndColumn(3);
+
+        PackedSegmentStore store = importer.importCsv(stream("cam-1,1000,motion,2000\ncam-2,3000,,4000\n"), -1);
+
+        assertEquals(2, store.size());
+        assertEquals(4000, store.getEndTimeInMillisecond(1));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsMalformedCsvLine() throws IOException {
+        new SegmentStoreImporter().importCsv(stream("1000,2000\nbroken\n"), -1);
+    }
+
+    @Test
+    public void importsJsonObjectsAndPairs() throws IOException {
+        String json = "{\"camera\": \"front \\\"door\\\"\", \"records\": ["
+                + "{\"start\": 5000, \"end\": 6000, \"tags\": [\"a\", 1]},"
+                + "{\"end\": 2000, \"start\": 1000},"
+                + "{\"start\": 9000, \"end\": 8000}"
+                + "], \"pairs\": [[3000, 4000], [1, 2, 3], null, true]}";
+        SegmentStoreImporter importer = new SegmentStoreImporter();
+
+        PackedSegmentStore store = importer.importJson(stream(json), -1);
+
+        assertEquals(3, store.size());
+        assertEquals(1000, store.getStartTimeInMillisecond(0));
+        assertEquals(3000, store.getStartTimeInMillisecond(1));
+        assertEquals(6000, store.getEndTimeInMillisecond(2));
+        assertEquals(1, importer.getInvalidCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedJson() throws IOException {
+        new SegmentStoreImporter().importJson(stream("[{\"start\": 1000, \"end\": 2000}"), -1);
+    }
+
+    @Test
+    public void sortsLargeShuffledInputAndReportsProgress() throws IOException {
+        int count = 20000;
+        long[] starts = new long[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = 1477612800000L + i * 10000L;
+        }
+        Random random = new Random(1);
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long start = starts[i];
+            starts[i] = starts[j];
+            starts[j] = start;
+        }
+        StringBuilder csv = new StringBuilder();
+        for (long start : starts) {
+            csv.append(start).append(',').append(start + 5000).append('\n');
+        }
+        final byte[] bytes = csv.toString().getBytes(Charset.forName("UTF-8"));
+        final long[] lastProgress = new long[2];
+        SegmentStoreImporter importer = new SegmentStoreImporter();
+        importer.setProgressListener(new SegmentStoreImporter.ProgressListener() {
+            @Override
+            public void onImportProgress(long bytesRead, long totalBytes, int segmentCount) {
+                assertTrue(bytesRead >= lastProgress[0]);
+                lastProgress[0] = bytesRead;
+                lastProgress[1] = segmentCount;
+            }
+        });
+
+        PackedSegmentStore store = importer.importCsv(new ByteArrayInputStream(bytes), bytes.length);
+
+        assertEquals(count, store.size());
+        assertEquals(bytes.length, lastProgress[0]);
+        assertEquals(count, lastProgress[1]);
+        for (int i = 1; i < count; i++) {
+            assertTrue(store.getStartTimeInMillisecond(i - 1) < store.getStartTimeInMillisecond(i));
+            assertEquals(store.getStartTimeInMillisecond(i) + 5000, store.getEndTimeInMillisecond(i));
+        }
+    }
+}
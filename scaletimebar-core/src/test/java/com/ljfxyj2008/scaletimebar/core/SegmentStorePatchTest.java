@@ -0,0 +1,119 @@
+package com.ljfxyj2008.scaletimebar.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SegmentStorePatchTest {
+
+    private static PackedSegmentStore store(long... startAndEndTimes) {
+        int size = startAndEndTimes.length / 2;
+        long[] startTimes = new long[size];
+        long[] endTimes = new long[size];
+        for (int i = 0; i < size; i++) {
+            startTimes[i] = startAndEndTimes[2 * i];
+            endTimes[i] = startAndEndTimes[2 * i + 1];
+        }
+        return PackedSegmentStore.fromUnsortedArrays(startTimes, endTimes, size);
+    }
+
+    private static void assertSameSegments(SegmentStore expected, SegmentStore actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getStartTimeInMillisecond(i), actual.getStartTimeInMillisecond(i));
+            assertEquals(expected.getEndTimeInMillisecond(i), actual.getEndTimeInMillisecond(i));
+        }
+    }
+
+    @Test
+    public void appliesInsertedRemovedAndModifiedSegments() {
+        PackedSegmentStore oldStore = store(1000, 2000, 3000, 4000, 5000, 6000);
+        SegmentStorePatch patch = new SegmentStorePatch();
+        patch.insert(7000, 8000);
+        patch.insert(0, 500);
+        patch.remove(3000, 4000);
+        patch.modify(5000, 6000, 5000, 6500);
+        patch.remove(9000, 9500);
+
+        PackedSegmentStore newStore = patch.applyTo(oldStore);
+
+        assertSameSegments(store(0, 500, 1000, 2000, 5000, 6500, 7000, 8000), newStore);
+        assertEquals(3, oldStore.size());
+    }
+
+    @Test
+    public void affectedRangesCoverOnlyChangedTimes() {
+        SegmentStorePatch patch = SegmentStorePatch.diff(
+                store(1000, 2000, 3000, 4000, 10000, 11000),
+                store(1000, 2000, 3000, 4500, 10000, 11000, 20000, 21000));
+
+        assertEquals(1, patch.getRemovedCount());
+        assertEquals(2, patch.getInsertedCount());
+        assertEquals(2, patch.getAffectedRangeCount());
+        assertEquals(4000, patch.getAffectedRangeStartTimeInMillisecond(0));
+        assertEquals(4500, patch.getAffectedRangeEndTimeInMillisecond(0));
+        assertEquals(20000, patch.getAffectedRangeStartTimeInMillisecond(1));
+        assertEquals(21000, patch.getAffectedRangeEndTimeInMillisecond(1));
+    }
+
+    @Test
+    public void mergesOverlappingAffectedRanges() {
+        SegmentStorePatch patch = new SegmentStorePatch();
+        patch.insert(5000, 7000);
+        patch.remove(1000, 2000);
+        patch.insert(6000, 9000);
+
+        assertEquals(2, patch.getAffectedRangeCount());
+        assertEquals(1000, patch.getAffectedRangeStartTimeInMillisecond(0));
+        assertEquals(5000, patch.getAffectedRangeStartTimeInMillisecond(1));
+        assertEquals(9000, patch.getAffectedRangeEndTimeInMillisecond(1));
+    }
+
+    @Test
+    public void identicalStoresGiveEmptyPatch() {
+        SegmentStorePatch patch = SegmentStorePatch.diff(store(1000, 2000, 1000, 3000), store(1000, 3000, 1000, 2000));
+
+        assertTrue(patch.isEmpty());
+        assertEquals(0, patch.getAffectedRangeCount());
+    }
+
+    @Test
+    public void diffAppliedToOldStoreGivesNewStore() {
+        Random random = new Random(7);
+        int size = 5000;
+        long[] startAndEndTimes = new long[size * 2];
+        for (int i = 0; i < size; i++) {
+            long start = random.nextInt(1000) * 1000L;
+            startAndEndTimes[2 * i] = start;
+            startAndEndTimes[2 * i + 1] = start + 1 + random.nextInt(5000);
+        }
+        PackedSegmentStore oldStore = store(startAndEndTimes.clone());
+        for (int i = 0; i < size / 10; i++) {
+            int index = random.nextInt(size);
+            startAndEndTimes[2 * index + 1] += random.nextInt(3) * 1000;
+            if (random.nextBoolean()) {
+                startAndEndTimes[2 * index] = random.nextInt(1000) * 1000L + 1;
+                startAndEndTimes[2 * index + 1] = startAndEndTimes[2 * index] + 500;
+            }
+        }
+        PackedSegmentStore newStore = store(startAndEndTimes);
+
+        SegmentStorePatch patch = SegmentStorePatch.diff(oldStore, newStore);
+
+        assertTrue(patch.getRemovedCount() < size / 5);
+        assertSameSegmentsIgnoringOrderOfSameStart(newStore, patch.applyTo(oldStore));
+    }
+
+    /**
+     * Segments sharing a start time may come in any order of end times
+     */
+    private static void assertSameSegmentsIgnoringOrderOfSameStart(SegmentStore expected, SegmentStore actual) {
+        assertTrue(SegmentStorePatch.diff(expected, actual).isEmpty());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 1; i < actual.size(); i++) {
+            assertTrue(actual.getStartTimeInMillisecond(i - 1) <= actual.getStartTimeInMillisecond(i));
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.ljfxyj2008.scaletimebar.core;
+
+import com.ljfxyj2008.scaletimebar.TimebarTickCriterion;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Draw-call budgets of one timebar frame, at every tick criterion and several dataset sizes.
+ * <p>
+ * ScalableTimebarView.onDraw() delegates all ticks, texts and recordbar segments to TimebarRenderer, so the frame
+ * is rendered into a RecordingDrawSink here. The budgets must not grow with the dataset, a failure means
+ * per-tick or per-segment work has crept back into the frame.
+ */
+@RunWith(Parameterized.class)
+public class TimebarDrawCallBudgetTest {
+    private static final int SCREEN_WIDTH = 1080;
+    private static final int VIEW_HEIGHT = 168;
+    private static final long MOST_LEFT_TIME = 1477612800000L;
+    private static final long WHOLE_TIMEBAR_TOTAL_SECONDS = 7L * TimebarRenderer.SECONDS_PER_DAY;
+
+    /**
+     * One screen of small ticks (at most 100 for the preset criterions) plus the extra ticks drawn around it
+     */
+    private static final int MAX_TICK_RECTS_PER_FRAME = 140;
+
+    /**
+     * One text per key tick
+     */
+    private static final int MAX_TEXT_DRAWS_PER_FRAME = 15;
+
+    /**
+     * Merged segment rects are at least one pixel apart, and the drawn range is less than 1.5 screens wide
+     */
+    private static final int MAX_SEGMENT_RECTS_PER_FRAME = SCREEN_WIDTH * 3 / 2;
+
+    /**
+     * Key tick, its text and the following small ticks switch paint 3 times, plus recordbar background and segments
+     */
+    private static final int MAX_PAINT_STATE_CHANGES_PER_FRAME = 3 * MAX_TEXT_DRAWS_PER_FRAME + 2;
+
+    @Parameterized.Parameters(name = "criterion {0}, {1} segments")
+    public static Collection<Object[]> parameters() {
+        int[] datasetSizes = {0, 1000, 100000, 1000000};
+        List<Object[]> parameters = new ArrayList<>();
+        for (int criterionIndex = 0; criterionIndex < TimebarTickCriteria.DEFAULT_CRITERION_COUNT; criterionIndex++) {
+            for (int datasetSize : datasetSizes) {
+                parameters.add(new Object[]{criterionIndex, datasetSize});
+            }
+        }
+        return parameters;
+    }
+
+    private final int criterionIndex;
+    private final int datasetSize;
+
+    private TimebarRenderer renderer;
+    private TimebarViewport viewport;
+    private TimebarTickCriterion criterion;
+    private PackedSegmentStore store;
+    private RecordingDrawSink sink;
+    private TimebarRenderStats stats;
+
+    public TimebarDrawCallBudgetTest(int criterionIndex, int datasetSize) {
+        this.criterionIndex = criterionIndex;
+        this.datasetSize = datasetSize;
+    }
+
+    @Before
+    public void setUp() {
+        TimebarTickLadder ladder = TimebarTickLadder.createDefault();
+        ladder.updateViewLengths(SCREEN_WIDTH, WHOLE_TIMEBAR_TOTAL_SECONDS);
+        criterion = ladder.get(criterionIndex);
+
+        viewport = new TimebarViewport();
+        viewport.setMostLeftTimeInMillisecond(MOST_LEFT_TIME);
+        viewport.setMostRightTimeInMillisecond(MOST_LEFT_TIME + WHOLE_TIMEBAR_TOTAL_SECONDS * 1000);
+        viewport.setCurrentTimeInMillisecond(MOST_LEFT_TIME + WHOLE_TIMEBAR_TOTAL_SECONDS * 1000 / 2);
+        viewport.setScreenWidth(SCREEN_WIDTH);
+        viewport.setViewHeight(VIEW_HEIGHT);
+        viewport.setPixelsPerSecond(criterion.getViewLength() / (float) WHOLE_TIMEBAR_TOTAL_SECONDS);
+
+        store = createSegments(datasetSize);
+        renderer = new TimebarRenderer(new TimebarDimensions());
+        stats = new TimebarRenderStats();
+        renderer.setRenderStats(stats);
+        sink = new RecordingDrawSink();
+    }
+
+    /**
+     * Segments of random length and gap spread evenly over the whole timebar
+     */
+    private static PackedSegmentStore createSegments(int count) {
+        long[] startTimes = new long[count];
+        long[] endTimes = new long[count];
+        long period = WHOLE_TIMEBAR_TOTAL_SECONDS * 1000 / Math.max(1, count);
+        Random random = new Random(count);
+        long time = MOST_LEFT_TIME;
+        for (int i = 0; i < count; i++) {
+            startTimes[i] = time;
+            endTimes[i] = time + 1 + (long) (random.nextDouble() * period * 0.8);
+            time += period;
+        }
+        return PackedSegmentStore.fromSortedArrays(startTimes, endTimes, count);
+    }
+
+    private void renderFrame() {
+        sink.reset();
+        renderer.render(viewport, criterion, store, sink);
+    }
+
+    @Test
+    public void staysWithinDrawCallBudget() {
+        renderFrame();
+
+        int segmentRects = sink.rectDrawCountByPaint[TimebarDrawSink.PAINT_RECORD_SEGMENT];
+        int tickRects = sink.rectDrawCountByPaint[TimebarDrawSink.PAINT_KEY_TICK]
+                + sink.rectDrawCountByPaint[TimebarDrawSink.PAINT_MIN_TICK];
+
+        assertTrue("tick rects " + tickRects, tickRects <= MAX_TICK_RECTS_PER_FRAME);
+        assertEquals(1, sink.rectDrawCountByPaint[TimebarDrawSink.PAINT_RECORDBAR_BACKGROUND]);
+        assertTrue("segment rects " + segmentRects, segmentRects <= MAX_SEGMENT_RECTS_PER_FRAME);
+        assertTrue("draw calls " + sink.getDrawCallCount(),
+                sink.getDrawCallCount() <= MAX_TICK_RECTS_PER_FRAME + 1 + MAX_SEGMENT_RECTS_PER_FRAME + MAX_TEXT_DRAWS_PER_FRAME);
+        if (datasetSize > 0) {
+            assertTrue(segmentRects > 0);
+        }
+    }
+
+    @Test
+    public void staysWithinTextDrawBudget() {
+        renderFrame();
+
+        assertTrue("text draws " + sink.textDrawCount, sink.textDrawCount <= MAX_TEXT_DRAWS_PER_FRAME);
+        assertEquals(sink.keyTickCount, sink.textDrawCount);
+        assertEquals(sink.textDrawCount, sink.measureTextCount);
+    }
+
+    @Test
+    public void staysWithinPaintStateChangeBudget() {
+        renderFrame();
+
+        assertTrue("paint state changes " + sink.paintStateChangeCount,
+                sink.paintStateChangeCount <= MAX_PAINT_STATE_CHANGES_PER_FRAME);
+    }
+
+    @Test
+    public void visitsOnlySegmentsNearTheScreen() {
+        renderFrame();
+
+        //Segments overlapping the drawn range, counted by brute force
+        long screenDuration = viewport.getScreenDurationInMillisecond();
+        long rangeStart = viewport.getScreenLeftTimeInMillisecond() - screenDuration;
+        long rangeEnd = viewport.getScreenRightTimeInMillisecond() + screenDuration;
+        int nearbySegmentCount = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if (store.getEndTimeInMillisecond(i) > rangeStart && store.getStartTimeInMillisecond(i) <= rangeEnd) {
+                nearbySegmentCount++;
+            }
+        }
+
+        assertTrue("visited " + stats.getSegmentVisitedCount() + " of " + nearbySegmentCount + " nearby",
+                stats.getSegmentVisitedCount() <= nearbySegmentCount + 1);
+    }
+
+    @Test
+    public void repeatedFrameFormatsNoNewLabels() {
+        renderFrame();
+        int firstFrameDrawCalls = sink.getDrawCallCount();
+
+        renderFrame();
+
+        assertEquals(0, stats.getLabelCacheMissCount());
+        assertEquals(stats.getLabelFormattedCount(), stats.getLabelCacheHitCount());
+        assertEquals(firstFrameDrawCalls, sink.getDrawCallCount());
+    }
+}
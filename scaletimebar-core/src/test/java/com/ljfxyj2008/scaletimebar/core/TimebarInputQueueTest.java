@@ -0,0 +1,89 @@
+package com.ljfxyj2008.scaletimebar.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TimebarInputQueueTest {
+
+    @Test
+    public void pollsEventsInOrderWithAllFields() {
+        TimebarInputQueue queue = new TimebarInputQueue(4);
+        queue.offer(1, 10f, 1.5f, 1000L, 2000L);
+        queue.offer(2, 20f, 0f, 3000L, 0L);
+
+        assertTrue(queue.poll());
+        assertEquals(1, queue.getType());
+        assertEquals(10f, queue.getX(), 0f);
+        assertEquals(1.5f, queue.getY(), 0f);
+        assertEquals(1000L, queue.getFirstValue());
+        assertEquals(2000L, queue.getSecondValue());
+        assertTrue(queue.poll());
+        assertEquals(2, queue.getType());
+        assertEquals(3000L, queue.getFirstValue());
+        assertFalse(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void dropsEventsWhenFull() {
+        TimebarInputQueue queue = new TimebarInputQueue(3);
+        assertEquals(4, queue.getCapacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i, 0f, 0f, i, 0L));
+        }
+
+        assertFalse(queue.offer(4, 0f, 0f, 4, 0L));
+        assertEquals(1, queue.getDroppedCount());
+        assertTrue(queue.poll());
+        assertTrue(queue.offer(5, 0f, 0f, 5, 0L));
+        for (int expected : new int[]{1, 2, 3, 5}) {
+            assertTrue(queue.poll());
+            assertEquals(expected, queue.getType());
+        }
+    }
+
+    @Test
+    public void reservedSlotsStayFreeForUnreservedEvents() {
+        TimebarInputQueue queue = new TimebarInputQueue(4);
+        assertTrue(queue.offer(0, 0f, 0f, 0, 0L, 2));
+        assertTrue(queue.offer(1, 0f, 0f, 1, 0L, 2));
+        assertFalse(queue.offer(2, 0f, 0f, 2, 0L, 2));
+
+        assertTrue(queue.offer(3, 0f, 0f, 3, 0L));
+        assertTrue(queue.offer(4, 0f, 0f, 4, 0L));
+        assertFalse(queue.offer(5, 0f, 0f, 5, 0L));
+        assertEquals(2, queue.getDroppedCount());
+    }
+
+    @Test
+    public void handsEventsToAnotherThreadInOrder() throws InterruptedException {
+        final TimebarInputQueue queue = new TimebarInputQueue(64);
+        final int eventCount = 200000;
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < eventCount; i++) {
+                    while (!queue.offer(i, i, -i, i, -i)) {
+                        Thread.yield();
+                    }
+                }
+            }
+        };
+        producer.start();
+
+        int expected = 0;
+        while (expected < eventCount) {
+            if (!queue.poll()) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(expected, queue.getType());
+            assertEquals((float) expected, queue.getX(), 0f);
+            assertEquals(-expected, queue.getSecondValue());
+            expected++;
+        }
+        producer.join();
+        assertTrue(queue.isEmpty());
+    }
+}
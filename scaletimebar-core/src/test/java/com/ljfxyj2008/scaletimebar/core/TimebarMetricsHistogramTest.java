@@ -0,0 +1,92 @@
+package com.ljfxyj2008.scaletimebar.core;
+
+import com.ljfxyj2008.scaletimebar.TimebarTickCriterion;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TimebarMetricsHistogramTest {
+
+    @Test
+    public void bucketLowerBoundIsWithinQuarterOfValue() {
+        long[] values = {0, 1, 3, 4, 7, 8, 100, 16666666, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = TimebarMetricsHistogram.getBucketIndex(value);
+            assertTrue(index < TimebarMetricsHistogram.BUCKET_COUNT);
+            long lowerBound = TimebarMetricsHistogram.getBucketLowerBound(index);
+            assertTrue(lowerBound <= value);
+            assertTrue(value - lowerBound <= value / 4);
+        }
+    }
+
+    @Test
+    public void reportsPercentilesAndResets() {
+        TimebarMetricsHistogram histogram = new TimebarMetricsHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 0.001);
+        long median = histogram.getValueAtPercentile(50);
+        assertTrue(median >= 40 && median <= 50);
+        assertEquals(1, histogram.getValueAtPercentile(0));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void rendererFillsStatsOnlyWhenSet() {
+        TimebarDimensions dimensions = new TimebarDimensions();
+        TimebarRenderer renderer = new TimebarRenderer(dimensions);
+        TimebarViewport viewport = new TimebarViewport();
+        viewport.setMostLeftTimeInMillisecond(0);
+        viewport.setMostRightTimeInMillisecond(TimebarRenderer.SECONDS_PER_DAY * 1000L);
+        viewport.setCurrentTimeInMillisecond(12 * 3600 * 1000L);
+        viewport.setScreenWidth(1000);
+        viewport.setViewHeight(100);
+        viewport.setPixelsPerSecond(1000f / 3600);
+        PackedSegmentStore store = PackedSegmentStore.fromSortedArrays(
+                new long[]{0, 12 * 3600 * 1000L}, new long[]{1000, 12 * 3600 * 1000L + 1000}, 2);
+        TimebarDrawSink sink = new TimebarDrawSink() {
+            @Override
+            public void drawRect(int paint, float left, float top, float right, float bottom) {
+            }
+
+            @Override
+            public float measureText(String text) {
+                return 0;
+            }
+
+            @Override
+            public void drawText(String text, float x, float y) {
+            }
+
+            @Override
+            public void onKeyTick(long timeInMillisecond, float x) {
+            }
+        };
+        TimebarTickLadder ladder = TimebarTickLadder.createDefault();
+        ladder.updateViewLengths(1000, TimebarRenderer.SECONDS_PER_DAY);
+        TimebarTickCriterion criterion = ladder.get(1);
+
+        TimebarRenderStats stats = new TimebarRenderStats();
+        renderer.setRenderStats(stats);
+        renderer.render(viewport, criterion, store, sink);
+
+        assertTrue(stats.getTickCount() > 0);
+        assertEquals(1, stats.getSegmentDrawnCount());
+        assertTrue(stats.getLabelFormattedCount() > 0);
+        assertEquals(stats.getLabelFormattedCount(), stats.getLabelCacheHitCount() + stats.getLabelCacheMissCount());
+
+        TimebarFrameMetrics metrics = new TimebarFrameMetrics();
+        metrics.record(stats);
+        assertEquals(1, metrics.getFrameCount());
+        assertEquals(stats.getTickCount(), metrics.getTickCountHistogram().getMax());
+    }
+}
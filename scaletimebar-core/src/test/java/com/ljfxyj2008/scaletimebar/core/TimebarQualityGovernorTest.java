@@ -0,0 +1,113 @@
+package com.ljfxyj2008.scaletimebar.core;
+
+import com.ljfxyj2008.scaletimebar.TimebarTickCriterion;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TimebarQualityGovernorTest {
+    private static final int SCREEN_WIDTH = 1080;
+    private static final long MOST_LEFT_TIME = 1477612800000L;
+    private static final long WHOLE_TIMEBAR_TOTAL_SECONDS = 7L * TimebarRenderer.SECONDS_PER_DAY;
+    private static final long BUDGET = TimebarQualityGovernor.DEFAULT_FRAME_BUDGET_IN_NANOSECOND;
+
+    private TimebarQualityGovernor governor;
+    private TimebarRenderer renderer;
+    private TimebarViewport viewport;
+    private TimebarTickCriterion criterion;
+    private PackedSegmentStore store;
+    private RecordingDrawSink sink;
+
+    @Before
+    public void setUp() {
+        governor = new TimebarQualityGovernor();
+        renderer = new TimebarRenderer(new TimebarDimensions());
+        sink = new RecordingDrawSink();
+
+        TimebarTickLadder ladder = TimebarTickLadder.createDefault();
+        ladder.updateViewLengths(SCREEN_WIDTH, WHOLE_TIMEBAR_TOTAL_SECONDS);
+        criterion = ladder.get(0);
+        viewport = new TimebarViewport();
+        viewport.setMostLeftTimeInMillisecond(MOST_LEFT_TIME);
+        viewport.setMostRightTimeInMillisecond(MOST_LEFT_TIME + WHOLE_TIMEBAR_TOTAL_SECONDS * 1000);
+        viewport.setCurrentTimeInMillisecond(MOST_LEFT_TIME + WHOLE_TIMEBAR_TOTAL_SECONDS * 500);
+        viewport.setScreenWidth(SCREEN_WIDTH);
+        viewport.setViewHeight(168);
+
+        //Segments of 1 second every 8 seconds, about 3 pixels apart at the zoom of the tests
+        int count = 100000;
+        long[] startTimes = new long[count];
+        long[] endTimes = new long[count];
+        for (int i = 0; i < count; i++) {
+            startTimes[i] = viewport.getCurrentTimeInMillisecond() - count / 2 * 8000L + i * 8000L;
+            endTimes[i] = startTimes[i] + 1000;
+        }
+        store = PackedSegmentStore.fromSortedArrays(startTimes, endTimes, count);
+    }
+
+    private void renderFrame() {
+        sink.reset();
+        renderer.render(viewport, criterion, store, sink);
+    }
+
+    @Test
+    public void degradesOneLevelPerFrameOverBudgetInFixedOrder() {
+        assertFalse(governor.onFrameDrawn(BUDGET));
+        assertEquals(TimebarQualityGovernor.LEVEL_FULL, governor.getLevel());
+
+        assertTrue(governor.onFrameDrawn(BUDGET + 1));
+        assertEquals(TimebarQualityGovernor.LEVEL_NO_MINOR_TICKS, governor.getLevel());
+        assertTrue(governor.onFrameDrawn(BUDGET * 2));
+        assertEquals(TimebarQualityGovernor.LEVEL_COARSE_SEGMENTS, governor.getLevel());
+        assertTrue(governor.onFrameDrawn(BUDGET * 2));
+        assertEquals(TimebarQualityGovernor.LEVEL_NO_COLLIDING_LABELS, governor.getLevel());
+        assertFalse(governor.onFrameDrawn(BUDGET * 2));
+        assertFalse(governor.onFrameDrawn(0));
+
+        assertEquals(TimebarQualityGovernor.LEVEL_NO_COLLIDING_LABELS, governor.getLevel());
+        assertEquals(4, governor.getOverBudgetFrameCount());
+        assertEquals(3, governor.getDegradeCount());
+        assertTrue(governor.restore());
+        assertEquals(TimebarQualityGovernor.LEVEL_FULL, governor.getLevel());
+        assertFalse(governor.restore());
+    }
+
+    @Test
+    public void eachLevelDrawsLessThanThePreviousOne() {
+        //Half the standard zoom, so key tick texts of criterion 0 collide
+        viewport.setPixelsPerSecond(criterion.getViewLength() / (float) WHOLE_TIMEBAR_TOTAL_SECONDS / 4);
+        governor.applyTo(renderer);
+        renderFrame();
+        int fullMinTicks = sink.rectDrawCountByPaint[TimebarDrawSink.PAINT_MIN_TICK];
+        int fullSegments = sink.rectDrawCountByPaint[TimebarDrawSink.PAINT_RECORD_SEGMENT];
+        assertTrue(fullMinTicks > 0);
+        assertTrue(sink.overlappingTextCount > 0);
+
+        governor.onFrameDrawn(BUDGET + 1);
+        governor.applyTo(renderer);
+        renderFrame();
+        assertEquals(0, sink.rectDrawCountByPaint[TimebarDrawSink.PAINT_MIN_TICK]);
+        assertEquals(fullSegments, sink.rectDrawCountByPaint[TimebarDrawSink.PAINT_RECORD_SEGMENT]);
+
+        governor.onFrameDrawn(BUDGET + 1);
+        governor.applyTo(renderer);
+        renderFrame();
+        assertTrue(sink.rectDrawCountByPaint[TimebarDrawSink.PAINT_RECORD_SEGMENT] < fullSegments);
+        assertTrue(sink.overlappingTextCount > 0);
+
+        governor.onFrameDrawn(BUDGET + 1);
+        governor.applyTo(renderer);
+        renderFrame();
+        assertEquals(0, sink.overlappingTextCount);
+        assertTrue(sink.textDrawCount > 0);
+        assertTrue(sink.textDrawCount < sink.keyTickCount);
+
+        governor.restore();
+        governor.applyTo(renderer);
+        renderFrame();
+        assertEquals(fullMinTicks, sink.rectDrawCountByPaint[TimebarDrawSink.PAINT_MIN_TICK]);
+        assertEquals(fullSegments, sink.rectDrawCountByPaint[TimebarDrawSink.PAINT_RECORD_SEGMENT]);
+    }
+}
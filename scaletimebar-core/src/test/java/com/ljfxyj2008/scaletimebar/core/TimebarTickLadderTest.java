@@ -0,0 +1,138 @@
+package com.ljfxyj2008.scaletimebar.core;
+
+import com.ljfxyj2008.scaletimebar.TimebarTickCriterion;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class TimebarTickLadderTest {
+    private static final int SCREEN_WIDTH = 1080;
+    private static final long MOST_LEFT_TIME = 1477612800000L;
+    private static final long SEVEN_DAYS_IN_SECOND = 7L * TimebarRenderer.SECONDS_PER_DAY;
+    private static final long FIVE_YEARS_IN_SECOND = 5 * 365L * TimebarRenderer.SECONDS_PER_DAY;
+
+    /**
+     * Collects the times of key ticks
+     */
+    private static class KeyTickSink implements TimebarDrawSink {
+        final List<Long> keyTickTimes = new ArrayList<>();
+
+        @Override
+        public void drawRect(int paint, float left, float top, float right, float bottom) {
+        }
+
+        @Override
+        public float measureText(String text) {
+            return 0;
+        }
+
+        @Override
+        public void drawText(String text, float x, float y) {
+        }
+
+        @Override
+        public void onKeyTick(long timeInMillisecond, float x) {
+            keyTickTimes.add(timeInMillisecond);
+        }
+    }
+
+    /**
+     * Reference selection: a criterion is used down to the average view length of it and the next coarser one
+     */
+    private static int selectIndexLinearly(TimebarTickLadder ladder, int viewLength) {
+        int lastIndex = ladder.size() - 1;
+        for (int index = 0; index < lastIndex; index++) {
+            int averageViewLength = (ladder.get(index).getViewLength() + ladder.get(index + 1).getViewLength()) / 2;
+            if (viewLength >= averageViewLength) {
+                return index;
+            }
+        }
+        return lastIndex;
+    }
+
+    @Test
+    public void binarySearchMatchesLinearSelection() {
+        TimebarTickLadder ladder = TimebarTickLadder.createDefault();
+        ladder.updateViewLengths(SCREEN_WIDTH, SEVEN_DAYS_IN_SECOND);
+
+        for (int viewLength = ladder.get(ladder.size() - 1).getViewLength(); viewLength <= ladder.get(0).getViewLength(); viewLength += 37) {
+            assertEquals(selectIndexLinearly(ladder, viewLength), ladder.selectIndex(viewLength));
+        }
+        assertEquals(0, ladder.selectIndex(Integer.MAX_VALUE));
+        assertEquals(ladder.size() - 1, ladder.selectIndex(0));
+        assertEquals(ladder.get(0).getViewLength(), ladder.clampViewLength(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void zoomButtonSteps() {
+        TimebarTickLadder ladder = TimebarTickLadder.createDefault();
+        ladder.updateViewLengths(SCREEN_WIDTH, SEVEN_DAYS_IN_SECOND);
+        int standard = ladder.get(2).getViewLength();
+
+        assertEquals(1, ladder.stepIndex(2, standard, true));
+        assertEquals(3, ladder.stepIndex(2, standard, false));
+        //Scaled a bit towards zooming in, zooming out goes back to the standard length of the same criterion
+        assertEquals(2, ladder.stepIndex(2, standard + 10, false));
+        assertEquals(2, ladder.stepIndex(2, standard - 10, true));
+        assertEquals(-1, ladder.stepIndex(0, ladder.get(0).getViewLength(), true));
+        assertEquals(-1, ladder.stepIndex(ladder.size() - 1, ladder.get(ladder.size() - 1).getViewLength(), false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unorderedCriteriaAreRejected() {
+        TimebarTickCriterion[] criteria = TimebarTickCriteria.createDefaultCriteria();
+        new TimebarTickLadder(criteria[1], criteria[0]);
+    }
+
+    @Test
+    public void calendarArithmeticMatchesCalendar() {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        for (long day = -800; day < 30000; day += 13) {
+            calendar.setTimeInMillis(day * TimebarRenderer.SECONDS_PER_DAY * 1000L);
+            long month = calendar.get(Calendar.YEAR) * 12L + calendar.get(Calendar.MONTH);
+            assertEquals(month, TimebarCalendar.monthOfDay(day));
+            assertEquals(day - calendar.get(Calendar.DAY_OF_MONTH) + 1, TimebarCalendar.firstDayOfMonth(month));
+            assertEquals(calendar.get(Calendar.DAY_OF_WEEK) == Calendar.MONDAY, TimebarCalendar.isMonday(day));
+        }
+    }
+
+    @Test
+    public void calendarKeyTicksFallOnWeekMonthAndYearStarts() {
+        TimebarTickLadder ladder = TimebarTickLadder.createCalendar();
+        ladder.updateViewLengths(SCREEN_WIDTH, FIVE_YEARS_IN_SECOND);
+        TimebarRenderer renderer = new TimebarRenderer(new TimebarDimensions());
+        //Ticks are aligned to the raw offset of the default zone, daylight saving time is ignored
+        Calendar calendar = Calendar.getInstance(new SimpleTimeZone(TimeZone.getDefault().getRawOffset(), "raw"));
+
+        int[] calendarFields = {Calendar.DAY_OF_WEEK, Calendar.DAY_OF_MONTH, Calendar.DAY_OF_YEAR};
+        int[] expectedValues = {Calendar.MONDAY, 1, 1};
+        for (int i = 0; i < calendarFields.length; i++) {
+            int criterionIndex = TimebarTickCriteria.DEFAULT_CRITERION_COUNT + i;
+            TimebarTickCriterion criterion = ladder.get(criterionIndex);
+            TimebarViewport viewport = new TimebarViewport();
+            viewport.setMostLeftTimeInMillisecond(MOST_LEFT_TIME);
+            viewport.setMostRightTimeInMillisecond(MOST_LEFT_TIME + FIVE_YEARS_IN_SECOND * 1000);
+            viewport.setCurrentTimeInMillisecond(MOST_LEFT_TIME + FIVE_YEARS_IN_SECOND * 500);
+            viewport.setScreenWidth(SCREEN_WIDTH);
+            viewport.setViewHeight(168);
+            viewport.setPixelsPerSecond(criterion.getViewLength() / (float) FIVE_YEARS_IN_SECOND);
+
+            KeyTickSink sink = new KeyTickSink();
+            renderer.render(viewport, criterion, null, sink);
+            assertTrue(sink.keyTickTimes.size() >= 2);
+            for (long time : sink.keyTickTimes) {
+                calendar.setTimeInMillis(time);
+                assertEquals(expectedValues[i], calendar.get(calendarFields[i]));
+                assertEquals(0, calendar.get(Calendar.HOUR_OF_DAY));
+                assertEquals(0, calendar.get(Calendar.MINUTE));
+            }
+        }
+    }
+}
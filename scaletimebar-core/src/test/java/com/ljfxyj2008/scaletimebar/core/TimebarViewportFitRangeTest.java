@@ -0,0 +1,70 @@
+package com.ljfxyj2008.scaletimebar.core;
+
+import com.ljfxyj2008.scaletimebar.TimebarTickCriterion;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A range fitted over one image, rendered the way TimebarImageExporter renders every channel.
+ */
+public class TimebarViewportFitRangeTest {
+    private static final int WIDTH = 1000;
+    private static final int HEIGHT = 56;
+    private static final long DAY_START = 1477612800000L;
+    private static final long HOUR = 3600 * 1000L;
+
+    private final TimebarDimensions dimensions = new TimebarDimensions();
+    private TimebarViewport viewport;
+    private RasterDrawSink sink;
+    private int recordbarRow;
+
+    @Before
+    public void setUp() {
+        //The default dimensions of ScalableTimebarView at mdpi
+        dimensions.setBigTickHalfWidth(2);
+        dimensions.setBigTickHeight(9);
+        dimensions.setSmallTickHalfWidth(1);
+        dimensions.setSmallTickHeight(6);
+        dimensions.setKeyTickTextSize(10);
+        dimensions.setTickTextToTickMargin(2);
+        dimensions.setRecordbarToTickTextMargin(5);
+        dimensions.setRecordbarHeight(21);
+
+        viewport = new TimebarViewport();
+        viewport.fitRange(DAY_START, DAY_START + 24 * HOUR, WIDTH, HEIGHT);
+
+        TimebarTickLadder ladder = TimebarTickLadder.createDefault();
+        ladder.updateViewLengths(WIDTH, 24 * 3600);
+        TimebarTickCriterion criterion = ladder.get(ladder.selectIndex(WIDTH));
+
+        //Recorded from 06:00 to 09:00 only
+        SegmentStore store = PackedSegmentStore.fromSortedArrays(
+                new long[]{DAY_START + 6 * HOUR}, new long[]{DAY_START + 9 * HOUR}, 1);
+        sink = new RasterDrawSink(WIDTH, HEIGHT, viewport.getScreenTranslationX());
+        new TimebarRenderer(dimensions).render(viewport, criterion, store, sink);
+        recordbarRow = (int) ((dimensions.getRecordbarTop(HEIGHT) + dimensions.getRecordbarBottom(HEIGHT)) / 2);
+    }
+
+    @Test
+    public void rangeSpansTheImage() {
+        assertEquals(WIDTH, viewport.getPixelsPerSecond() * 24 * 3600, 0.5f);
+        //The strip starts half a screen before the range, which is shifted to the left edge of the image
+        assertEquals(-WIDTH / 2f, viewport.getScreenTranslationX(), 0.5f);
+    }
+
+    @Test
+    public void recordbarIsColoredInsideSegmentOnly() {
+        //06:00 and 09:00 are at a quarter and at three eighths of the image
+        assertEquals(TimebarDrawSink.PAINT_RECORD_SEGMENT, sink.getPixel(260, recordbarRow));
+        assertEquals(TimebarDrawSink.PAINT_RECORD_SEGMENT, sink.getPixel(312, recordbarRow));
+        assertEquals(TimebarDrawSink.PAINT_RECORD_SEGMENT, sink.getPixel(365, recordbarRow));
+
+        assertEquals(TimebarDrawSink.PAINT_RECORDBAR_BACKGROUND, sink.getPixel(5, recordbarRow));
+        assertEquals(TimebarDrawSink.PAINT_RECORDBAR_BACKGROUND, sink.getPixel(240, recordbarRow));
+        assertEquals(TimebarDrawSink.PAINT_RECORDBAR_BACKGROUND, sink.getPixel(385, recordbarRow));
+        assertEquals(TimebarDrawSink.PAINT_RECORDBAR_BACKGROUND, sink.getPixel(WIDTH - 5, recordbarRow));
+    }
+}
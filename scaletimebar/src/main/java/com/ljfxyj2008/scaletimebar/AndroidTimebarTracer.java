@@ -0,0 +1,37 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar;
+
+import android.os.Build;
+import android.os.Trace;
+
+import com.ljfxyj2008.scaletimebar.core.TimebarTracer;
+
+/**
+ * TimebarTracer writing android.os.Trace sections, visible in systrace / Perfetto.
+ * Does nothing below API 18, and the platform call itself is cheap while tracing is off.
+ */
+public class AndroidTimebarTracer implements TimebarTracer {
+    public static final AndroidTimebarTracer INSTANCE = new AndroidTimebarTracer();
+
+    private static final boolean TRACE_SUPPORTED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+
+    private AndroidTimebarTracer() {
+    }
+
+    @Override
+    public void beginSection(String sectionName) {
+        if (TRACE_SUPPORTED) {
+            Trace.beginSection(sectionName);
+        }
+    }
+
+    @Override
+    public void endSection() {
+        if (TRACE_SUPPORTED) {
+            Trace.endSection();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar;
+
+import android.graphics.Bitmap;
+
+/**
+ * ThumbnailLruCache of Bitmaps. Only mutable bitmaps are kept for reuse, since only they can be used as BitmapFactory.Options.inBitmap.
+ * <p>
+ * Evicted bitmaps are never recycled here: the UI thread may still be drawing one of them.
+ */
+public class BitmapThumbnailCache extends ThumbnailLruCache<Bitmap> {
+
+    public BitmapThumbnailCache(long maxSizeInBytes, int maxReusableCount) {
+        super(maxSizeInBytes, maxReusableCount);
+    }
+
+    @Override
+    protected int sizeOf(Bitmap thumbnail) {
+        return thumbnail.getRowBytes() * thumbnail.getHeight();
+    }
+
+    @Override
+    protected boolean isReusable(Bitmap thumbnail) {
+        return thumbnail.isMutable() && !thumbnail.isRecycled();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar;
+
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.text.TextPaint;
+
+import com.ljfxyj2008.scaletimebar.core.TimebarDrawSink;
+
+/**
+ * TimebarDrawSink drawing to an Android Canvas.
+ * <p>
+ * Colors are resolved once, every paint constant of TimebarDrawSink has its own Paint,
+ * so no paint state is changed while drawing a frame. Sinks created from a TimebarResourcePool
+ * share their paints and label widths with every other sink of the pool.
+ */
+public class CanvasDrawSink implements TimebarDrawSink {
+    private Canvas canvas;
+
+    /**
+     * Paints to draw ticks and recordbar, indexed by TimebarDrawSink.PAINT_* constants
+     */
+    private final Paint[] rectPaints;
+
+    /**
+     * Textpaint to draw time text corresponding to large ticks
+     */
+    private final TextPaint keyTickTextPaint;
+
+    /**
+     * Caches label widths when shared, null to measure every time
+     */
+    private final TimebarResourcePool resourcePool;
+
+    public CanvasDrawSink(Resources resources, float keyTickTextSize) {
+        rectPaints = createRectPaints(resources);
+        keyTickTextPaint = createKeyTickTextPaint(resources, keyTickTextSize);
+        resourcePool = null;
+    }
+
+    /**
+     * Create a sink sharing paints and label widths of the pool
+     */
+    public CanvasDrawSink(TimebarResourcePool resourcePool, float keyTickTextSize) {
+        rectPaints = resourcePool.getRectPaints();
+        keyTickTextPaint = resourcePool.getKeyTickTextPaint(keyTickTextSize);
+        this.resourcePool = resourcePool;
+    }
+
+    /**
+     * Paints indexed by TimebarDrawSink.PAINT_* constants
+     */
+    static Paint[] createRectPaints(Resources resources) {
+        Paint[] rectPaints = new Paint[4];
+        rectPaints[PAINT_KEY_TICK] = createFillPaint(resources.getColor(R.color.color_33ffffff));
+        rectPaints[PAINT_MIN_TICK] = createFillPaint(resources.getColor(R.color.color_33ffffff));
+        rectPaints[PAINT_RECORDBAR_BACKGROUND] = createFillPaint(resources.getColor(R.color.colorGrayTransparent));
+        rectPaints[PAINT_RECORD_SEGMENT] = createFillPaint(resources.getColor(R.color.colorRecordGreen));
+        return rectPaints;
+    }
+
+    static TextPaint createKeyTickTextPaint(Resources resources, float keyTickTextSize) {
+        TextPaint keyTickTextPaint = new TextPaint();
+        keyTickTextPaint.setTextSize(keyTickTextSize);
+        keyTickTextPaint.setColor(resources.getColor(R.color.colorWhite));
+        return keyTickTextPaint;
+    }
+
+    private static Paint createFillPaint(int color) {
+        Paint paint = new Paint();
+        paint.setColor(color);
+        paint.setStyle(Paint.Style.FILL);
+        return paint;
+    }
+
+    /**
+     * Set the canvas to draw the next frame to
+     */
+    public void setCanvas(Canvas canvas) {
+        this.canvas = canvas;
+    }
+
+    public Canvas getCanvas() {
+        return canvas;
+    }
+
+    public Paint getRectPaint(int paint) {
+        return rectPaints[paint];
+    }
+
+    public TextPaint getKeyTickTextPaint() {
+        return keyTickTextPaint;
+    }
+
+    @Override
+    public void drawRect(int paint, float left, float top, float right, float bottom) {
+        canvas.drawRect(left, top, right, bottom, rectPaints[paint]);
+    }
+
+    @Override
+    public float measureText(String text) {
+        if (resourcePool != null) {
+            return resourcePool.measureLabel(text);
+        }
+        return keyTickTextPaint.measureText(text);
+    }
+
+    @Override
+    public void drawText(String text, float x, float y) {
+        canvas.drawText(text, x, y, keyTickTextPaint);
+    }
+
+    @Override
+    public void onKeyTick(long timeInMillisecond, float x) {
+    }
+}
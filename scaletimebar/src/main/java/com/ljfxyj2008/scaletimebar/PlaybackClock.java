@@ -0,0 +1,84 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar;
+
+/**
+ * Playback position extrapolated from the last position reported by the player and its rate,
+ * so that the cursor can advance smoothly on every frame between player updates.
+ * <p>
+ * Times are given in nanoseconds of the System.nanoTime() clock, the same clock as Choreographer frame times.
+ * This class has no Android dependency and is driven by ScalableTimebarView from the UI thread.
+ */
+public class PlaybackClock {
+    /**
+     * Playback position at anchorTimeInNanosecond
+     */
+    private long anchorPositionInMillisecond;
+
+    /**
+     * When anchorPositionInMillisecond was reported
+     */
+    private long anchorTimeInNanosecond;
+
+    /**
+     * Playback rate, 1 for normal speed, 0 when the player is paused or buffering
+     */
+    private float rate = 1f;
+
+    /**
+     * Paused clocks stay at anchorPositionInMillisecond
+     */
+    private boolean paused = false;
+
+    /**
+     * Re-anchor the clock at a position reported by the player and unpause it.
+     *
+     * @param positionInMillisecond current playback position
+     * @param rate                  playback rate
+     * @param nowInNanosecond       time of the report
+     */
+    public void set(long positionInMillisecond, float rate, long nowInNanosecond) {
+        this.anchorPositionInMillisecond = positionInMillisecond;
+        this.anchorTimeInNanosecond = nowInNanosecond;
+        this.rate = rate;
+        this.paused = false;
+    }
+
+    /**
+     * Extrapolated playback position at the given time
+     */
+    public long getPositionAt(long nowInNanosecond) {
+        if (paused) {
+            return anchorPositionInMillisecond;
+        }
+        return anchorPositionInMillisecond + (long) ((nowInNanosecond - anchorTimeInNanosecond) / 1000000.0 * rate);
+    }
+
+    /**
+     * Freeze the clock at its current position
+     */
+    public void pause(long nowInNanosecond) {
+        if (!paused) {
+            anchorPositionInMillisecond = getPositionAt(nowInNanosecond);
+            anchorTimeInNanosecond = nowInNanosecond;
+            paused = true;
+        }
+    }
+
+    /**
+     * Continue from a new position (e.g. where the user dropped the timebar) at the previous rate
+     */
+    public void resume(long positionInMillisecond, long nowInNanosecond) {
+        set(positionInMillisecond, rate, nowInNanosecond);
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public float getRate() {
+        return rate;
+    }
+}
@@ -6,26 +6,43 @@ package com.ljfxyj2008.scaletimebar;
 
 
 import android.content.Context;
+import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.RectF;
+import android.graphics.drawable.BitmapDrawable;
+import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
 import android.text.TextPaint;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.ScaleGestureDetector;
+import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewGroup;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import com.ljfxyj2008.scaletimebar.core.DensityHistogram;
+import com.ljfxyj2008.scaletimebar.core.EventMarkerClusterIndex;
+import com.ljfxyj2008.scaletimebar.core.EventMarkerStore;
+import com.ljfxyj2008.scaletimebar.core.LiveSegmentStore;
+import com.ljfxyj2008.scaletimebar.core.PackedSegmentStore;
+import com.ljfxyj2008.scaletimebar.core.SegmentRangeCursor;
+import com.ljfxyj2008.scaletimebar.core.SegmentStore;
+import com.ljfxyj2008.scaletimebar.core.SegmentStorePatch;
+import com.ljfxyj2008.scaletimebar.core.TimebarDimensions;
+import com.ljfxyj2008.scaletimebar.core.TimebarFrameMetrics;
+import com.ljfxyj2008.scaletimebar.core.TimebarQualityGovernor;
+import com.ljfxyj2008.scaletimebar.core.TimebarRenderStats;
+import com.ljfxyj2008.scaletimebar.core.TimebarRenderer;
+import com.ljfxyj2008.scaletimebar.core.TimebarTickLadder;
+import com.ljfxyj2008.scaletimebar.core.TimebarViewport;
+
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * <pre>
@@ -55,6 +72,9 @@ import java.util.Map;
  * （3）LoTSW：36 hours        TILT：6 hours            TIST：30 minutes
  * （4）LoTSW：6 days          TILT：1 days             TIST：2 hours
  * </pre>
+ * <p>
+ * Layout math, tick generation and recordbar drawing live in the Android-free TimebarRenderer,
+ * this view only keeps it in sync with touch input and draws its commands to the Canvas.
  */
 public class ScalableTimebarView extends View {
     /**
@@ -67,6 +87,19 @@ public class ScalableTimebarView extends View {
      */
     private OnBarMoveListener mOnBarMoveListener;
     private OnBarScaledListener mOnBarScaledListener;
+    private OnViewportPredictedListener mOnViewportPredictedListener;
+    private OnFrameMetricsListener mOnFrameMetricsListener;
+    private OnRangeSelectionChangeListener mOnRangeSelectionChangeListener;
+
+    /**
+     * Extrapolates the screen time window from drag and pinch velocity, used to prefetch data ahead of scrolling
+     */
+    private TimebarViewportPredictor viewportPredictor = new TimebarViewportPredictor();
+
+    /**
+     * Tracks drag velocity in raw screen coordinates (the view itself moves while being dragged)
+     */
+    private VelocityTracker velocityTracker;
 
     /**
      * Screen width and height in pixel
@@ -74,14 +107,24 @@ public class ScalableTimebarView extends View {
     private int screenWidth, screenHeight;
 
     /**
-     * Paint to draw timebar body, ticks and RecordBar
+     * Generates ticks, time texts and recordbar segments for the current viewport
+     */
+    private TimebarRenderer timebarRenderer;
+
+    /**
+     * Position and zoom handed to timebarRenderer, synced from this view before every frame
+     */
+    private TimebarViewport timebarViewport = new TimebarViewport();
+
+    /**
+     * Draws the commands of timebarRenderer to the Canvas of onDraw(), with paints for ticks, time text and recordbar
      */
-    Paint timebarPaint = new Paint();
+    private TimebarCanvasSink canvasDrawSink;
 
     /**
-     * Textpaint to draw time text corresponding to large ticks
+     * Paint to draw middle cursor bitmap
      */
-    TextPaint keyTickTextPaint = new TextPaint();
+    private Paint cursorPaint = new Paint();
 
     /**
      * Margin between large tick and time text corresponding to it in dp
@@ -146,15 +189,116 @@ public class ScalableTimebarView extends View {
     private final int COLORED_RECORDBAR_TO_TICK_TEXT_MARGIN = DeviceUtil.dip2px(COLORED_RECORDBAR_TO_TICK_TEXT_MARGIN_IN_DP);
     private final int COLORED_RECORDBAR_HEIGHT = DeviceUtil.dip2px(COLORED_RECORDBAR_HEIGHT_IN_DP);
 
+    /**
+     * Height of the thumbnail lane above the timebar in dp. Only reserved when a thumbnail loader is set.
+     */
+    private final int THUMBNAIL_LANE_HEIGHT_IN_DP = 40;
+
+    /**
+     * Width of one keyframe thumbnail in dp
+     */
+    private final int THUMBNAIL_WIDTH_IN_DP = 64;
+
+    /**
+     * Margin around keyframe thumbnails in dp
+     */
+    private final int THUMBNAIL_MARGIN_IN_DP = 2;
+
+    private final int THUMBNAIL_LANE_HEIGHT = DeviceUtil.dip2px(THUMBNAIL_LANE_HEIGHT_IN_DP);
+    private final int THUMBNAIL_WIDTH = DeviceUtil.dip2px(THUMBNAIL_WIDTH_IN_DP);
+    private final int THUMBNAIL_MARGIN = DeviceUtil.dip2px(THUMBNAIL_MARGIN_IN_DP);
+    private final int THUMBNAIL_HEIGHT = THUMBNAIL_LANE_HEIGHT - 2 * THUMBNAIL_MARGIN;
+
+    /**
+     * Default byte budget of decoded thumbnails
+     */
+    public static final long DEFAULT_THUMBNAIL_CACHE_SIZE_IN_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * Loads keyframe thumbnails of key ticks in background, null if the thumbnail lane is disabled
+     */
+    private ThumbnailRequestScheduler<Bitmap> thumbnailScheduler;
+
+    /**
+     * Paints and reusable rect to draw thumbnail lane
+     */
+    private Paint thumbnailPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private Paint thumbnailPlaceholderPaint;
+    private RectF thumbnailRect = new RectF();
+
+    /**
+     * Right edge of the last thumbnail drawn in this frame, thumbnails that would overlap it are skipped
+     */
+    private float lastThumbnailRight;
+
+    /**
+     * Radius of event marker badges in dp, centered on the top edge of the recordbar
+     */
+    private final int EVENT_MARKER_RADIUS_IN_DP = 7;
+    private final int EVENT_MARKER_RADIUS = DeviceUtil.dip2px(EVENT_MARKER_RADIUS_IN_DP);
+
+    /**
+     * Clusters of point events drawn as badges on the recordbar
+     */
+    private final EventMarkerClusterIndex eventMarkerClusterIndex = new EventMarkerClusterIndex();
+    private EventMarkerDrawer eventMarkerDrawer;
+
+    /**
+     * Height of the activity heatmap lane in dp, along the bottom edge of the recordbar
+     */
+    private final int HEATMAP_LANE_HEIGHT_IN_DP = 4;
+    private final int HEATMAP_LANE_HEIGHT = DeviceUtil.dip2px(HEATMAP_LANE_HEIGHT_IN_DP);
+
+    /**
+     * Activity drawn as the heatmap lane, null if none
+     */
+    private DensityHistogram densityHistogram;
+    private HeatmapDrawer heatmapDrawer;
+
+    /**
+     * Width in dp of the drag handles at both ends of the selected range
+     */
+    private final int SELECTION_HANDLE_WIDTH_IN_DP = 4;
+    private final int SELECTION_HANDLE_WIDTH = DeviceUtil.dip2px(SELECTION_HANDLE_WIDTH_IN_DP);
+
+    /**
+     * A touch this far in dp from a handle still grabs it, handles are too thin to hit exactly
+     */
+    private final int SELECTION_HANDLE_TOUCH_SLOP_IN_DP = 24;
+    private final int SELECTION_HANDLE_TOUCH_SLOP = DeviceUtil.dip2px(SELECTION_HANDLE_TOUCH_SLOP_IN_DP);
+
+    /**
+     * Shortest range the handles can be dragged to
+     */
+    private static final long MIN_SELECTED_RANGE_IN_MILLISECOND = 1000;
+
+    private static final int SELECTION_HANDLE_NONE = 0;
+    private static final int SELECTION_HANDLE_START = 1;
+    private static final int SELECTION_HANDLE_END = 2;
+
+    /**
+     * Whether the selected range and its drag handles are shown and can be dragged
+     */
+    private boolean rangeSelectionEnabled = false;
+    private long selectionStartTimeInMillisecond;
+    private long selectionEndTimeInMillisecond;
+
+    /**
+     * Handle being dragged, one of the SELECTION_HANDLE_ constants
+     */
+    private int draggedSelectionHandle = SELECTION_HANDLE_NONE;
+
+    /**
+     * Cursor returned by getSelectedSegments(), reused by every call
+     */
+    private final SegmentRangeCursor selectionCursor = new SegmentRangeCursor();
+    private Paint selectionPaint;
+    private Paint selectionHandlePaint;
+
     /**
      * The bitmap containing a white cursor located in the middle of timebar to indicate current time
      */
-    private Bitmap middle_cursor_bitmap_original_size = BitmapFactory.decodeResource(getResources(),
-            R.drawable.ic_video_middle);
-    private Bitmap middle_cursor_bitmap = Bitmap.createScaledBitmap(middle_cursor_bitmap_original_size,
-            DeviceUtil.dip2px(MIDDLE_CURSOR_BITMAP_SCALED_WIDTH_IN_DP),
-            VIEW_HEIGHT,
-            false);
+    private Bitmap middle_cursor_bitmap;
 
     /**
      * Set whether middle white cursor visible.
@@ -162,17 +306,46 @@ public class ScalableTimebarView extends View {
     private boolean middleCursorVisible = true;
 
     /**
-     * Map to cache 5 scale criterions
+     * Refresh interval of follow-playback mode below API 16, where Choreographer is not available
+     */
+    private static final long FOLLOW_PLAYBACK_FRAME_DELAY_IN_MILLISECOND = 16;
+
+    /**
+     * Clock advancing the cursor in follow-playback mode, null when not following playback
+     */
+    private PlaybackClock playbackClock;
+
+    /**
+     * Advances the cursor on every frame while following playback, API 16 and above
+     */
+    private Choreographer.FrameCallback followPlaybackFrameCallback;
+
+    /**
+     * Advances the cursor about every FOLLOW_PLAYBACK_FRAME_DELAY_IN_MILLISECOND below API 16
+     */
+    private Runnable followPlaybackRunnable;
+
+    private boolean followPlaybackFrameScheduled = false;
+
+    /**
+     * While following playback on API 18 and above, the middle cursor is drawn by this drawable on the overlay
+     * of the parent, fixed in the middle of the screen. So the rendered frame can be moved under it
+     * by translation instead of being redrawn. Null when the cursor is drawn by onDraw().
+     */
+    private BitmapDrawable followPlaybackCursorDrawable;
+
+    /**
+     * Left position this view was laid out at by the last onDraw()
      */
-    private Map<Integer, TimebarTickCriterion> timebarTickCriterionMap = new HashMap<>();
+    private int lastDrawnLeft;
 
     /**
-     * Timebar scale criterion count
+     * Scale criterions the view zooms between, 5 preset ones unless setTickLadder() was called
      */
-    private int timebarTickCriterionCount = 5;
+    private TimebarTickLadder timebarTickLadder = TimebarTickLadder.createDefault();
 
     /**
-     * Indicating which scale criterions the view is using to show ticks now , corresponding to keys of "timebarTickCriterionMap"
+     * Indicating which scale criterions the view is using to show ticks now , corresponding to indexes of "timebarTickLadder"
      */
     private int currentTimebarTickCriterionIndex;
 
@@ -183,11 +356,31 @@ public class ScalableTimebarView extends View {
     private List<RecordDataExistTimeSegment> recordDataExistTimeClipsList = new ArrayList<>();
 
     /**
-     * Data in recordDataExistTimeClipsList are divided into different groups and cached in this map.<br>
-     * Same-day segments are grouped together in the same group.<br>
-     * Keys of this map is milliseconds corresponding to 00:00 on the date.
+     * Data in recordDataExistTimeClipsList packed into primitive arrays sorted by start time.<br>
+     * The first segment to draw is found by binary search.
+     */
+    private SegmentStore segmentStore = PackedSegmentStore.EMPTY;
+
+    /**
+     * Store appended to by a recorder thread, null if not drawing live segments.
+     * While set, segmentStore is liveSegmentSnapshot, refreshed at the start of every onDraw().
+     */
+    private LiveSegmentStore liveSegmentStore;
+    private final LiveSegmentStore.Snapshot liveSegmentSnapshot = new LiveSegmentStore.Snapshot();
+
+    /**
+     * Called on the recorder thread, at most once per drawn frame
      */
-    private Map<Long, List<RecordDataExistTimeSegment>> recordDataExistTimeClipsListMap = new HashMap<>();
+    private final LiveSegmentStore.Listener liveSegmentListener = new LiveSegmentStore.Listener() {
+        @Override
+        public void onSegmentsChanged() {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                postInvalidateOnAnimation();
+            } else {
+                postInvalidate();
+            }
+        }
+    };
 
     /**
      * Detector to handle scale gesture
@@ -199,6 +392,21 @@ public class ScalableTimebarView extends View {
      */
     private boolean notInited = true;
 
+    /**
+     * View length restored by onRestoreInstanceState() before the first onDraw(), applied instead of the standard width
+     */
+    private int restoredViewLength = 0;
+
+    /**
+     * Group this view pans and zooms together with, null if not linked
+     */
+    private TimebarViewportGroup viewportGroup;
+
+    /**
+     * Whether onSaveInstanceState() also parcels the segments
+     */
+    private boolean saveSegmentsInInstanceState = false;
+
     /**
      * Current time the white cursor indicating in millisecond
      */
@@ -229,10 +437,52 @@ public class ScalableTimebarView extends View {
      */
     private boolean justScaledByPressingButton = false;
 
+    /**
+     * Stats of the frame being drawn, only filled while an OnFrameMetricsListener is set
+     */
+    private TimebarRenderStats frameRenderStats = new TimebarRenderStats();
+
+    /**
+     * Histograms and totals of all frames reported to OnFrameMetricsListener since the last reset
+     */
+    private TimebarFrameMetrics frameMetrics = new TimebarFrameMetrics();
+
+    /**
+     * Lowers drawing detail when frames go over budget, null if disabled
+     */
+    private TimebarQualityGovernor qualityGovernor;
+
+    /**
+     * Full detail comes back after no touch input for this long
+     */
+    private static final long QUALITY_RESTORE_DELAY_IN_MILLISECOND = 300;
+
+    /**
+     * Uptime of the last touch event, to tell when input went idle
+     */
+    private long lastInputUptimeInMillisecond;
+
+    private final Runnable restoreQualityRunnable = new Runnable() {
+        @Override
+        public void run() {
+            restoreQualityIfInputIdle();
+        }
+    };
+
+    /**
+     * Layout passes caused by scaling since the last reported frame
+     */
+    private int pendingScaleLayoutPassCount;
+
+    /**
+     * Flag indicating that the next onMeasure() is caused by a width change of scaling
+     */
+    private boolean scaleLayoutRequested = false;
+
     /**
      * Seconds in one day
      */
-    public final static int SECONDS_PER_DAY = 24 * 60 * 60;
+    public final static int SECONDS_PER_DAY = TimebarRenderer.SECONDS_PER_DAY;
 
     /**
      * The length of the entire timebar view, excluding the extra half-screen empty width at both ends.
@@ -260,7 +510,346 @@ public class ScalableTimebarView extends View {
 
     public void setRecordDataExistTimeClipsList(List<RecordDataExistTimeSegment> recordDataExistTimeClipsList) {
         this.recordDataExistTimeClipsList = recordDataExistTimeClipsList;
-        arrangeRecordDataExistTimeClipsIntoMap(recordDataExistTimeClipsList);
+        arrangeRecordDataExistTimeClipsIntoStore(recordDataExistTimeClipsList);
+    }
+
+    /**
+     * Get the index of record segments drawn on recordbar. It is immutable, so it can be kept across
+     * configuration changes (e.g. in a retained fragment) and handed to the new view with setSegmentStore().
+     */
+    public SegmentStore getSegmentStore() {
+        return segmentStore;
+    }
+
+    /**
+     * Draw record segments from an already built index, skipping the sorting and packing of setRecordDataExistTimeClipsList().
+     * getRecordDataExistTimeClipsList() returns an empty list afterwards.
+     *
+     * @param segmentStore segments sorted by start time, or null to clear the recordbar
+     */
+    public void setSegmentStore(SegmentStore segmentStore) {
+        detachLiveSegmentStore();
+        this.segmentStore = segmentStore == null ? PackedSegmentStore.EMPTY : segmentStore;
+        this.recordDataExistTimeClipsList = new ArrayList<>();
+        invalidate();
+    }
+
+    /**
+     * Draw segments which a recorder thread keeps appending and extending, without posting every change to the
+     * UI thread. The view redraws itself at most once per frame while segments change, drawing all segments
+     * written until the start of the frame. Setting other segments afterwards stops following the store.
+     *
+     * @param liveSegmentStore store written by one other thread, or null to clear the recordbar
+     */
+    public void setLiveSegmentStore(LiveSegmentStore liveSegmentStore) {
+        detachLiveSegmentStore();
+        recordDataExistTimeClipsList = new ArrayList<>();
+        if (liveSegmentStore == null) {
+            segmentStore = PackedSegmentStore.EMPTY;
+        } else {
+            this.liveSegmentStore = liveSegmentStore;
+            liveSegmentStore.setListener(liveSegmentListener);
+            segmentStore = liveSegmentStore.readSnapshot(liveSegmentSnapshot);
+        }
+        invalidate();
+    }
+
+    public LiveSegmentStore getLiveSegmentStore() {
+        return liveSegmentStore;
+    }
+
+    private void detachLiveSegmentStore() {
+        if (liveSegmentStore != null) {
+            liveSegmentStore.setListener(null);
+            liveSegmentStore = null;
+        }
+    }
+
+    /**
+     * Replace record segments with a refreshed list which is mostly the same as the current one, e.g. polled from the
+     * server periodically. The view is only redrawn if a change is on or near the screen.
+     * Like setSegmentStore(), it stops following a LiveSegmentStore, even if nothing changed.
+     *
+     * @param recordDataExistTimeClipsList refreshed list of all record segments
+     * @return the changes found, e.g. to refresh other views showing the same segments
+     */
+    public SegmentStorePatch updateRecordDataExistTimeClipsList(List<RecordDataExistTimeSegment> recordDataExistTimeClipsList) {
+        PackedSegmentStore refreshedStore = PackedSegmentStore.fromSegments(recordDataExistTimeClipsList);
+        SegmentStorePatch patch = SegmentStorePatch.diff(segmentStore, refreshedStore);
+        //The refreshed list is already packed, the patch only tells which time ranges changed
+        replaceSegmentStore(refreshedStore, patch);
+        this.recordDataExistTimeClipsList = recordDataExistTimeClipsList;
+        return patch;
+    }
+
+    /**
+     * Merge inserted, removed and modified segments into the index, and redraw the view only if an affected
+     * time range is on or near the screen. Cached thumbnails of key ticks in those ranges are reloaded as well.
+     * getRecordDataExistTimeClipsList() returns an empty list afterwards, as for setSegmentStore().
+     *
+     * @param patch changes to apply, see SegmentStorePatch.diff()
+     */
+    public void applySegmentStorePatch(SegmentStorePatch patch) {
+        if (patch.isEmpty()) {
+            return;
+        }
+        replaceSegmentStore(patch.applyTo(segmentStore), patch);
+        recordDataExistTimeClipsList = new ArrayList<>();
+    }
+
+    /**
+     * Draw the patched segments from now on, instead of any live store, redrawing the affected ranges if any
+     */
+    private void replaceSegmentStore(SegmentStore patchedStore, SegmentStorePatch patch) {
+        detachLiveSegmentStore();
+        segmentStore = patchedStore;
+        for (int i = 0; i < patch.getAffectedRangeCount(); i++) {
+            invalidateTimeRange(patch.getAffectedRangeStartTimeInMillisecond(i), patch.getAffectedRangeEndTimeInMillisecond(i));
+        }
+    }
+
+    /**
+     * Redraw the part of this view showing a time range, if it is drawn at all (on screen or in the overdraw margin).
+     * The dirty rect only limits drawing in software rendering. A hardware accelerated view records the whole
+     * onDraw() again whatever the rect, so the saving there is skipping the redraw of ranges off screen.
+     */
+    private void invalidateTimeRange(long startTimeInMillisecond, long endTimeInMillisecond) {
+        if (thumbnailScheduler != null) {
+            thumbnailScheduler.invalidateRange(startTimeInMillisecond, endTimeInMillisecond);
+        }
+        if (notInited || pixelsPerSecond <= 0) {
+            invalidate();
+            return;
+        }
+
+        TimebarTickCriterion criterion = timebarTickLadder.get(currentTimebarTickCriterionIndex);
+        float overdrawInPixel = timebarRenderer.getOverdrawInPixel(criterion, pixelsPerSecond);
+        float drawnLeft = -getLeft() - overdrawInPixel;
+        float drawnRight = -getLeft() + screenWidth + overdrawInPixel;
+        //One extra pixel on both sides, segments closer than the merge gap are drawn as one rect
+        float left = Math.max(drawnLeft, timebarViewport.millisecondToX(startTimeInMillisecond) - 1);
+        float right = Math.min(drawnRight, timebarViewport.millisecondToX(endTimeInMillisecond) + 2);
+        if (left < right) {
+            invalidate((int) left, 0, (int) Math.ceil(right), getHeight());
+        }
+    }
+
+    /**
+     * Show point events (alarms, door openings...) as badges on the recordbar. Events falling into the same
+     * pixel bucket at the current criterion are drawn as one badge with their count.
+     *
+     * @param eventMarkerStore event times, or null to remove all badges
+     */
+    public void setEventMarkerStore(EventMarkerStore eventMarkerStore) {
+        eventMarkerClusterIndex.setStore(eventMarkerStore);
+        invalidate();
+    }
+
+    public EventMarkerStore getEventMarkerStore() {
+        return eventMarkerClusterIndex.getStore();
+    }
+
+    /**
+     * Show activity (events, motion...) as a heatmap lane along the bottom of the recordbar, each bucket shaded
+     * by its count. The bucket size follows the zoom: minutes, hours or days.
+     *
+     * @param densityHistogram activity over time, or null to remove the lane
+     */
+    public void setDensityHistogram(DensityHistogram densityHistogram) {
+        this.densityHistogram = densityHistogram;
+        invalidate();
+    }
+
+    public DensityHistogram getDensityHistogram() {
+        return densityHistogram;
+    }
+
+    /**
+     * Whether onSaveInstanceState() also saves the segments as packed arrays, so they survive process death.
+     * Each segment takes 16 bytes of the saved state, keep it well below the 1MB Binder transaction limit
+     * (tens of thousands of segments). For configuration changes, sharing getSegmentStore() is cheaper.
+     */
+    public void setSaveSegmentsInInstanceState(boolean saveSegmentsInInstanceState) {
+        this.saveSegmentsInInstanceState = saveSegmentsInInstanceState;
+    }
+
+    public boolean isSaveSegmentsInInstanceState() {
+        return saveSegmentsInInstanceState;
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState savedState = new SavedState(super.onSaveInstanceState());
+        savedState.mostLeftTimeInMillisecond = mostLeftTimeInMillisecond;
+        savedState.mostRightTimeInMillisecond = mostRightTimeInMillisecond;
+        savedState.currentTimeInMillisecond = currentTimeInMillisecond;
+        savedState.criterionIndex = currentTimebarTickCriterionIndex;
+        int viewLength = notInited ? restoredViewLength : getWidth() - screenWidth;
+        savedState.secondsInOneScreen = viewLength > 0 ? WHOLE_TIMEBAR_TOTAL_SECONDS * screenWidth / (float) viewLength : 0;
+        if (saveSegmentsInInstanceState) {
+            savedState.segmentStore = segmentStore;
+        }
+        return savedState;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        if (savedState.mostRightTimeInMillisecond <= savedState.mostLeftTimeInMillisecond) {
+            return;
+        }
+
+        mostLeftTimeInMillisecond = savedState.mostLeftTimeInMillisecond;
+        mostRightTimeInMillisecond = savedState.mostRightTimeInMillisecond;
+        currentTimeInMillisecond = savedState.currentTimeInMillisecond;
+        WHOLE_TIMEBAR_TOTAL_SECONDS = (mostRightTimeInMillisecond - mostLeftTimeInMillisecond) / 1000;
+        updateTickLadderViewLengths();
+        setCurrentTimebarTickCriterionIndex(Math.max(0, Math.min(timebarTickLadder.size() - 1, savedState.criterionIndex)));
+        if (savedState.segmentStore != null) {
+            setSegmentStore(savedState.segmentStore);
+        }
+
+        //Keep the same duration on screen, the screen width may have changed with rotation
+        int viewLength = savedState.secondsInOneScreen > 0
+                ? (int) (screenWidth * WHOLE_TIMEBAR_TOTAL_SECONDS / savedState.secondsInOneScreen)
+                : timebarTickLadder.get(currentTimebarTickCriterionIndex).getViewLength();
+        if (notInited || getLayoutParams() == null) {
+            restoredViewLength = viewLength;
+        } else {
+            applyTimebarWidth(viewLength);
+        }
+        invalidate();
+    }
+
+    /**
+     * Get the group this view pans and zooms together with, see TimebarViewportGroup.addMember()
+     */
+    public TimebarViewportGroup getViewportGroup() {
+        return viewportGroup;
+    }
+
+    void setViewportGroup(TimebarViewportGroup viewportGroup) {
+        this.viewportGroup = viewportGroup;
+    }
+
+    /**
+     * Publish the viewport changed by user input to the group, if any
+     */
+    private void publishToViewportGroup() {
+        if (viewportGroup == null || WHOLE_TIMEBAR_TOTAL_SECONDS <= 0) {
+            return;
+        }
+        ViewGroup.LayoutParams params = getLayoutParams();
+        int viewLength = params != null && params.width > 0 ? params.width : getWidth() - screenWidth;
+        if (viewLength <= 0) {
+            return;
+        }
+        viewportGroup.publish(this, currentTimeInMillisecond, WHOLE_TIMEBAR_TOTAL_SECONDS * screenWidth / (float) viewLength);
+    }
+
+    /**
+     * Show the viewport of the group, without notifying listeners or publishing it back to the group
+     *
+     * @param currentTime        time under the cursor, clamped into the range of this view
+     * @param secondsInOneScreen zoom as seconds shown in one screen width, 0 to keep the current zoom
+     */
+    void applyGroupViewport(long currentTime, float secondsInOneScreen) {
+        if (WHOLE_TIMEBAR_TOTAL_SECONDS <= 0) {
+            return;
+        }
+        currentTimeInMillisecond = Math.max(mostLeftTimeInMillisecond, Math.min(mostRightTimeInMillisecond, currentTime));
+        if (secondsInOneScreen > 0) {
+            int newWidth = selectCriterionForViewLength((int) (screenWidth * WHOLE_TIMEBAR_TOTAL_SECONDS / secondsInOneScreen));
+            ViewGroup.LayoutParams params = getLayoutParams();
+            if (notInited || params == null) {
+                restoredViewLength = newWidth;
+            } else if (params.width != newWidth) {
+                applyTimebarWidth(newWidth);
+            }
+        }
+        invalidate();
+    }
+
+    /**
+     * Viewport state saved across activity recreation, with optional segments parceled as primitive arrays
+     */
+    static class SavedState extends BaseSavedState {
+        long mostLeftTimeInMillisecond;
+        long mostRightTimeInMillisecond;
+        long currentTimeInMillisecond;
+        int criterionIndex;
+
+        /**
+         * Zoom, as seconds shown in one screen width
+         */
+        float secondsInOneScreen;
+
+        /**
+         * Segments, null if not saved
+         */
+        SegmentStore segmentStore;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            mostLeftTimeInMillisecond = in.readLong();
+            mostRightTimeInMillisecond = in.readLong();
+            currentTimeInMillisecond = in.readLong();
+            criterionIndex = in.readInt();
+            secondsInOneScreen = in.readFloat();
+            int segmentCount = in.readInt();
+            if (segmentCount >= 0) {
+                long[] startTimes = new long[segmentCount];
+                long[] endTimes = new long[segmentCount];
+                in.readLongArray(startTimes);
+                in.readLongArray(endTimes);
+                segmentStore = PackedSegmentStore.fromSortedArrays(startTimes, endTimes, segmentCount);
+            }
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeLong(mostLeftTimeInMillisecond);
+            out.writeLong(mostRightTimeInMillisecond);
+            out.writeLong(currentTimeInMillisecond);
+            out.writeInt(criterionIndex);
+            out.writeFloat(secondsInOneScreen);
+            if (segmentStore == null) {
+                out.writeInt(-1);
+                return;
+            }
+            int segmentCount = segmentStore.size();
+            long[] startTimes = new long[segmentCount];
+            long[] endTimes = new long[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                startTimes[i] = segmentStore.getStartTimeInMillisecond(i);
+                endTimes[i] = segmentStore.getEndTimeInMillisecond(i);
+            }
+            out.writeInt(segmentCount);
+            out.writeLongArray(startTimes);
+            out.writeLongArray(endTimes);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
     }
 
     /**
@@ -288,23 +877,90 @@ public class ScalableTimebarView extends View {
         return screenRightTimeInMillisecond;
     }
 
-    private void arrangeRecordDataExistTimeClipsIntoMap(List<RecordDataExistTimeSegment> clipsList) {
-        recordDataExistTimeClipsListMap = new HashMap<>();
+    /**
+     * Get the most left time of the screen window the user is heading toward, extrapolated from drag and pinch velocity.
+     * Equals getScreenLeftTimeInMillisecond() when the timebar is standing still.
+     */
+    public long getPredictedScreenLeftTimeInMillisecond() {
+        if (!viewportPredictor.hasPrediction()) {
+            return getScreenLeftTimeInMillisecond();
+        }
+        return viewportPredictor.getPredictedLeftTimeInMillisecond();
+    }
 
-        if (clipsList != null) {
-            for (RecordDataExistTimeSegment clipItem : clipsList) {
-                for (Long dateZeroOClockItem : clipItem.getCoverDateZeroOClockList()) {
-                    List<RecordDataExistTimeSegment> list = null;
-                    if ((list = recordDataExistTimeClipsListMap.get(dateZeroOClockItem)) == null) {
-                        list = new ArrayList<>();
-                        recordDataExistTimeClipsListMap.put(dateZeroOClockItem, list);
-                    }
-                    list.add(clipItem);
-                }
+    /**
+     * Get the most right time of the screen window the user is heading toward, extrapolated from drag and pinch velocity.
+     * Equals getScreenRightTimeInMillisecond() when the timebar is standing still.
+     */
+    public long getPredictedScreenRightTimeInMillisecond() {
+        if (!viewportPredictor.hasPrediction()) {
+            return getScreenRightTimeInMillisecond();
+        }
+        return viewportPredictor.getPredictedRightTimeInMillisecond();
+    }
 
-            }
+    /**
+     * Get the predictor to tune lookahead, hysteresis and smoothing
+     */
+    public TimebarViewportPredictor getViewportPredictor() {
+        return viewportPredictor;
+    }
+
+    /**
+     * Extrapolate the screen window from current velocity and notify listener if the prediction moved far enough.
+     */
+    private void updateViewportPrediction() {
+        if (pixelsPerSecond <= 0) {
+            return;
         }
 
+        long halfScreenDurationInMillisecond = (long) (screenWidth * 1000f / 2f / pixelsPerSecond);
+        boolean changed = viewportPredictor.predict(currentTimeInMillisecond, halfScreenDurationInMillisecond,
+                mostLeftTimeInMillisecond, mostRightTimeInMillisecond);
+
+        if (changed && mOnViewportPredictedListener != null) {
+            mOnViewportPredictedListener.onViewportPredicted(viewportPredictor.getPredictedLeftTimeInMillisecond(),
+                    viewportPredictor.getPredictedRightTimeInMillisecond(),
+                    currentTimeInMillisecond);
+        }
+    }
+
+    /**
+     * Feed the drag velocity measured by velocityTracker to the predictor.
+     * Dragging the view to the right moves the cursor toward earlier time.
+     */
+    private void addPanVelocityFromTracker() {
+        if (velocityTracker == null || pixelsPerSecond <= 0) {
+            return;
+        }
+        velocityTracker.computeCurrentVelocity(1000);
+        viewportPredictor.addPanVelocitySample(-velocityTracker.getXVelocity() * 1000f / pixelsPerSecond);
+    }
+
+    /**
+     * VelocityTracker works on view-relative coordinates, but this view moves under the finger while dragged.
+     * So track a copy of the event located at raw screen coordinates.
+     */
+    private void trackVelocity(MotionEvent event) {
+        if (velocityTracker == null) {
+            velocityTracker = VelocityTracker.obtain();
+        }
+        MotionEvent rawEvent = MotionEvent.obtain(event);
+        rawEvent.setLocation(event.getRawX(), event.getRawY());
+        velocityTracker.addMovement(rawEvent);
+        rawEvent.recycle();
+    }
+
+    private void releaseVelocityTracker() {
+        if (velocityTracker != null) {
+            velocityTracker.recycle();
+            velocityTracker = null;
+        }
+    }
+
+    private void arrangeRecordDataExistTimeClipsIntoStore(List<RecordDataExistTimeSegment> clipsList) {
+        detachLiveSegmentStore();
+        segmentStore = PackedSegmentStore.fromSegments(clipsList);
         invalidate();
     }
 
@@ -318,13 +974,330 @@ public class ScalableTimebarView extends View {
      * @param mostRightTime Time corresponding to the most right tick (latest time) in whole ScalableTimebarView (maybe outside the screen display range)
      * @param currentTime   Current time the white cursor indicating in millisecond
      */
-    public void initTimebarLengthAndPosition(long mostLeftTime, long mostRightTime, long currentTime) {
-        this.mostLeftTimeInMillisecond = mostLeftTime;
-        this.mostRightTimeInMillisecond = mostRightTime;
-        this.currentTimeInMillisecond = currentTime;
-        WHOLE_TIMEBAR_TOTAL_SECONDS = (mostRightTime - mostLeftTime) / 1000;
-        initTimebarTickCriterionMap();
-        resetToStandardWidth();
+    public void initTimebarLengthAndPosition(long mostLeftTime, long mostRightTime, long currentTime) {
+        this.mostLeftTimeInMillisecond = mostLeftTime;
+        this.mostRightTimeInMillisecond = mostRightTime;
+        this.currentTimeInMillisecond = currentTime;
+        WHOLE_TIMEBAR_TOTAL_SECONDS = (mostRightTime - mostLeftTime) / 1000;
+        updateTickLadderViewLengths();
+        resetToStandardWidth();
+    }
+
+    /**
+     * Move the ends of the timebar without reinitializing it, e.g. to follow the right end of a live stream
+     * or to trim the left end as a sliding window. Zoom level (pixels per second) and current time are kept,
+     * the current time is only clamped into the new range.
+     * <p>
+     * Unlike initTimebarLengthAndPosition(), no criterion is rebuilt and no layout pass is requested:
+     * the view frame is resized in place and the layout params are updated for later layout passes.
+     *
+     * @param mostLeftTime  new time of the most left tick, pass getMostLeftTimeInMillisecond() to keep it
+     * @param mostRightTime new time of the most right tick
+     */
+    public void extendTimebarRange(long mostLeftTime, long mostRightTime) {
+        if (mostRightTime <= mostLeftTime) {
+            return;
+        }
+        TimebarTickCriterion criterion = timebarTickLadder.get(currentTimebarTickCriterionIndex);
+        boolean atStandardLength = criterion != null && getWidth() - screenWidth == criterion.getViewLength();
+
+        this.mostLeftTimeInMillisecond = mostLeftTime;
+        this.mostRightTimeInMillisecond = mostRightTime;
+        this.currentTimeInMillisecond = Math.max(mostLeftTime, Math.min(mostRightTime, currentTimeInMillisecond));
+        WHOLE_TIMEBAR_TOTAL_SECONDS = (mostRightTime - mostLeftTime) / 1000;
+        updateTickLadderViewLengths();
+
+        ViewGroup.LayoutParams params = getLayoutParams();
+        if (notInited || pixelsPerSecond <= 0 || params == null) {
+            //Not drawn yet, the first onDraw() lays the view out with the new range
+            invalidate();
+            return;
+        }
+
+        //Stay exactly on the standard length of the current criterion, so zoom buttons keep stepping between criterions
+        int newWidth = atStandardLength ? criterion.getViewLength() : (int) (WHOLE_TIMEBAR_TOTAL_SECONDS * pixelsPerSecond);
+        //Changed in place, the next measure by the parent sees the new width without requesting a layout pass
+        params.width = newWidth;
+        int left = -getScrollOffsetInPixel();
+        layout(left, getTop(), left + newWidth + screenWidth, getBottom());
+        invalidate();
+    }
+
+    /**
+     * Show a keyframe thumbnail above every key tick, loaded by the given loader on background threads.
+     * Decoded thumbnails are kept in a cache of DEFAULT_THUMBNAIL_CACHE_SIZE_IN_BYTES.
+     *
+     * @param thumbnailLoader loader of thumbnails, or null to remove the thumbnail lane
+     */
+    public void setThumbnailLoader(ThumbnailLoader<Bitmap> thumbnailLoader) {
+        setThumbnailLoader(thumbnailLoader, DEFAULT_THUMBNAIL_CACHE_SIZE_IN_BYTES);
+    }
+
+    /**
+     * Show a keyframe thumbnail above every key tick, loaded by the given loader on background threads.
+     *
+     * @param thumbnailLoader       loader of thumbnails, or null to remove the thumbnail lane
+     * @param cacheSizeInBytes byte budget of decoded thumbnails
+     */
+    public void setThumbnailLoader(ThumbnailLoader<Bitmap> thumbnailLoader, long cacheSizeInBytes) {
+        if (thumbnailScheduler != null) {
+            thumbnailScheduler.setCallback(null);
+            thumbnailScheduler.cancelPending();
+            thumbnailScheduler = null;
+        }
+
+        if (thumbnailLoader != null) {
+            thumbnailScheduler = new ThumbnailRequestScheduler<>(thumbnailLoader,
+                    new BitmapThumbnailCache(cacheSizeInBytes, 4),
+                    ThumbnailRequestScheduler.newDecodeExecutor(2),
+                    2,
+                    32);
+            thumbnailScheduler.setThumbnailSize(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+            thumbnailScheduler.setCallback(new ThumbnailRequestScheduler.Callback<Bitmap>() {
+                @Override
+                public void onThumbnailLoaded(long keyTickTimeInMillisecond, Bitmap thumbnail) {
+                    postInvalidate();
+                }
+            });
+        }
+
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Get the scheduler of the thumbnail lane (to read its cache and counters), or null if the lane is disabled
+     */
+    public ThumbnailRequestScheduler<Bitmap> getThumbnailScheduler() {
+        return thumbnailScheduler;
+    }
+
+    private int getThumbnailLaneHeight() {
+        return thumbnailScheduler == null ? 0 : THUMBNAIL_LANE_HEIGHT;
+    }
+
+    /**
+     * Draw the thumbnail of a key tick centered above it, or a placeholder while it is being loaded
+     */
+    private void drawKeyTickThumbnail(Canvas canvas, float keyTickX, long keyTickTimeInMillisecond) {
+        float left = keyTickX - THUMBNAIL_WIDTH / 2f;
+        if (left < lastThumbnailRight + THUMBNAIL_MARGIN) {
+            return;
+        }
+        thumbnailRect.set(left, THUMBNAIL_MARGIN, left + THUMBNAIL_WIDTH, THUMBNAIL_MARGIN + THUMBNAIL_HEIGHT);
+        lastThumbnailRight = thumbnailRect.right;
+
+        Bitmap thumbnail = thumbnailScheduler.getCache().get(keyTickTimeInMillisecond);
+        if (thumbnail != null && !thumbnail.isRecycled()) {
+            canvas.drawBitmap(thumbnail, null, thumbnailRect, thumbnailPaint);
+        } else {
+            thumbnailScheduler.request(keyTickTimeInMillisecond);
+            canvas.drawRect(thumbnailRect, thumbnailPlaceholderPaint);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (thumbnailScheduler != null) {
+            thumbnailScheduler.cancelPending();
+        }
+        cancelFollowPlaybackFrame();
+        detachFollowPlaybackCursor();
+        removeCallbacks(restoreQualityRunnable);
+        if (qualityGovernor != null && qualityGovernor.restore()) {
+            qualityGovernor.applyTo(timebarRenderer);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (playbackClock != null) {
+            attachFollowPlaybackCursor();
+            scheduleFollowPlaybackFrame();
+        }
+    }
+
+    /**
+     * Let the cursor follow video playback by itself: from the given position, it advances at the given rate on
+     * every frame, without further calls from the player. Call again whenever the player seeks, changes rate or
+     * reports its position, to correct drift.
+     * <p>
+     * Instead of redrawing on every frame, the already rendered timebar is moved under a fixed cursor
+     * (API 18 and above), and is only redrawn when it is about to run out of drawn area.
+     * Following pauses while the user drags or scales the timebar, and resumes from where the timebar is dropped,
+     * right after OnBarMoveListener.OnBarMoveFinish().
+     *
+     * @param positionInMillisecond current playback position
+     * @param rate                  playback rate, 1 for normal speed, 0 while paused or buffering
+     */
+    public void followPlayback(long positionInMillisecond, float rate) {
+        if (playbackClock == null) {
+            playbackClock = new PlaybackClock();
+            attachFollowPlaybackCursor();
+        }
+        playbackClock.set(positionInMillisecond, rate, System.nanoTime());
+        if (mode != NONE) {
+            //The user is dragging, go on after the gesture
+            playbackClock.pause(System.nanoTime());
+            return;
+        }
+        moveCursorFollowingPlayback(positionInMillisecond);
+        scheduleFollowPlaybackFrame();
+    }
+
+    /**
+     * Leave follow-playback mode, the cursor stays where it is
+     */
+    public void stopFollowingPlayback() {
+        if (playbackClock == null) {
+            return;
+        }
+        playbackClock = null;
+        cancelFollowPlaybackFrame();
+        detachFollowPlaybackCursor();
+        invalidate();
+    }
+
+    public boolean isFollowingPlayback() {
+        return playbackClock != null;
+    }
+
+    /**
+     * Whether following playback is paused because the user is dragging or scaling the timebar
+     */
+    public boolean isFollowingPlaybackPaused() {
+        return playbackClock != null && playbackClock.isPaused();
+    }
+
+    private void pauseFollowingPlayback() {
+        if (playbackClock != null) {
+            playbackClock.pause(System.nanoTime());
+            cancelFollowPlaybackFrame();
+        }
+    }
+
+    private void resumeFollowingPlayback() {
+        if (playbackClock != null && playbackClock.isPaused()) {
+            playbackClock.resume(currentTimeInMillisecond, System.nanoTime());
+            scheduleFollowPlaybackFrame();
+        }
+    }
+
+    private void scheduleFollowPlaybackFrame() {
+        if (followPlaybackFrameScheduled || playbackClock == null || playbackClock.isPaused()) {
+            return;
+        }
+        followPlaybackFrameScheduled = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (followPlaybackFrameCallback == null) {
+                followPlaybackFrameCallback = new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        onFollowPlaybackFrame(frameTimeNanos);
+                    }
+                };
+            }
+            Choreographer.getInstance().postFrameCallback(followPlaybackFrameCallback);
+        } else {
+            if (followPlaybackRunnable == null) {
+                followPlaybackRunnable = new Runnable() {
+                    @Override
+                    public void run() {
+                        onFollowPlaybackFrame(System.nanoTime());
+                    }
+                };
+            }
+            postDelayed(followPlaybackRunnable, FOLLOW_PLAYBACK_FRAME_DELAY_IN_MILLISECOND);
+        }
+    }
+
+    private void cancelFollowPlaybackFrame() {
+        if (!followPlaybackFrameScheduled) {
+            return;
+        }
+        followPlaybackFrameScheduled = false;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            Choreographer.getInstance().removeFrameCallback(followPlaybackFrameCallback);
+        } else {
+            removeCallbacks(followPlaybackRunnable);
+        }
+    }
+
+    private void onFollowPlaybackFrame(long frameTimeInNanosecond) {
+        followPlaybackFrameScheduled = false;
+        if (playbackClock == null || playbackClock.isPaused()) {
+            return;
+        }
+        long position = playbackClock.getPositionAt(frameTimeInNanosecond);
+        position = Math.max(mostLeftTimeInMillisecond, Math.min(mostRightTimeInMillisecond, position));
+        moveCursorFollowingPlayback(position);
+        scheduleFollowPlaybackFrame();
+    }
+
+    /**
+     * Move the cursor to a playback position, by translating the rendered frame if it still covers the screen
+     */
+    private void moveCursorFollowingPlayback(long positionInMillisecond) {
+        if (positionInMillisecond == currentTimeInMillisecond) {
+            return;
+        }
+        currentTimeInMillisecond = positionInMillisecond;
+        if (notInited || pixelsPerSecond <= 0 || followPlaybackCursorDrawable == null) {
+            invalidate();
+            return;
+        }
+
+        int newLeft = -getScrollOffsetInPixel();
+        TimebarTickCriterion criterion = timebarTickLadder.get(currentTimebarTickCriterionIndex);
+        if (Math.abs(newLeft - lastDrawnLeft) < timebarRenderer.getOverdrawInPixel(criterion, pixelsPerSecond)) {
+            if (newLeft != getLeft()) {
+                offsetLeftAndRight(newLeft - getLeft());
+            }
+        } else {
+            invalidate();
+        }
+    }
+
+    /**
+     * Distance from the left end of the timebar strip to the left edge of screen, the view is laid out at its negative.
+     * Counted in milliseconds, so that the cursor moves every frame during playback instead of once per second.
+     */
+    private int getScrollOffsetInPixel() {
+        return (int) ((currentTimeInMillisecond - mostLeftTimeInMillisecond) * pixelsPerSecond / 1000f);
+    }
+
+    private void attachFollowPlaybackCursor() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2
+                || followPlaybackCursorDrawable != null
+                || !(getParent() instanceof ViewGroup)) {
+            return;
+        }
+        followPlaybackCursorDrawable = new BitmapDrawable(getResources(), middle_cursor_bitmap);
+        followPlaybackCursorDrawable.setVisible(middleCursorVisible, false);
+        ((ViewGroup) getParent()).getOverlay().add(followPlaybackCursorDrawable);
+        invalidate();
+    }
+
+    private void detachFollowPlaybackCursor() {
+        if (followPlaybackCursorDrawable == null) {
+            return;
+        }
+        if (getParent() instanceof ViewGroup) {
+            ((ViewGroup) getParent()).getOverlay().remove(followPlaybackCursorDrawable);
+        }
+        followPlaybackCursorDrawable = null;
+    }
+
+    /**
+     * Place the overlay cursor over the middle of the screen, where onDraw() would have drawn it
+     */
+    private void updateFollowPlaybackCursorBounds() {
+        int left = getLeft() + (int) timebarViewport.getCursorX() - middle_cursor_bitmap.getWidth() / 2;
+        int top = getTop() + getHeight() - VIEW_HEIGHT;
+        followPlaybackCursorDrawable.setBounds(left, top, left + middle_cursor_bitmap.getWidth(), top + VIEW_HEIGHT);
+        followPlaybackCursorDrawable.setVisible(middleCursorVisible, false);
     }
 
     public int getCurrentTimebarTickCriterionIndex() {
@@ -335,9 +1308,38 @@ public class ScalableTimebarView extends View {
         this.currentTimebarTickCriterionIndex = currentTimebarTickCriterionIndex;
     }
 
+    public TimebarTickLadder getTickLadder() {
+        return timebarTickLadder;
+    }
+
+    /**
+     * Replace the scale criterions the view zooms between, e.g. with TimebarTickLadder.createCalendar() to browse
+     * archives of months or years with week, month and year ticks. The view switches to the criterion closest
+     * to its current zoom.
+     *
+     * @param tickLadder criterions used by this view only, their view lengths are computed for it
+     */
+    public void setTickLadder(TimebarTickLadder tickLadder) {
+        timebarTickLadder = tickLadder;
+        updateTickLadderViewLengths();
+
+        ViewGroup.LayoutParams params = getLayoutParams();
+        int viewLength = getWidth() > screenWidth ? getWidth() - screenWidth : params != null ? params.width : 0;
+        if (viewLength <= 0) {
+            //Not initialized yet, initTimebarLengthAndPosition() applies a standard length
+            setCurrentTimebarTickCriterionIndex(Math.min(currentTimebarTickCriterionIndex, tickLadder.size() - 1));
+            return;
+        }
+        applyTimebarWidth(selectCriterionForViewLength(viewLength));
+        invalidate();
+    }
+
     private void init(AttributeSet attrs) {
-        screenWidth = DeviceUtil.getScreenResolution(getContext())[0];
-        screenHeight = DeviceUtil.getScreenResolution(getContext())[1];
+        TimebarResourcePool resourcePool = TimebarResourcePool.getInstance(getContext());
+        int[] screenResolution = resourcePool.getScreenResolution(getContext());
+        screenWidth = screenResolution[0];
+        screenHeight = screenResolution[1];
+        middle_cursor_bitmap = resourcePool.getMiddleCursorBitmap(DeviceUtil.dip2px(MIDDLE_CURSOR_BITMAP_SCALED_WIDTH_IN_DP), VIEW_HEIGHT);
 
         // By default we use scale criterion[3] to show ticks.
         // By default, the current cursor is set to 3 hours before System.currentTimeMillis(),
@@ -351,11 +1353,26 @@ public class ScalableTimebarView extends View {
 
         pixelsPerSecond = (float) (getWidth() - screenWidth) / (float) WHOLE_TIMEBAR_TOTAL_SECONDS;
 
-        initTimebarTickCriterionMap();
-        setCurrentTimebarTickCriterionIndex(3);
-
-        keyTickTextPaint.setTextSize(KEY_TICK_TEXT_SIZE);
-        keyTickTextPaint.setColor(getContext().getResources().getColor(R.color.colorWhite));
+        updateTickLadderViewLengths();
+        setCurrentTimebarTickCriterionIndex(Math.min(3, timebarTickLadder.size() - 1));
+
+        TimebarDimensions dimensions = new TimebarDimensions();
+        dimensions.setBigTickHalfWidth(BIG_TICK_HALF_WIDTH);
+        dimensions.setBigTickHeight(BIG_TICK_HEIGHT);
+        dimensions.setSmallTickHalfWidth(SMALL_TICK_HALF_WIDTH);
+        dimensions.setSmallTickHeight(SMALL_TICK_HEIGHT);
+        dimensions.setKeyTickTextSize(KEY_TICK_TEXT_SIZE);
+        dimensions.setTickTextToTickMargin(TICK_TEXT_TO_TICK_MARGIN);
+        dimensions.setRecordbarToTickTextMargin(COLORED_RECORDBAR_TO_TICK_TEXT_MARGIN);
+        dimensions.setRecordbarHeight(COLORED_RECORDBAR_HEIGHT);
+        timebarRenderer = new TimebarRenderer(dimensions, resourcePool.getLabelFormatter());
+        timebarRenderer.setTracer(AndroidTimebarTracer.INSTANCE);
+        canvasDrawSink = new TimebarCanvasSink(resourcePool, KEY_TICK_TEXT_SIZE);
+        thumbnailPlaceholderPaint = resourcePool.getThumbnailPlaceholderPaint();
+        eventMarkerDrawer = new EventMarkerDrawer(resourcePool);
+        heatmapDrawer = new HeatmapDrawer(resourcePool);
+        selectionPaint = resourcePool.getSelectionPaint();
+        selectionHandlePaint = resourcePool.getSelectionHandlePaint();
 
         /*GestureDetector.SimpleOnGestureListener gestureDetectorListener = new GestureDetector.SimpleOnGestureListener() {
             @Override
@@ -396,7 +1413,10 @@ public class ScalableTimebarView extends View {
         ScaleGestureDetector.OnScaleGestureListener scaleGestureListener = new ScaleGestureDetector.OnScaleGestureListener() {
             @Override
             public boolean onScale(ScaleGestureDetector detector) {
+                viewportPredictor.addScaleSample(detector.getScaleFactor(), detector.getTimeDelta());
                 scaleTimebarByFactor(detector.getScaleFactor(), false);
+                updateViewportPrediction();
+                publishToViewportGroup();
                 return true;
             }
 
@@ -408,6 +1428,7 @@ public class ScalableTimebarView extends View {
             @Override
             public void onScaleEnd(ScaleGestureDetector detector) {
                 justScaledByPressingButton = true;
+                viewportPredictor.resetVelocity();
             }
 
 
@@ -426,123 +1447,52 @@ public class ScalableTimebarView extends View {
     public void scaleTimebarByFactor(float scaleFactor, boolean scaleByClickButton) {
         int newWidth = (int) ((getWidth() - screenWidth) * scaleFactor);
 
-        if (newWidth > timebarTickCriterionMap.get(0).getViewLength()) {
-            setCurrentTimebarTickCriterionIndex(0);
-            newWidth = timebarTickCriterionMap.get(0).getViewLength();
-
-        } else if (newWidth < timebarTickCriterionMap.get(0).getViewLength()
-                && newWidth >= getAverageWidthForTwoCriterion(0, 1)) {
-            setCurrentTimebarTickCriterionIndex(0);
-
-        } else if (newWidth < getAverageWidthForTwoCriterion(0, 1)
-                && newWidth >= getAverageWidthForTwoCriterion(1, 2)) {
-            setCurrentTimebarTickCriterionIndex(1);
-
-        } else if (newWidth < getAverageWidthForTwoCriterion(1, 2)
-                && newWidth >= getAverageWidthForTwoCriterion(2, 3)) {
-            setCurrentTimebarTickCriterionIndex(2);
-
-        } else if (newWidth < getAverageWidthForTwoCriterion(2, 3)
-                && newWidth >= getAverageWidthForTwoCriterion(3, 4)) {
-            setCurrentTimebarTickCriterionIndex(3);
-
-        } else if (newWidth < getAverageWidthForTwoCriterion(3, 4)
-                && newWidth >= timebarTickCriterionMap.get(4).getViewLength()) {
-            setCurrentTimebarTickCriterionIndex(4);
-
-        } else if (newWidth < timebarTickCriterionMap.get(4).getViewLength()) {
-            setCurrentTimebarTickCriterionIndex(4);
-            newWidth = timebarTickCriterionMap.get(4).getViewLength();
-
-        }
+        newWidth = selectCriterionForViewLength(newWidth);
 
         if (scaleByClickButton) {
             justScaledByPressingButton = true;
         }
 
 
-        ViewGroup.LayoutParams params = getLayoutParams();
-        params.width = newWidth;
-        setLayoutParams(params);
+        applyTimebarWidth(newWidth);
 
     }
 
-    private float getAverageWidthForTwoCriterion(int criterion1Index, int criterion2Index) {
-        int width1 = timebarTickCriterionMap.get(criterion1Index).getViewLength();
-        int width2 = timebarTickCriterionMap.get(criterion2Index).getViewLength();
-        return (width1 + width2) / 2;
+    /**
+     * Switch to the scale criterion closest to a view length, and clamp the length to the range of the criterions
+     *
+     * @param newWidth view length excluding the half-screen empty parts on both ends
+     * @return view length to apply
+     */
+    private int selectCriterionForViewLength(int newWidth) {
+        newWidth = timebarTickLadder.clampViewLength(newWidth);
+        setCurrentTimebarTickCriterionIndex(timebarTickLadder.selectIndex(newWidth));
+        return newWidth;
     }
 
     /**
-     * <p>
-     * According to the level of scaling, preset 5 scale criterions to show ticks on timebar, respectively, as follows:
-     * <p>
-     * [<b>Glossary</b>]<br/>
-     * LoTSW: The Length of Time can be displayed throughout the Screen Width   <br/>
-     * TILT: The Time Interval between two Large Ticks(Also called key ticks)  <br/>
-     * TIST: The Time Interval between two Small Ticks  <br/>
-     * <pre>
-     * （0）LoTSW：10 minutes      TILT：1 minutes          TIST：6 seconds
-     * （1）LoTSW：1 hours         TILT：10 minutes         TIST：1 minutes
-     * （2）LoTSW：6 hours         TILT：1 hours            TIST：5 minutes
-     * （3）LoTSW：36 hours        TILT：6 hours            TIST：30 minutes
-     * （4）LoTSW：6 days          TILT：1 days             TIST：2 hours
-     * </pre>
-     */
-    private void initTimebarTickCriterionMap() {
-        TimebarTickCriterion t0 = new TimebarTickCriterion();
-        t0.setTotalSecondsInOneScreen(10 * 60);
-        t0.setKeyTickInSecond(1 * 60);
-        t0.setMinTickInSecond(6);
-        t0.setDataPattern("HH:mm");
-        t0.setViewLength((int) ((float) screenWidth * WHOLE_TIMEBAR_TOTAL_SECONDS / (float) t0.getTotalSecondsInOneScreen()));
-        timebarTickCriterionMap.put(0, t0);
-
-        TimebarTickCriterion t1 = new TimebarTickCriterion();
-        t1.setTotalSecondsInOneScreen(60 * 60);
-        t1.setKeyTickInSecond(10 * 60);
-        t1.setMinTickInSecond(60);
-        t1.setDataPattern("HH:mm");
-        t1.setViewLength((int) ((float) screenWidth * WHOLE_TIMEBAR_TOTAL_SECONDS / (float) t1.getTotalSecondsInOneScreen()));
-        timebarTickCriterionMap.put(1, t1);
-
-        TimebarTickCriterion t2 = new TimebarTickCriterion();
-        t2.setTotalSecondsInOneScreen(6 * 60 * 60);
-        t2.setKeyTickInSecond(60 * 60);
-        t2.setMinTickInSecond(5 * 60);
-        t2.setDataPattern("HH:mm");
-        t2.setViewLength((int) ((float) screenWidth * WHOLE_TIMEBAR_TOTAL_SECONDS / (float) t2.getTotalSecondsInOneScreen()));
-        timebarTickCriterionMap.put(2, t2);
-
-        TimebarTickCriterion t3 = new TimebarTickCriterion();
-        t3.setTotalSecondsInOneScreen(36 * 60 * 60);
-        t3.setKeyTickInSecond(6 * 60 * 60);
-        t3.setMinTickInSecond(30 * 60);
-        t3.setDataPattern("HH:mm");
-        t3.setViewLength((int) ((float) screenWidth * WHOLE_TIMEBAR_TOTAL_SECONDS / (float) t3.getTotalSecondsInOneScreen()));
-        timebarTickCriterionMap.put(3, t3);
-
-        TimebarTickCriterion t4 = new TimebarTickCriterion();
-        t4.setTotalSecondsInOneScreen(6 * 24 * 60 * 60);
-        t4.setKeyTickInSecond(24 * 60 * 60);
-        t4.setMinTickInSecond(2 * 60 * 60);
-        t4.setDataPattern("MM.dd");
-        // t4.dataPattern = "MM.dd HH:mm:ss";
-        t4.setViewLength((int) ((float) screenWidth * WHOLE_TIMEBAR_TOTAL_SECONDS / (float) t4.getTotalSecondsInOneScreen()));
-        timebarTickCriterionMap.put(4, t4);
-
-        timebarTickCriterionCount = timebarTickCriterionMap.size();
+     * Change the view length (excluding the half-screen empty parts on both ends), which triggers a layout pass
+     */
+    private void applyTimebarWidth(int newWidth) {
+        scaleLayoutRequested = true;
+        ViewGroup.LayoutParams params = getLayoutParams();
+        params.width = newWidth;
+        setLayoutParams(params);
     }
 
+    /**
+     * Compute the view lengths of the scale criterions for the current screen width and timebar length
+     */
+    private void updateTickLadderViewLengths() {
+        timebarTickLadder.updateViewLengths(screenWidth, WHOLE_TIMEBAR_TOTAL_SECONDS);
+    }
 
     /**
      * Reset view width to default value
      */
     private void resetToStandardWidth() {
-        setCurrentTimebarTickCriterionIndex(2);
-        ViewGroup.LayoutParams params = getLayoutParams();
-        params.width = timebarTickCriterionMap.get(currentTimebarTickCriterionIndex).getViewLength();
-        setLayoutParams(params);
+        setCurrentTimebarTickCriterionIndex(Math.min(2, timebarTickLadder.size() - 1));
+        applyTimebarWidth(timebarTickLadder.get(currentTimebarTickCriterionIndex).getViewLength());
 
     }
 
@@ -561,13 +1511,94 @@ public class ScalableTimebarView extends View {
      * @param currentTimeInMillisecond current time you want to indicate by cursor
      */
     public void setCurrentTimeInMillisecond(long currentTimeInMillisecond) {
+        if (playbackClock != null) {
+            //Following playback: take it as a position report of the player at the current rate
+            followPlayback(currentTimeInMillisecond, playbackClock.getRate());
+            return;
+        }
         this.currentTimeInMillisecond = currentTimeInMillisecond;
         invalidate();
     }
 
+    /**
+     * Show a range with drag handles at both ends, e.g. to pick the part of the recording to export.
+     * Dragging a handle moves that end of the range, dragging elsewhere still moves the timebar.
+     * If no range was selected yet, the middle half of the screen is selected, once the view has been measured.
+     */
+    public void setRangeSelectionEnabled(boolean rangeSelectionEnabled) {
+        this.rangeSelectionEnabled = rangeSelectionEnabled;
+        draggedSelectionHandle = SELECTION_HANDLE_NONE;
+        selectDefaultRangeIfNone();
+        invalidate();
+    }
+
+    /**
+     * Select the middle half of the screen if range selection is enabled but no range was selected yet.
+     * The screen range is unknown until the view is measured, the first onDraw() calls it again.
+     */
+    private void selectDefaultRangeIfNone() {
+        if (!rangeSelectionEnabled || selectionEndTimeInMillisecond > selectionStartTimeInMillisecond
+                || notInited || pixelsPerSecond <= 0) {
+            return;
+        }
+        long screenLeftTime = getScreenLeftTimeInMillisecond();
+        long screenRightTime = getScreenRightTimeInMillisecond();
+        long quarterScreen = (screenRightTime - screenLeftTime) / 4;
+        selectionStartTimeInMillisecond = screenLeftTime + quarterScreen;
+        selectionEndTimeInMillisecond = screenRightTime - quarterScreen;
+    }
+
+    public boolean isRangeSelectionEnabled() {
+        return rangeSelectionEnabled;
+    }
+
+    /**
+     * Select a range, shown once range selection is enabled
+     *
+     * @param startTimeInMillisecond start of the range
+     * @param endTimeInMillisecond   end of the range, excluded
+     */
+    public void setSelectedRange(long startTimeInMillisecond, long endTimeInMillisecond) {
+        if (endTimeInMillisecond <= startTimeInMillisecond) {
+            throw new IllegalArgumentException("Selected range ends before it starts");
+        }
+        selectionStartTimeInMillisecond = startTimeInMillisecond;
+        selectionEndTimeInMillisecond = endTimeInMillisecond;
+        invalidate();
+    }
+
+    public long getSelectionStartTimeInMillisecond() {
+        return selectionStartTimeInMillisecond;
+    }
+
+    public long getSelectionEndTimeInMillisecond() {
+        return selectionEndTimeInMillisecond;
+    }
+
+    /**
+     * Segments overlapping the selected range, clipped to it. The cursor reads the segment store in place and is
+     * reused by every call: walk it on the UI thread before calling again, or the range or segments change.
+     */
+    public SegmentRangeCursor getSelectedSegments() {
+        selectionCursor.reset(segmentStore, selectionStartTimeInMillisecond, selectionEndTimeInMillisecond);
+        return selectionCursor;
+    }
+
+    /**
+     * Recorded time in the selected range, overlapping segments counted once
+     */
+    public long getSelectedRecordedDurationInMillisecond() {
+        return getSelectedSegments().getTotalDurationInMillisecond();
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        setMeasuredDimension(measureWidth(widthMeasureSpec), VIEW_HEIGHT);
+        if (scaleLayoutRequested) {
+            scaleLayoutRequested = false;
+            pendingScaleLayoutPassCount++;
+        }
+
+        setMeasuredDimension(measureWidth(widthMeasureSpec), VIEW_HEIGHT + getThumbnailLaneHeight());
 
         if (justScaledByPressingButton && mOnBarScaledListener != null) {
             justScaledByPressingButton = false;
@@ -603,18 +1634,6 @@ public class ScalableTimebarView extends View {
         return result;
     }
 
-    /**
-     * Convert time in millisecond to display string.
-     * The display string style is controlled by current scale criterion.
-     *
-     * @param value time in millisecond need to convert
-     * @return display string
-     */
-    private String getTimeStringFromLong(long value) {
-        SimpleDateFormat timeFormat = new SimpleDateFormat(timebarTickCriterionMap.get(currentTimebarTickCriterionIndex).getDataPattern());
-        return timeFormat.format(value);
-    }
-
     /**
      * Set if you want middle cursor bitmap to be visible
      * @param middleCursorVisible true:visible
@@ -631,175 +1650,274 @@ public class ScalableTimebarView extends View {
 
         if (notInited) {
             notInited = false;
-            resetToStandardWidth();
+            if (restoredViewLength > 0) {
+                applyTimebarWidth(restoredViewLength);
+                restoredViewLength = 0;
+            } else {
+                resetToStandardWidth();
+            }
             return;
         }
 
-        pixelsPerSecond = (float) (getWidth() - screenWidth) / (float) WHOLE_TIMEBAR_TOTAL_SECONDS;
-
-        //Get the number of milliseconds between the phone's local time zone and UTC
-        Calendar cal = Calendar.getInstance();
-        int zoneOffsetInSeconds = cal.get(Calendar.ZONE_OFFSET) / 1000;
-        long forStartUTC = (long) (currentTimeInMillisecond / 1000 - screenWidth / pixelsPerSecond / 2 - timebarTickCriterionMap.get(currentTimebarTickCriterionIndex).getMinTickInSecond());
-        long forEndUTC = (long) (currentTimeInMillisecond / 1000 + screenWidth / pixelsPerSecond / 2 + timebarTickCriterionMap.get(currentTimebarTickCriterionIndex).getMinTickInSecond());
-
-        long forStartLocalTimezone = forStartUTC + zoneOffsetInSeconds;
-        long forEndLocalTimezone = forEndUTC + zoneOffsetInSeconds;
-
-        //Look for the first tick to show on screen
-        long firstTickToSeeInSecondUTC = -1;
-        for (long i = forStartLocalTimezone; i <= forEndLocalTimezone; i++) {
-            if (i % timebarTickCriterionMap.get(currentTimebarTickCriterionIndex).getMinTickInSecond() == 0) {
-                firstTickToSeeInSecondUTC = i - zoneOffsetInSeconds;
-                break;
-
+        AndroidTimebarTracer.INSTANCE.beginSection("Timebar#onDraw");
+        boolean collectMetrics = mOnFrameMetricsListener != null;
+        long frameStartTime = collectMetrics || qualityGovernor != null ? System.nanoTime() : 0;
+        long thumbnailCacheHitCountBefore = 0;
+        long thumbnailCacheMissCountBefore = 0;
+        if (collectMetrics) {
+            if (thumbnailScheduler != null) {
+                thumbnailCacheHitCountBefore = thumbnailScheduler.getCache().getHitCount();
+                thumbnailCacheMissCountBefore = thumbnailScheduler.getCache().getMissCount();
             }
+        }
+        timebarRenderer.setRenderStats(collectMetrics ? frameRenderStats : null);
 
+        pixelsPerSecond = (float) (getWidth() - screenWidth) / (float) WHOLE_TIMEBAR_TOTAL_SECONDS;
+        syncTimebarViewport();
+
+        TimebarTickCriterion criterion = timebarTickLadder.get(currentTimebarTickCriterionIndex);
+        if (thumbnailScheduler != null) {
+            long keyTickInMillisecond = criterion.getKeyTickInSecond() * 1000L;
+            thumbnailScheduler.setVisibleRange(getScreenLeftTimeInMillisecond() - keyTickInMillisecond,
+                    getScreenRightTimeInMillisecond() + keyTickInMillisecond);
+            lastThumbnailRight = -Float.MAX_VALUE;
         }
 
         /**
-         * Draw timebar body , large ticks, small ticks, and time text corresponding to large ticks
+         * Draw timebar body , large ticks, small ticks, time text corresponding to large ticks, and recordbar
          */
-        int totalTickToDrawInOneScreen = (int) (screenWidth / pixelsPerSecond / timebarTickCriterionMap.get(currentTimebarTickCriterionIndex).getMinTickInSecond()) + 2;
-        float keytextY = getHeight() - BIG_TICK_HEIGHT - TICK_TEXT_TO_TICK_MARGIN;
-        for (int i = -20; i <= totalTickToDrawInOneScreen + 10; i++) {
-            long drawTickTimeInSecondUTC = firstTickToSeeInSecondUTC + i * timebarTickCriterionMap.get(currentTimebarTickCriterionIndex).getMinTickInSecond();
-            long drawTickTimeInSecondLocalTimezone = drawTickTimeInSecondUTC + zoneOffsetInSeconds;
-
-            if (drawTickTimeInSecondLocalTimezone % timebarTickCriterionMap.get(currentTimebarTickCriterionIndex).getKeyTickInSecond() == 0) {//关键刻度
-                //draw large ticks
-                timebarPaint.setColor(getContext().getResources().getColor(R.color.color_33ffffff));
-                timebarPaint.setStyle(Paint.Style.FILL);
-                float startX = pixelsPerSecond * (drawTickTimeInSecondUTC - mostLeftTimeInMillisecond / 1000) + screenWidth / 2f;
-                RectF largeTickRect = new RectF(startX - BIG_TICK_HALF_WIDTH / 2, getHeight() - BIG_TICK_HEIGHT, (startX + BIG_TICK_HALF_WIDTH / 2), getHeight());
-                canvas.drawRect(largeTickRect, timebarPaint);
-
-                //draw time text
-                String keytext = getTimeStringFromLong(drawTickTimeInSecondUTC * 1000);
-                float keyTextWidth = keyTickTextPaint.measureText(keytext);
-                float keytextX = startX - keyTextWidth / 2;
-
-
-                canvas.drawText(keytext,
-                        keytextX,
-                        keytextY,
-                        keyTickTextPaint);
-            } else if (drawTickTimeInSecondLocalTimezone % timebarTickCriterionMap.get(currentTimebarTickCriterionIndex).getMinTickInSecond() == 0) {
-                //draw small ticks
-                timebarPaint.setColor(getContext().getResources().getColor(R.color.color_33ffffff));
-                timebarPaint.setStyle(Paint.Style.FILL);
-                float startX = pixelsPerSecond * (drawTickTimeInSecondUTC - mostLeftTimeInMillisecond / 1000) + screenWidth / 2f;
-                RectF smallTickRect = new RectF(startX - SMALL_TICK_HALF_WIDTH / 2, getHeight() - SMALL_TICK_HEIGHT, (startX + SMALL_TICK_HALF_WIDTH / 2), getHeight());
-                canvas.drawRect(smallTickRect, timebarPaint);
-            }
+        if (liveSegmentStore != null) {
+            //Also rearms the listener, changes from now on invalidate the next frame
+            liveSegmentStore.readSnapshot(liveSegmentSnapshot);
+        }
+        canvasDrawSink.setCanvas(canvas);
+        timebarRenderer.render(timebarViewport, criterion, segmentStore, canvasDrawSink);
+        canvasDrawSink.setCanvas(null);
+
+        if (densityHistogram != null) {
+            drawHeatmap(canvas, criterion);
+        }
+        if (eventMarkerClusterIndex.getStore().size() > 0) {
+            drawEventMarkers(canvas, criterion);
+        }
+        if (rangeSelectionEnabled) {
+            selectDefaultRangeIfNone();
+            drawSelection(canvas);
         }
 
         /**
-         * Draw recordbar
+         * Draw white cursor bitmap indicating current time in the middle of screen
          */
-        //Draw grey background
-        long startDrawTimeInSeconds = firstTickToSeeInSecondUTC + (-20) * timebarTickCriterionMap.get(currentTimebarTickCriterionIndex).getMinTickInSecond();//灰色背景从哪个时间点开始，单位是毫秒
-        float startX = pixelsPerSecond * (startDrawTimeInSeconds - mostLeftTimeInMillisecond / 1000) + screenWidth / 2f;
-        RectF cloudRecordTimeClipsBarBackgroundRectF = new RectF(startX,
-                getHeight() - BIG_TICK_HEIGHT - TICK_TEXT_TO_TICK_MARGIN - KEY_TICK_TEXT_SIZE - COLORED_RECORDBAR_TO_TICK_TEXT_MARGIN - COLORED_RECORDBAR_HEIGHT,
-                (startX + screenWidth + timebarTickCriterionMap.get(currentTimebarTickCriterionIndex).getMinTickInSecond() * 40 * pixelsPerSecond),
-                getHeight() - BIG_TICK_HEIGHT - TICK_TEXT_TO_TICK_MARGIN - KEY_TICK_TEXT_SIZE - COLORED_RECORDBAR_TO_TICK_TEXT_MARGIN);
-        timebarPaint.setColor(getContext().getResources().getColor(R.color.colorGrayTransparent));
-        timebarPaint.setStyle(Paint.Style.FILL);
-        canvas.drawRect(cloudRecordTimeClipsBarBackgroundRectF, timebarPaint);
-
-
-        if (recordDataExistTimeClipsList != null && recordDataExistTimeClipsList.size() > 0) {
-            //Draw colored record segments
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-            SimpleDateFormat zeroTimeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            String startDrawTimeDateString = dateFormat.format(startDrawTimeInSeconds * 1000);
-            String zeroTimeString = startDrawTimeDateString + " 00:00:00";
-
-            long screenLastSecondToSee = (long) (startDrawTimeInSeconds + screenWidth / pixelsPerSecond + 30 * timebarTickCriterionMap.get(currentTimebarTickCriterionIndex).getMinTickInSecond()) * 1000L;
-
-            Date startDate;
-            try {
-
-                //Find the date of most left (earlist) time on screen. Then get the list in cloudRecordExistTimeClipsListMap whose key is 00:00 of this date.
-                //Get the first item in the list, using it as start condition to search which record segment should be the first to draw on recordbar.
-                startDate = zeroTimeFormat.parse(zeroTimeString);
-                List<RecordDataExistTimeSegment> startList = recordDataExistTimeClipsListMap.get(startDate.getTime());
-                if (startList == null) {
-                    int afterFindDays = 1;
-                    long findTimeInMilliseconds = startDate.getTime();
-                    long newFindStartMilliseconds = findTimeInMilliseconds;
-                    while (startList == null && newFindStartMilliseconds < screenLastSecondToSee) {
-                        newFindStartMilliseconds = findTimeInMilliseconds + (long) SECONDS_PER_DAY * 1000L * (long) afterFindDays;
-                        startList = recordDataExistTimeClipsListMap.get(newFindStartMilliseconds);
-                        afterFindDays++;
-                    }
-                }
+        if (middleCursorVisible && followPlaybackCursorDrawable == null) {
+            canvas.drawBitmap(middle_cursor_bitmap,
+                    timebarViewport.getCursorX() - middle_cursor_bitmap.getWidth() / 2,
+                    getHeight() - VIEW_HEIGHT,
+                    cursorPaint);
+        }
 
-                if (startList != null && startList.size() > 0) {
-                    int thisDateFirstClipStartIndex = recordDataExistTimeClipsList.indexOf(startList.get(0));
-
-                   /*
-                    int firstClipToDrawIndex = -1;
-                    for (int i = thisDateFirstClipStartIndex; i < recordDataExistTimeClipsList.size(); i++) {
-                        if (recordDataExistTimeClipsList.get(i).endTimeInMillisecond < startDrawTimeInSeconds * 1000) {
-                            continue;
-                        } else {
-                            firstClipToDrawIndex = i;
-                            break;
-                        }
-                    }*/
-
-
-                    //The first record segment should be drawn is found. Now let's start to draw colorful record segments!
-                    long endDrawTimeInSeconds = (long) (startDrawTimeInSeconds
-                            + screenWidth / pixelsPerSecond
-                            + timebarTickCriterionMap.get(currentTimebarTickCriterionIndex).getMinTickInSecond() * 30);
-
-                    timebarPaint.setColor(getContext().getResources().getColor(R.color.colorRecordGreen));
-                    timebarPaint.setStyle(Paint.Style.FILL);
-
-                    for (int i = thisDateFirstClipStartIndex; i < recordDataExistTimeClipsList.size(); i++) {
-                        float leftX = pixelsPerSecond * (recordDataExistTimeClipsList.get(i).getStartTimeInMillisecond() - mostLeftTimeInMillisecond) / 1000 + screenWidth / 2f;
-                        float rightX = pixelsPerSecond * (recordDataExistTimeClipsList.get(i).getEndTimeInMillisecond() - mostLeftTimeInMillisecond) / 1000 + screenWidth / 2f;
-                        RectF rectF = new RectF(leftX,
-                                getHeight() - BIG_TICK_HEIGHT - TICK_TEXT_TO_TICK_MARGIN - KEY_TICK_TEXT_SIZE - COLORED_RECORDBAR_TO_TICK_TEXT_MARGIN - COLORED_RECORDBAR_HEIGHT,
-                                rightX,
-                                getHeight() - BIG_TICK_HEIGHT - TICK_TEXT_TO_TICK_MARGIN - KEY_TICK_TEXT_SIZE - COLORED_RECORDBAR_TO_TICK_TEXT_MARGIN);
-                        canvas.drawRect(rectF, timebarPaint);
-                        if (recordDataExistTimeClipsList.get(i).getEndTimeInMillisecond() >= endDrawTimeInSeconds * 1000) {
-                            break;
-                        }
-                    }
-                }
 
+        /**
+         * According to the currentTimeInMillisecond variable, layout the view in appropriate location
+         */
+        int scrollOffset = getScrollOffsetInPixel();
+        layout(-scrollOffset, getTop(), getWidth() - scrollOffset, getTop() + getHeight());
+        lastDrawnLeft = getLeft();
+        if (followPlaybackCursorDrawable != null) {
+            updateFollowPlaybackCursorBounds();
+        }
 
-            } catch (ParseException e) {
-                e.printStackTrace();
+        long frameDuration = frameStartTime != 0 ? System.nanoTime() - frameStartTime : 0;
+        if (collectMetrics) {
+            frameRenderStats.setFrameDurationInNanosecond(frameDuration);
+            frameRenderStats.setQualityLevel(qualityGovernor != null ? qualityGovernor.getLevel() : TimebarQualityGovernor.LEVEL_FULL);
+            if (thumbnailScheduler != null) {
+                frameRenderStats.setThumbnailCacheHitCount((int) (thumbnailScheduler.getCache().getHitCount() - thumbnailCacheHitCountBefore));
+                frameRenderStats.setThumbnailCacheMissCount((int) (thumbnailScheduler.getCache().getMissCount() - thumbnailCacheMissCountBefore));
             }
+            frameRenderStats.setScaleLayoutPassCount(pendingScaleLayoutPassCount);
+            pendingScaleLayoutPassCount = 0;
+            frameMetrics.record(frameRenderStats);
+            mOnFrameMetricsListener.onFrameMetrics(frameRenderStats, frameMetrics);
+        }
+        if (qualityGovernor != null && qualityGovernor.onFrameDrawn(frameDuration)) {
+            //Takes effect from the next frame, this one is already drawn
+            qualityGovernor.applyTo(timebarRenderer);
+            removeCallbacks(restoreQualityRunnable);
+            postDelayed(restoreQualityRunnable, QUALITY_RESTORE_DELAY_IN_MILLISECOND);
+        }
+        AndroidTimebarTracer.INSTANCE.endSection();
+    }
+
+    /**
+     * Copy position and zoom of this view into timebarViewport for timebarRenderer
+     */
+    private void syncTimebarViewport() {
+        timebarViewport.setMostLeftTimeInMillisecond(mostLeftTimeInMillisecond);
+        timebarViewport.setMostRightTimeInMillisecond(mostRightTimeInMillisecond);
+        timebarViewport.setCurrentTimeInMillisecond(currentTimeInMillisecond);
+        timebarViewport.setScreenWidth(screenWidth);
+        timebarViewport.setViewHeight(getHeight());
+        timebarViewport.setPixelsPerSecond(pixelsPerSecond);
+    }
+
+    /**
+     * Draw the clusters of point events in and around the screen
+     */
+    private void drawEventMarkers(Canvas canvas, TimebarTickCriterion criterion) {
+        long overdrawInMillisecond = (long) (timebarRenderer.getOverdrawInPixel(criterion, pixelsPerSecond) * 1000 / pixelsPerSecond);
+        eventMarkerDrawer.canvas = canvas;
+        eventMarkerDrawer.centerY = timebarRenderer.getDimensions().getRecordbarTop(getHeight());
+        eventMarkerClusterIndex.forEachCluster(currentTimebarTickCriterionIndex, criterion, screenWidth,
+                getScreenLeftTimeInMillisecond() - overdrawInMillisecond,
+                getScreenRightTimeInMillisecond() + overdrawInMillisecond,
+                eventMarkerDrawer);
+        eventMarkerDrawer.canvas = null;
+    }
+
+    /**
+     * Shade the selected range and draw its handles just outside both ends
+     */
+    private void drawSelection(Canvas canvas) {
+        float startX = timebarViewport.millisecondToX(selectionStartTimeInMillisecond);
+        float endX = timebarViewport.millisecondToX(selectionEndTimeInMillisecond);
+        float top = getHeight() - VIEW_HEIGHT;
+        canvas.drawRect(startX, top, endX, getHeight(), selectionPaint);
+        canvas.drawRect(startX - SELECTION_HANDLE_WIDTH, top, startX, getHeight(), selectionHandlePaint);
+        canvas.drawRect(endX, top, endX + SELECTION_HANDLE_WIDTH, getHeight(), selectionHandlePaint);
+    }
+
+    /**
+     * Handle under a touch at x in view coordinates, the closer one if both are in reach
+     */
+    private int findSelectionHandleAt(float x) {
+        syncTimebarViewport();
+        float startDistance = Math.abs(timebarViewport.millisecondToX(selectionStartTimeInMillisecond) - SELECTION_HANDLE_WIDTH / 2f - x);
+        float endDistance = Math.abs(timebarViewport.millisecondToX(selectionEndTimeInMillisecond) + SELECTION_HANDLE_WIDTH / 2f - x);
+        if (Math.min(startDistance, endDistance) > SELECTION_HANDLE_TOUCH_SLOP) {
+            return SELECTION_HANDLE_NONE;
+        }
+        return startDistance <= endDistance ? SELECTION_HANDLE_START : SELECTION_HANDLE_END;
+    }
+
+    /**
+     * Move the dragged handle to x in view coordinates, within the timebar and not closer to the other handle
+     * than MIN_SELECTED_RANGE_IN_MILLISECOND
+     */
+    private void moveSelectionHandle(float x) {
+        //The timebar may still move under the handle while following playback
+        syncTimebarViewport();
+        long time = timebarViewport.xToMillisecond(x);
+        time = Math.max(mostLeftTimeInMillisecond, Math.min(mostRightTimeInMillisecond, time));
+        if (draggedSelectionHandle == SELECTION_HANDLE_START) {
+            selectionStartTimeInMillisecond = Math.min(time, selectionEndTimeInMillisecond - MIN_SELECTED_RANGE_IN_MILLISECOND);
+        } else {
+            selectionEndTimeInMillisecond = Math.max(time, selectionStartTimeInMillisecond + MIN_SELECTED_RANGE_IN_MILLISECOND);
         }
+        invalidate();
+        if (mOnRangeSelectionChangeListener != null) {
+            mOnRangeSelectionChangeListener.onRangeSelectionChanged(selectionStartTimeInMillisecond, selectionEndTimeInMillisecond,
+                    getSelectedRecordedDurationInMillisecond());
+        }
+    }
+
+    /**
+     * Draw the heatmap buckets in and around the screen, at the level fitting the current zoom
+     */
+    private void drawHeatmap(Canvas canvas, TimebarTickCriterion criterion) {
+        long overdrawInMillisecond = (long) (timebarRenderer.getOverdrawInPixel(criterion, pixelsPerSecond) * 1000 / pixelsPerSecond);
+        heatmapDrawer.canvas = canvas;
+        heatmapDrawer.bottom = timebarRenderer.getDimensions().getRecordbarBottom(getHeight());
+        heatmapDrawer.top = heatmapDrawer.bottom - HEATMAP_LANE_HEIGHT;
+        densityHistogram.forEachBucket(DensityHistogram.selectLevel(pixelsPerSecond),
+                getScreenLeftTimeInMillisecond() - overdrawInMillisecond,
+                getScreenRightTimeInMillisecond() + overdrawInMillisecond,
+                heatmapDrawer);
+        heatmapDrawer.canvas = null;
+    }
 
+    /**
+     * Draws one rect per bucket, more opaque the higher its count relative to the busiest bucket
+     */
+    private class HeatmapDrawer implements DensityHistogram.BucketVisitor {
         /**
-         * Draw white cursor bitmap indicating current time in the middle of screen
+         * Alpha of the least active bucket, so that sparse activity stays visible
          */
-        if (middleCursorVisible) {
-            timebarPaint.setColor(getContext().getResources().getColor(R.color.colorRecordGreen));
-            timebarPaint.setStyle(Paint.Style.FILL);
-            canvas.drawBitmap(middle_cursor_bitmap,
-                    (currentTimeInMillisecond / 1000L - mostLeftTimeInMillisecond / 1000L) * pixelsPerSecond + screenWidth / 2f - middle_cursor_bitmap.getWidth() / 2,
-                    0,
-                    timebarPaint);
+        private static final int MIN_ALPHA = 48;
+
+        private final Paint heatmapPaint;
+        Canvas canvas;
+        float top;
+        float bottom;
+
+        HeatmapDrawer(TimebarResourcePool resourcePool) {
+            //A copy, the alpha changes per bucket and the pool's paints are shared by all views
+            heatmapPaint = new Paint(resourcePool.getHeatmapPaint());
         }
 
+        @Override
+        public void onBucket(long bucketStartTimeInMillisecond, long bucketDurationInMillisecond, int count, int maxCount) {
+            heatmapPaint.setAlpha(MIN_ALPHA + (int) ((255L - MIN_ALPHA) * count / maxCount));
+            canvas.drawRect(timebarViewport.millisecondToX(bucketStartTimeInMillisecond), top,
+                    timebarViewport.millisecondToX(bucketStartTimeInMillisecond + bucketDurationInMillisecond), bottom,
+                    heatmapPaint);
+        }
+    }
 
+    /**
+     * Draws one badge per cluster, with the event count if there is more than one event
+     */
+    private class EventMarkerDrawer implements EventMarkerClusterIndex.ClusterVisitor {
         /**
-         * According to the currentTimeInMillisecond variable, layout the view in appropriate location
+         * Counts above this are shown as this number followed by "+"
          */
-        layout((int) (0 - (currentTimeInMillisecond - mostLeftTimeInMillisecond) / 1000 * pixelsPerSecond),
-                getTop(),
-                getWidth() - (int) ((currentTimeInMillisecond - mostLeftTimeInMillisecond) / 1000 * pixelsPerSecond),
-                getTop() + getHeight());
+        private static final int MAX_COUNT_LABEL = 99;
+
+        private final String[] countLabels = new String[MAX_COUNT_LABEL + 2];
+        private final Paint badgePaint;
+        private final TextPaint countTextPaint;
+        private final float countTextBaselineOffset;
+        Canvas canvas;
+        float centerY;
+
+        EventMarkerDrawer(TimebarResourcePool resourcePool) {
+            badgePaint = resourcePool.getEventMarkerPaint();
+            countTextPaint = resourcePool.getEventMarkerCountTextPaint(EVENT_MARKER_RADIUS * 1.2f);
+            countTextBaselineOffset = -(countTextPaint.descent() + countTextPaint.ascent()) / 2;
+        }
+
+        @Override
+        public void onCluster(long bucketStartTimeInMillisecond, long bucketDurationInMillisecond, int count) {
+            float x = timebarViewport.millisecondToX(bucketStartTimeInMillisecond + bucketDurationInMillisecond / 2);
+            canvas.drawCircle(x, centerY, EVENT_MARKER_RADIUS, badgePaint);
+            if (count > 1) {
+                canvas.drawText(getCountLabel(count), x, centerY + countTextBaselineOffset, countTextPaint);
+            }
+        }
+
+        private String getCountLabel(int count) {
+            int index = Math.min(count, MAX_COUNT_LABEL + 1);
+            if (countLabels[index] == null) {
+                countLabels[index] = count > MAX_COUNT_LABEL ? MAX_COUNT_LABEL + "+" : String.valueOf(count);
+            }
+            return countLabels[index];
+        }
+    }
+
+    /**
+     * Canvas sink which also draws keyframe thumbnails above key ticks
+     */
+    private class TimebarCanvasSink extends CanvasDrawSink {
+
+        TimebarCanvasSink(TimebarResourcePool resourcePool, float keyTickTextSize) {
+            super(resourcePool, keyTickTextSize);
+        }
 
+        @Override
+        public void onKeyTick(long timeInMillisecond, float x) {
+            if (thumbnailScheduler != null) {
+                drawKeyTickThumbnail(getCanvas(), x, timeInMillisecond);
+            }
+        }
     }
 
     /**
@@ -814,10 +1932,12 @@ public class ScalableTimebarView extends View {
     private static final int NONE = 0;
     private static final int DRAG = 1;
     private static final int ZOOM = 2;
+    private static final int SELECT = 3;
 
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
+        lastInputUptimeInMillisecond = SystemClock.uptimeMillis();
 
         scaleGestureDetector.onTouchEvent(event);
 
@@ -828,17 +1948,33 @@ public class ScalableTimebarView extends View {
 
         switch (event.getAction() & MotionEvent.ACTION_MASK) {
             case MotionEvent.ACTION_DOWN:
+                if (rangeSelectionEnabled) {
+                    draggedSelectionHandle = findSelectionHandleAt(event.getX());
+                    if (draggedSelectionHandle != SELECTION_HANDLE_NONE) {
+                        mode = SELECT;
+                        break;
+                    }
+                }
+                pauseFollowingPlayback();
                 mode = DRAG;
                 lastX = event.getRawX();
                 lastY = event.getRawY();
+                releaseVelocityTracker();
+                trackVelocity(event);
+                viewportPredictor.resetVelocity();
                 break;
             case MotionEvent.ACTION_POINTER_DOWN:
-                mode = ZOOM;
+                if (mode != SELECT) {
+                    mode = ZOOM;
+                }
                 break;
             case MotionEvent.ACTION_MOVE:
                 if (mode == ZOOM) {
 
+                } else if (mode == SELECT) {
+                    moveSelectionHandle(event.getX());
                 } else if (mode == DRAG) {
+                    trackVelocity(event);
                     int dx = (int) (event.getRawX() - lastX);
                     int dy = (int) (event.getRawY() - lastY);
 
@@ -875,9 +2011,21 @@ public class ScalableTimebarView extends View {
                         mOnBarMoveListener.onBarMove(getScreenLeftTimeInMillisecond(), getScreenRightTimeInMillisecond(), currentTimeInMillisecond);
                     }
 
+                    addPanVelocityFromTracker();
+                    updateViewportPrediction();
+                    publishToViewportGroup();
                 }
                 break;
             case MotionEvent.ACTION_UP:
+                if (mode == SELECT) {
+                    draggedSelectionHandle = SELECTION_HANDLE_NONE;
+                    mode = NONE;
+                    if (mOnRangeSelectionChangeListener != null) {
+                        mOnRangeSelectionChangeListener.onRangeSelectionFinish(selectionStartTimeInMillisecond, selectionEndTimeInMillisecond,
+                                getSelectedRecordedDurationInMillisecond());
+                    }
+                    break;
+                }
                 if (mode == DRAG) {
                     int deltaX_up = (0 - getLeft());
                     int timeBarLength_up = getWidth() - screenWidth;
@@ -887,8 +2035,22 @@ public class ScalableTimebarView extends View {
                         mOnBarMoveListener.OnBarMoveFinish(getScreenLeftTimeInMillisecond(), getScreenRightTimeInMillisecond(), currentTimeInMillisecond);
                     }
 
+                    //Report where the release (fling) velocity points to, then settle since the bar stops here
+                    trackVelocity(event);
+                    addPanVelocityFromTracker();
+                    updateViewportPrediction();
+                    viewportPredictor.resetVelocity();
                 }
+                releaseVelocityTracker();
+                mode = NONE;
+                resumeFollowingPlayback();
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                draggedSelectionHandle = SELECTION_HANDLE_NONE;
+                releaseVelocityTracker();
+                viewportPredictor.resetVelocity();
                 mode = NONE;
+                resumeFollowingPlayback();
                 break;
         }
 
@@ -905,101 +2067,24 @@ public class ScalableTimebarView extends View {
      *               false：zoomOut
      */
     public void scaleByPressingButton(boolean zoomIn) {
-        /**
-         * Standard view length of current scale criterion (maybe not equals to current view real length)
-         */
-        int currentCriterionViewLength = timebarTickCriterionMap.get(getCurrentTimebarTickCriterionIndex()).getViewLength();//当前所在刻度标准的默认长度（不含两端空出的screenWidth）
+        stepScaleCriterion(zoomIn);
+        publishToViewportGroup();
+    }
 
+    private void stepScaleCriterion(boolean zoomIn) {
         /**
          * Current view real length (Excluding one screen width empty parts on both end)
          */
         int currentViewLength = getWidth() - screenWidth;
 
-        //Currently the view length is equal to one of 5 scale criterions standard length. So jump to next criterion standard length.
-        if (currentViewLength == currentCriterionViewLength) {
-            if (zoomIn) {//zoom in
-                int newCriteriaIndex = getCurrentTimebarTickCriterionIndex() - 1;
-                if (newCriteriaIndex < 0) {
-                    return;
-                } else {
-                    setCurrentTimebarTickCriterionIndex(newCriteriaIndex);
-                    int newWidth = timebarTickCriterionMap.get(newCriteriaIndex).getViewLength();
-                    justScaledByPressingButton = true;
-
-                    ViewGroup.LayoutParams params = getLayoutParams();
-                    params.width = newWidth;
-                    setLayoutParams(params);
-                }
-            } else {//zoom out
-
-                int newCriteriaIndex = getCurrentTimebarTickCriterionIndex() + 1;
-                if (newCriteriaIndex >= timebarTickCriterionCount) {
-                    return;
-                } else {
-                    setCurrentTimebarTickCriterionIndex(newCriteriaIndex);
-                    int newWidth = timebarTickCriterionMap.get(newCriteriaIndex).getViewLength();
-                    justScaledByPressingButton = true;
-
-                    ViewGroup.LayoutParams params = getLayoutParams();
-                    params.width = newWidth;
-                    setLayoutParams(params);
-                }
-            }
-        } else {//Currently the view length is NOT equal to one of 5 scale criterions standard length. So maybe don't jump to new scale criterion, just recover to standard length of current scale criterion
-            if (currentViewLength > currentCriterionViewLength) {//currentViewLength > currentCriterionViewLength
-
-                if (zoomIn) {//zoom in, jump to next scale criterion
-                    int newCriteriaIndex = getCurrentTimebarTickCriterionIndex() - 1;
-                    if (newCriteriaIndex < 0) {
-                        return;
-                    } else {
-                        setCurrentTimebarTickCriterionIndex(newCriteriaIndex);
-                        int newWidth = timebarTickCriterionMap.get(newCriteriaIndex).getViewLength();
-                        justScaledByPressingButton = true;
-
-                        ViewGroup.LayoutParams params = getLayoutParams();
-                        params.width = newWidth;
-                        setLayoutParams(params);
-                    }
-                } else {//zoom out, just recover to standard length of current scale criterion
-                    int newWidth = timebarTickCriterionMap.get(getCurrentTimebarTickCriterionIndex()).getViewLength();
-                    justScaledByPressingButton = true;
-
-                    ViewGroup.LayoutParams params = getLayoutParams();
-                    params.width = newWidth;
-                    setLayoutParams(params);
-                }
-
-            } else {//currentViewLength < currentCriterionViewLength
-
-                if (zoomIn) {//zoom in, just recover to standard length of current scale criterion
-                    int newWidth = timebarTickCriterionMap.get(getCurrentTimebarTickCriterionIndex()).getViewLength();
-                    justScaledByPressingButton = true;
-
-                    ViewGroup.LayoutParams params = getLayoutParams();
-                    params.width = newWidth;
-                    setLayoutParams(params);
-
-
-                } else {//zoom out, just to next scale criterion
-                    int newCriteriaIndex = getCurrentTimebarTickCriterionIndex() + 1;
-                    if (newCriteriaIndex >= timebarTickCriterionCount) {
-                        return;
-                    } else {
-                        setCurrentTimebarTickCriterionIndex(newCriteriaIndex);
-                        int newWidth = timebarTickCriterionMap.get(newCriteriaIndex).getViewLength();
-                        justScaledByPressingButton = true;
-
-                        ViewGroup.LayoutParams params = getLayoutParams();
-                        params.width = newWidth;
-                        setLayoutParams(params);
-                    }
-                }
-
-            }
+        //Jump to the next criterion, or recover to the standard length of the current one if scaled past it the other way
+        int newCriteriaIndex = timebarTickLadder.stepIndex(getCurrentTimebarTickCriterionIndex(), currentViewLength, zoomIn);
+        if (newCriteriaIndex < 0) {
+            return;
         }
-
-
+        setCurrentTimebarTickCriterionIndex(newCriteriaIndex);
+        justScaledByPressingButton = true;
+        applyTimebarWidth(timebarTickLadder.get(newCriteriaIndex).getViewLength());
     }
 
 
@@ -1057,6 +2142,120 @@ public class ScalableTimebarView extends View {
         mOnBarScaledListener = onBarScaledListener;
     }
 
+    /**
+     * Listener to prefetch data for the screen window the user is heading toward
+     */
+    public interface OnViewportPredictedListener {
+        /**
+         * Called when the predicted screen window moves noticeably (filtered by hysteresis of TimebarViewportPredictor)
+         *
+         * @param predictedLeftTime  most left time of the predicted screen window
+         * @param predictedRightTime most right time of the predicted screen window
+         * @param currentTime        current time
+         */
+        void onViewportPredicted(long predictedLeftTime, long predictedRightTime, long currentTime);
+    }
+
+    public void setOnViewportPredictedListener(OnViewportPredictedListener onViewportPredictedListener) {
+        mOnViewportPredictedListener = onViewportPredictedListener;
+    }
+
+    /**
+     * Listener while dragging a handle of the selected range and when the drag ends
+     */
+    public interface OnRangeSelectionChangeListener {
+        /**
+         * Called on every move of a handle, use getSelectedSegments() to walk the segments in the range
+         *
+         * @param startTime                     start of the selected range
+         * @param endTime                       end of the selected range
+         * @param recordedDurationInMillisecond recorded time in the range
+         */
+        void onRangeSelectionChanged(long startTime, long endTime, long recordedDurationInMillisecond);
+
+        /**
+         * Called when the handle is released
+         *
+         * @param startTime                     start of the selected range
+         * @param endTime                       end of the selected range
+         * @param recordedDurationInMillisecond recorded time in the range
+         */
+        void onRangeSelectionFinish(long startTime, long endTime, long recordedDurationInMillisecond);
+    }
+
+    public void setOnRangeSelectionChangeListener(OnRangeSelectionChangeListener onRangeSelectionChangeListener) {
+        mOnRangeSelectionChangeListener = onRangeSelectionChangeListener;
+    }
+
+    /**
+     * Listener receiving draw metrics of every frame, e.g. to export them to telemetry
+     */
+    public interface OnFrameMetricsListener {
+        /**
+         * Called at the end of every onDraw() while this listener is set
+         *
+         * @param frame      counters of the frame just drawn, reused for the next frame so copy what you keep
+         * @param aggregated histograms and totals of all frames since the last TimebarFrameMetrics.reset()
+         */
+        void onFrameMetrics(TimebarRenderStats frame, TimebarFrameMetrics aggregated);
+    }
+
+    /**
+     * Set a listener to collect per-frame metrics, or null to disable collection.
+     * Without a listener no clock is read and nothing is counted beyond a few int increments in the renderer.
+     */
+    public void setOnFrameMetricsListener(OnFrameMetricsListener onFrameMetricsListener) {
+        mOnFrameMetricsListener = onFrameMetricsListener;
+    }
+
+    /**
+     * Get metrics aggregated over frames drawn while an OnFrameMetricsListener was set
+     */
+    public TimebarFrameMetrics getFrameMetrics() {
+        return frameMetrics;
+    }
+
+    /**
+     * Keep onDraw() within a time budget by lowering detail while frames are slow (e.g. criterion 0 with dense
+     * data during a fast drag). Full detail is restored once touch input has been idle for a moment.
+     *
+     * @param qualityGovernor governor with the frame budget to keep, or null to always draw full detail
+     */
+    public void setQualityGovernor(TimebarQualityGovernor qualityGovernor) {
+        if (this.qualityGovernor != null) {
+            removeCallbacks(restoreQualityRunnable);
+        }
+        this.qualityGovernor = qualityGovernor;
+        if (qualityGovernor != null) {
+            qualityGovernor.restore();
+            qualityGovernor.applyTo(timebarRenderer);
+        } else {
+            timebarRenderer.setDrawMinorTicks(true);
+            timebarRenderer.setSegmentMergeGapInPixel(TimebarRenderer.DEFAULT_SEGMENT_MERGE_GAP_IN_PIXEL);
+            timebarRenderer.setDropCollidingLabels(false);
+        }
+        invalidate();
+    }
+
+    public TimebarQualityGovernor getQualityGovernor() {
+        return qualityGovernor;
+    }
+
+    private void restoreQualityIfInputIdle() {
+        if (qualityGovernor == null) {
+            return;
+        }
+        long idleTime = SystemClock.uptimeMillis() - lastInputUptimeInMillisecond;
+        if (idleTime < QUALITY_RESTORE_DELAY_IN_MILLISECOND) {
+            postDelayed(restoreQualityRunnable, QUALITY_RESTORE_DELAY_IN_MILLISECOND - idleTime);
+            return;
+        }
+        if (qualityGovernor.restore()) {
+            qualityGovernor.applyTo(timebarRenderer);
+            invalidate();
+        }
+    }
+
 
 }
 
@@ -0,0 +1,23 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar;
+
+/**
+ * Pluggable player driven by ScrubSeekScheduler while the user scrubs the timebar.
+ * <p>
+ * seekTo() is called on the thread which reported the timebar move (the UI thread for ScalableTimebarView),
+ * and must return without waiting for the seek. When the seek is done, the player calls
+ * ScrubSeekScheduler.onSeekComplete() from any thread.
+ */
+public interface ScrubSeekPlayer {
+    /**
+     * Start seeking to a time
+     *
+     * @param timeInMillisecond target time
+     * @param precise           false for a fast seek while scrubbing (the target is a keyframe if keyframes are
+     *                          known), true for the final seek when the user released the timebar
+     */
+    void seekTo(long timeInMillisecond, boolean precise);
+}
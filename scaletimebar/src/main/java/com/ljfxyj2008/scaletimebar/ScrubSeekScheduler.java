@@ -0,0 +1,295 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar;
+
+import com.ljfxyj2008.scaletimebar.core.TimebarMetricsHistogram;
+
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Turns timebar moves into player seeks without letting the player fall behind.
+ * <p>
+ * At most one seek is in flight. Targets reported while a seek is running replace each other, so when it completes
+ * only the latest target is sought, stale ones are never sent. While scrubbing, targets are snapped to the nearest
+ * keyframe of their segment (if keyframes were set), which players seek to much faster, and a target snapping to
+ * the keyframe already sought is skipped. Targets between segments are sought as they are. When the user releases
+ * the timebar, a precise seek to the exact time follows.
+ * <p>
+ * Set it as ScalableTimebarView.OnBarMoveListener, or call scrubTo() and seekPrecisely() directly.
+ * All methods are thread safe, the player is never called while holding the lock.
+ */
+public class ScrubSeekScheduler implements ScalableTimebarView.OnBarMoveListener {
+    private final ScrubSeekPlayer player;
+
+    /**
+     * End and sorted keyframe times of a segment
+     */
+    private static class SegmentKeyframes {
+        final long endTimeInMillisecond;
+        final long[] keyframes;
+
+        SegmentKeyframes(long endTimeInMillisecond, long[] keyframes) {
+            this.endTimeInMillisecond = endTimeInMillisecond;
+            this.keyframes = keyframes;
+        }
+    }
+
+    /**
+     * Keyframes of segments keyed by the start time of their segment. Guarded by this.
+     */
+    private final TreeMap<Long, SegmentKeyframes> keyframesBySegmentStart = new TreeMap<>();
+
+    private boolean seekInFlight = false;
+    private long inFlightIssueTime;
+
+    /**
+     * Request time of the target of the seek in flight
+     */
+    private long inFlightRequestTime;
+
+    private boolean hasPendingSeek = false;
+    private long pendingTarget;
+    private boolean pendingPrecise;
+    private long pendingRequestTime;
+
+    /**
+     * Last target sent to the player, to skip sending it again
+     */
+    private boolean hasLastTarget = false;
+    private long lastTarget;
+    private boolean lastPrecise;
+
+    private long requestCount;
+    private long issuedCount;
+    private long replacedCount;
+    private long skippedCount;
+    private long completedCount;
+
+    /**
+     * Nanoseconds from issuing a seek to its completion
+     */
+    private final TimebarMetricsHistogram seekLatency = new TimebarMetricsHistogram();
+
+    /**
+     * Nanoseconds from a request to the completion of the seek serving it, including the wait for the previous seek
+     */
+    private final TimebarMetricsHistogram requestLatency = new TimebarMetricsHistogram();
+
+    public ScrubSeekScheduler(ScrubSeekPlayer player) {
+        this.player = player;
+    }
+
+    /**
+     * Set the keyframe times of a segment, replacing earlier ones of the same segment
+     *
+     * @param segmentStartTimeInMillisecond start time of the segment
+     * @param segmentEndTimeInMillisecond   end time of the segment, excluded. Targets past it are not snapped.
+     * @param keyframeTimesInMillisecond    keyframe times in the segment, in any order, copied
+     */
+    public synchronized void setSegmentKeyframes(long segmentStartTimeInMillisecond, long segmentEndTimeInMillisecond,
+                                                 long[] keyframeTimesInMillisecond) {
+        long[] keyframes = keyframeTimesInMillisecond.clone();
+        Arrays.sort(keyframes);
+        keyframesBySegmentStart.put(segmentStartTimeInMillisecond, new SegmentKeyframes(segmentEndTimeInMillisecond, keyframes));
+    }
+
+    public synchronized void clearKeyframes() {
+        keyframesBySegmentStart.clear();
+    }
+
+    /**
+     * Keyframe closest to a time among the keyframes of the segment containing it, or the time itself
+     * if it is in no segment (e.g. in a gap between recordings) or its segment has no keyframes
+     */
+    public synchronized long snapToKeyframe(long timeInMillisecond) {
+        //headMap() instead of floorEntry(), NavigableMap needs API 9
+        SortedMap<Long, SegmentKeyframes> segmentsStartedBefore = timeInMillisecond == Long.MAX_VALUE
+                ? keyframesBySegmentStart : keyframesBySegmentStart.headMap(timeInMillisecond + 1);
+        if (segmentsStartedBefore.isEmpty()) {
+            return timeInMillisecond;
+        }
+        SegmentKeyframes segment = segmentsStartedBefore.get(segmentsStartedBefore.lastKey());
+        long[] keyframes = segment.keyframes;
+        if (timeInMillisecond >= segment.endTimeInMillisecond || keyframes.length == 0) {
+            //Snapping into the previous segment would seek back to a stale position
+            return timeInMillisecond;
+        }
+        int index = Arrays.binarySearch(keyframes, timeInMillisecond);
+        if (index >= 0) {
+            return keyframes[index];
+        }
+        int after = -index - 1;
+        if (after == 0) {
+            return keyframes[0];
+        }
+        if (after == keyframes.length) {
+            return keyframes[after - 1];
+        }
+        long before = keyframes[after - 1];
+        return timeInMillisecond - before <= keyframes[after] - timeInMillisecond ? before : keyframes[after];
+    }
+
+    /**
+     * Seek fast to a keyframe near a time, e.g. on every move while the user drags the timebar
+     */
+    public void scrubTo(long timeInMillisecond) {
+        request(snapToKeyframe(timeInMillisecond), false);
+    }
+
+    /**
+     * Seek to exactly a time, e.g. when the user released the timebar
+     */
+    public void seekPrecisely(long timeInMillisecond) {
+        request(timeInMillisecond, true);
+    }
+
+    private void request(long target, boolean precise) {
+        synchronized (this) {
+            requestCount++;
+            long now = nanoTime();
+            if (seekInFlight) {
+                if (hasPendingSeek) {
+                    replacedCount++;
+                } else {
+                    pendingRequestTime = now;
+                }
+                hasPendingSeek = true;
+                pendingTarget = target;
+                pendingPrecise = precise;
+                return;
+            }
+            if (isLastTarget(target, precise)) {
+                skippedCount++;
+                return;
+            }
+            startSeekLocked(target, precise, now, now);
+        }
+        player.seekTo(target, precise);
+    }
+
+    /**
+     * Called by the player when the seek in flight has completed (or failed), from any thread
+     */
+    public void onSeekComplete() {
+        long target;
+        boolean precise;
+        synchronized (this) {
+            if (!seekInFlight) {
+                return;
+            }
+            long now = nanoTime();
+            seekLatency.record(now - inFlightIssueTime);
+            requestLatency.record(now - inFlightRequestTime);
+            completedCount++;
+            seekInFlight = false;
+
+            if (!hasPendingSeek) {
+                return;
+            }
+            hasPendingSeek = false;
+            if (isLastTarget(pendingTarget, pendingPrecise)) {
+                skippedCount++;
+                return;
+            }
+            target = pendingTarget;
+            precise = pendingPrecise;
+            startSeekLocked(target, precise, pendingRequestTime, now);
+        }
+        player.seekTo(target, precise);
+    }
+
+    private void startSeekLocked(long target, boolean precise, long requestTime, long now) {
+        seekInFlight = true;
+        inFlightRequestTime = requestTime;
+        inFlightIssueTime = now;
+        hasLastTarget = true;
+        lastTarget = target;
+        lastPrecise = precise;
+        issuedCount++;
+    }
+
+    /**
+     * A fast seek to the target the player already has is useless, a precise one after a fast one is not
+     */
+    private boolean isLastTarget(long target, boolean precise) {
+        return hasLastTarget && lastTarget == target && (lastPrecise || !precise);
+    }
+
+    /**
+     * Forget the pending seek and the last target, e.g. after the player was reset.
+     * A seek still in flight is expected to complete.
+     */
+    public synchronized void cancelPending() {
+        hasPendingSeek = false;
+        hasLastTarget = false;
+    }
+
+    /**
+     * Monotonic clock of latencies, in nanoseconds
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void onBarMove(long screenLeftTime, long screenRightTime, long currentTime) {
+        scrubTo(currentTime);
+    }
+
+    @Override
+    public void OnBarMoveFinish(long screenLeftTime, long screenRightTime, long currentTime) {
+        seekPrecisely(currentTime);
+    }
+
+    public synchronized boolean isSeekInFlight() {
+        return seekInFlight;
+    }
+
+    public synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Seeks sent to the player
+     */
+    public synchronized long getIssuedCount() {
+        return issuedCount;
+    }
+
+    /**
+     * Pending targets replaced by a newer one before they were sent
+     */
+    public synchronized long getReplacedCount() {
+        return replacedCount;
+    }
+
+    /**
+     * Requests not sent because the player already had the same target
+     */
+    public synchronized long getSkippedCount() {
+        return skippedCount;
+    }
+
+    public synchronized long getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * Histogram of nanoseconds from sending a seek to its completion. Read it while holding the lock of this scheduler.
+     */
+    public TimebarMetricsHistogram getSeekLatency() {
+        return seekLatency;
+    }
+
+    /**
+     * Histogram of nanoseconds from the request of a target to the completion of its seek, including the wait
+     * for the seek before it. Read it while holding the lock of this scheduler.
+     */
+    public TimebarMetricsHistogram getRequestLatency() {
+        return requestLatency;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import com.ljfxyj2008.scaletimebar.core.PackedSegmentStore;
+
+/**
+ * Persistent record segments of several channels in SQLite, read back one time window at a time.
+ * <p>
+ * Segments are indexed on (channel, start time, end time), so a window query is a range scan of the index which
+ * never touches the table, and its rows are copied straight from the cursor into the arrays of a
+ * PackedSegmentStore, without segment objects. To bound the scan on the left, the longest segment duration of
+ * every channel is kept next to the segments: a segment ending inside the window cannot start earlier than the
+ * window start minus that duration.
+ * <p>
+ * Inserts of a recorder are meant to be batched with insertSegments(), which writes a whole batch in one
+ * transaction with a precompiled statement.
+ * <p>
+ * Both reads and writes hit the disk, call them on a background thread and hand query results to
+ * ScalableTimebarView.setSegmentStore() on the UI thread. Instances are thread safe.
+ */
+public class SqliteSegmentSource {
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String TABLE_SEGMENTS = "segments";
+    private static final String TABLE_CHANNELS = "channels";
+    private static final String COLUMN_CHANNEL = "channel";
+    private static final String COLUMN_START_TIME = "start_time";
+    private static final String COLUMN_END_TIME = "end_time";
+    private static final String COLUMN_MAX_DURATION = "max_duration";
+
+    private static final String QUERY_WINDOW = "SELECT " + COLUMN_START_TIME + ", " + COLUMN_END_TIME
+            + " FROM " + TABLE_SEGMENTS
+            + " WHERE " + COLUMN_CHANNEL + " = ? AND " + COLUMN_START_TIME + " >= ? AND " + COLUMN_START_TIME + " <= ?"
+            + " AND " + COLUMN_END_TIME + " >= ?"
+            + " ORDER BY " + COLUMN_START_TIME + ", " + COLUMN_END_TIME;
+
+    private static final String QUERY_MAX_DURATION = "SELECT " + COLUMN_MAX_DURATION + " FROM " + TABLE_CHANNELS
+            + " WHERE " + COLUMN_CHANNEL + " = ?";
+
+    private static final String INSERT_SEGMENT = "INSERT INTO " + TABLE_SEGMENTS
+            + " (" + COLUMN_CHANNEL + ", " + COLUMN_START_TIME + ", " + COLUMN_END_TIME + ") VALUES (?, ?, ?)";
+
+    private static final String UPDATE_MAX_DURATION = "UPDATE " + TABLE_CHANNELS
+            + " SET " + COLUMN_MAX_DURATION + " = MAX(" + COLUMN_MAX_DURATION + ", ?) WHERE " + COLUMN_CHANNEL + " = ?";
+
+    /**
+     * Initial capacity of the arrays of a window, when the cursor does not know its row count yet
+     */
+    private static final int MIN_WINDOW_CAPACITY = 16;
+
+    private final OpenHelper openHelper;
+
+    /**
+     * @param context      any context, the application context is kept
+     * @param databaseName file name of the database, or null for a database in memory
+     */
+    public SqliteSegmentSource(Context context, String databaseName) {
+        openHelper = new OpenHelper(context.getApplicationContext(), databaseName);
+    }
+
+    private static class OpenHelper extends SQLiteOpenHelper {
+
+        OpenHelper(Context context, String databaseName) {
+            super(context, databaseName, null, DATABASE_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + TABLE_SEGMENTS + " ("
+                    + COLUMN_CHANNEL + " INTEGER NOT NULL, "
+                    + COLUMN_START_TIME + " INTEGER NOT NULL, "
+                    + COLUMN_END_TIME + " INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX " + TABLE_SEGMENTS + "_" + COLUMN_CHANNEL + "_" + COLUMN_START_TIME + "_" + COLUMN_END_TIME
+                    + " ON " + TABLE_SEGMENTS + " (" + COLUMN_CHANNEL + ", " + COLUMN_START_TIME + ", " + COLUMN_END_TIME + ")");
+            db.execSQL("CREATE TABLE " + TABLE_CHANNELS + " ("
+                    + COLUMN_CHANNEL + " INTEGER PRIMARY KEY, "
+                    + COLUMN_MAX_DURATION + " INTEGER NOT NULL)");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            //Only one version so far
+        }
+    }
+
+    /**
+     * Insert one segment. Use insertSegments() for more than a few segments, each call is a transaction of its own.
+     */
+    public void insertSegment(int channel, long startTimeInMillisecond, long endTimeInMillisecond) {
+        insertSegments(channel, new long[]{startTimeInMillisecond}, new long[]{endTimeInMillisecond}, 1);
+    }
+
+    /**
+     * Insert a batch of segments of a channel in one transaction. Segments do not need to be sorted.
+     *
+     * @param channel    channel the segments belong to
+     * @param startTimes start time of every segment
+     * @param endTimes   end time of every segment
+     * @param size       number of segments used from the arrays
+     */
+    public void insertSegments(int channel, long[] startTimes, long[] endTimes, int size) {
+        if (size == 0) {
+            return;
+        }
+        SQLiteDatabase db = openHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement insert = db.compileStatement(INSERT_SEGMENT);
+            long maxDuration = 0;
+            try {
+                for (int i = 0; i < size; i++) {
+                    insert.bindLong(1, channel);
+                    insert.bindLong(2, startTimes[i]);
+                    insert.bindLong(3, endTimes[i]);
+                    insert.executeInsert();
+                    maxDuration = Math.max(maxDuration, endTimes[i] - startTimes[i]);
+                }
+            } finally {
+                insert.close();
+            }
+            updateMaxDuration(db, channel, maxDuration);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void updateMaxDuration(SQLiteDatabase db, int channel, long maxDuration) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_CHANNEL, channel);
+        values.put(COLUMN_MAX_DURATION, maxDuration);
+        db.insertWithOnConflict(TABLE_CHANNELS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+        SQLiteStatement update = db.compileStatement(UPDATE_MAX_DURATION);
+        try {
+            update.bindLong(1, maxDuration);
+            update.bindLong(2, channel);
+            update.execute();
+        } finally {
+            update.close();
+        }
+    }
+
+    /**
+     * Delete every segment of a channel
+     */
+    public void deleteChannel(int channel) {
+        SQLiteDatabase db = openHelper.getWritableDatabase();
+        String[] args = {String.valueOf(channel)};
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_SEGMENTS, COLUMN_CHANNEL + " = ?", args);
+            db.delete(TABLE_CHANNELS, COLUMN_CHANNEL + " = ?", args);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Read the segments of a channel overlapping a time window, typically the visible span plus some prefetch
+     * on both sides.
+     *
+     * @return segments overlapping [fromTimeInMillisecond, toTimeInMillisecond], sorted by start time
+     */
+    public PackedSegmentStore queryWindow(int channel, long fromTimeInMillisecond, long toTimeInMillisecond) {
+        SQLiteDatabase db = openHelper.getReadableDatabase();
+        String channelArg = String.valueOf(channel);
+        long maxDuration = queryMaxDuration(db, channelArg);
+        if (maxDuration < 0) {
+            return PackedSegmentStore.EMPTY;
+        }
+        long minStartTime = fromTimeInMillisecond < Long.MIN_VALUE + maxDuration
+                ? Long.MIN_VALUE : fromTimeInMillisecond - maxDuration;
+
+        Cursor cursor = db.rawQuery(QUERY_WINDOW, new String[]{channelArg, String.valueOf(minStartTime),
+                String.valueOf(toTimeInMillisecond), String.valueOf(fromTimeInMillisecond)});
+        try {
+            int capacity = Math.max(MIN_WINDOW_CAPACITY, cursor.getCount());
+            long[] startTimes = new long[capacity];
+            long[] endTimes = new long[capacity];
+            int size = 0;
+            while (cursor.moveToNext()) {
+                if (size == startTimes.length) {
+                    startTimes = grow(startTimes, size);
+                    endTimes = grow(endTimes, size);
+                }
+                startTimes[size] = cursor.getLong(0);
+                endTimes[size] = cursor.getLong(1);
+                size++;
+            }
+            return PackedSegmentStore.fromSortedArrays(startTimes, endTimes, size);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return longest segment duration of a channel, -1 if the channel has no segment
+     */
+    private long queryMaxDuration(SQLiteDatabase db, String channelArg) {
+        Cursor cursor = db.rawQuery(QUERY_MAX_DURATION, new String[]{channelArg});
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static long[] grow(long[] array, int size) {
+        long[] grown = new long[size * 2];
+        System.arraycopy(array, 0, grown, 0, size);
+        return grown;
+    }
+
+    /**
+     * Close the database, it is opened again by the next call
+     */
+    public void close() {
+        openHelper.close();
+    }
+}
@@ -0,0 +1,648 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.SurfaceTexture;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.Surface;
+import android.view.TextureView;
+
+import com.ljfxyj2008.scaletimebar.core.PackedSegmentStore;
+import com.ljfxyj2008.scaletimebar.core.SegmentStore;
+import com.ljfxyj2008.scaletimebar.core.TimebarDimensions;
+import com.ljfxyj2008.scaletimebar.core.TimebarInputQueue;
+import com.ljfxyj2008.scaletimebar.core.TimebarRenderer;
+import com.ljfxyj2008.scaletimebar.core.TimebarTickLadder;
+import com.ljfxyj2008.scaletimebar.core.TimebarViewport;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Timebar drawn on its own render thread into a TextureView, for screens whose UI thread is busy
+ * (e.g. with player callbacks) so that dragging and scaling a ScalableTimebarView would stutter.
+ * <p>
+ * Ticks, texts and the recordbar are drawn by the same TimebarRenderer and CanvasDrawSink as ScalableTimebarView.
+ * Touch events are handed to the render thread through a lock-free TimebarInputQueue, while range, current time
+ * and size are kept as latest values the render thread takes on its next wake-up. The render thread owns the
+ * viewport and draws whenever input arrived. Unlike ScalableTimebarView, this view is only as wide as it is shown
+ * and never moves, every frame is drawn from scratch.
+ * <p>
+ * Listeners are called on the UI thread, with the latest viewport at most once per posted message.
+ * Requires API 14 (TextureView) and a hardware accelerated window.
+ */
+@TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+public class TextureTimebarView extends TextureView implements TextureView.SurfaceTextureListener {
+    private static final int EVENT_DOWN = 1;
+    private static final int EVENT_MOVE = 2;
+    private static final int EVENT_UP = 3;
+    private static final int EVENT_POINTER_CHANGED = 4;
+    private static final int EVENT_SCALE = 5;
+    private static final int EVENT_SCALE_END = 6;
+
+    /**
+     * Touch events of a few frames, the render thread drains all of them before drawing
+     */
+    private static final int INPUT_QUEUE_CAPACITY = 256;
+
+    /**
+     * Slots kept free for EVENT_UP and EVENT_SCALE_END, which end a gesture and are never dropped.
+     * Once one is queued no other event is until the render thread catches up, so two are never exceeded.
+     */
+    private static final int GESTURE_END_RESERVED_SLOTS = 2;
+
+    private static final long NO_PENDING_VALUE = Long.MIN_VALUE;
+
+    private final int TICK_TEXT_TO_TICK_MARGIN_IN_DP = 2;
+    private final int VIEW_HEIGHT_IN_DP = 56;
+    private final int COLORED_RECORDBAR_HEIGHT_IN_DP = 21;
+    private final int KEY_TICK_TEXT_SIZE_IN_SP = 10;
+    private final int BIG_TICK_HEIGHT_IN_DP = 9;
+    private final int SMALL_TICK_HEIGHT_IN_DP = 6;
+    private final int BIG_TICK_HALF_WIDTH_IN_DP = 2;
+    private final int SMALL_TICK_HALF_WIDTH_IN_DP = 1;
+    private final int COLORED_RECORDBAR_TO_TICK_TEXT_MARGIN_IN_DP = 5;
+    private final int MIDDLE_CURSOR_BITMAP_SCALED_WIDTH_IN_DP = 13;
+
+    private final int VIEW_HEIGHT = DeviceUtil.dip2px(VIEW_HEIGHT_IN_DP);
+    private final int KEY_TICK_TEXT_SIZE = DeviceUtil.dip2px(KEY_TICK_TEXT_SIZE_IN_SP);
+
+    private final TimebarInputQueue inputQueue = new TimebarInputQueue(INPUT_QUEUE_CAPACITY);
+
+    /**
+     * Whether a drag or scale event reached the queue since the last event ending it, UI thread only.
+     * The end events are only queued for gestures the render thread knows of.
+     */
+    private boolean dragQueued;
+    private boolean scaleQueued;
+
+    /**
+     * Latest values set on the UI thread, taken by the render thread on its next wake-up. Only the latest value
+     * matters, so they are not queued and never dropped however long the surface takes to appear.
+     */
+    private final AtomicReference<long[]> pendingRange = new AtomicReference<>();
+    private final AtomicLong pendingCurrentTime = new AtomicLong(NO_PENDING_VALUE);
+
+    /**
+     * Width in the high and height in the low 32 bits
+     */
+    private final AtomicLong pendingSize = new AtomicLong(NO_PENDING_VALUE);
+
+    private ScaleGestureDetector scaleGestureDetector;
+
+    private Bitmap middleCursorBitmap;
+
+    private RenderThread renderThread;
+
+    /**
+     * Segments to draw, immutable so the render thread reads them without locking
+     */
+    private volatile SegmentStore segmentStore = PackedSegmentStore.EMPTY;
+
+    private volatile boolean middleCursorVisible = true;
+
+    /**
+     * Viewport published by the render thread after every frame, only written by the render thread
+     */
+    private volatile long currentTimeInMillisecond;
+    private volatile long screenLeftTimeInMillisecond;
+    private volatile long screenRightTimeInMillisecond;
+
+    /**
+     * Scale criterion chosen by the render thread, kept here so a new render thread (after the surface was
+     * recreated) continues at the same zoom
+     */
+    private volatile int currentTimebarTickCriterionIndex = 2;
+
+    /**
+     * Events the render thread has to report to listeners on the UI thread, see notifyListeners()
+     */
+    private volatile boolean moved, moveFinished, scaled, scaleFinished;
+    private final AtomicBoolean notificationPosted = new AtomicBoolean(false);
+    private final Runnable notifyListenersRunnable = new Runnable() {
+        @Override
+        public void run() {
+            notifyListeners();
+        }
+    };
+
+    private ScalableTimebarView.OnBarMoveListener mOnBarMoveListener;
+    private ScalableTimebarView.OnBarScaledListener mOnBarScaledListener;
+
+    private long mostLeftTimeInMillisecond;
+    private long mostRightTimeInMillisecond;
+
+    public TextureTimebarView(Context context) {
+        super(context);
+        init();
+    }
+
+    public TextureTimebarView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public TextureTimebarView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init();
+    }
+
+    private void init() {
+        setOpaque(false);
+        setSurfaceTextureListener(this);
+        middleCursorBitmap = TimebarResourcePool.getInstance(getContext())
+                .getMiddleCursorBitmap(DeviceUtil.dip2px(MIDDLE_CURSOR_BITMAP_SCALED_WIDTH_IN_DP), VIEW_HEIGHT);
+
+        // Same defaults as ScalableTimebarView: 7 days ending 3 hours after the cursor
+        long currentTime = System.currentTimeMillis() - 3 * 3600 * 1000;
+        initTimebarLengthAndPosition(currentTime + 3 * 3600 * 1000 - 7 * 24 * 3600 * 1000, currentTime + 3 * 3600 * 1000, currentTime);
+
+        scaleGestureDetector = new ScaleGestureDetector(getContext(), new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                queueTouchEvent(EVENT_SCALE, detector.getFocusX(), detector.getScaleFactor());
+                return true;
+            }
+
+            @Override
+            public void onScaleEnd(ScaleGestureDetector detector) {
+                queueTouchEvent(EVENT_SCALE_END, 0, 0);
+            }
+        });
+    }
+
+    /**
+     * Hand a touch event to the render thread and wake it up. Events queued before the surface exists are applied
+     * when the render thread starts.
+     * <p>
+     * Events ending a gesture use the reserved slots, all others leave them free. An end event is only queued
+     * if its gesture reached the queue, so the render thread never keeps dragging or scaling after a drop.
+     */
+    private void queueTouchEvent(int type, float x, float y) {
+        switch (type) {
+            case EVENT_UP:
+                if (dragQueued || scaleQueued) {
+                    inputQueue.offer(type, x, y, 0, 0);
+                    dragQueued = false;
+                    scaleQueued = false;
+                }
+                break;
+            case EVENT_SCALE_END:
+                if (scaleQueued) {
+                    inputQueue.offer(type, x, y, 0, 0);
+                    scaleQueued = false;
+                }
+                break;
+            case EVENT_SCALE:
+                if (inputQueue.offer(type, x, y, 0, 0, GESTURE_END_RESERVED_SLOTS)) {
+                    scaleQueued = true;
+                }
+                break;
+            default:
+                if (inputQueue.offer(type, x, y, 0, 0, GESTURE_END_RESERVED_SLOTS)) {
+                    dragQueued = true;
+                }
+                break;
+        }
+        requestRender();
+    }
+
+    private void requestRender() {
+        RenderThread thread = renderThread;
+        if (thread != null) {
+            thread.requestRender();
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        scaleGestureDetector.onTouchEvent(event);
+        if (scaleGestureDetector.isInProgress()) {
+            return true;
+        }
+
+        switch (event.getAction() & MotionEvent.ACTION_MASK) {
+            case MotionEvent.ACTION_DOWN:
+                queueTouchEvent(EVENT_DOWN, event.getX(), 0);
+                break;
+            case MotionEvent.ACTION_MOVE:
+                queueTouchEvent(EVENT_MOVE, event.getX(), 0);
+                break;
+            case MotionEvent.ACTION_POINTER_DOWN:
+            case MotionEvent.ACTION_POINTER_UP:
+                //getX() may follow another pointer from now on, continue dragging from wherever it is
+                queueTouchEvent(EVENT_POINTER_CHANGED, 0, 0);
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                queueTouchEvent(EVENT_UP, event.getX(), 0);
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Initializes start time, end time and current cursor time, as ScalableTimebarView.initTimebarLengthAndPosition()
+     */
+    public void initTimebarLengthAndPosition(long mostLeftTime, long mostRightTime, long currentTime) {
+        mostLeftTimeInMillisecond = mostLeftTime;
+        mostRightTimeInMillisecond = mostRightTime;
+        pendingRange.set(new long[]{mostLeftTime, mostRightTime});
+        pendingCurrentTime.set(currentTime);
+        requestRender();
+    }
+
+    /**
+     * Move the cursor to a time, e.g. the playback position. Ignored while the user is dragging or scaling.
+     */
+    public void setCurrentTimeInMillisecond(long currentTimeInMillisecond) {
+        pendingCurrentTime.set(currentTimeInMillisecond);
+        requestRender();
+    }
+
+    /**
+     * Current time as of the last frame drawn, 0 before the first frame
+     */
+    public long getCurrentTimeInMillisecond() {
+        return currentTimeInMillisecond;
+    }
+
+    public long getScreenLeftTimeInMillisecond() {
+        return screenLeftTimeInMillisecond;
+    }
+
+    public long getScreenRightTimeInMillisecond() {
+        return screenRightTimeInMillisecond;
+    }
+
+    public long getMostLeftTimeInMillisecond() {
+        return mostLeftTimeInMillisecond;
+    }
+
+    public long getMostRightTimeInMillisecond() {
+        return mostRightTimeInMillisecond;
+    }
+
+    /**
+     * Pack and draw record segments. Packing happens on the calling thread, which may be a background thread.
+     */
+    public void setRecordDataExistTimeClipsList(List<RecordDataExistTimeSegment> recordDataExistTimeClipsList) {
+        setSegmentStore(PackedSegmentStore.fromSegments(recordDataExistTimeClipsList));
+    }
+
+    public SegmentStore getSegmentStore() {
+        return segmentStore;
+    }
+
+    /**
+     * Draw record segments from an already built index, e.g. one shared with a ScalableTimebarView
+     *
+     * @param segmentStore immutable segments sorted by start time, or null to clear the recordbar
+     */
+    public void setSegmentStore(SegmentStore segmentStore) {
+        this.segmentStore = segmentStore == null ? PackedSegmentStore.EMPTY : segmentStore;
+        requestRender();
+    }
+
+    public void setMiddleCursorVisible(boolean middleCursorVisible) {
+        this.middleCursorVisible = middleCursorVisible;
+        requestRender();
+    }
+
+    public void setOnBarMoveListener(ScalableTimebarView.OnBarMoveListener onBarMoveListener) {
+        mOnBarMoveListener = onBarMoveListener;
+    }
+
+    public void setOnBarScaledListener(ScalableTimebarView.OnBarScaledListener onBarScaledListener) {
+        mOnBarScaledListener = onBarScaledListener;
+    }
+
+    /**
+     * Number of touch events dropped because the render thread fell behind
+     */
+    public int getDroppedInputCount() {
+        return inputQueue.getDroppedCount();
+    }
+
+    /**
+     * Called from the render thread after a frame which moved or scaled the timebar
+     */
+    private void postListenerNotification() {
+        if (notificationPosted.compareAndSet(false, true)) {
+            post(notifyListenersRunnable);
+        }
+    }
+
+    private void notifyListeners() {
+        notificationPosted.set(false);
+        long left = screenLeftTimeInMillisecond;
+        long right = screenRightTimeInMillisecond;
+        long current = currentTimeInMillisecond;
+        if (moved) {
+            moved = false;
+            if (mOnBarMoveListener != null) {
+                mOnBarMoveListener.onBarMove(left, right, current);
+            }
+        }
+        if (moveFinished) {
+            moveFinished = false;
+            if (mOnBarMoveListener != null) {
+                mOnBarMoveListener.OnBarMoveFinish(left, right, current);
+            }
+        }
+        if (scaled) {
+            scaled = false;
+            if (mOnBarScaledListener != null) {
+                mOnBarScaledListener.onBarScaled(left, right, current);
+            }
+        }
+        if (scaleFinished) {
+            scaleFinished = false;
+            if (mOnBarScaledListener != null) {
+                mOnBarScaledListener.onBarScaleFinish(left, right, current);
+            }
+        }
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surfaceTexture, int width, int height) {
+        renderThread = new RenderThread(new Surface(surfaceTexture), width, height);
+        renderThread.start();
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surfaceTexture, int width, int height) {
+        pendingSize.set(((long) width << 32) | (height & 0xFFFFFFFFL));
+        requestRender();
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surfaceTexture) {
+        RenderThread thread = renderThread;
+        renderThread = null;
+        if (thread != null) {
+            thread.quitAndWait();
+        }
+        return true;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surfaceTexture) {
+    }
+
+    /**
+     * Owns the viewport and all drawing objects, which are only touched on this thread
+     */
+    private class RenderThread extends Thread {
+        private final Surface surface;
+        private volatile boolean running = true;
+        private final AtomicBoolean renderRequested = new AtomicBoolean(true);
+
+        private final TimebarRenderer timebarRenderer;
+        private final CanvasDrawSink canvasDrawSink;
+        private final TimebarViewport timebarViewport = new TimebarViewport();
+        private final Paint cursorPaint = new Paint();
+        private TimebarTickLadder timebarTickLadder;
+
+        private int width;
+        private int height;
+        private long mostLeftTime;
+        private long mostRightTime;
+        private long currentTime;
+        private float pixelsPerSecond;
+
+        private boolean dragging = false;
+        private boolean scaling = false;
+        private float lastTouchX;
+
+        RenderThread(Surface surface, int width, int height) {
+            super("TimebarRenderThread");
+            this.surface = surface;
+            this.width = width;
+            this.height = height;
+
+            TimebarDimensions dimensions = new TimebarDimensions();
+            dimensions.setBigTickHalfWidth(DeviceUtil.dip2px(BIG_TICK_HALF_WIDTH_IN_DP));
+            dimensions.setBigTickHeight(DeviceUtil.dip2px(BIG_TICK_HEIGHT_IN_DP));
+            dimensions.setSmallTickHalfWidth(DeviceUtil.dip2px(SMALL_TICK_HALF_WIDTH_IN_DP));
+            dimensions.setSmallTickHeight(DeviceUtil.dip2px(SMALL_TICK_HEIGHT_IN_DP));
+            dimensions.setKeyTickTextSize(KEY_TICK_TEXT_SIZE);
+            dimensions.setTickTextToTickMargin(DeviceUtil.dip2px(TICK_TEXT_TO_TICK_MARGIN_IN_DP));
+            dimensions.setRecordbarToTickTextMargin(DeviceUtil.dip2px(COLORED_RECORDBAR_TO_TICK_TEXT_MARGIN_IN_DP));
+            dimensions.setRecordbarHeight(DeviceUtil.dip2px(COLORED_RECORDBAR_HEIGHT_IN_DP));
+            //Own renderer, formatter and paints: the shared ones of TimebarResourcePool belong to the UI thread
+            timebarRenderer = new TimebarRenderer(dimensions);
+            timebarRenderer.setTracer(AndroidTimebarTracer.INSTANCE);
+            canvasDrawSink = new CanvasDrawSink(getResources(), KEY_TICK_TEXT_SIZE);
+
+            //Continue from the viewport of the previous render thread, if any
+            mostLeftTime = mostLeftTimeInMillisecond;
+            mostRightTime = mostRightTimeInMillisecond;
+            currentTime = currentTimeInMillisecond;
+            resetCriterions();
+        }
+
+        void requestRender() {
+            if (renderRequested.compareAndSet(false, true)) {
+                LockSupport.unpark(this);
+            }
+        }
+
+        void quitAndWait() {
+            running = false;
+            LockSupport.unpark(this);
+            boolean interrupted = false;
+            while (isAlive()) {
+                try {
+                    join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            surface.release();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                if (!renderRequested.getAndSet(false)) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                drainInput();
+                if (timebarTickLadder != null && width > 0) {
+                    drawFrame();
+                }
+            }
+        }
+
+        private void drainInput() {
+            long[] range = pendingRange.getAndSet(null);
+            if (range != null) {
+                mostLeftTime = range[0];
+                mostRightTime = range[1];
+                resetCriterions();
+                currentTime = clampTime(currentTime);
+            }
+            long size = pendingSize.getAndSet(NO_PENDING_VALUE);
+            if (size != NO_PENDING_VALUE) {
+                width = (int) (size >>> 32);
+                height = (int) size;
+                resetCriterions();
+            }
+
+            boolean movedInThisFrame = false;
+            boolean scaledInThisFrame = false;
+            while (inputQueue.poll()) {
+                switch (inputQueue.getType()) {
+                    case EVENT_DOWN:
+                        dragging = true;
+                        lastTouchX = inputQueue.getX();
+                        break;
+                    case EVENT_MOVE:
+                        if (!dragging && !scaling) {
+                            dragging = true;
+                        } else if (dragging) {
+                            moveBy(inputQueue.getX() - lastTouchX);
+                            movedInThisFrame = true;
+                        }
+                        lastTouchX = inputQueue.getX();
+                        break;
+                    case EVENT_POINTER_CHANGED:
+                        dragging = false;
+                        break;
+                    case EVENT_UP:
+                        if (dragging) {
+                            moveBy(inputQueue.getX() - lastTouchX);
+                            moveFinished = true;
+                        }
+                        dragging = false;
+                        scaling = false;
+                        break;
+                    case EVENT_SCALE:
+                        dragging = false;
+                        scaling = true;
+                        scaleBy(inputQueue.getY());
+                        scaledInThisFrame = true;
+                        break;
+                    case EVENT_SCALE_END:
+                        scaling = false;
+                        scaleFinished = true;
+                        break;
+                }
+            }
+
+            //Taken even while dragging, the playback position is stale once the user lets go
+            long time = pendingCurrentTime.getAndSet(NO_PENDING_VALUE);
+            if (time != NO_PENDING_VALUE && !dragging && !scaling) {
+                currentTime = clampTime(time);
+            }
+            if (movedInThisFrame) {
+                moved = true;
+            }
+            if (scaledInThisFrame) {
+                scaled = true;
+            }
+        }
+
+        private void moveBy(float deltaX) {
+            if (pixelsPerSecond > 0) {
+                currentTime = clampTime(currentTime - (long) (deltaX * 1000 / pixelsPerSecond));
+            }
+        }
+
+        /**
+         * Scale around the cursor like ScalableTimebarView, switching criterions at the same view lengths
+         */
+        private void scaleBy(float scaleFactor) {
+            if (timebarTickLadder == null) {
+                return;
+            }
+            long wholeTimebarTotalSeconds = Math.max(1, (mostRightTime - mostLeftTime) / 1000);
+            int viewLength = timebarTickLadder.clampViewLength((int) (pixelsPerSecond * wholeTimebarTotalSeconds * scaleFactor));
+            currentTimebarTickCriterionIndex = timebarTickLadder.selectIndex(viewLength);
+            pixelsPerSecond = viewLength / (float) wholeTimebarTotalSeconds;
+        }
+
+        private void resetCriterions() {
+            if (width <= 0 || mostRightTime <= mostLeftTime) {
+                return;
+            }
+            long wholeTimebarTotalSeconds = (mostRightTime - mostLeftTime) / 1000;
+            if (timebarTickLadder == null) {
+                timebarTickLadder = TimebarTickLadder.createDefault();
+            }
+            timebarTickLadder.updateViewLengths(width, wholeTimebarTotalSeconds);
+            pixelsPerSecond = timebarTickLadder.get(currentTimebarTickCriterionIndex).getViewLength()
+                    / (float) wholeTimebarTotalSeconds;
+        }
+
+        private long clampTime(long time) {
+            return Math.max(mostLeftTime, Math.min(mostRightTime, time));
+        }
+
+        private void drawFrame() {
+            timebarViewport.setMostLeftTimeInMillisecond(mostLeftTime);
+            timebarViewport.setMostRightTimeInMillisecond(mostRightTime);
+            timebarViewport.setCurrentTimeInMillisecond(currentTime);
+            timebarViewport.setScreenWidth(width);
+            timebarViewport.setViewHeight(height);
+            timebarViewport.setPixelsPerSecond(pixelsPerSecond);
+
+            Canvas canvas;
+            try {
+                canvas = surface.lockCanvas(null);
+            } catch (Surface.OutOfResourcesException e) {
+                return;
+            } catch (IllegalArgumentException e) {
+                return;
+            }
+            if (canvas == null) {
+                return;
+            }
+            try {
+                canvas.drawColor(0, PorterDuff.Mode.CLEAR);
+
+                //The renderer draws on a strip starting half a screen before mostLeftTime, bring the cursor to the middle
+                int saveCount = canvas.save();
+                canvas.translate(width / 2f - timebarViewport.getCursorX(), 0);
+                canvasDrawSink.setCanvas(canvas);
+                timebarRenderer.render(timebarViewport, timebarTickLadder.get(currentTimebarTickCriterionIndex),
+                        segmentStore, canvasDrawSink);
+                canvasDrawSink.setCanvas(null);
+                canvas.restoreToCount(saveCount);
+
+                if (middleCursorVisible) {
+                    canvas.drawBitmap(middleCursorBitmap, width / 2f - middleCursorBitmap.getWidth() / 2,
+                            height - VIEW_HEIGHT, cursorPaint);
+                }
+            } finally {
+                surface.unlockCanvasAndPost(canvas);
+            }
+
+            currentTimeInMillisecond = currentTime;
+            screenLeftTimeInMillisecond = timebarViewport.getScreenLeftTimeInMillisecond();
+            screenRightTimeInMillisecond = timebarViewport.getScreenRightTimeInMillisecond();
+            if (moved || moveFinished || scaled || scaleFinished) {
+                postListenerNotification();
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar;
+
+/**
+ * Pluggable source of keyframe thumbnails shown on the thumbnail lane of ScalableTimebarView.
+ * <p>
+ * Implementations are always called on a background thread of ThumbnailRequestScheduler, never on the UI thread.
+ *
+ * @param <T> image type, android.graphics.Bitmap for ScalableTimebarView
+ */
+public interface ThumbnailLoader<T> {
+    /**
+     * Load the thumbnail of the key tick at the given time.
+     *
+     * @param keyTickTimeInMillisecond time of the key tick the thumbnail belongs to
+     * @param width                    expected thumbnail width in pixel
+     * @param height                   expected thumbnail height in pixel
+     * @param reusable                 an evicted thumbnail of the same size that can be decoded into
+     *                                 (e.g. as BitmapFactory.Options.inBitmap), or null
+     * @return the thumbnail, or null if there is no image for this time (treated like a failure)
+     * @throws Exception if loading failed, the time will not be requested again until ThumbnailRequestScheduler.cancelPending()
+     */
+    T loadThumbnail(long keyTickTimeInMillisecond, int width, int height, T reusable) throws Exception;
+}
@@ -0,0 +1,173 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Byte-budgeted LRU cache of thumbnails keyed by key tick time.
+ * <p>
+ * Entries evicted to stay within the budget are not thrown away directly. Up to maxReusableCount of them are kept
+ * in a reuse pool, so the next decode can write into an existing image instead of allocating a new one.
+ * <p>
+ * All methods are thread safe: thumbnails are put from decode threads and read from the UI thread.
+ *
+ * @param <T> image type
+ */
+public abstract class ThumbnailLruCache<T> {
+    /**
+     * Access-ordered map, the eldest entry is the least recently used one
+     */
+    private final LinkedHashMap<Long, T> thumbnailMap = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Evicted thumbnails waiting to be decoded into again
+     */
+    private final LinkedList<T> reusablePool = new LinkedList<>();
+
+    private final long maxSizeInBytes;
+    private final int maxReusableCount;
+    private long sizeInBytes;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * @param maxSizeInBytes   byte budget of cached thumbnails (not including the reuse pool)
+     * @param maxReusableCount how many evicted thumbnails to keep for reuse
+     */
+    public ThumbnailLruCache(long maxSizeInBytes, int maxReusableCount) {
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.maxReusableCount = maxReusableCount;
+    }
+
+    /**
+     * Size of one thumbnail in bytes
+     */
+    protected abstract int sizeOf(T thumbnail);
+
+    /**
+     * Whether an evicted thumbnail can be decoded into again
+     */
+    protected boolean isReusable(T thumbnail) {
+        return true;
+    }
+
+    public synchronized T get(long keyTickTimeInMillisecond) {
+        T thumbnail = thumbnailMap.get(keyTickTimeInMillisecond);
+        if (thumbnail != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return thumbnail;
+    }
+
+    public synchronized boolean contains(long keyTickTimeInMillisecond) {
+        return thumbnailMap.containsKey(keyTickTimeInMillisecond);
+    }
+
+    public synchronized void put(long keyTickTimeInMillisecond, T thumbnail) {
+        T previous = thumbnailMap.put(keyTickTimeInMillisecond, thumbnail);
+        sizeInBytes += sizeOf(thumbnail);
+        if (previous != null) {
+            sizeInBytes -= sizeOf(previous);
+            if (previous != thumbnail) {
+                offerReusable(previous);
+            }
+        }
+        trimToSize(maxSizeInBytes);
+    }
+
+    /**
+     * Take one evicted thumbnail to decode into, or null if there is none
+     */
+    public synchronized T obtainReusable() {
+        return reusablePool.isEmpty() ? null : reusablePool.removeFirst();
+    }
+
+    /**
+     * Give back a thumbnail that is no longer cached, e.g. a reusable one the loader did not use
+     */
+    public synchronized void offerReusable(T thumbnail) {
+        if (thumbnail != null && reusablePool.size() < maxReusableCount && isReusable(thumbnail)) {
+            reusablePool.addLast(thumbnail);
+        }
+    }
+
+    /**
+     * Evict least recently used thumbnails until the cache fits in the given size
+     */
+    public synchronized void trimToSize(long targetSizeInBytes) {
+        Iterator<Map.Entry<Long, T>> iterator = thumbnailMap.entrySet().iterator();
+        while (sizeInBytes > targetSizeInBytes && iterator.hasNext()) {
+            T evicted = iterator.next().getValue();
+            iterator.remove();
+            sizeInBytes -= sizeOf(evicted);
+            evictionCount++;
+            offerReusable(evicted);
+        }
+    }
+
+    /**
+     * Drop thumbnails of key ticks within a time range, e.g. after the recordings there changed.
+     * Dropped thumbnails go to the reuse pool.
+     *
+     * @return number of thumbnails dropped
+     */
+    public synchronized int removeRange(long startTimeInMillisecond, long endTimeInMillisecond) {
+        int removedCount = 0;
+        Iterator<Map.Entry<Long, T>> iterator = thumbnailMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, T> entry = iterator.next();
+            long keyTickTime = entry.getKey();
+            if (keyTickTime >= startTimeInMillisecond && keyTickTime <= endTimeInMillisecond) {
+                iterator.remove();
+                sizeInBytes -= sizeOf(entry.getValue());
+                offerReusable(entry.getValue());
+                removedCount++;
+            }
+        }
+        return removedCount;
+    }
+
+    public synchronized void clear() {
+        thumbnailMap.clear();
+        reusablePool.clear();
+        sizeInBytes = 0;
+    }
+
+    public synchronized int size() {
+        return thumbnailMap.size();
+    }
+
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public long getMaxSizeInBytes() {
+        return maxSizeInBytes;
+    }
+
+    public synchronized int getReusableCount() {
+        return reusablePool.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+}
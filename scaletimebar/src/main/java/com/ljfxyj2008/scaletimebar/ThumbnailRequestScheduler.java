@@ -0,0 +1,288 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar;
+
+import android.os.Build;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules thumbnail loads of key ticks on a bounded background executor.
+ * <p>
+ * Requests are kept in a bounded LIFO queue owned by this scheduler rather than in the executor, so that:
+ * <ul>
+ * <li>the most recently requested (just scrolled into view) ticks are decoded first;</li>
+ * <li>when the queue is full, the oldest request is dropped;</li>
+ * <li>requests whose tick has scrolled out of the visible range are dropped before decoding starts.</li>
+ * </ul>
+ * At most maxConcurrentLoads worker runnables are submitted to the executor at a time, each of them drains the queue.
+ * Loaded thumbnails are put into the ThumbnailLruCache and reported to the Callback on the worker thread.
+ *
+ * @param <T> image type
+ */
+public class ThumbnailRequestScheduler<T> {
+    /**
+     * Called on a worker thread when a thumbnail has been loaded and cached
+     */
+    public interface Callback<T> {
+        void onThumbnailLoaded(long keyTickTimeInMillisecond, T thumbnail);
+    }
+
+    private final ThumbnailLoader<T> loader;
+    private final ThumbnailLruCache<T> cache;
+    private final Executor executor;
+    private final int maxConcurrentLoads;
+    private final int maxPendingRequests;
+
+    /**
+     * Pending request times, newest first. Guarded by this.
+     */
+    private final LinkedList<Long> pendingRequests = new LinkedList<>();
+
+    /**
+     * Times that are pending, loading, or failed. Guarded by this.
+     */
+    private final Set<Long> requestedTimes = new HashSet<>();
+
+    private int runningLoads;
+
+    /**
+     * Incremented by every invalidateRange(), loads started before are not cached. Guarded by this.
+     */
+    private int generation;
+    private long visibleLeftTimeInMillisecond = Long.MIN_VALUE;
+    private long visibleRightTimeInMillisecond = Long.MAX_VALUE;
+    private int thumbnailWidth;
+    private int thumbnailHeight;
+    private volatile Callback<T> callback;
+
+    private long requestCount;
+    private long droppedCount;
+    private long loadedCount;
+    private long failedCount;
+
+    private final Runnable drainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            drainPendingRequests();
+        }
+    };
+
+    /**
+     * @param loader             loader called on worker threads
+     * @param cache              cache receiving loaded thumbnails and supplying reusable ones
+     * @param executor           executor running the loads, see newDecodeExecutor()
+     * @param maxConcurrentLoads how many loads may run at the same time
+     * @param maxPendingRequests how many requests may wait, the oldest one is dropped beyond that
+     */
+    public ThumbnailRequestScheduler(ThumbnailLoader<T> loader, ThumbnailLruCache<T> cache, Executor executor,
+                                     int maxConcurrentLoads, int maxPendingRequests) {
+        this.loader = loader;
+        this.cache = cache;
+        this.executor = executor;
+        this.maxConcurrentLoads = maxConcurrentLoads;
+        this.maxPendingRequests = maxPendingRequests;
+    }
+
+    /**
+     * Create a bounded executor with low priority daemon threads, which exit after being idle for a while
+     * (API 9 and above, they are kept below)
+     */
+    public static ThreadPoolExecutor newDecodeExecutor(int threadCount) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount, 2, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private int threadNumber = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "timebar-thumbnail-" + threadNumber++);
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    public void setCallback(Callback<T> callback) {
+        this.callback = callback;
+    }
+
+    public synchronized void setThumbnailSize(int width, int height) {
+        this.thumbnailWidth = width;
+        this.thumbnailHeight = height;
+    }
+
+    /**
+     * Update the time range whose thumbnails are still wanted, and drop pending requests outside of it.
+     */
+    public synchronized void setVisibleRange(long leftTimeInMillisecond, long rightTimeInMillisecond) {
+        visibleLeftTimeInMillisecond = leftTimeInMillisecond;
+        visibleRightTimeInMillisecond = rightTimeInMillisecond;
+
+        Iterator<Long> iterator = pendingRequests.iterator();
+        while (iterator.hasNext()) {
+            Long time = iterator.next();
+            if (!isVisible(time)) {
+                iterator.remove();
+                requestedTimes.remove(time);
+                droppedCount++;
+            }
+        }
+    }
+
+    /**
+     * Request the thumbnail of a key tick. Does nothing if it is already cached, pending, loading or failed.
+     */
+    public void request(long keyTickTimeInMillisecond) {
+        synchronized (this) {
+            if (!isVisible(keyTickTimeInMillisecond)
+                    || cache.contains(keyTickTimeInMillisecond)
+                    || !requestedTimes.add(keyTickTimeInMillisecond)) {
+                return;
+            }
+
+            requestCount++;
+            pendingRequests.addFirst(keyTickTimeInMillisecond);
+            if (pendingRequests.size() > maxPendingRequests) {
+                requestedTimes.remove(pendingRequests.removeLast());
+                droppedCount++;
+            }
+
+            if (runningLoads >= maxConcurrentLoads) {
+                return;
+            }
+            runningLoads++;
+        }
+        executor.execute(drainRunnable);
+    }
+
+    /**
+     * Drop all pending requests and forget failed ones. Loads already running still complete.
+     */
+    public synchronized void cancelPending() {
+        droppedCount += pendingRequests.size();
+        pendingRequests.clear();
+        requestedTimes.clear();
+    }
+
+    /**
+     * Reload thumbnails of key ticks within a time range, e.g. after recordings were added there.
+     * Cached thumbnails in the range are dropped and failed requests forgotten, so the next request() loads them again.
+     * Loads running meanwhile may have read the old data, their thumbnails are discarded instead of cached.
+     */
+    public void invalidateRange(long startTimeInMillisecond, long endTimeInMillisecond) {
+        synchronized (this) {
+            generation++;
+            Iterator<Long> iterator = requestedTimes.iterator();
+            while (iterator.hasNext()) {
+                long time = iterator.next();
+                if (time >= startTimeInMillisecond && time <= endTimeInMillisecond && !pendingRequests.contains(time)) {
+                    iterator.remove();
+                }
+            }
+        }
+        cache.removeRange(startTimeInMillisecond, endTimeInMillisecond);
+    }
+
+    private boolean isVisible(long keyTickTimeInMillisecond) {
+        return keyTickTimeInMillisecond >= visibleLeftTimeInMillisecond
+                && keyTickTimeInMillisecond <= visibleRightTimeInMillisecond;
+    }
+
+    private void drainPendingRequests() {
+        while (true) {
+            long keyTickTime;
+            int width, height;
+            int loadGeneration;
+            synchronized (this) {
+                if (pendingRequests.isEmpty()) {
+                    runningLoads--;
+                    return;
+                }
+                keyTickTime = pendingRequests.removeFirst();
+                width = thumbnailWidth;
+                height = thumbnailHeight;
+                loadGeneration = generation;
+            }
+
+            T reusable = cache.obtainReusable();
+            T thumbnail = null;
+            try {
+                thumbnail = loader.loadThumbnail(keyTickTime, width, height, reusable);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            if (reusable != null && thumbnail != reusable) {
+                cache.offerReusable(reusable);
+            }
+
+            synchronized (this) {
+                if (loadGeneration != generation) {
+                    //Possibly decoded from data invalidated meanwhile, let the next request() load it again
+                    if (!pendingRequests.contains(keyTickTime)) {
+                        requestedTimes.remove(keyTickTime);
+                    }
+                    droppedCount++;
+                    if (thumbnail != null) {
+                        cache.offerReusable(thumbnail);
+                    }
+                    continue;
+                }
+                if (thumbnail == null) {
+                    //Keep it in requestedTimes so a failing time is not requested again every frame
+                    failedCount++;
+                    continue;
+                }
+
+                //Cached under the lock, so a concurrent invalidateRange() either discards or removes it.
+                //Cached before forgetting the request, so request() never sees it neither cached nor requested.
+                cache.put(keyTickTime, thumbnail);
+                requestedTimes.remove(keyTickTime);
+                loadedCount++;
+            }
+
+            Callback<T> currentCallback = callback;
+            if (currentCallback != null) {
+                currentCallback.onThumbnailLoaded(keyTickTime, thumbnail);
+            }
+        }
+    }
+
+    public ThumbnailLruCache<T> getCache() {
+        return cache;
+    }
+
+    public synchronized int getPendingCount() {
+        return pendingRequests.size();
+    }
+
+    public synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public synchronized long getLoadedCount() {
+        return loadedCount;
+    }
+
+    public synchronized long getFailedCount() {
+        return failedCount;
+    }
+}
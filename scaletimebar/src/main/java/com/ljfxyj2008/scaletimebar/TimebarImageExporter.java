@@ -0,0 +1,357 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import com.ljfxyj2008.scaletimebar.core.ParallelChannelRunner;
+import com.ljfxyj2008.scaletimebar.core.SegmentStore;
+import com.ljfxyj2008.scaletimebar.core.TimebarDimensions;
+import com.ljfxyj2008.scaletimebar.core.TimebarRenderer;
+import com.ljfxyj2008.scaletimebar.core.TimebarTickLadder;
+import com.ljfxyj2008.scaletimebar.core.TimebarViewport;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders timelines of a time range into Bitmaps or PNG files without any view, e.g. snapshots of every camera
+ * for an incident report.
+ * <p>
+ * Ticks, texts and the recordbar are drawn by the same TimebarRenderer and CanvasDrawSink as ScalableTimebarView,
+ * with the same dimensions, so an image looks like the view scaled to show exactly the range. Batches are drawn
+ * in parallel by a ParallelChannelRunner, every worker owning a renderer, label formatter and paints.
+ * <p>
+ * Export methods block until every image is done, call them from a background thread. The calling thread
+ * renders channels too, so a busy executor slows a batch down but never blocks it.
+ */
+public class TimebarImageExporter {
+    /**
+     * Receives every channel of a batch as soon as it is done, on the thread which rendered it
+     */
+    public interface Listener {
+        void onChannelExported(int channel);
+    }
+
+    private static final int TICK_TEXT_TO_TICK_MARGIN_IN_DP = 2;
+    private static final int COLORED_RECORDBAR_HEIGHT_IN_DP = 21;
+    private static final int KEY_TICK_TEXT_SIZE_IN_SP = 10;
+    private static final int BIG_TICK_HEIGHT_IN_DP = 9;
+    private static final int SMALL_TICK_HEIGHT_IN_DP = 6;
+    private static final int BIG_TICK_HALF_WIDTH_IN_DP = 2;
+    private static final int SMALL_TICK_HALF_WIDTH_IN_DP = 1;
+    private static final int COLORED_RECORDBAR_TO_TICK_TEXT_MARGIN_IN_DP = 5;
+
+    /**
+     * Height in dp of the timebar in ScalableTimebarView, the default image height
+     */
+    private static final int DEFAULT_HEIGHT_IN_DP = 56;
+
+    private static final int PNG_QUALITY = 100;
+
+    /**
+     * Threads shared by exporters created without an executor, only started on first use
+     */
+    private static class DefaultExecutorHolder {
+        static final Executor EXECUTOR = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                new ThreadFactory() {
+                    private final AtomicInteger threadCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "TimebarImageExporter-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    private final Resources resources;
+    private final Executor executor;
+    private final TimebarDimensions dimensions = new TimebarDimensions();
+    private final int keyTickTextSize;
+
+    /**
+     * Number of workers a batch is split into, the calling thread included
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private int width;
+    private int height;
+    private int backgroundColor = Color.BLACK;
+    private TimebarTickCriterion criterion;
+    private Listener listener;
+
+    /**
+     * Exporter running on threads shared by all such exporters, one per core
+     */
+    public TimebarImageExporter(Context context) {
+        this(context, DefaultExecutorHolder.EXECUTOR);
+    }
+
+    /**
+     * @param executor runs the workers of a batch, e.g. the background executor of the app
+     */
+    public TimebarImageExporter(Context context, Executor executor) {
+        this.resources = context.getResources();
+        this.executor = executor;
+
+        keyTickTextSize = DeviceUtil.dip2px(KEY_TICK_TEXT_SIZE_IN_SP);
+        dimensions.setBigTickHalfWidth(DeviceUtil.dip2px(BIG_TICK_HALF_WIDTH_IN_DP));
+        dimensions.setBigTickHeight(DeviceUtil.dip2px(BIG_TICK_HEIGHT_IN_DP));
+        dimensions.setSmallTickHalfWidth(DeviceUtil.dip2px(SMALL_TICK_HALF_WIDTH_IN_DP));
+        dimensions.setSmallTickHeight(DeviceUtil.dip2px(SMALL_TICK_HEIGHT_IN_DP));
+        dimensions.setKeyTickTextSize(keyTickTextSize);
+        dimensions.setTickTextToTickMargin(DeviceUtil.dip2px(TICK_TEXT_TO_TICK_MARGIN_IN_DP));
+        dimensions.setRecordbarToTickTextMargin(DeviceUtil.dip2px(COLORED_RECORDBAR_TO_TICK_TEXT_MARGIN_IN_DP));
+        dimensions.setRecordbarHeight(DeviceUtil.dip2px(COLORED_RECORDBAR_HEIGHT_IN_DP));
+
+        width = DeviceUtil.getScreenResolution(context)[0];
+        height = DeviceUtil.dip2px(DEFAULT_HEIGHT_IN_DP);
+    }
+
+    /**
+     * Render one timeline on the calling thread
+     *
+     * @param segmentStore          segments to draw on the recordbar, may be null
+     * @param fromTimeInMillisecond time at the left edge of the image
+     * @param toTimeInMillisecond   time at the right edge of the image
+     * @return a new ARGB_8888 bitmap of the image size
+     */
+    public Bitmap exportBitmap(SegmentStore segmentStore, long fromTimeInMillisecond, long toTimeInMillisecond) {
+        return new Worker(snapshotJob(fromTimeInMillisecond, toTimeInMillisecond)).render(segmentStore);
+    }
+
+    /**
+     * Render one timeline on the calling thread and write it as PNG. The stream is not closed.
+     */
+    public void exportPng(SegmentStore segmentStore, long fromTimeInMillisecond, long toTimeInMillisecond,
+                          OutputStream outputStream) throws IOException {
+        Bitmap bitmap = exportBitmap(segmentStore, fromTimeInMillisecond, toTimeInMillisecond);
+        try {
+            writePng(bitmap, outputStream);
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Render the timelines of many channels over the same range in parallel. Every bitmap is kept in memory,
+     * prefer exportPngFiles() for many large images.
+     *
+     * @return image of every channel, in the order of the stores
+     * @throws InterruptedException if the calling thread was interrupted while waiting for the workers
+     */
+    public Bitmap[] exportBitmaps(final SegmentStore[] segmentStores, long fromTimeInMillisecond, long toTimeInMillisecond)
+            throws InterruptedException {
+        final Bitmap[] bitmaps = new Bitmap[segmentStores.length];
+        runBatch(snapshotJob(fromTimeInMillisecond, toTimeInMillisecond), segmentStores.length, new ChannelTask<RuntimeException>() {
+            @Override
+            public void run(Worker worker, int channel) {
+                bitmaps[channel] = worker.render(segmentStores[channel]);
+            }
+        });
+        return bitmaps;
+    }
+
+    /**
+     * Render the timelines of many channels over the same range in parallel and write each to a PNG file.
+     * Every bitmap is recycled once written, so at most one image per worker is in memory.
+     *
+     * @param files file of every channel, in the order of the stores, overwritten if they exist
+     * @throws IOException          the first failure to write a file, the other channels are still exported
+     * @throws InterruptedException if the calling thread was interrupted while waiting for the workers
+     */
+    public void exportPngFiles(final SegmentStore[] segmentStores, long fromTimeInMillisecond, long toTimeInMillisecond,
+                               final File[] files) throws IOException, InterruptedException {
+        if (files.length != segmentStores.length) {
+            throw new IllegalArgumentException("One file per segment store is needed");
+        }
+        runBatch(snapshotJob(fromTimeInMillisecond, toTimeInMillisecond), segmentStores.length, new ChannelTask<IOException>() {
+            @Override
+            public void run(Worker worker, int channel) throws IOException {
+                Bitmap bitmap = worker.render(segmentStores[channel]);
+                try {
+                    OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(files[channel]));
+                    try {
+                        writePng(bitmap, outputStream);
+                    } finally {
+                        outputStream.close();
+                    }
+                } finally {
+                    bitmap.recycle();
+                }
+            }
+        });
+    }
+
+    private static void writePng(Bitmap bitmap, OutputStream outputStream) throws IOException {
+        if (!bitmap.compress(Bitmap.CompressFormat.PNG, PNG_QUALITY, outputStream)) {
+            throw new IOException("PNG encoding failed");
+        }
+    }
+
+    /**
+     * Run a task for every channel, each worker rendering with its own Worker
+     */
+    private <E extends Exception> void runBatch(final Job job, int channelCount, final ChannelTask<E> task)
+            throws E, InterruptedException {
+        int parallelism = this.parallelism;
+        final Worker[] workers = new Worker[parallelism];
+        final Listener listener = this.listener;
+        ParallelChannelRunner.run(executor, parallelism, channelCount, new ParallelChannelRunner.Task<E>() {
+            @Override
+            public void run(int worker, int channel) throws E {
+                if (workers[worker] == null) {
+                    workers[worker] = new Worker(job);
+                }
+                task.run(workers[worker], channel);
+                if (listener != null) {
+                    listener.onChannelExported(channel);
+                }
+            }
+        });
+    }
+
+    private interface ChannelTask<E extends Exception> {
+        void run(Worker worker, int channel) throws E;
+    }
+
+    /**
+     * Copy the settings of one export, so that setters called meanwhile do not affect running workers
+     */
+    private Job snapshotJob(long fromTimeInMillisecond, long toTimeInMillisecond) {
+        if (toTimeInMillisecond - fromTimeInMillisecond < 1000) {
+            throw new IllegalArgumentException("Range must be at least one second long");
+        }
+        Job job = new Job();
+        job.fromTimeInMillisecond = fromTimeInMillisecond;
+        job.toTimeInMillisecond = toTimeInMillisecond;
+        job.width = width;
+        job.height = height;
+        job.backgroundColor = backgroundColor;
+        job.criterion = criterion != null ? criterion : selectCriterion(fromTimeInMillisecond, toTimeInMillisecond, width);
+        return job;
+    }
+
+    /**
+     * The preset criterion ScalableTimebarView would use to show the range over one screen of the image width
+     */
+    static TimebarTickCriterion selectCriterion(long fromTimeInMillisecond, long toTimeInMillisecond, int width) {
+        TimebarTickLadder ladder = TimebarTickLadder.createDefault();
+        ladder.updateViewLengths(width, (toTimeInMillisecond - fromTimeInMillisecond) / 1000);
+        return ladder.get(ladder.selectIndex(width));
+    }
+
+    private static class Job {
+        long fromTimeInMillisecond;
+        long toTimeInMillisecond;
+        int width;
+        int height;
+        int backgroundColor;
+        TimebarTickCriterion criterion;
+    }
+
+    /**
+     * Drawing objects of one thread: the renderer and its label formatter are not thread safe
+     */
+    private class Worker {
+        private final Job job;
+        private final TimebarRenderer timebarRenderer = new TimebarRenderer(dimensions);
+        private final CanvasDrawSink canvasDrawSink = new CanvasDrawSink(resources, keyTickTextSize);
+        private final TimebarViewport timebarViewport = new TimebarViewport();
+
+        Worker(Job job) {
+            this.job = job;
+            timebarViewport.fitRange(job.fromTimeInMillisecond, job.toTimeInMillisecond, job.width, job.height);
+        }
+
+        Bitmap render(SegmentStore segmentStore) {
+            Bitmap bitmap = Bitmap.createBitmap(job.width, job.height, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+            canvas.drawColor(job.backgroundColor);
+            canvas.translate(timebarViewport.getScreenTranslationX(), 0);
+            canvasDrawSink.setCanvas(canvas);
+            timebarRenderer.render(timebarViewport, job.criterion, segmentStore, canvasDrawSink);
+            canvasDrawSink.setCanvas(null);
+            return bitmap;
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Set the size of the images, by default as wide as the screen and as high as a ScalableTimebarView
+     */
+    public void setImageSize(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Image size must be positive");
+        }
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getBackgroundColor() {
+        return backgroundColor;
+    }
+
+    /**
+     * Color the images are filled with before drawing, black by default since tick labels are white
+     */
+    public void setBackgroundColor(int backgroundColor) {
+        this.backgroundColor = backgroundColor;
+    }
+
+    public TimebarTickCriterion getCriterion() {
+        return criterion;
+    }
+
+    /**
+     * Set the criterion deciding tick intervals and label format, e.g. the current one of a ScalableTimebarView.
+     * If null, the preset criterion fitting the range and image width is used.
+     */
+    public void setCriterion(TimebarTickCriterion criterion) {
+        this.criterion = criterion;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Set how many channels are rendered at once, the calling thread included. Defaults to the core count.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public Listener getListener() {
+        return listener;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Paint;
+import android.text.TextPaint;
+
+import com.ljfxyj2008.scaletimebar.core.TickLabelFormatter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide resources shared by all ScalableTimebarViews, so that a grid of many timebars decodes the cursor
+ * bitmap, resolves colors, formats labels and measures their widths only once.
+ * <p>
+ * Everything handed out is shared, callers must not modify the paints or recycle the bitmap.
+ * Not thread safe, use it from the UI thread only, where all timebars are drawn.
+ */
+public class TimebarResourcePool {
+    /**
+     * How many label widths to keep, labels of a few screens of key ticks for every criterion
+     */
+    private static final int LABEL_WIDTH_CACHE_CAPACITY = 256;
+
+    private static TimebarResourcePool instance;
+
+    private final Resources resources;
+
+    /**
+     * Screen resolution, cached until the orientation changes
+     */
+    private final int[] screenResolution = new int[2];
+    private int screenResolutionOrientation = Configuration.ORIENTATION_UNDEFINED;
+
+    private Bitmap middleCursorBitmap;
+
+    /**
+     * Paints to draw ticks and recordbar, indexed by TimebarDrawSink.PAINT_* constants
+     */
+    private Paint[] rectPaints;
+    private TextPaint keyTickTextPaint;
+    private Paint thumbnailPlaceholderPaint;
+    private Paint eventMarkerPaint;
+    private TextPaint eventMarkerCountTextPaint;
+    private Paint heatmapPaint;
+    private Paint selectionPaint;
+    private Paint selectionHandlePaint;
+
+    private final TickLabelFormatter labelFormatter = new TickLabelFormatter();
+
+    private final LinkedHashMap<String, Float> labelWidthCache = new LinkedHashMap<String, Float>(LABEL_WIDTH_CACHE_CAPACITY, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Float> eldest) {
+            return size() > LABEL_WIDTH_CACHE_CAPACITY;
+        }
+    };
+
+    private TimebarResourcePool(Context context) {
+        this.resources = context.getResources();
+    }
+
+    /**
+     * Get the pool of this process, created on first use with the application context
+     */
+    public static TimebarResourcePool getInstance(Context context) {
+        if (instance == null) {
+            instance = new TimebarResourcePool(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Same as DeviceUtil.getScreenResolution(), but only queries the display again after the orientation changed
+     */
+    public int[] getScreenResolution(Context context) {
+        int orientation = context.getResources().getConfiguration().orientation;
+        if (orientation != screenResolutionOrientation) {
+            int[] resolution = DeviceUtil.getScreenResolution(context);
+            screenResolution[0] = resolution[0];
+            screenResolution[1] = resolution[1];
+            screenResolutionOrientation = orientation;
+        }
+        return screenResolution;
+    }
+
+    /**
+     * White cursor bitmap indicating current time, decoded and scaled once for the given size
+     */
+    public Bitmap getMiddleCursorBitmap(int width, int height) {
+        if (middleCursorBitmap == null || middleCursorBitmap.getWidth() != width || middleCursorBitmap.getHeight() != height) {
+            Bitmap originalSize = BitmapFactory.decodeResource(resources, R.drawable.ic_video_middle);
+            middleCursorBitmap = Bitmap.createScaledBitmap(originalSize, width, height, false);
+            if (originalSize != middleCursorBitmap) {
+                originalSize.recycle();
+            }
+        }
+        return middleCursorBitmap;
+    }
+
+    /**
+     * Paints of CanvasDrawSink with colors resolved once, see TimebarDrawSink.PAINT_* constants
+     */
+    public Paint[] getRectPaints() {
+        if (rectPaints == null) {
+            rectPaints = CanvasDrawSink.createRectPaints(resources);
+        }
+        return rectPaints;
+    }
+
+    /**
+     * Textpaint to draw key tick time texts, created for the first text size asked for
+     */
+    public TextPaint getKeyTickTextPaint(float keyTickTextSize) {
+        if (keyTickTextPaint == null || keyTickTextPaint.getTextSize() != keyTickTextSize) {
+            keyTickTextPaint = CanvasDrawSink.createKeyTickTextPaint(resources, keyTickTextSize);
+            labelWidthCache.clear();
+        }
+        return keyTickTextPaint;
+    }
+
+    public Paint getThumbnailPlaceholderPaint() {
+        if (thumbnailPlaceholderPaint == null) {
+            thumbnailPlaceholderPaint = new Paint();
+            thumbnailPlaceholderPaint.setColor(resources.getColor(R.color.colorGrayTransparent));
+            thumbnailPlaceholderPaint.setStyle(Paint.Style.FILL);
+        }
+        return thumbnailPlaceholderPaint;
+    }
+
+    /**
+     * Fill of event marker badges
+     */
+    public Paint getEventMarkerPaint() {
+        if (eventMarkerPaint == null) {
+            eventMarkerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            eventMarkerPaint.setColor(resources.getColor(R.color.colorEventMarker));
+            eventMarkerPaint.setStyle(Paint.Style.FILL);
+        }
+        return eventMarkerPaint;
+    }
+
+    /**
+     * Textpaint of event counts drawn centered on badges, created for the first text size asked for
+     */
+    public TextPaint getEventMarkerCountTextPaint(float textSize) {
+        if (eventMarkerCountTextPaint == null || eventMarkerCountTextPaint.getTextSize() != textSize) {
+            eventMarkerCountTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+            eventMarkerCountTextPaint.setTextSize(textSize);
+            eventMarkerCountTextPaint.setColor(resources.getColor(R.color.colorBlack));
+            eventMarkerCountTextPaint.setTextAlign(Paint.Align.CENTER);
+        }
+        return eventMarkerCountTextPaint;
+    }
+
+    /**
+     * Fill of heatmap buckets at full alpha. Views copy it to set the alpha of every bucket.
+     */
+    public Paint getHeatmapPaint() {
+        if (heatmapPaint == null) {
+            heatmapPaint = new Paint();
+            heatmapPaint.setColor(resources.getColor(R.color.colorHeatmap));
+            heatmapPaint.setStyle(Paint.Style.FILL);
+        }
+        return heatmapPaint;
+    }
+
+    /**
+     * Translucent fill over the selected range
+     */
+    public Paint getSelectionPaint() {
+        if (selectionPaint == null) {
+            selectionPaint = new Paint();
+            selectionPaint.setColor(resources.getColor(R.color.colorSelection));
+            selectionPaint.setStyle(Paint.Style.FILL);
+        }
+        return selectionPaint;
+    }
+
+    /**
+     * Fill of the drag handles at both ends of the selected range
+     */
+    public Paint getSelectionHandlePaint() {
+        if (selectionHandlePaint == null) {
+            selectionHandlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            selectionHandlePaint.setColor(resources.getColor(R.color.colorSelectionHandle));
+            selectionHandlePaint.setStyle(Paint.Style.FILL);
+        }
+        return selectionHandlePaint;
+    }
+
+    /**
+     * Label formatter shared by the renderers of all timebars, its label cache serves every view showing the same times
+     */
+    public TickLabelFormatter getLabelFormatter() {
+        return labelFormatter;
+    }
+
+    /**
+     * Width of a label drawn with getKeyTickTextPaint(), measured once
+     */
+    public float measureLabel(String label) {
+        Float width = labelWidthCache.get(label);
+        if (width == null) {
+            width = keyTickTextPaint.measureText(label);
+            labelWidthCache.put(label, width);
+        }
+        return width;
+    }
+}
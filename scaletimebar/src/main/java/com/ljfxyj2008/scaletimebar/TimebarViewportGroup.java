@@ -0,0 +1,166 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps several ScalableTimebarViews panned and zoomed together, e.g. the timebars of a multi-camera review screen.
+ * <p>
+ * The group holds the single source of truth: current time and zoom (seconds shown in one screen width).
+ * When the user drags or scales one member, that member publishes its new viewport to the group, and the group
+ * applies the latest published viewport to all other members at most once per frame. Applying a viewport does not
+ * publish it again, so members never bounce updates between each other.
+ * <p>
+ * Use it from the UI thread only.
+ */
+public class TimebarViewportGroup {
+    private final List<ScalableTimebarView> members = new ArrayList<>();
+
+    private long currentTimeInMillisecond;
+
+    /**
+     * Zoom shared by all members, as seconds shown in one screen width, so members of different range and
+     * screen width still show the same span of time
+     */
+    private float secondsInOneScreen;
+
+    private boolean hasViewport = false;
+
+    /**
+     * The member which produced the pending viewport and is already showing it,
+     * null if it came from several members or from setViewport()
+     */
+    private ScalableTimebarView pendingSource;
+
+    private boolean updateScheduled = false;
+
+    private Choreographer.FrameCallback frameCallback;
+    private Runnable updateRunnable;
+    private Handler handler;
+
+    /**
+     * Add a view to the group. If the group already has a viewport, the view adopts it on the next frame,
+     * otherwise the view's own viewport becomes the group viewport when it is first moved.
+     */
+    public void addMember(ScalableTimebarView view) {
+        if (members.contains(view)) {
+            return;
+        }
+        TimebarViewportGroup previousGroup = view.getViewportGroup();
+        if (previousGroup != null) {
+            previousGroup.removeMember(view);
+        }
+        members.add(view);
+        view.setViewportGroup(this);
+        if (hasViewport) {
+            pendingSource = null;
+            scheduleUpdate();
+        }
+    }
+
+    public void removeMember(ScalableTimebarView view) {
+        if (members.remove(view)) {
+            view.setViewportGroup(null);
+            if (pendingSource == view) {
+                pendingSource = null;
+            }
+        }
+    }
+
+    public List<ScalableTimebarView> getMembers() {
+        return members;
+    }
+
+    /**
+     * Move all members to a viewport, e.g. to follow the players of a synchronized playback
+     *
+     * @param currentTimeInMillisecond time under the cursor
+     * @param secondsInOneScreen       zoom as seconds shown in one screen width, 0 to keep the current zoom
+     */
+    public void setViewport(long currentTimeInMillisecond, float secondsInOneScreen) {
+        this.currentTimeInMillisecond = currentTimeInMillisecond;
+        if (secondsInOneScreen > 0) {
+            this.secondsInOneScreen = secondsInOneScreen;
+        }
+        hasViewport = true;
+        pendingSource = null;
+        scheduleUpdate();
+    }
+
+    /**
+     * Called by a member whose viewport was changed by user input
+     */
+    void publish(ScalableTimebarView source, long currentTimeInMillisecond, float secondsInOneScreen) {
+        if (hasViewport && updateScheduled && pendingSource != source) {
+            //Several members moved within one frame, the latest wins and is applied to all of them
+            pendingSource = null;
+        } else {
+            pendingSource = source;
+        }
+        this.currentTimeInMillisecond = currentTimeInMillisecond;
+        this.secondsInOneScreen = secondsInOneScreen;
+        hasViewport = true;
+        scheduleUpdate();
+    }
+
+    private void scheduleUpdate() {
+        if (updateScheduled) {
+            return;
+        }
+        updateScheduled = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (frameCallback == null) {
+                frameCallback = new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        applyViewport();
+                    }
+                };
+            }
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        } else {
+            if (updateRunnable == null) {
+                handler = new Handler(Looper.getMainLooper());
+                updateRunnable = new Runnable() {
+                    @Override
+                    public void run() {
+                        applyViewport();
+                    }
+                };
+            }
+            handler.post(updateRunnable);
+        }
+    }
+
+    private void applyViewport() {
+        updateScheduled = false;
+        for (int i = 0; i < members.size(); i++) {
+            ScalableTimebarView member = members.get(i);
+            if (member != pendingSource) {
+                member.applyGroupViewport(currentTimeInMillisecond, secondsInOneScreen);
+            }
+        }
+        pendingSource = null;
+    }
+
+    public long getCurrentTimeInMillisecond() {
+        return currentTimeInMillisecond;
+    }
+
+    public float getSecondsInOneScreen() {
+        return secondsInOneScreen;
+    }
+
+    public boolean hasViewport() {
+        return hasViewport;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * This source code is licensed under the MIT-style license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package com.ljfxyj2008.scaletimebar;
+
+/**
+ * Predicts which time window the user is heading toward while dragging or pinching the timebar,
+ * so that callers can prefetch record data and thumbnails before they scroll into view.
+ * <p>
+ * Pan velocity (timeline milliseconds per real second) and scale velocity (natural log of scale factor per second)
+ * are smoothed, then extrapolated over a short lookahead. A new prediction is only published when it moves
+ * more than a fraction of the window width away from the last published one, so jittery input does not make
+ * the prediction thrash back and forth.
+ * <p>
+ * This class has no Android dependency and is driven by ScalableTimebarView from the UI thread.
+ */
+public class TimebarViewportPredictor {
+    /**
+     * How far ahead in real time the window is extrapolated
+     */
+    private long lookaheadInMillisecond = 400;
+
+    /**
+     * A new prediction is published only if one of its edges moves more than this fraction of the current window width
+     */
+    private float hysteresisRatio = 0.25f;
+
+    /**
+     * Weight of the newest velocity sample in the exponential moving average
+     */
+    private float smoothingFactor = 0.4f;
+
+    /**
+     * Pan speed below this value (screen widths per second) is treated as standing still
+     */
+    private float panDeadbandInScreensPerSecond = 0.05f;
+
+    /**
+     * Smoothed pan velocity, timeline milliseconds per real second. Positive means moving toward later time.
+     */
+    private float panVelocity;
+
+    /**
+     * Smoothed scale velocity, ln(scale factor) per real second. Positive means zooming in.
+     */
+    private float scaleVelocity;
+
+    /**
+     * Last published prediction
+     */
+    private long predictedLeftTimeInMillisecond;
+    private long predictedRightTimeInMillisecond;
+    private boolean hasPrediction = false;
+
+    /**
+     * Feed a new pan velocity sample.
+     *
+     * @param velocityInMillisecondPerSecond timeline milliseconds moved per real second, positive toward later time
+     */
+    public void addPanVelocitySample(float velocityInMillisecondPerSecond) {
+        panVelocity = panVelocity + smoothingFactor * (velocityInMillisecondPerSecond - panVelocity);
+    }
+
+    /**
+     * Feed one step of a scale gesture.
+     *
+     * @param scaleFactor             scale factor of this step, larger than 1 means zooming in
+     * @param timeDeltaInMillisecond real time elapsed since the previous step
+     */
+    public void addScaleSample(float scaleFactor, long timeDeltaInMillisecond) {
+        if (scaleFactor <= 0 || timeDeltaInMillisecond <= 0) {
+            return;
+        }
+        float sample = (float) Math.log(scaleFactor) * 1000f / timeDeltaInMillisecond;
+        scaleVelocity = scaleVelocity + smoothingFactor * (sample - scaleVelocity);
+    }
+
+    /**
+     * Forget accumulated velocity, e.g. when the finger is lifted and the timebar stops moving.
+     */
+    public void resetVelocity() {
+        panVelocity = 0;
+        scaleVelocity = 0;
+    }
+
+    /**
+     * Recompute the predicted window from the current viewport.
+     *
+     * @param currentTime                  time under the cursor (middle of screen)
+     * @param halfScreenDurationInMillisecond half of the time span visible on screen
+     * @param minTime                      earliest time the cursor can reach
+     * @param maxTime                      latest time the cursor can reach
+     * @return true if a new prediction was published, false if the last one is still close enough
+     */
+    public boolean predict(long currentTime, long halfScreenDurationInMillisecond, long minTime, long maxTime) {
+        float pan = panVelocity;
+        if (Math.abs(pan) < panDeadbandInScreensPerSecond * 2 * halfScreenDurationInMillisecond) {
+            pan = 0;
+        }
+
+        float lookaheadInSecond = lookaheadInMillisecond / 1000f;
+        long predictedCenter = currentTime + (long) (pan * lookaheadInSecond);
+        predictedCenter = Math.max(minTime, Math.min(maxTime, predictedCenter));
+
+        long predictedHalf = (long) (halfScreenDurationInMillisecond * Math.exp(-scaleVelocity * lookaheadInSecond));
+        if (predictedHalf <= 0) {
+            predictedHalf = halfScreenDurationInMillisecond;
+        }
+
+        long newLeft = predictedCenter - predictedHalf;
+        long newRight = predictedCenter + predictedHalf;
+
+        if (hasPrediction) {
+            long threshold = (long) (2 * halfScreenDurationInMillisecond * hysteresisRatio);
+            if (Math.abs(newLeft - predictedLeftTimeInMillisecond) <= threshold
+                    && Math.abs(newRight - predictedRightTimeInMillisecond) <= threshold) {
+                return false;
+            }
+        }
+
+        predictedLeftTimeInMillisecond = newLeft;
+        predictedRightTimeInMillisecond = newRight;
+        hasPrediction = true;
+        return true;
+    }
+
+    public boolean hasPrediction() {
+        return hasPrediction;
+    }
+
+    public long getPredictedLeftTimeInMillisecond() {
+        return predictedLeftTimeInMillisecond;
+    }
+
+    public long getPredictedRightTimeInMillisecond() {
+        return predictedRightTimeInMillisecond;
+    }
+
+    public float getPanVelocity() {
+        return panVelocity;
+    }
+
+    public float getScaleVelocity() {
+        return scaleVelocity;
+    }
+
+    public long getLookaheadInMillisecond() {
+        return lookaheadInMillisecond;
+    }
+
+    public void setLookaheadInMillisecond(long lookaheadInMillisecond) {
+        this.lookaheadInMillisecond = lookaheadInMillisecond;
+    }
+
+    public float getHysteresisRatio() {
+        return hysteresisRatio;
+    }
+
+    public void setHysteresisRatio(float hysteresisRatio) {
+        this.hysteresisRatio = hysteresisRatio;
+    }
+
+    public float getSmoothingFactor() {
+        return smoothingFactor;
+    }
+
+    public void setSmoothingFactor(float smoothingFactor) {
+        this.smoothingFactor = smoothingFactor;
+    }
+
+    public float getPanDeadbandInScreensPerSecond() {
+        return panDeadbandInScreensPerSecond;
+    }
+
+    public void setPanDeadbandInScreensPerSecond(float panDeadbandInScreensPerSecond) {
+        this.panDeadbandInScreensPerSecond = panDeadbandInScreensPerSecond;
+    }
+}
@@ -0,0 +1,32 @@
+package com.ljfxyj2008.scaletimebar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PlaybackClockTest {
+    private static final long ONE_SECOND_IN_NANOSECOND = 1000000000L;
+
+    @Test
+    public void extrapolatesAtRate() {
+        PlaybackClock clock = new PlaybackClock();
+        clock.set(10000, 2f, 0);
+
+        assertEquals(10000, clock.getPositionAt(0));
+        assertEquals(12000, clock.getPositionAt(ONE_SECOND_IN_NANOSECOND));
+    }
+
+    @Test
+    public void pauseFreezesAndResumeKeepsRate() {
+        PlaybackClock clock = new PlaybackClock();
+        clock.set(10000, 1f, 0);
+        clock.pause(ONE_SECOND_IN_NANOSECOND);
+
+        assertTrue(clock.isPaused());
+        assertEquals(11000, clock.getPositionAt(5 * ONE_SECOND_IN_NANOSECOND));
+
+        clock.resume(50000, 5 * ONE_SECOND_IN_NANOSECOND);
+        assertFalse(clock.isPaused());
+        assertEquals(51000, clock.getPositionAt(6 * ONE_SECOND_IN_NANOSECOND));
+    }
+}
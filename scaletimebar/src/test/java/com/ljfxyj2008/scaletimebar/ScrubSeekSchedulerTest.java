@@ -0,0 +1,139 @@
+package com.ljfxyj2008.scaletimebar;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Seek scheduling while scrubbing, driven by a fake player which completes seeks when the test says so.
+ */
+public class ScrubSeekSchedulerTest {
+
+    private static class FakePlayer implements ScrubSeekPlayer {
+        final List<Long> seekTimes = new ArrayList<>();
+        final List<Boolean> seekPrecise = new ArrayList<>();
+
+        @Override
+        public void seekTo(long timeInMillisecond, boolean precise) {
+            seekTimes.add(timeInMillisecond);
+            seekPrecise.add(precise);
+        }
+    }
+
+    /**
+     * Scheduler on a manual clock
+     */
+    private static class ManualClockScheduler extends ScrubSeekScheduler {
+        long now;
+
+        ManualClockScheduler(ScrubSeekPlayer player) {
+            super(player);
+        }
+
+        @Override
+        protected long nanoTime() {
+            return now;
+        }
+    }
+
+    private FakePlayer player;
+    private ManualClockScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        player = new FakePlayer();
+        scheduler = new ManualClockScheduler(player);
+    }
+
+    @Test
+    public void keepsOneSeekInFlightAndOnlyTheLatestPending() {
+        scheduler.scrubTo(1000);
+        scheduler.scrubTo(2000);
+        scheduler.scrubTo(3000);
+        scheduler.scrubTo(4000);
+
+        assertEquals(1, player.seekTimes.size());
+        assertEquals(2, scheduler.getReplacedCount());
+
+        scheduler.onSeekComplete();
+        assertEquals(2, player.seekTimes.size());
+        assertEquals(Long.valueOf(4000), player.seekTimes.get(1));
+
+        scheduler.onSeekComplete();
+        assertFalse(scheduler.isSeekInFlight());
+        assertEquals(2, scheduler.getIssuedCount());
+        assertEquals(4, scheduler.getRequestCount());
+    }
+
+    @Test
+    public void snapsToNearestKeyframeOfSegmentAndSkipsSameKeyframe() {
+        scheduler.setSegmentKeyframes(10000, 20000, new long[]{14000, 10000, 12000});
+        scheduler.setSegmentKeyframes(20000, 31000, new long[]{20000, 25000});
+
+        assertEquals(12000, scheduler.snapToKeyframe(12900));
+        assertEquals(14000, scheduler.snapToKeyframe(13100));
+        assertEquals(14000, scheduler.snapToKeyframe(19000));
+        assertEquals(25000, scheduler.snapToKeyframe(30000));
+        assertEquals(5000, scheduler.snapToKeyframe(5000));
+
+        scheduler.scrubTo(11800);
+        scheduler.onSeekComplete();
+        scheduler.scrubTo(12200);
+
+        assertEquals(1, player.seekTimes.size());
+        assertEquals(Long.valueOf(12000), player.seekTimes.get(0));
+        assertEquals(1, scheduler.getSkippedCount());
+    }
+
+    @Test
+    public void targetInGapIsNotSnappedToPreviousSegment() {
+        scheduler.setSegmentKeyframes(10000, 15000, new long[]{10000, 12000, 14000});
+        scheduler.setSegmentKeyframes(300000, 310000, new long[]{300000});
+
+        assertEquals(14000, scheduler.snapToKeyframe(14900));
+        //Minutes after the end of the first segment, before the second one
+        assertEquals(15000, scheduler.snapToKeyframe(15000));
+        assertEquals(120000, scheduler.snapToKeyframe(120000));
+
+        scheduler.scrubTo(120000);
+        assertEquals(1, player.seekTimes.size());
+        assertEquals(Long.valueOf(120000), player.seekTimes.get(0));
+    }
+
+    @Test
+    public void finishesWithPreciseSeekReplacingPendingScrub() {
+        scheduler.setSegmentKeyframes(10000, 20000, new long[]{10000, 12000});
+        scheduler.onBarMove(0, 0, 11900);
+        scheduler.onBarMove(0, 0, 12100);
+        scheduler.OnBarMoveFinish(0, 0, 12100);
+        scheduler.onSeekComplete();
+
+        assertEquals(2, player.seekTimes.size());
+        assertEquals(Long.valueOf(12000), player.seekTimes.get(0));
+        assertFalse(player.seekPrecise.get(0));
+        assertEquals(Long.valueOf(12100), player.seekTimes.get(1));
+        assertTrue(player.seekPrecise.get(1));
+    }
+
+    @Test
+    public void measuresSeekAndRequestLatency() {
+        scheduler.now = 0;
+        scheduler.scrubTo(1000);
+        scheduler.now = 2000000;
+        scheduler.scrubTo(2000);
+        scheduler.now = 5000000;
+        scheduler.onSeekComplete();
+        scheduler.now = 9000000;
+        scheduler.onSeekComplete();
+
+        assertEquals(2, scheduler.getCompletedCount());
+        assertEquals(2, scheduler.getSeekLatency().getCount());
+        assertEquals(5000000 + 4000000, scheduler.getSeekLatency().getSum());
+        assertEquals(5000000 + 7000000, scheduler.getRequestLatency().getSum());
+        assertEquals(7000000, scheduler.getRequestLatency().getMax());
+    }
+}
@@ -0,0 +1,75 @@
+package com.ljfxyj2008.scaletimebar;
+
+import com.ljfxyj2008.scaletimebar.core.PackedSegmentStore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Window queries and batched inserts against Robolectric's SQLite, in an in-memory database.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class SqliteSegmentSourceTest {
+    private static final long DAY_START = 1477612800000L;
+    private static final long MINUTE = 60 * 1000L;
+
+    private SqliteSegmentSource source;
+
+    @Before
+    public void setUp() {
+        source = new SqliteSegmentSource(RuntimeEnvironment.application, null);
+    }
+
+    @After
+    public void tearDown() {
+        source.close();
+    }
+
+    @Test
+    public void windowReturnsOverlappingSegmentsOfChannel() {
+        //One minute recorded every ten minutes, inserted newest first
+        int count = 144;
+        long[] startTimes = new long[count];
+        long[] endTimes = new long[count];
+        for (int i = 0; i < count; i++) {
+            startTimes[i] = DAY_START + (count - 1 - i) * 10 * MINUTE;
+            endTimes[i] = startTimes[i] + MINUTE;
+        }
+        source.insertSegments(1, startTimes, endTimes, count);
+        source.insertSegment(2, DAY_START, DAY_START + 24 * 60 * MINUTE);
+
+        //From the middle of the segment at 00:10 to the start of the one at 00:40
+        PackedSegmentStore window = source.queryWindow(1, DAY_START + 10 * MINUTE + MINUTE / 2, DAY_START + 40 * MINUTE);
+        assertEquals(4, window.size());
+        for (int i = 0; i < window.size(); i++) {
+            assertEquals(DAY_START + (i + 1) * 10 * MINUTE, window.getStartTimeInMillisecond(i));
+            assertEquals(window.getStartTimeInMillisecond(i) + MINUTE, window.getEndTimeInMillisecond(i));
+        }
+
+        assertEquals(count, source.queryWindow(1, Long.MIN_VALUE, Long.MAX_VALUE).size());
+        assertEquals(0, source.queryWindow(1, DAY_START + MINUTE + 1, DAY_START + 10 * MINUTE - 1).size());
+        assertEquals(0, source.queryWindow(3, Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void longSegmentStartingBeforeWindowIsFound() {
+        source.insertSegment(1, DAY_START, DAY_START + MINUTE);
+        //A whole-day segment inserted in a later batch raises the bound of the window scan
+        source.insertSegment(1, DAY_START - 12 * 60 * MINUTE, DAY_START + 12 * 60 * MINUTE);
+
+        PackedSegmentStore window = source.queryWindow(1, DAY_START + 6 * 60 * MINUTE, DAY_START + 7 * 60 * MINUTE);
+        assertEquals(1, window.size());
+        assertEquals(DAY_START - 12 * 60 * MINUTE, window.getStartTimeInMillisecond(0));
+
+        source.deleteChannel(1);
+        assertEquals(0, source.queryWindow(1, Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+}
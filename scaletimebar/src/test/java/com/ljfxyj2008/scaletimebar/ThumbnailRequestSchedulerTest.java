@@ -0,0 +1,215 @@
+package com.ljfxyj2008.scaletimebar;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Thumbnail lane scheduling and caching, driven by a fake loader and a manual executor.
+ */
+public class ThumbnailRequestSchedulerTest {
+
+    /**
+     * Stand-in for a decoded bitmap
+     */
+    private static class FakeImage {
+        final long time;
+        final int sizeInBytes;
+
+        FakeImage(long time, int sizeInBytes) {
+            this.time = time;
+            this.sizeInBytes = sizeInBytes;
+        }
+    }
+
+    private static class FakeLoader implements ThumbnailLoader<FakeImage> {
+        final List<Long> loadedTimes = new ArrayList<>();
+        final List<FakeImage> reusedImages = new ArrayList<>();
+
+        /**
+         * Run in the middle of every load, e.g. to change the data being decoded
+         */
+        Runnable duringLoad;
+
+        @Override
+        public FakeImage loadThumbnail(long keyTickTimeInMillisecond, int width, int height, FakeImage reusable) {
+            loadedTimes.add(keyTickTimeInMillisecond);
+            if (duringLoad != null) {
+                duringLoad.run();
+            }
+            if (reusable != null) {
+                reusedImages.add(reusable);
+            }
+            if (keyTickTimeInMillisecond < 0) {
+                return null;
+            }
+            return new FakeImage(keyTickTimeInMillisecond, width * height * 4);
+        }
+    }
+
+    private static class FakeImageCache extends ThumbnailLruCache<FakeImage> {
+        FakeImageCache(long maxSizeInBytes) {
+            super(maxSizeInBytes, 2);
+        }
+
+        @Override
+        protected int sizeOf(FakeImage thumbnail) {
+            return thumbnail.sizeInBytes;
+        }
+    }
+
+    /**
+     * Holds submitted runnables until the test runs them
+     */
+    private static class ManualExecutor implements Executor {
+        final List<Runnable> queued = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            queued.add(command);
+        }
+
+        void runAll() {
+            while (!queued.isEmpty()) {
+                queued.remove(0).run();
+            }
+        }
+    }
+
+    private FakeLoader loader;
+    private FakeImageCache cache;
+    private ManualExecutor executor;
+    private ThumbnailRequestScheduler<FakeImage> scheduler;
+
+    @Before
+    public void setUp() {
+        loader = new FakeLoader();
+        cache = new FakeImageCache(3 * 400);
+        executor = new ManualExecutor();
+        scheduler = new ThumbnailRequestScheduler<>(loader, cache, executor, 1, 4);
+        scheduler.setThumbnailSize(10, 10);
+    }
+
+    @Test
+    public void loadsNewestRequestFirstAndCachesResult() {
+        scheduler.request(1000);
+        scheduler.request(2000);
+        scheduler.request(2000);
+        assertEquals(1, executor.queued.size());
+
+        executor.runAll();
+
+        assertEquals(2, loader.loadedTimes.size());
+        assertEquals(Long.valueOf(2000), loader.loadedTimes.get(0));
+        assertNotNull(cache.get(1000));
+        assertNotNull(cache.get(2000));
+        assertEquals(2, scheduler.getLoadedCount());
+    }
+
+    @Test
+    public void dropsRequestsScrolledOutOfView() {
+        scheduler.request(1000);
+        scheduler.request(5000);
+        scheduler.setVisibleRange(4000, 6000);
+        executor.runAll();
+
+        assertEquals(1, loader.loadedTimes.size());
+        assertEquals(Long.valueOf(5000), loader.loadedTimes.get(0));
+        assertEquals(1, scheduler.getDroppedCount());
+
+        scheduler.request(1000);
+        assertEquals(0, scheduler.getPendingCount());
+    }
+
+    @Test
+    public void dropsOldestWhenPendingQueueIsFull() {
+        for (int i = 1; i <= 6; i++) {
+            scheduler.request(i * 1000);
+        }
+        assertEquals(4, scheduler.getPendingCount());
+        assertEquals(2, scheduler.getDroppedCount());
+
+        executor.runAll();
+        assertFalse(loader.loadedTimes.contains(1000L));
+        assertFalse(loader.loadedTimes.contains(2000L));
+    }
+
+    @Test
+    public void failedLoadIsNotRequestedAgain() {
+        scheduler.request(-1000);
+        executor.runAll();
+        scheduler.request(-1000);
+        executor.runAll();
+
+        assertEquals(1, loader.loadedTimes.size());
+        assertEquals(1, scheduler.getFailedCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedWithinByteBudgetAndReusesEvicted() {
+        for (int i = 1; i <= 3; i++) {
+            scheduler.request(i * 1000);
+            executor.runAll();
+        }
+        cache.get(1000);
+
+        scheduler.request(4000);
+        executor.runAll();
+
+        assertEquals(3, cache.size());
+        assertEquals(1200, cache.getSizeInBytes());
+        assertNull(cache.get(2000));
+        assertNotNull(cache.get(1000));
+        assertEquals(1, cache.getReusableCount());
+
+        scheduler.request(5000);
+        executor.runAll();
+        assertEquals(1, loader.reusedImages.size());
+        assertEquals(2000, loader.reusedImages.get(0).time);
+    }
+
+    @Test
+    public void invalidatedRangeIsLoadedAgain() {
+        scheduler.request(-1000);
+        scheduler.request(1000);
+        scheduler.request(5000);
+        executor.runAll();
+
+        scheduler.invalidateRange(-2000, 2000);
+
+        assertFalse(cache.contains(1000));
+        assertTrue(cache.contains(5000));
+        scheduler.request(-1000);
+        scheduler.request(1000);
+        scheduler.request(5000);
+        executor.runAll();
+        assertEquals(5, loader.loadedTimes.size());
+        assertTrue(cache.contains(1000));
+    }
+
+    @Test
+    public void loadRunningWhileInvalidatedIsNotCached() {
+        loader.duringLoad = new Runnable() {
+            @Override
+            public void run() {
+                loader.duringLoad = null;
+                scheduler.invalidateRange(0, 2000);
+            }
+        };
+        scheduler.request(1000);
+        executor.runAll();
+
+        assertFalse(cache.contains(1000));
+        assertEquals(0, scheduler.getLoadedCount());
+
+        scheduler.request(1000);
+        executor.runAll();
+        assertEquals(2, loader.loadedTimes.size());
+        assertTrue(cache.contains(1000));
+    }
+}
@@ -0,0 +1,100 @@
+package com.ljfxyj2008.scaletimebar;
+
+import android.graphics.Bitmap;
+
+import com.ljfxyj2008.scaletimebar.core.PackedSegmentStore;
+import com.ljfxyj2008.scaletimebar.core.SegmentStore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Batch export against Robolectric's Bitmap and Canvas, which draw nothing but keep sizes and write PNG streams.
+ * The library resources are loaded for the colors of CanvasDrawSink. The drawn pixels are checked by
+ * TimebarViewportFitRangeTest in core, on the same viewport and renderer.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TimebarImageExporterTest {
+    private static final long DAY_START = 1477612800000L;
+    private static final long HOUR = 3600 * 1000L;
+    private static final int CHANNEL_COUNT = 12;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+    private SegmentStore[] stores;
+
+    @Before
+    public void setUp() {
+        stores = new SegmentStore[CHANNEL_COUNT];
+        for (int channel = 0; channel < CHANNEL_COUNT; channel++) {
+            stores[channel] = PackedSegmentStore.fromSortedArrays(
+                    new long[]{DAY_START + channel * HOUR}, new long[]{DAY_START + (channel + 2) * HOUR}, 1);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void exportsOneBitmapPerChannel() throws Exception {
+        TimebarImageExporter exporter = new TimebarImageExporter(RuntimeEnvironment.application, executor);
+        exporter.setImageSize(640, 120);
+        exporter.setParallelism(4);
+        final AtomicInteger exportedCount = new AtomicInteger();
+        exporter.setListener(new TimebarImageExporter.Listener() {
+            @Override
+            public void onChannelExported(int channel) {
+                exportedCount.incrementAndGet();
+            }
+        });
+
+        Bitmap[] bitmaps = exporter.exportBitmaps(stores, DAY_START, DAY_START + 24 * HOUR);
+
+        assertEquals(CHANNEL_COUNT, bitmaps.length);
+        for (Bitmap bitmap : bitmaps) {
+            assertEquals(640, bitmap.getWidth());
+            assertEquals(120, bitmap.getHeight());
+        }
+        assertEquals(CHANNEL_COUNT, exportedCount.get());
+    }
+
+    @Test
+    public void writesOnePngFilePerChannel() throws Exception {
+        TimebarImageExporter exporter = new TimebarImageExporter(RuntimeEnvironment.application, executor);
+        File directory = File.createTempFile("timebar", "export");
+        assertTrue(directory.delete() && directory.mkdir());
+        File[] files = new File[CHANNEL_COUNT];
+        for (int channel = 0; channel < CHANNEL_COUNT; channel++) {
+            files[channel] = new File(directory, "channel" + channel + ".png");
+        }
+
+        exporter.exportPngFiles(stores, DAY_START, DAY_START + 24 * HOUR, files);
+
+        for (File file : files) {
+            assertTrue(file.length() > 0);
+            assertTrue(file.delete());
+        }
+        assertTrue(directory.delete());
+    }
+
+    @Test
+    public void criterionFitsRangeAndWidth() {
+        //A day over one screen is between the 6 hours and 36 hours presets, closer to 36 hours
+        assertEquals(36 * 3600, TimebarImageExporter.selectCriterion(DAY_START, DAY_START + 24 * HOUR, 1080).getTotalSecondsInOneScreen());
+        assertEquals(6 * 24 * 3600, TimebarImageExporter.selectCriterion(DAY_START, DAY_START + 30 * 24 * HOUR, 1080).getTotalSecondsInOneScreen());
+    }
+}
@@ -0,0 +1,137 @@
+package com.ljfxyj2008.scaletimebar;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.*;
+
+/**
+ * Frame coalescing and loop freedom of a group of timebars. The main looper is paused, so the frame callback
+ * of the group only runs when a test ends the frame.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TimebarViewportGroupTest {
+    private static final long DAY_START = 1477612800000L;
+    private static final long HOUR = 3600 * 1000L;
+
+    /**
+     * Timebar counting the viewports the group applies to it
+     */
+    private static class CountingTimebarView extends ScalableTimebarView {
+        int appliedCount;
+        long appliedCurrentTime;
+        float appliedSecondsInOneScreen;
+
+        CountingTimebarView(Context context) {
+            super(context);
+        }
+
+        @Override
+        void applyGroupViewport(long currentTime, float secondsInOneScreen) {
+            appliedCount++;
+            appliedCurrentTime = currentTime;
+            appliedSecondsInOneScreen = secondsInOneScreen;
+            super.applyGroupViewport(currentTime, secondsInOneScreen);
+        }
+    }
+
+    private TimebarViewportGroup group;
+    private CountingTimebarView first;
+    private CountingTimebarView second;
+    private CountingTimebarView third;
+
+    @Before
+    public void setUp() {
+        ShadowLooper.pauseMainLooper();
+        group = new TimebarViewportGroup();
+        first = createMember();
+        second = createMember();
+        third = createMember();
+        endFrame();
+    }
+
+    @After
+    public void tearDown() {
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    private CountingTimebarView createMember() {
+        CountingTimebarView view = new CountingTimebarView(RuntimeEnvironment.application);
+        view.initTimebarLengthAndPosition(DAY_START, DAY_START + 24 * HOUR, DAY_START + 12 * HOUR);
+        group.addMember(view);
+        return view;
+    }
+
+    private static void endFrame() {
+        ShadowLooper.runUiThreadTasks();
+    }
+
+    @Test
+    public void updatesWithinOneFrameAreAppliedOnce() {
+        group.publish(first, DAY_START + 13 * HOUR, 3600);
+        group.publish(first, DAY_START + 14 * HOUR, 1800);
+        group.publish(first, DAY_START + 15 * HOUR, 900);
+        assertEquals(0, second.appliedCount);
+
+        endFrame();
+
+        //The source already shows it, the others get the latest viewport only
+        assertEquals(0, first.appliedCount);
+        assertEquals(1, second.appliedCount);
+        assertEquals(1, third.appliedCount);
+        assertEquals(DAY_START + 15 * HOUR, third.appliedCurrentTime);
+        assertEquals(900, third.appliedSecondsInOneScreen, 0f);
+    }
+
+    @Test
+    public void appliedViewportIsNotPublishedBack() {
+        group.publish(first, DAY_START + 13 * HOUR, 3600);
+        endFrame();
+        assertEquals(1, second.appliedCount);
+
+        //Applying scheduled no other frame, so nothing bounces back to the source
+        assertEquals(0, Robolectric.getForegroundThreadScheduler().size());
+        endFrame();
+        assertEquals(0, first.appliedCount);
+        assertEquals(1, second.appliedCount);
+        assertEquals(1, third.appliedCount);
+    }
+
+    @Test
+    public void severalSourcesInOneFrameConvergeOnLatest() {
+        group.publish(first, DAY_START + 13 * HOUR, 3600);
+        group.publish(second, DAY_START + 14 * HOUR, 1800);
+
+        endFrame();
+
+        assertEquals(1, first.appliedCount);
+        assertEquals(1, second.appliedCount);
+        assertEquals(1, third.appliedCount);
+        assertEquals(DAY_START + 14 * HOUR, first.appliedCurrentTime);
+        assertEquals(DAY_START + 14 * HOUR, second.appliedCurrentTime);
+        assertEquals(0, Robolectric.getForegroundThreadScheduler().size());
+    }
+
+    @Test
+    public void setViewportMovesEveryMemberOnce() {
+        group.setViewport(DAY_START + 6 * HOUR, 0);
+        group.setViewport(DAY_START + 7 * HOUR, 0);
+
+        endFrame();
+
+        assertEquals(1, first.appliedCount);
+        assertEquals(1, second.appliedCount);
+        assertEquals(1, third.appliedCount);
+        assertEquals(DAY_START + 7 * HOUR, first.appliedCurrentTime);
+    }
+}
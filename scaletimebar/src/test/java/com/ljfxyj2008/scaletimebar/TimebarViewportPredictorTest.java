@@ -0,0 +1,104 @@
+package com.ljfxyj2008.scaletimebar;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TimebarViewportPredictorTest {
+    private static final long DAY_START = 1477612800000L;
+    private static final long HOUR = 3600 * 1000L;
+
+    /**
+     * One hour on screen
+     */
+    private static final long HALF_SCREEN = HOUR / 2;
+    private static final long MIN_TIME = DAY_START;
+    private static final long MAX_TIME = DAY_START + 24 * HOUR;
+
+    private TimebarViewportPredictor predictor;
+
+    @Before
+    public void setUp() {
+        predictor = new TimebarViewportPredictor();
+    }
+
+    @Test
+    public void standingStillPredictsCurrentWindow() {
+        long currentTime = DAY_START + 12 * HOUR;
+
+        assertTrue(predictor.predict(currentTime, HALF_SCREEN, MIN_TIME, MAX_TIME));
+        assertEquals(currentTime - HALF_SCREEN, predictor.getPredictedLeftTimeInMillisecond());
+        assertEquals(currentTime + HALF_SCREEN, predictor.getPredictedRightTimeInMillisecond());
+    }
+
+    @Test
+    public void jitteryDragKeepsPrediction() {
+        long currentTime = DAY_START + 12 * HOUR;
+        predictor.predict(currentTime, HALF_SCREEN, MIN_TIME, MAX_TIME);
+        long left = predictor.getPredictedLeftTimeInMillisecond();
+        long right = predictor.getPredictedRightTimeInMillisecond();
+
+        //A finger wobbling back and forth by a few seconds, at over half a screen per second each way
+        for (int i = 0; i < 60; i++) {
+            int direction = i % 2 == 0 ? 1 : -1;
+            predictor.addPanVelocitySample(direction * 2 * HOUR / 3f);
+            assertFalse(predictor.predict(currentTime + direction * 10000, HALF_SCREEN, MIN_TIME, MAX_TIME));
+        }
+
+        assertEquals(left, predictor.getPredictedLeftTimeInMillisecond());
+        assertEquals(right, predictor.getPredictedRightTimeInMillisecond());
+    }
+
+    @Test
+    public void flingMovesPredictionAhead() {
+        long currentTime = DAY_START + 12 * HOUR;
+        predictor.predict(currentTime, HALF_SCREEN, MIN_TIME, MAX_TIME);
+
+        //Three screens per second toward later time
+        boolean published = false;
+        for (int i = 0; i < 5; i++) {
+            predictor.addPanVelocitySample(3 * HOUR);
+            published |= predictor.predict(currentTime, HALF_SCREEN, MIN_TIME, MAX_TIME);
+        }
+
+        assertTrue(published);
+        assertTrue(predictor.getPredictedLeftTimeInMillisecond() > currentTime);
+        assertEquals(2 * HALF_SCREEN,
+                predictor.getPredictedRightTimeInMillisecond() - predictor.getPredictedLeftTimeInMillisecond());
+
+        //Stopping brings it back
+        predictor.resetVelocity();
+        assertTrue(predictor.predict(currentTime, HALF_SCREEN, MIN_TIME, MAX_TIME));
+        assertEquals(currentTime - HALF_SCREEN, predictor.getPredictedLeftTimeInMillisecond());
+    }
+
+    @Test
+    public void flingPredictionStaysWithinTimebar() {
+        long currentTime = MAX_TIME - HALF_SCREEN;
+        for (int i = 0; i < 5; i++) {
+            predictor.addPanVelocitySample(3 * HOUR);
+        }
+
+        predictor.predict(currentTime, HALF_SCREEN, MIN_TIME, MAX_TIME);
+        assertEquals(MAX_TIME + HALF_SCREEN, predictor.getPredictedRightTimeInMillisecond());
+    }
+
+    @Test
+    public void pinchOutNarrowsPrediction() {
+        long currentTime = DAY_START + 12 * HOUR;
+        predictor.predict(currentTime, HALF_SCREEN, MIN_TIME, MAX_TIME);
+
+        //Zooming in by 10% every frame
+        boolean published = false;
+        for (int i = 0; i < 10; i++) {
+            predictor.addScaleSample(1.1f, 16);
+            published |= predictor.predict(currentTime, HALF_SCREEN, MIN_TIME, MAX_TIME);
+        }
+
+        assertTrue(published);
+        assertTrue(predictor.getScaleVelocity() > 0);
+        assertTrue(predictor.getPredictedRightTimeInMillisecond() - predictor.getPredictedLeftTimeInMillisecond() < HALF_SCREEN);
+        assertEquals(currentTime, (predictor.getPredictedLeftTimeInMillisecond() + predictor.getPredictedRightTimeInMillisecond()) / 2);
+    }
+}